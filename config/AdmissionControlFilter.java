@@ -0,0 +1,81 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôle d’admission des requêtes HTTP en mode threads virtuels.
+ * <p>
+ * Sans pool de threads, rien ne borne plus la concurrence : les requêtes en excès
+ * s’empileraient sur le pool de connexions JDBC (attente Hikari, puis erreurs en
+ * cascade). Le nombre de requêtes simultanées est donc limité à un multiple de la
+ * taille du pool ; au-delà, la requête attend brièvement puis reçoit un 503.
+ */
+@Slf4j
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final int limit;
+    private final long waitNanos;
+    private final Counter rejected;
+
+    public AdmissionControlFilter(int limit, Duration maxWait, MeterRegistry registry) {
+        this.limit = limit;
+        this.permits = new Semaphore(limit, true);
+        this.waitNanos = maxWait.toNanos();
+        this.rejected = Counter.builder("http.admission.rejected")
+                .description("Requêtes refusées faute de capacité")
+                .register(registry);
+        Gauge.builder("http.admission.in-flight", permits, p -> limit - p.availablePermits())
+                .description("Requêtes admises en cours")
+                .register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        boolean admitted;
+        try {
+            admitted = permits.tryAcquire(waitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            rejected.increment();
+            log.debug("Requête refusée ({} en cours) : {} {}", limit, request.getMethod(), request.getRequestURI());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Serveur saturé, réessayez");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
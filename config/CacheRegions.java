@@ -0,0 +1,25 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+/**
+ * Noms des régions du cache de second niveau Hibernate.
+ * Chaque région est créée explicitement (taille, TTL) par {@link SecondLevelCacheConfig} ;
+ * une entité annotée vers une région absente fait échouer le démarrage.
+ */
+public final class CacheRegions {
+
+    public static final String COMPANY = "company";
+    public static final String SITE = "site";
+    public static final String SUBSCRIPTION_PLAN = "subscription-plan";
+    public static final String WEEKLY_RULE = "weekly-rule";
+    public static final String WEEKLY_RULE_COLLECTIONS = "weekly-rule.collections";
+    public static final String AGENT_SCHEDULE = "agent-schedule";
+    public static final String SITE_SHIFT = "site-shift";
+    public static final String SITE_SHIFT_COLLECTIONS = "site-shift.collections";
+
+    /** Régions techniques du cache de requêtes (noms imposés par Hibernate). */
+    public static final String QUERY_RESULTS = "default-query-results-region";
+    public static final String UPDATE_TIMESTAMPS = "default-update-timestamps-region";
+
+    private CacheRegions() {
+    }
+}
@@ -0,0 +1,111 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.makarimal.projet_gestionautoplanningsecure.util.BeforeCommitResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Routage lecture / écriture, actif dès que {@code planning.datasource.replica.url} est défini.
+ * <p>
+ * Le primaire reste configuré par {@code spring.datasource.*} ; le réplica par
+ * {@code planning.datasource.replica.*} (url, username, password, hikari.*). Les
+ * transactions {@code @Transactional(readOnly = true)} vont au réplica, sauf pour un
+ * client ayant écrit depuis moins de {@code planning.datasource.replica.max-lag}
+ * (épingle renvoyée par le client, voir {@link ReplicaStickiness}).
+ * <p>
+ * En local, deux bases embarquées suffisent, par exemple
+ * {@code spring.datasource.url=jdbc:h2:mem:primary} et
+ * {@code planning.datasource.replica.url=jdbc:h2:mem:replica} : le schéma Hibernate
+ * n’est créé que sur le primaire, le réplica doit être initialisé à part.
+ */
+@Configuration
+@ConditionalOnProperty(name = "planning.datasource.replica.url")
+public class DataSourceRoutingConfig {
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /** Les propriétés Hikari du réplica ({@code …replica.hikari.*}) sont liées après construction. */
+    @Bean
+    @ConfigurationProperties("planning.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            @Value("${planning.datasource.replica.url}") String url,
+            @Value("${planning.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${planning.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaStickiness replicaStickiness(
+            @Value("${planning.datasource.replica.max-lag:2s}") Duration maxLag) {
+        return new ReplicaStickiness(maxLag);
+    }
+
+    /** DataSource de l’application (JPA, JdbcTemplate) : routage derrière un proxy paresseux. */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaStickiness stickiness) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, stickiness);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * Toute requête HTTP mutante lit sur le primaire, et sa réponse épingle le client au
+     * primaire pour la fenêtre de retard, comptée à partir de l’envoi de la réponse
+     * (écritures validées).
+     */
+    @Bean
+    public OncePerRequestFilter replicaStickinessFilter(ReplicaStickiness stickiness) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                            @NonNull HttpServletResponse response,
+                                            @NonNull FilterChain filterChain) throws ServletException, IOException {
+                if (SAFE_METHODS.contains(request.getMethod())) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
+                stickiness.markWrite(request);
+                BeforeCommitResponse wrapper = new BeforeCommitResponse(response,
+                        () -> stickiness.pinClient(request, response));
+                filterChain.doFilter(request, wrapper);
+                wrapper.beforeCommit();
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pools dédiés aux calculs de planning, pour ne pas occuper les threads HTTP.
+ * <p>
+ * Avec {@code planning.threads.virtual=true}, les tâches bloquantes (envoi de mails,
+ * génération des PDF avec chargement du logo) passent sur des threads virtuels ; les
+ * calculs en mémoire gardent un pool de threads plateforme dimensionné sur les cœurs.
+ */
+@Configuration
+public class PlanningExecutorsConfig {
+
+    /** Scénarios de simulation : calcul pur en mémoire, un thread par cœur suffit. */
+    @Bean(name = "simulationExecutor")
+    public ThreadPoolTaskExecutor simulationExecutor(
+            @Value("${planning.simulation.threads:0}") int threads,
+            @Value("${planning.simulation.queue-capacity:64}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("simulation-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Envoi des plannings : une tâche par employé (PDF + SMTP), bloquante sur le réseau.
+     * La concurrence est bornée dans les deux modes pour ne pas saturer le serveur SMTP.
+     */
+    @Bean(name = "mailExecutor")
+    public AsyncTaskExecutor mailExecutor(
+            @Value("${planning.threads.virtual:false}") boolean virtual,
+            @Value("${planning.mail.concurrency:8}") int concurrency) {
+        if (virtual) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mail-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(concurrency);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setThreadNamePrefix("mail-");
+        executor.initialize();
+        return executor;
+    }
+}
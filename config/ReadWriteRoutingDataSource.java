@@ -0,0 +1,34 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Oriente les transactions {@code readOnly} vers le réplica, tout le reste vers le primaire.
+ * <p>
+ * Doit être enveloppée dans un {@code LazyConnectionDataSourceProxy} : la connexion
+ * n’est alors obtenue qu’à la première requête SQL, une fois l’indicateur readOnly
+ * de la transaction positionné.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    private final ReplicaStickiness stickiness;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaStickiness stickiness) {
+        this.stickiness = stickiness;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readOnly && !stickiness.isSticky() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
@@ -0,0 +1,112 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+/**
+ * « Lire ses propres écritures » : après une mutation, les lectures du même client
+ * restent sur le primaire pendant {@code planning.datasource.replica.max-lag}
+ * (retard de réplication toléré).
+ * <p>
+ * L’épingle est portée par le client, pas par l’instance : la réponse à une mutation
+ * renvoie l’échéance (epoch ms) dans le cookie {@value #COOKIE} et l’en-tête
+ * {@value #HEADER}, que le client renvoie (cookie automatiquement, en-tête s’il le
+ * recopie). Toute instance l’honore donc. Une valeur fournie par le client est bornée
+ * à {@code maintenant + max-lag} : il ne peut que s’imposer des lectures sur le primaire.
+ * Les horloges des instances doivent rester proches devant {@code max-lag}.
+ */
+public class ReplicaStickiness {
+
+    public static final String COOKIE = "planning-primary-until";
+    public static final String HEADER = "X-Primary-Until";
+
+    private static final String ATTRIBUTE = ReplicaStickiness.class.getName() + ".until";
+
+    private final long windowMillis;
+
+    public ReplicaStickiness(Duration maxLag) {
+        this.windowMillis = maxLag.toMillis();
+    }
+
+    /**
+     * Retard de réplication toléré (ms) ; 0 sans réplica. Les caches locaux ne gardent pas
+     * un résultat lu moins de ce délai après leur dernière invalidation : il a pu être lu
+     * sur un réplica qui n’avait pas encore reçu l’écriture.
+     */
+    public static long replicaLagMillis(ObjectProvider<ReplicaStickiness> stickiness) {
+        ReplicaStickiness replica = stickiness.getIfAvailable();
+        return replica != null ? replica.windowMillis : 0;
+    }
+
+    /** Début d’une mutation : les lectures de la requête elle-même vont au primaire. */
+    public void markWrite(HttpServletRequest request) {
+        request.setAttribute(ATTRIBUTE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Juste avant l’envoi de la réponse à une mutation (écritures validées) : renvoie au
+     * client l’échéance de la fenêtre de retard, qui commence maintenant.
+     */
+    public void pinClient(HttpServletRequest request, HttpServletResponse response) {
+        long until = System.currentTimeMillis() + windowMillis;
+        response.setHeader(HEADER, String.valueOf(until));
+        response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, String.valueOf(until))
+                .httpOnly(true)
+                .secure(request.isSecure())
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(Duration.ofMillis(windowMillis).plusSeconds(1))
+                .build()
+                .toString());
+    }
+
+    public boolean isSticky() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) {
+            return false;       // hors requête HTTP (tâches de fond) : pas d’épingle
+        }
+        HttpServletRequest request = servlet.getRequest();
+        Object cached = request.getAttribute(ATTRIBUTE);
+        long until;
+        if (cached instanceof Long value) {
+            until = value;
+        } else {
+            until = Math.min(pinFromClient(request), System.currentTimeMillis() + windowMillis);
+            request.setAttribute(ATTRIBUTE, until);
+        }
+        return until > System.currentTimeMillis();
+    }
+
+    private static long pinFromClient(HttpServletRequest request) {
+        long until = parse(request.getHeader(HEADER));
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    until = Math.max(until, parse(cookie.getValue()));
+                }
+            }
+        }
+        return until;
+    }
+
+    private static long parse(String value) {
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
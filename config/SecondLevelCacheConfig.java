@@ -0,0 +1,108 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache de second niveau Hibernate pour les données de référence (société, sites,
+ * formules, règles hebdomadaires, vacations).
+ * <p>
+ * Fournisseur local en mémoire (Caffeine via JCache) : chaque région est créée ici
+ * avec une taille maximale et un TTL, surchargeables par
+ * {@code planning.cache.regions.<région>.max-entries} / {@code .ttl-seconds}.
+ * Les écritures passant par Hibernate invalident les régions concernées <em>de
+ * l’instance qui écrit</em> : avec plusieurs répliques, les autres instances servent
+ * l’ancienne valeur jusqu’à expiration. Les TTL sont donc courts (30 s, 2 min pour les
+ * formules) et bornés par {@code planning.cache.max-stale-seconds} ; ils bornent aussi la
+ * fraîcheur en cas d’écriture SQL directe. Pour une invalidation immédiate entre
+ * répliques, brancher un fournisseur JCache répliqué sur les mêmes régions.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "planning.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    private static final String PROVIDER = "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider";
+
+    /** Taille et TTL (secondes, 0 = sans expiration) par défaut de chaque région. */
+    private static final Map<String, long[]> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put(CacheRegions.COMPANY, new long[]{1_000, 30});
+        DEFAULTS.put(CacheRegions.SITE, new long[]{10_000, 30});
+        DEFAULTS.put(CacheRegions.SUBSCRIPTION_PLAN, new long[]{100, 120});
+        DEFAULTS.put(CacheRegions.WEEKLY_RULE, new long[]{50_000, 30});
+        DEFAULTS.put(CacheRegions.WEEKLY_RULE_COLLECTIONS, new long[]{100_000, 30});
+        DEFAULTS.put(CacheRegions.AGENT_SCHEDULE, new long[]{200_000, 30});
+        DEFAULTS.put(CacheRegions.SITE_SHIFT, new long[]{50_000, 30});
+        DEFAULTS.put(CacheRegions.SITE_SHIFT_COLLECTIONS, new long[]{100_000, 30});
+        DEFAULTS.put(CacheRegions.QUERY_RESULTS, new long[]{10_000, 30});
+        // Horodatages des tables : jamais expirés avant les résultats de requêtes qui en dépendent
+        DEFAULTS.put(CacheRegions.UPDATE_TIMESTAMPS, new long[]{10_000, 0});
+    }
+
+    /**
+     * Gestionnaire propre au contexte (URI unique) : le gestionnaire par défaut du fournisseur
+     * est partagé par toute la JVM, deux contextes (tests à deux instances) y partageraient
+     * leurs régions et la fermeture de l’un fermerait celles de l’autre.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(Environment env) {
+        CachingProvider provider = Caching.getCachingProvider(PROVIDER);
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("planning-l2-" + UUID.randomUUID()), provider.getDefaultClassLoader());
+        long maxStaleSeconds = env.getProperty("planning.cache.max-stale-seconds", Long.class, 120L);
+        DEFAULTS.forEach((region, defaults) -> {
+            long maxEntries = env.getProperty("planning.cache.regions." + region + ".max-entries",
+                    Long.class, defaults[0]);
+            long ttlSeconds = env.getProperty("planning.cache.regions." + region + ".ttl-seconds",
+                    Long.class, defaults[1]);
+            if (!CacheRegions.UPDATE_TIMESTAMPS.equals(region) && (ttlSeconds <= 0 || ttlSeconds > maxStaleSeconds)) {
+                ttlSeconds = maxStaleSeconds;
+            }
+
+            CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+            config.setMaximumSize(OptionalLong.of(maxEntries));
+            if (ttlSeconds > 0) {
+                config.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+            }
+            config.setStatisticsEnabled(true);
+            if (cacheManager.getCache(region) == null) {
+                cacheManager.createCache(region, config);
+            }
+            log.debug("Région de cache {} : {} entrées max, TTL {} s", region, maxEntries, ttlSeconds);
+        });
+        return cacheManager;
+    }
+
+    /** Active le cache de second niveau, le cache de requêtes et les statistiques Hibernate. */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return props -> {
+            props.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            props.put(AvailableSettings.USE_QUERY_CACHE, true);
+            props.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            props.put(AvailableSettings.GENERATE_STATISTICS, true);
+            props.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // Une région non déclarée ci-dessus est une erreur de configuration
+            props.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
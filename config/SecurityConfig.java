@@ -1,8 +1,11 @@
 // src/main/java/org/makarimal/projet_gestionautoplanningsecure/config/SecurityConfig.java
 package org.makarimal.projet_gestionautoplanningsecure.config;
 
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.makarimal.projet_gestionautoplanningsecure.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -28,6 +31,10 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final AuthenticationProvider  authenticationProvider;
 
+    /** Port de l’actuator ({@code management.server.port}) ; -1 : même port que l’API. */
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -41,12 +48,20 @@ public class SecurityConfig {
 
                 // --- Règles d’accès -------------------------------------------------------------
                 .authorizeHttpRequests(auth -> auth
+                        // Redispatch d’une réponse asynchrone (flux SSE) : la requête initiale a déjà été authentifiée
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Endpoints publics (même chemin que dans JwtAuthenticationFilter)
                         .requestMatchers("/auth/**", "/error", "/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html"
                         ).permitAll()
                         // Exemple d’endpoint public supplémentaire
                         .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        // Scrape Prometheus (métriques étiquetées par société et site) : libre seulement
+                        // sur le port de gestion, à n’exposer que sur le réseau interne
+                        .requestMatchers(this::onManagementPort).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("SUPER_ADMIN")
                         .requestMatchers("/absences/**").permitAll()
+                        // Abonnement agenda : jeton d’URL ou JWT, vérifié par PlanningController
+                        .requestMatchers(HttpMethod.GET, "/planning/employee/*/calendar.ics").permitAll()
                         //Swagger
                         .requestMatchers(
                                 "/v3/api-docs/**",
@@ -63,6 +78,10 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private boolean onManagementPort(HttpServletRequest request) {
+        return managementPort > 0 && request.getLocalPort() == managementPort;
+    }
+
     // ---------------------------------------------------------------------------------------
     // CORS : autorise ton front Angular (http://localhost:4200) à parler à l’API
     // ---------------------------------------------------------------------------------------
@@ -72,6 +91,8 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(List.of("http://localhost:4200"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of("X-Sql-Statements", "X-Entity-Loads", "X-Sync-Token", "ETag",
+                ReplicaStickiness.HEADER));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
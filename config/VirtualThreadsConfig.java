@@ -0,0 +1,56 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.time.Duration;
+
+/**
+ * Mode d’exécution sur threads virtuels ({@code planning.threads.virtual=true}, désactivé par défaut).
+ * <p>
+ * Chaque requête Tomcat s’exécute sur son propre thread virtuel ; les envois de mails
+ * suivent le même modèle ({@link PlanningExecutorsConfig#mailExecutor}). La génération,
+ * exécutée dans le thread de la requête, en profite directement. La concurrence
+ * effective est bornée par {@link AdmissionControlFilter}, dimensionné sur le pool JDBC.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "planning.threads.virtual", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("http-");
+        executor.setVirtualThreads(true);
+        log.info("Requêtes HTTP exécutées sur threads virtuels");
+        return protocolHandler -> protocolHandler.setExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    /**
+     * Limite = taille du pool Hikari × {@code planning.threads.admission.requests-per-connection}
+     * (une requête ne tient pas une connexion pendant toute sa durée : SMTP, PDF, sérialisation).
+     */
+    @Bean
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(
+            MeterRegistry registry,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${planning.threads.admission.requests-per-connection:4}") int perConnection,
+            @Value("${planning.threads.admission.max-wait:2s}") Duration maxWait) {
+        int limit = Math.max(1, poolSize * perConnection);
+        FilterRegistrationBean<AdmissionControlFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionControlFilter(limit, maxWait, registry));
+        // Avant tout le reste, y compris l’authentification (lecture de l’utilisateur en base)
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        log.info("Admission HTTP limitée à {} requêtes simultanées", limit);
+        return registration;
+    }
+}
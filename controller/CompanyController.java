@@ -2,18 +2,23 @@ package org.makarimal.projet_gestionautoplanningsecure.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ConflictReportDTO;
 import org.makarimal.projet_gestionautoplanningsecure.dto.CreateCompanyRequest;
 import org.makarimal.projet_gestionautoplanningsecure.model.Company;
+import org.makarimal.projet_gestionautoplanningsecure.model.Role;
 import org.makarimal.projet_gestionautoplanningsecure.model.User;
 import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.UserRepository;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.SqlBudget;
 import org.makarimal.projet_gestionautoplanningsecure.service.CompanyService;
+import org.makarimal.projet_gestionautoplanningsecure.service.ConflictService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.security.Principal;
 import java.util.List;
@@ -25,6 +30,7 @@ public class CompanyController {
     private final CompanyService companyAdminService;
     private final UserRepository userRepository;
     private final SiteRepository siteRepository;
+    private final ConflictService conflictService;
 
     @PostMapping
     @PreAuthorize("hasRole('SUPER_ADMIN')")
@@ -66,6 +72,23 @@ public class CompanyController {
     }
 
 
+    /** Doubles réservations et repos insuffisants du mois, tous sites de la société. */
+    @GetMapping("/{id}/conflicts")
+    @SqlBudget(statements = 5)
+    public ResponseEntity<ConflictReportDTO> getConflicts(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id,
+            @RequestParam Integer month,
+            @RequestParam Integer year) {
+
+        boolean superAdmin = user.getRoles().contains(Role.SUPER_ADMIN);
+        if (!superAdmin && (user.getCompany() == null || !user.getCompany().getId().equals(id))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Accès refusé à cette entreprise");
+        }
+        return ResponseEntity.ok(conflictService.detect(id, month, year));
+    }
+
+
     @PutMapping("/{id}")
     public ResponseEntity<Company> updateCompany(
             @PathVariable Long id,
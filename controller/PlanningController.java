@@ -6,11 +6,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.makarimal.projet_gestionautoplanningsecure.dto.*;
 import org.makarimal.projet_gestionautoplanningsecure.model.User;
+import org.makarimal.projet_gestionautoplanningsecure.planning.PlanningEventStream;
+import org.makarimal.projet_gestionautoplanningsecure.service.CalendarFeedService;
 import org.makarimal.projet_gestionautoplanningsecure.service.PlanningQueryService;
+import org.makarimal.projet_gestionautoplanningsecure.service.TenantGuard;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +33,12 @@ import java.util.Map;
 public class PlanningController {
 
     private final PlanningQueryService planning;
+    private final PlanningEventStream eventStream;
+    private final TenantGuard tenantGuard;
+    private final CalendarFeedService calendarFeeds;
+
+    private static final MediaType TEXT_CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
+    private static final String SYNC_TOKEN_HEADER = "X-Sync-Token";
 
     /* ------------------------------------------------------------------ */
     /* 1. Planning d’un employé                                           */
@@ -61,4 +78,96 @@ public class PlanningController {
         return ResponseEntity.ok(
                 planning.getSitePlanning(siteId, month, year));
     }
+
+    /* ------------------------------------------------------------------ */
+    /* 3. Flux des changements d’un site (SSE)                            */
+    /* ------------------------------------------------------------------ */
+    /**
+     * Événements {@code changes} (deltas d’affectations), {@code ready} (à jour) et
+     * {@code reset} (recharger via {@code /site/{siteId}}). Reprise : en-tête
+     * {@code Last-Event-ID} (envoyé par EventSource) ou paramètre {@code lastEventId}.
+     */
+    @GetMapping(path = "/site/{siteId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSiteEvents(
+            @PathVariable Long siteId,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(name = "lastEventId", required = false) String lastEventIdParam,
+            @AuthenticationPrincipal User user) {
+
+        tenantGuard.requireSite(user.getCompany().getId(), siteId);
+        return eventStream.subscribe(siteId, lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /* 4. Agenda d’un employé (iCalendar)                                 */
+    /* ------------------------------------------------------------------ */
+    /**
+     * Flux d’abonnement. Accès par le jeton de l’URL d’abonnement ({@code token}, pour les
+     * agendas qui n’envoient pas de JWT) ou par un utilisateur de la même société.
+     * Requête conditionnelle (If-None-Match / If-Modified-Since) → 304 ; avec
+     * {@code syncToken} (valeur d’un {@code X-Sync-Token} précédent) : seulement les changements.
+     */
+    @GetMapping(path = "/employee/{employeeId}/calendar.ics", produces = "text/calendar")
+    public ResponseEntity<String> getEmployeeCalendar(
+            @PathVariable Long employeeId,
+            @RequestParam(name = "token", required = false) String token,
+            @RequestParam(name = "syncToken", required = false) String syncToken,
+            @AuthenticationPrincipal User user,
+            WebRequest request) {
+
+        if (!calendarFeeds.isValidAccessToken(employeeId, token)) {
+            if (user == null) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Jeton d’agenda invalide");
+            }
+            tenantGuard.requireEmployee(user.getCompany().getId(), employeeId);
+        }
+
+        CalendarFeedService.Feed feed = calendarFeeds.feed(employeeId);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(TEXT_CALENDAR)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .header(SYNC_TOKEN_HEADER, feed.getSyncToken());
+
+        if (syncToken != null) {
+            String changes = calendarFeeds.changesSince(employeeId, feed, syncToken);
+            if (changes != null) {
+                return response.body(changes);
+            }
+        }
+        if (request.checkNotModified(feed.getSyncToken(), feed.getLastModified())) {
+            return null;   // 304, en-têtes ETag / Last-Modified posés par checkNotModified
+        }
+        return response
+                .eTag(feed.getSyncToken())
+                .lastModified(feed.getLastModified())
+                .body(feed.getBody());
+    }
+
+    /** URL d’abonnement (avec jeton) à communiquer à l’employé. */
+    @GetMapping("/employee/{employeeId}/calendar-url")
+    public ResponseEntity<Map<String, String>> getEmployeeCalendarUrl(
+            @PathVariable Long employeeId,
+            @AuthenticationPrincipal User user) {
+
+        tenantGuard.requireEmployee(user.getCompany().getId(), employeeId);
+        return ResponseEntity.ok(Map.of("url", calendarUrl(employeeId, calendarFeeds.accessToken(employeeId))));
+    }
+
+    /** Révoque l’URL d’abonnement de l’employé et en renvoie une nouvelle. */
+    @PostMapping("/employee/{employeeId}/calendar-url/rotate")
+    public ResponseEntity<Map<String, String>> rotateEmployeeCalendarUrl(
+            @PathVariable Long employeeId,
+            @AuthenticationPrincipal User user) {
+
+        tenantGuard.requireEmployee(user.getCompany().getId(), employeeId);
+        return ResponseEntity.ok(Map.of("url", calendarUrl(employeeId, calendarFeeds.rotateAccessToken(employeeId))));
+    }
+
+    private static String calendarUrl(Long employeeId, String token) {
+        return ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/planning/employee/{employeeId}/calendar.ics")
+                .queryParam("token", token)
+                .buildAndExpand(employeeId)
+                .toUriString();
+    }
 }
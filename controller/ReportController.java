@@ -0,0 +1,108 @@
+package org.makarimal.projet_gestionautoplanningsecure.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.RequiredArgsConstructor;
+import org.makarimal.projet_gestionautoplanningsecure.dto.CoverageReportDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.User;
+import org.makarimal.projet_gestionautoplanningsecure.service.CoverageSummaryService;
+import org.makarimal.projet_gestionautoplanningsecure.service.PayrollExportService;
+import org.makarimal.projet_gestionautoplanningsecure.service.TenantGuard;
+import org.makarimal.projet_gestionautoplanningsecure.util.TableWriter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private static final String XLSX = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    private final PayrollExportService payrollExport;
+    private final CoverageSummaryService coverageSummary;
+    private final TenantGuard tenantGuard;
+
+    /**
+     * Heures du mois par employé pour la paie ({@code format=csv|xlsx}).
+     * Le fichier est écrit dans la réponse au fil de la lecture.
+     */
+    @GetMapping("/hours")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public void exportHours(
+            @RequestParam @Min(1) @Max(12) int month,
+            @RequestParam                int year,
+            @RequestParam(defaultValue = "csv") String format,
+            @AuthenticationPrincipal User user,
+            HttpServletResponse response) throws IOException {
+
+        boolean xlsx = "xlsx".equalsIgnoreCase(format);
+        if (!xlsx && !"csv".equalsIgnoreCase(format)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format inconnu : " + format);
+        }
+        String filename = String.format("heures-%d-%02d.%s", year, month, xlsx ? "xlsx" : "csv");
+        response.setContentType(xlsx ? XLSX : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+
+        try (TableWriter writer = xlsx
+                ? TableWriter.xlsx(response.getOutputStream(), "Heures")
+                : TableWriter.csv(response.getOutputStream())) {
+            payrollExport.writeMonthlyHours(user.getCompany().getId(), YearMonth.of(year, month), writer);
+        }
+    }
+
+    /**
+     * Couverture d’un mois ({@code month}) ou d’un trimestre ({@code quarter}), lue dans la
+     * table de synthèse ; {@code daily=true} ajoute le détail jour par jour.
+     */
+    @GetMapping("/coverage")
+    public ResponseEntity<CoverageReportDTO> getCoverage(
+            @RequestParam                                int year,
+            @RequestParam(required = false) @Min(1) @Max(12) Integer month,
+            @RequestParam(required = false) @Min(1) @Max(4)  Integer quarter,
+            @RequestParam(required = false)              Long siteId,
+            @RequestParam(defaultValue = "false")        boolean daily,
+            @AuthenticationPrincipal User user) {
+
+        if ((month == null) == (quarter == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Indiquer month ou quarter");
+        }
+        Long companyId = user.getCompany().getId();
+        if (siteId != null) {
+            tenantGuard.requireSite(companyId, siteId);
+        }
+        YearMonth first = YearMonth.of(year, month != null ? month : (quarter - 1) * 3 + 1);
+        YearMonth last = month != null ? first : first.plusMonths(2);
+        return ResponseEntity.ok(
+                coverageSummary.report(companyId, siteId, first.atDay(1), last.atEndOfMonth(), daily));
+    }
+
+    /** Reconstruction de la synthèse de couverture sur une période (reprise d’historique). */
+    @PostMapping("/coverage/rebuild")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildCoverage(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @AuthenticationPrincipal User user) {
+
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Période invalide");
+        }
+        int rows = coverageSummary.rebuild(user.getCompany().getId(), from, to);
+        return ResponseEntity.ok(Map.of("from", from, "to", to, "rows", rows));
+    }
+}
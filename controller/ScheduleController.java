@@ -5,10 +5,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.makarimal.projet_gestionautoplanningsecure.dto.*;
 import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.SqlBudget;
 import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
-import org.makarimal.projet_gestionautoplanningsecure.service.AssignmentGenerator;
-import org.makarimal.projet_gestionautoplanningsecure.service.ScheduleGeneratorService;
+import org.makarimal.projet_gestionautoplanningsecure.service.AssignmentBatchService;
+import org.makarimal.projet_gestionautoplanningsecure.service.GenerationCoordinator;
+import org.makarimal.projet_gestionautoplanningsecure.service.ReplacementService;
+import org.makarimal.projet_gestionautoplanningsecure.service.ScheduleCloneService;
+import org.makarimal.projet_gestionautoplanningsecure.service.ScheduleEditService;
+import org.makarimal.projet_gestionautoplanningsecure.service.ScheduleMailingService;
 import org.makarimal.projet_gestionautoplanningsecure.service.ScheduleService;
+import org.makarimal.projet_gestionautoplanningsecure.service.ScheduleVersionService;
+import org.makarimal.projet_gestionautoplanningsecure.service.SimulationService;
+import org.makarimal.projet_gestionautoplanningsecure.util.EntityTags;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
@@ -25,9 +34,15 @@ import java.util.stream.Collectors;
 public class ScheduleController {
 
     private final ScheduleService scheduleService;
-    private final AssignmentGenerator generator;
     private final ScheduleAssignmentRepository assignmentRepository;
-    private final ScheduleGeneratorService scheduleGeneratorService;
+    private final ReplacementService replacementService;
+    private final SimulationService simulationService;
+    private final ScheduleCloneService scheduleCloneService;
+    private final AssignmentBatchService assignmentBatchService;
+    private final ScheduleVersionService scheduleVersionService;
+    private final ScheduleEditService scheduleEditService;
+    private final GenerationCoordinator generationCoordinator;
+    private final ScheduleMailingService scheduleMailingService;
 
 
 
@@ -38,7 +53,8 @@ public class ScheduleController {
             @RequestParam Integer month,
             @RequestParam Integer year) {
 
-        Schedule schedule = scheduleGeneratorService
+        // un seul calcul par (site, mois) sur toutes les instances ; une demande concurrente s’y rattache
+        Schedule schedule = generationCoordinator
                 .generateSchedule(
                         user.getCompany().getId(),
                         siteId,
@@ -48,6 +64,33 @@ public class ScheduleController {
         return ResponseEntity.ok(schedule);
     }
 
+    /** Génère {@code months} mois consécutifs (1 à 3) en une fois : un planning par mois. */
+    @PostMapping("/generate-horizon")
+    public ResponseEntity<List<Schedule>> generateHorizon(
+            @AuthenticationPrincipal User user,
+            @RequestParam Long siteId,
+            @RequestParam Integer month,
+            @RequestParam Integer year,
+            @RequestParam(defaultValue = "3") Integer months) {
+
+        return ResponseEntity.ok(generationCoordinator.generateHorizon(
+                user.getCompany().getId(), siteId, month, year, months));
+    }
+
+    /** Génération « à blanc » : scénario de référence puis chaque variante, rien n’est enregistré. */
+    @PostMapping("/simulate")
+    @SqlBudget(statements = 20)
+    public ResponseEntity<List<SimulationResultDTO>> simulate(
+            @AuthenticationPrincipal User user,
+            @RequestParam Long siteId,
+            @RequestParam Integer month,
+            @RequestParam Integer year,
+            @Valid @RequestBody SimulationRequest request) {
+
+        return ResponseEntity.ok(simulationService.simulate(
+                user.getCompany().getId(), siteId, month, year, request));
+    }
+
 
     /* ------------------------------------------------------------------ */
     /*  1.  Création / rafraîchissement d’un planning                     */
@@ -64,24 +107,92 @@ public class ScheduleController {
         return ResponseEntity.ok(schedule);
     }
 
+    /**
+     * {@code If-Match} (ou champ {@code version}) : version lue, obligatoire ; une version
+     * périmée est fusionnée si les champs modifiés diffèrent.
+     */
     @PutMapping("/{id}")
     public ResponseEntity<Schedule> updateSchedule(
             @AuthenticationPrincipal User user,
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody ScheduleRequest request
     ) {
-        Schedule schedule = scheduleService.updateSchedule(user.getCompany().getId(), id, request);
-        return ResponseEntity.ok(schedule);
+        Schedule schedule = scheduleEditService.updateSchedule(
+                user.getCompany().getId(), id, request, expectedVersion(ifMatch, request.getVersion()));
+        return ResponseEntity.ok().eTag(EntityTags.of(schedule.getVersion())).body(schedule);
     }
 
     /* ------------------------------------------------------------------ */
     /*  2.  Génération automatique des affectations                       */
     /* ------------------------------------------------------------------ */
 
+    /**
+     * {@code seed} : rejoue une génération précédente (graine lue sur le planning).
+     * Même bail que la génération du (site, mois) : jamais deux générations concurrentes.
+     */
     @PostMapping("/{id}/generate-assignments")
-    public ResponseEntity<Void> generate(@PathVariable Long id) {
-        generator.generateForSchedule(id);   // on appelle la méthode, on ignore son "résultat" (void)
-        return ResponseEntity.ok().build();  // on renvoie juste 200 OK
+    public ResponseEntity<Void> generate(@AuthenticationPrincipal User user,
+                                         @PathVariable Long id,
+                                         @RequestParam(required = false) Long seed) {
+        generationCoordinator.generateAssignments(user.getCompany().getId(), id, seed);
+        return ResponseEntity.ok().build();
+    }
+
+    /** Reconduit les affectations du planning sur un autre mois (jours de semaine alignés). */
+    @PostMapping("/{id}/clone")
+    @SqlBudget(statements = 25)
+    public ResponseEntity<ScheduleCloneResultDTO> cloneSchedule(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id,
+            @RequestParam Integer targetMonth,
+            @RequestParam Integer targetYear) {
+
+        return ResponseEntity.ok(scheduleCloneService.cloneToMonth(
+                user.getCompany().getId(), id, targetMonth, targetYear));
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Versions                                                          */
+    /* ------------------------------------------------------------------ */
+
+    /** Versions du contenu du planning, la plus récente en premier. */
+    @GetMapping("/{id}/versions")
+    public ResponseEntity<List<ScheduleVersionDTO>> getVersions(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id) {
+
+        return ResponseEntity.ok(scheduleVersionService.listVersions(user.getCompany().getId(), id));
+    }
+
+    /** Fige l’état courant (après modifications manuelles) en nouvelle version. */
+    @PostMapping("/{id}/versions")
+    public ResponseEntity<ScheduleVersionDTO> createVersion(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id) {
+
+        return ResponseEntity.ok(scheduleVersionService.snapshot(user.getCompany().getId(), id));
+    }
+
+    /** Différence entre deux versions ; sans {@code to}, avec l’état courant. */
+    @GetMapping("/{id}/diff")
+    public ResponseEntity<ScheduleDiffDTO> diffVersions(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id,
+            @RequestParam Integer from,
+            @RequestParam(required = false) Integer to) {
+
+        return ResponseEntity.ok(scheduleVersionService.diff(user.getCompany().getId(), id, from, to));
+    }
+
+    /** Ramène le planning à une version, sans relancer la génération. */
+    @PostMapping("/{id}/versions/{version}/rollback")
+    public ResponseEntity<ScheduleVersionDTO> rollback(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id,
+            @PathVariable Integer version) {
+
+        return ResponseEntity.ok(scheduleVersionService.rollback(user.getCompany().getId(), id, version));
     }
 
     /* ------------------------------------------------------------------ */
@@ -96,7 +207,9 @@ public class ScheduleController {
         Schedule schedule = scheduleService.getSchedule(user.getCompany().getId(), id);
         List<ScheduleAssignment> assigns = assignmentRepository.findByScheduleId(id);
 
-        return ResponseEntity.ok(scheduleService.toDto(schedule, assigns));
+        return ResponseEntity.ok()
+                .eTag(EntityTags.of(schedule.getVersion()))
+                .body(scheduleService.toDto(schedule, assigns));
     }
 
     /*  Liste filtrée                                                     */
@@ -124,12 +237,14 @@ public class ScheduleController {
     /*  4.  Publication / envoi                                           */
     /* ------------------------------------------------------------------ */
 
+    /** Refusée (422 + rapport) si le planning enfreint une règle de conformité, sauf {@code force=true}. */
     @PostMapping("/{id}/publish")
     public ResponseEntity<ScheduleResponse> publishSchedule(
             @AuthenticationPrincipal User user,
-            @PathVariable Long id) {
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean force) {
 
-        Schedule updated = scheduleService.publishSchedule(user.getCompany().getId(), id);
+        Schedule updated = scheduleService.publishSchedule(user.getCompany().getId(), id, force);
         List<ScheduleAssignment> assigns = assignmentRepository.findByScheduleId(updated.getId());
 
         return ResponseEntity.ok(scheduleService.toDto(updated, assigns));
@@ -137,6 +252,17 @@ public class ScheduleController {
 
 
 
+    @GetMapping("/{id}/compliance")
+    @SqlBudget(statements = 5)
+    public ResponseEntity<ComplianceReportDTO> checkCompliance(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long id) {
+
+        return ResponseEntity.ok(scheduleService.checkCompliance(user.getCompany().getId(), id));
+    }
+
+
+
     /* ------------------------------------------------------------------ */
     /*  5.  CRUD sur les affectations manuelles                           */
     /* ------------------------------------------------------------------ */
@@ -154,13 +280,32 @@ public class ScheduleController {
     }
 
 
+    /** Lot d’ajouts / modifications / suppressions validé en mémoire puis écrit en une transaction. */
+    @PostMapping("/{id}/assignments:batch")
+    public ResponseEntity<AssignmentBatchResultDTO> applyAssignmentBatch(
+            @AuthenticationPrincipal User user,
+            @PathVariable("id") Long scheduleId,
+            @Valid @RequestBody AssignmentBatchRequest request) {
+
+        AssignmentBatchResultDTO result = assignmentBatchService.apply(
+                user.getCompany().getId(), scheduleId, request);
+
+        return result.isApplied()
+                ? ResponseEntity.ok(result)
+                : ResponseEntity.unprocessableEntity().body(result);
+    }
+
+    /** {@code If-Match} (ou champ {@code version}) : version lue, obligatoire ; une version périmée est fusionnée si possible. */
     @PutMapping("/assignments/{id}")
     public ResponseEntity<AssignmentDTO> updateAssignment(
+            @AuthenticationPrincipal User user,
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody ScheduleAssignmentRequest request) {
 
-        ScheduleAssignment updated = scheduleService.updateAssignment(id, request);
-        return ResponseEntity.ok(AssignmentDTO.of(updated));
+        ScheduleAssignment updated = scheduleEditService.updateAssignment(
+                user.getCompany().getId(), id, request, expectedVersion(ifMatch, request.getVersion()));
+        return ResponseEntity.ok().eTag(EntityTags.of(updated.getVersion())).body(AssignmentDTO.of(updated));
     }
 
 
@@ -192,7 +337,7 @@ public class ScheduleController {
             @AuthenticationPrincipal User user,
             @PathVariable Long id) {
 
-        Schedule updated = scheduleService.sendSchedule(user.getCompany().getId(), id);
+        Schedule updated = scheduleMailingService.sendSchedule(user.getCompany().getId(), id);
         List<ScheduleAssignment> assigns = assignmentRepository.findByScheduleId(updated.getId());
 
         return ResponseEntity.ok(scheduleService.toDto(updated, assigns));
@@ -204,14 +349,28 @@ public class ScheduleController {
     public ResponseEntity<Void> deleteAssignment(
             @AuthenticationPrincipal User user,
             @PathVariable Long scheduleId,
-            @PathVariable Long assignmentId) {
+            @PathVariable Long assignmentId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
 
-        scheduleService.deleteAssignment(
-                user.getCompany().getId(), scheduleId, assignmentId);
+        scheduleEditService.deleteAssignment(
+                user.getCompany().getId(), scheduleId, assignmentId, EntityTags.parseIfMatch(ifMatch));
 
         return ResponseEntity.noContent().build();
     }
 
+    /** Remplaçants classés pour une affectation libérée (absence, refus…). */
+    @GetMapping("/{scheduleId}/assignments/{assignmentId}/replacements")
+    @SqlBudget(statements = 15)
+    public ResponseEntity<List<ReplacementCandidateDTO>> getReplacements(
+            @AuthenticationPrincipal User user,
+            @PathVariable Long scheduleId,
+            @PathVariable Long assignmentId,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        return ResponseEntity.ok(replacementService.findReplacements(
+                user.getCompany().getId(), scheduleId, assignmentId, Math.max(1, Math.min(limit, 100))));
+    }
+
 
 
     /* ------------------------------------------------------------------ */
@@ -244,4 +403,10 @@ public class ScheduleController {
 
         return ResponseEntity.ok(result);
     }
+
+    /** Version lue par le client : If-Match, à défaut le champ {@code version} du corps. */
+    private static Long expectedVersion(String ifMatch, Long bodyVersion) {
+        Long version = EntityTags.parseIfMatch(ifMatch);
+        return version != null ? version : bodyVersion;
+    }
 }
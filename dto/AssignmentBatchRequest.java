@@ -0,0 +1,41 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Lot de modifications d’affectations envoyé par le planificateur (glisser-déposer). */
+@Data
+public class AssignmentBatchRequest {
+
+    public enum Op { ADD, UPDATE, DELETE }
+
+    /** true : tout ou rien ; false : les opérations valides sont appliquées, les autres signalées. */
+    private boolean atomic = true;
+
+    @NotEmpty(message = "Au moins une opération est requise")
+    @Size(max = 500, message = "500 opérations au maximum par lot")
+    private List<@Valid Operation> operations = new ArrayList<>();
+
+    @Data
+    public static class Operation {
+
+        @NotNull(message = "Le type d'opération est obligatoire")
+        private Op op;
+
+        /** Obligatoire pour UPDATE / DELETE. */
+        private Long assignmentId;
+
+        /** UPDATE / DELETE : version lue par le client ; opération rejetée si l’affectation a changé depuis. */
+        private Long version;
+
+        /** Obligatoire pour ADD / UPDATE. */
+        @Valid
+        private ScheduleAssignmentRequest assignment;
+    }
+}
@@ -0,0 +1,27 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/** Réponse d’un lot : un résultat par opération, dans l’ordre de la requête. */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class AssignmentBatchResultDTO {
+
+    /** false si le lot atomique a été rejeté (aucune écriture). */
+    private boolean applied;
+    private int     succeeded;
+    private int     failed;
+    private List<OperationResult> results;
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class OperationResult {
+        private int     index;
+        private AssignmentBatchRequest.Op op;
+        private boolean success;
+        private Long    assignmentId;       // id créé pour ADD (après écriture)
+        private String  error;
+    }
+}
@@ -27,6 +27,7 @@ public class AssignmentDTO {
     private LocalTime   startTime;        // 08:00
     private LocalTime   endTime;          // 16:00
     private String      status;       // PENDING / CONFIRMED / …
+    private Long        version;      // à renvoyer en If-Match pour modifier
 
     /* ===== mapping utilitaire ===== */
     public static AssignmentDTO of(ScheduleAssignment a) {
@@ -49,6 +50,7 @@ public class AssignmentDTO {
                 .startTime(a.getStartTime())
                 .endTime(a.getEndTime())
                 .status(a.getStatus().name())
+                .version(a.getVersion())
                 .build();
     }
 
@@ -0,0 +1,29 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/** Une vacation d’un employé telle qu’exportée dans son flux iCalendar. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CalendarEventDTO {
+    private Long          assignmentId;
+    private LocalDate     date;
+    private LocalTime     startTime;
+    private LocalTime     endTime;     // ≤ startTime : vacation de nuit, finit le lendemain
+    private String        shift;       // "MATIN", "NUIT", …
+    private String        agentType;
+    private String        status;      // "ASSIGNED", "CONFIRMED", "PENDING"
+    private LocalDateTime updatedAt;
+    private String        siteName;
+    private String        address;
+    private String        city;
+}
@@ -0,0 +1,40 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/** Contrôle de conformité (durées du travail, repos, nuit) d’un planning avant publication. */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ComplianceReportDTO {
+
+    public enum Rule {
+        WEEKLY_HOURS,        // > 48 h sur la semaine
+        DAILY_REST,          // < 11 h entre deux vacations (négatif = chevauchement)
+        WEEKLY_REST,         // aucune coupure de 35 h dans la semaine
+        DAYS_OFF,            // moins de jours de repos consécutifs que la préférence
+        NIGHT_SHIFT_LENGTH,  // poste de nuit > 8 h
+        NIGHT_WEEKLY_HOURS   // > 40 h de nuit sur la semaine
+    }
+
+    private Long    scheduleId;
+    private int     assignmentsChecked;
+    private int     employeesChecked;
+    private boolean compliant;
+    private long    elapsedMicros;
+    private List<Violation> violations;
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Violation {
+        private Rule      rule;
+        private Long      employeeId;
+        private String    employeeName;
+        private LocalDate date;           // jour de l’affectation, ou lundi de la semaine
+        private Long      assignmentId;   // null pour les règles hebdomadaires
+        private double    value;          // heures (jours pour DAYS_OFF)
+        private double    limit;
+    }
+}
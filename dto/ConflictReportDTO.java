@@ -0,0 +1,46 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/** Doubles réservations et repos insuffisants d’une société sur un mois, tous sites confondus. */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ConflictReportDTO {
+
+    private Long    companyId;
+    private int     month;
+    private int     year;
+    private int     assignmentsScanned;
+    private int     employeesScanned;
+    private int     overlaps;
+    private int     restViolations;
+    private long    elapsedMillis;
+    private List<ConflictDTO> conflicts;
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class ConflictDTO {
+        private String  type;               // OVERLAP | REST
+        private Long    employeeId;
+        private String  employeeName;
+        private long    gapMinutes;         // négatif = chevauchement
+        private SlotDTO first;
+        private SlotDTO second;
+    }
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class SlotDTO {
+        private Long          assignmentId;
+        private Long          scheduleId;
+        private Long          siteId;
+        private String        siteName;
+        private LocalDate     date;
+        private LocalDateTime start;
+        private LocalDateTime end;
+    }
+}
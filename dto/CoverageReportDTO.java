@@ -0,0 +1,33 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Couverture d’une période (mois ou trimestre), lue dans la table de synthèse :
+ * cumuls par (site, type d’agent) et, sur demande, le détail jour par jour.
+ */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class CoverageReportDTO {
+
+    private LocalDate from;
+    private LocalDate to;
+    private List<CoverageLineDTO> totals;
+    /** null sauf si le détail quotidien est demandé. */
+    private List<CoverageLineDTO> days;
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class CoverageLineDTO {
+        private Long      siteId;
+        /** null pour une ligne de cumul. */
+        private LocalDate date;
+        private String    agentType;
+        private long      required;
+        private long      assigned;
+        private long      confirmed;
+    }
+}
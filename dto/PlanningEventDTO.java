@@ -0,0 +1,42 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Un message du flux SSE d’un site : les changements d’affectations d’une transaction.
+ * {@code offset} est la position du message dans le journal {@code planning_events},
+ * commune à toutes les instances ; c’est aussi son id SSE.
+ */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class PlanningEventDTO {
+
+    public enum DeltaType {
+        ADDED, UPDATED, DELETED, STATUS_CHANGED,
+        /** Écriture en masse non détaillée (clonage…) : recharger le planning concerné. */
+        RESYNC
+    }
+
+    private Long   siteId;
+    private long   offset;
+    private List<DeltaDTO> deltas;
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class DeltaDTO {
+        private DeltaType type;
+        private Long      assignmentId;
+        private Long      scheduleId;
+        private Long      employeeId;
+        private LocalDate date;
+        private LocalTime startTime;
+        private LocalTime endTime;
+        private String    shift;
+        private String    agentType;
+        private String    status;
+    }
+}
@@ -0,0 +1,21 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+/** Remplaçant proposé pour une affectation libérée, avec le détail du score. */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ReplacementCandidateDTO {
+
+    private Long    employeeId;
+    private String  employeeName;
+    private double  score;
+
+    private int     remainingWeeklyMinutes;   // après ajout du créneau (négatif = heures sup.)
+    private boolean agentTypeMatch;
+    private int     skillsMatched;
+    private int     skillsRequired;
+    private boolean restCompliant;            // ≥ 12 h avant et après
+    private boolean homeSite;                 // site principal = site de l’affectation
+    private boolean preferredSite;
+}
@@ -37,5 +37,8 @@ public class ScheduleAssignmentRequest {
 
     private String shift;
 
+    /** Version lue, pour les clients qui ne peuvent pas envoyer If-Match (l’en-tête prime). */
+    private Long version;
+
 
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+/** Bilan d’un clonage de planning vers un autre mois. */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ScheduleCloneResultDTO {
+
+    private Long    sourceScheduleId;
+    private Long    targetScheduleId;
+    private int     targetMonth;
+    private int     targetYear;
+
+    private int     sourceAssignments;
+    private int     cloned;
+    private int     skippedAbsent;        // employé absent à la date cible
+    private int     skippedOverlap;       // chevauche une affectation existante
+    private int     skippedInactive;      // employé désactivé depuis
+    private long    elapsedMillis;
+}
@@ -0,0 +1,47 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Différence entre deux versions d’un planning. Une affectation dont seul le détail change
+ * (même employé, même jour, même heure de début) apparaît dans {@code changed}, pas comme
+ * un retrait plus un ajout.
+ */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ScheduleDiffDTO {
+
+    private Long    scheduleId;
+    private int     fromVersion;
+    /** null : comparaison avec l’état courant. */
+    private Integer toVersion;
+    private List<RowDTO>    added;
+    private List<RowDTO>    removed;
+    private List<ChangeDTO> changed;
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class RowDTO {
+        private Long      employeeId;
+        private Long      siteId;
+        private LocalDate date;
+        private LocalTime startTime;
+        private LocalTime endTime;
+        private int       duration;
+        private String    agentType;
+        private String    shift;
+        private String    status;
+        private String    notes;
+    }
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class ChangeDTO {
+        private RowDTO before;
+        private RowDTO after;
+    }
+}
@@ -27,4 +27,7 @@ public class ScheduleRequest {
     @NotNull(message = "Year is required")
     @Min(value = 2024, message = "Year must be 2024 or later")
     private Integer year;
+
+    /** Version lue, pour les clients qui ne peuvent pas envoyer If-Match (l’en-tête prime). */
+    private Long version;
 }
\ No newline at end of file
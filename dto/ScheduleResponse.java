@@ -27,6 +27,7 @@ public class ScheduleResponse {
     private Integer completionRate;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 
     private SiteInfo site;
     private CompanyInfo company;
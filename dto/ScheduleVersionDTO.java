@@ -0,0 +1,24 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/** Une version d’un planning (sans son contenu). */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ScheduleVersionDTO {
+
+    private Long          scheduleId;
+    private int           number;
+    private String        reason;
+    /** Version restaurée (retour arrière), sinon null. */
+    private Integer       restoredFrom;
+    /** true : état complet stocké ; false : delta par rapport à la version précédente. */
+    private boolean       keyframe;
+    private int           assignmentCount;
+    private int           added;
+    private int           removed;
+    private int           storedBytes;
+    private LocalDateTime createdAt;
+}
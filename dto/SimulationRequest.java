@@ -0,0 +1,67 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.*;
+import lombok.Data;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Simulation « et si… » d’une génération : rien n’est enregistré.
+ * Le scénario de référence (paramétrage actuel) est toujours calculé en premier.
+ */
+@Data
+public class SimulationRequest {
+
+    public enum Generator { SCHEDULE, ASSIGNMENT }
+
+    /** SCHEDULE = vacations du site, ASSIGNMENT = créneaux par type d’agent. */
+    private Generator generator = Generator.SCHEDULE;
+
+    @Size(max = 8, message = "8 scénarios au maximum par simulation")
+    private List<@Valid Scenario> scenarios = new ArrayList<>();
+
+    @Data
+    public static class Scenario {
+
+        @NotBlank(message = "Le nom du scénario est obligatoire")
+        private String name;
+
+        private List<@Valid SlotDelta> slotDeltas = new ArrayList<>();
+        private List<@Valid Leave> leaves = new ArrayList<>();
+    }
+
+    /** Voir {@code DemandDelta} : sélection (null = tous) puis action. */
+    @Data
+    public static class SlotDelta {
+        private Set<DayOfWeek> daysOfWeek;
+        private LocalDate date;
+        private AgentType agentType;
+        private String label;
+        private LocalTime startTime;
+        private LocalTime endTime;
+
+        /** Ajoute un créneau (horaires obligatoires) au lieu de modifier les existants. */
+        private boolean add;
+        @Min(value = 0, message = "Le nombre d'agents ne peut pas être négatif")
+        private Integer count;
+        private int countDelta;
+    }
+
+    /** Absence hypothétique d’un employé. */
+    @Data
+    public static class Leave {
+        @NotNull(message = "L'employé est obligatoire")
+        private Long employeeId;
+        @NotNull(message = "La date de début est obligatoire")
+        private LocalDate from;
+        @NotNull(message = "La date de fin est obligatoire")
+        private LocalDate to;
+    }
+}
@@ -0,0 +1,39 @@
+package org.makarimal.projet_gestionautoplanningsecure.dto;
+
+import lombok.*;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/** Résultat d’un scénario de simulation (couverture, trous, heures par employé). */
+@Data @Builder
+@NoArgsConstructor @AllArgsConstructor
+public class SimulationResultDTO {
+
+    private String  scenario;
+    private int     required;
+    private int     filled;
+    private int     unfilled;
+    private double  coverageRate;             // en %
+    private long    elapsedMillis;
+
+    private List<UnfilledSlotDTO> unfilledSlots;
+    private Map<Long, Double>     hoursPerEmployee;   // employeeId → heures générées
+
+    /** Renseigné si le scénario n’a pas abouti (délai dépassé…). */
+    private String  error;
+
+    @Data @Builder
+    @NoArgsConstructor @AllArgsConstructor
+    public static class UnfilledSlotDTO {
+        private LocalDate date;
+        private LocalTime startTime;
+        private LocalTime endTime;
+        private AgentType agentType;
+        private String    label;
+        private int       missing;
+    }
+}
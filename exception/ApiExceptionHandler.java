@@ -1,6 +1,9 @@
 package org.makarimal.projet_gestionautoplanningsecure.exception;
 
+import org.makarimal.projet_gestionautoplanningsecure.util.EntityTags;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -19,4 +22,34 @@ public class ApiExceptionHandler {
         );
         return ResponseEntity.badRequest().body(errors);
     }
+
+    @ExceptionHandler(ComplianceViolationException.class)
+    public ResponseEntity<?> handleCompliance(ComplianceViolationException ex) {
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(ex.getReport());
+    }
+
+    @ExceptionHandler(EditConflictException.class)
+    public ResponseEntity<?> handleEditConflict(EditConflictException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .eTag(EntityTags.of(ex.getCurrentVersion()))
+                .body(Map.of("message", ex.getMessage(),
+                        "fields", ex.getFields(),
+                        "currentVersion", ex.getCurrentVersion()));
+    }
+
+    /** Envoi partiel : les mails réussis sont enregistrés, une relance ne renvoie que les échecs. */
+    @ExceptionHandler(MailDispatchException.class)
+    public ResponseEntity<?> handleMailDispatch(MailDispatchException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                .body(Map.of("message", ex.getMessage(),
+                        "sent", ex.getSent(),
+                        "failedEmployeeIds", ex.getFailedEmployeeIds()));
+    }
+
+    /** Écriture concurrente détectée au commit (après les nouvelles tentatives éventuelles). */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<?> handleOptimisticLock(ObjectOptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("message", "Modifié entre-temps par un autre utilisateur : recharger"));
+    }
 }
\ No newline at end of file
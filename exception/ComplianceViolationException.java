@@ -0,0 +1,16 @@
+package org.makarimal.projet_gestionautoplanningsecure.exception;
+
+import lombok.Getter;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ComplianceReportDTO;
+
+/** Publication refusée : le planning enfreint au moins une règle du droit du travail. */
+@Getter
+public class ComplianceViolationException extends IllegalStateException {
+
+    private final ComplianceReportDTO report;
+
+    public ComplianceViolationException(ComplianceReportDTO report) {
+        super(report.getViolations().size() + " violation(s) de conformité sur le planning " + report.getScheduleId());
+        this.report = report;
+    }
+}
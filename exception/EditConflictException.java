@@ -0,0 +1,22 @@
+package org.makarimal.projet_gestionautoplanningsecure.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Modification refusée : depuis la version lue par le client (If-Match), les mêmes champs
+ * ont été changés par quelqu’un d’autre vers d’autres valeurs. Fusion automatique impossible.
+ */
+@Getter
+public class EditConflictException extends IllegalStateException {
+
+    private final List<String> fields;
+    private final long currentVersion;
+
+    public EditConflictException(List<String> fields, long currentVersion) {
+        super("Modification concurrente des champs " + fields + " (version courante " + currentVersion + ")");
+        this.fields = List.copyOf(fields);
+        this.currentVersion = currentVersion;
+    }
+}
@@ -0,0 +1,22 @@
+package org.makarimal.projet_gestionautoplanningsecure.exception;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Envoi d’un planning incomplet : certains mails sont partis (et enregistrés), d’autres
+ * ont échoué. Relancer l’envoi ne renvoie qu’aux employés en échec.
+ */
+@Getter
+public class MailDispatchException extends RuntimeException {
+
+    private final int sent;
+    private final List<Long> failedEmployeeIds;
+
+    public MailDispatchException(int sent, List<Long> failedEmployeeIds, Throwable firstCause) {
+        super(failedEmployeeIds.size() + " envoi(s) en échec, " + sent + " réussi(s) : relancer l’envoi", firstCause);
+        this.sent = sent;
+        this.failedEmployeeIds = List.copyOf(failedEmployeeIds);
+    }
+}
@@ -0,0 +1,44 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import org.makarimal.projet_gestionautoplanningsecure.dto.AssignmentDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût du mapping entité → DTO sur un mois complet (vue planning / export).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssignmentMappingBenchmark {
+
+    @Param({"5"})
+    public int sites;
+
+    @Param({"40"})
+    public int employeesPerSite;
+
+    private List<ScheduleAssignment> assignments;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = BenchmarkData.generate(sites, employeesPerSite, 42L);
+        Schedule schedule = data.newSchedule(data.sites.get(0));
+        assignments = data.monthOfAssignments(schedule);
+    }
+
+    @Benchmark
+    public void assignmentDtoOf(Blackhole bh) {
+        for (ScheduleAssignment a : assignments) {
+            bh.consume(AssignmentDTO.of(a));
+        }
+    }
+}
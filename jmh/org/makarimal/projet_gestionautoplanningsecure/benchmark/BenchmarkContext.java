@@ -0,0 +1,227 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.makarimal.projet_gestionautoplanningsecure.config.ReplicaStickiness;
+import org.makarimal.projet_gestionautoplanningsecure.mapper.SiteMapper;
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
+import org.makarimal.projet_gestionautoplanningsecure.planning.DemandCompiler;
+import org.makarimal.projet_gestionautoplanningsecure.planning.EligibilityIndexCache;
+import org.makarimal.projet_gestionautoplanningsecure.planning.GenerationEngine;
+import org.makarimal.projet_gestionautoplanningsecure.repository.*;
+import org.makarimal.projet_gestionautoplanningsecure.service.*;
+import org.makarimal.projet_gestionautoplanningsecure.util.AuthServiceHelper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Câblage “à la main” des services de génération sur des repositories en mémoire.
+ * <p>
+ * Seul endroit à retoucher quand un constructeur de service évolue : les benchmarks
+ * ne manipulent que {@link #scheduleGenerator} / {@link #assignmentGenerator}.
+ */
+public final class BenchmarkContext {
+
+    public final BenchmarkData data;
+
+    public final InMemoryRepository<Company> companies =
+            new InMemoryRepository<>(Company::getId, Company::setId);
+    public final InMemoryRepository<Site> sites =
+            new InMemoryRepository<>(Site::getId, Site::setId);
+    public final InMemoryRepository<Employee> employees =
+            new InMemoryRepository<>(Employee::getId, Employee::setId);
+    public final InMemoryRepository<EmployeePreference> preferences =
+            new InMemoryRepository<>(EmployeePreference::getId, EmployeePreference::setId);
+    public final InMemoryRepository<EmployeeAvailability> availabilities =
+            new InMemoryRepository<>(EmployeeAvailability::getId, EmployeeAvailability::setId);
+    public final InMemoryRepository<WeeklyScheduleRule> weeklyRules =
+            new InMemoryRepository<>(WeeklyScheduleRule::getId, WeeklyScheduleRule::setId);
+    public final InMemoryRepository<SiteShift> shifts =
+            new InMemoryRepository<>(SiteShift::getId, SiteShift::setId);
+    public final InMemoryRepository<Absence> absences =
+            new InMemoryRepository<>(Absence::getId, Absence::setId);
+    public final InMemoryRepository<EmployeeAbsence> employeeAbsences =
+            new InMemoryRepository<>(EmployeeAbsence::getId, EmployeeAbsence::setId);
+    public final InMemoryRepository<SiteScheduleOverride> overrides =
+            new InMemoryRepository<>(SiteScheduleOverride::getId, SiteScheduleOverride::setId);
+    public final InMemoryRepository<SiteShiftTemplate> templates =
+            new InMemoryRepository<>(SiteShiftTemplate::getId, SiteShiftTemplate::setId);
+    public final InMemoryRepository<Schedule> schedules =
+            new InMemoryRepository<>(Schedule::getId, Schedule::setId);
+    public final InMemoryRepository<ScheduleAssignment> assignments =
+            new InMemoryRepository<>(ScheduleAssignment::getId, ScheduleAssignment::setId);
+
+    public final ScheduleGeneratorService scheduleGenerator;
+    public final AssignmentGenerator assignmentGenerator;
+    public final ScheduleService scheduleService;
+
+    public BenchmarkContext(BenchmarkData data) {
+        this.data = data;
+
+        companies.load(List.of(data.company));
+        sites.load(data.sites);
+        employees.load(data.employees);
+        preferences.load(data.preferences);
+        availabilities.load(data.availabilities);
+        weeklyRules.load(data.weeklyRules);
+        shifts.load(data.shifts);
+        absences.load(data.absences);
+        employeeAbsences.load(data.employeeAbsences);
+
+        declareQueries();
+
+        CompanyRepository companyRepository = companies.proxy(CompanyRepository.class);
+        SiteRepository siteRepository = sites.proxy(SiteRepository.class);
+        EmployeeRepository employeeRepository = employees.proxy(EmployeeRepository.class);
+        EmployeePreferenceRepository preferenceRepository = preferences.proxy(EmployeePreferenceRepository.class);
+        EmployeeAvailabilityRepository availabilityRepository = availabilities.proxy(EmployeeAvailabilityRepository.class);
+        WeeklyScheduleRuleRepository weeklyRuleRepository = weeklyRules.proxy(WeeklyScheduleRuleRepository.class);
+        SiteShiftRepository shiftRepository = shifts.proxy(SiteShiftRepository.class);
+        AbsenceRepository absenceRepository = absences.proxy(AbsenceRepository.class);
+        EmployeeAbsenceRepository employeeAbsenceRepository = employeeAbsences.proxy(EmployeeAbsenceRepository.class);
+        ScheduleRepository scheduleRepository = schedules.proxy(ScheduleRepository.class);
+        ScheduleAssignmentRepository assignmentRepository = assignments.proxy(ScheduleAssignmentRepository.class);
+        UserRepository userRepository = new InMemoryRepository<User>(User::getId, User::setId).proxy(UserRepository.class);
+        SiteScheduleOverrideRepository overrideRepository = overrides.proxy(SiteScheduleOverrideRepository.class);
+        SiteShiftTemplateRepository templateRepository = templates.proxy(SiteShiftTemplateRepository.class);
+
+        AuthServiceHelper authServiceHelper = new AuthServiceHelper(userRepository, companyRepository);
+        PlanningMetrics metrics = new PlanningMetrics(new SimpleMeterRegistry(), 200);
+        ApplicationEventPublisher events = event -> { };      // aucun index à périmer ici
+
+        scheduleService = new ScheduleService(
+                scheduleRepository, assignmentRepository, companyRepository, siteRepository,
+                new MailService(null, metrics, Runnable::run), new PlanningPdfService(metrics), absenceRepository,
+                new ComplianceValidator(assignmentRepository, preferenceRepository, 48, 11, 35, 8, 40), events);
+        SiteService siteService = new SiteService(
+                siteRepository, companyRepository, userRepository, authServiceHelper, new SiteMapper());
+        ObjectProvider<ReplicaStickiness> noReplica = new StaticListableBeanFactory().getBeanProvider(ReplicaStickiness.class);
+        DemandCompiler demandCompiler = new DemandCompiler(
+                weeklyRuleRepository, shiftRepository, templateRepository, overrideRepository, events, 500, 30, 120,
+                noReplica);
+        EligibilityIndexCache eligibilityIndexCache = new EligibilityIndexCache(
+                employeeRepository, preferenceRepository, availabilityRepository,
+                absenceRepository, employeeAbsenceRepository, assignmentRepository, 300, 200, noReplica);
+
+        scheduleGenerator = new ScheduleGeneratorService(
+                scheduleService, siteService, demandCompiler, eligibilityIndexCache, new GenerationEngine(),
+                employeeRepository, assignmentRepository, metrics, events);
+        assignmentGenerator = new AssignmentGenerator(
+                scheduleRepository, employeeRepository, demandCompiler, assignmentRepository, metrics, events);
+    }
+
+    /** Requêtes dérivées effectivement appelées par les générateurs. */
+    private void declareQueries() {
+        sites.on("findByIdAndCompanyId", a -> sites.first(s ->
+                        s.getId().equals(a[0]) && s.getCompany().getId().equals(a[1])))
+                .on("findByCompanyIdAndId", a -> sites.first(s ->
+                        s.getCompany().getId().equals(a[0]) && s.getId().equals(a[1])));
+
+        employees.on("findBySiteIdAndIsActiveTrue", a -> employees.filter(e ->
+                        e.isActive() && e.getSite() != null && e.getSite().getId().equals(a[0])))
+                .on("findBySiteAndIsActiveTrueAndAgentTypesContaining", a -> employees.filter(e ->
+                        e.isActive() && e.getSite() == a[0] && e.getAgentTypes().contains((AgentType) a[1])));
+
+        preferences.on("findByEmployeeId", a -> preferences.first(p -> p.getEmployee().getId().equals(a[0])));
+        availabilities.on("findByEmployeeId", a -> availabilities.filter(v -> v.getEmployee().getId().equals(a[0])));
+
+        /* lectures « à plat » de l’index d’éligibilité */
+        employees.on("findActiveRowsByCompanyId", a -> activeEmployees(a[0]).stream()
+                        .map(e -> new Object[]{e.getId(), e.getFirstName(), e.getLastName(),
+                                e.getSite() != null ? e.getSite().getId() : null, e.getMaxHoursPerWeek()})
+                        .toList())
+                .on("findAgentTypePairsByCompanyId", a -> activeEmployees(a[0]).stream()
+                        .flatMap(e -> e.getAgentTypes().stream().map(t -> new Object[]{e.getId(), t}))
+                        .toList())
+                .on("findSkillPairsByCompanyId", a -> activeEmployees(a[0]).stream()
+                        .flatMap(e -> orEmpty(e.getSkillSets()).stream().map(k -> new Object[]{e.getId(), k}))
+                        .toList())
+                .on("findPreferredSitePairsByCompanyId", a -> activeEmployees(a[0]).stream()
+                        .flatMap(e -> orEmpty(e.getPreferredSites()).stream().map(p -> new Object[]{e.getId(), p}))
+                        .toList());
+        preferences.on("findRowsByCompanyId", a -> preferences.filter(p ->
+                        p.getEmployee().getCompany().getId().equals(a[0])).stream()
+                .map(p -> new Object[]{p.getEmployee().getId(), p.isCanWorkWeekends(),
+                        p.isCanWorkNights(), p.getMaxHoursPerDay(), p.getMinConsecutiveDaysOff()})
+                .toList());
+        availabilities.on("findRowsByCompanyId", a -> availabilities.filter(v ->
+                        v.getEmployee().getCompany().getId().equals(a[0])).stream()
+                .map(v -> new Object[]{v.getEmployee().getId(), v.getDayOfWeek(), v.getStartTime(), v.getEndTime()})
+                .toList());
+        absences.on("findRowsByCompanyIdAndDateBetween", a -> absences.filter(x ->
+                        x.getEmployee().getCompany().getId().equals(a[0])
+                                && !x.getDate().isBefore((LocalDate) a[1])
+                                && !x.getDate().isAfter((LocalDate) a[2])).stream()
+                .map(x -> new Object[]{x.getEmployee().getId(), x.getDate()})
+                .toList());
+        employeeAbsences.on("findRowsByCompanyIdOverlapping", a -> employeeAbsences.filter(x ->
+                        x.getEmployee().getCompany().getId().equals(a[0])
+                                && x.isApproved()
+                                && !x.getStartDate().isAfter((LocalDate) a[2])
+                                && !x.getEndDate().isBefore((LocalDate) a[1])).stream()
+                .map(x -> new Object[]{x.getEmployee().getId(), x.getStartDate(), x.getEndDate()})
+                .toList());
+
+        weeklyRules.on("findBySiteId", a -> weeklyRules.filter(r -> r.getSite().getId().equals(a[0])))
+                .on("findAllBySiteId", a -> weeklyRules.filter(r -> r.getSite().getId().equals(a[0])));
+        shifts.on("findBySiteId", a -> shifts.filter(s -> s.getSite().getId().equals(a[0])));
+        templates.on("findBySiteIdAndIsActive", a -> templates.filter(t ->
+                t.getSite().getId().equals(a[0]) && t.isActive() == (Boolean) a[1]));
+        overrides.on("findBySiteIdAndOverrideDateBetween", a -> overrides.filter(o ->
+                o.getSite().getId().equals(a[0])
+                        && !o.getOverrideDate().isBefore((LocalDate) a[1])
+                        && !o.getOverrideDate().isAfter((LocalDate) a[2])));
+
+        absences.on("existsByEmployeeIdAndDate", a -> absences.first(x ->
+                x.getEmployee().getId().equals(a[0]) && x.getDate().equals(a[1])).isPresent());
+
+        schedules.on("findBySiteIdAndMonthAndYear", a -> schedules.first(s ->
+                s.getSite().getId().equals(a[0])
+                        && s.getMonth().equals(a[1]) && s.getYear().equals(a[2])));
+
+        assignments.on("findByEmployeeId", a -> assignments.filter(x -> x.getEmployee().getId().equals(a[0])))
+                .on("findByScheduleId", a -> assignments.filter(x -> x.getSchedule().getId().equals(a[0])))
+                .on("findAllForCompany", a -> assignments.filter(x ->
+                        x.getSchedule().getCompany().getId().equals(a[0])))
+                .on("findByEmployeeIdAndDate", a -> assignments.filter(x ->
+                        x.getEmployee().getId().equals(a[0]) && x.getDate().equals(a[1])))
+                .on("findByEmployeeIdAndDateBetween", a -> assignments.filter(x ->
+                        x.getEmployee().getId().equals(a[0])
+                                && !x.getDate().isBefore((LocalDate) a[1])
+                                && !x.getDate().isAfter((LocalDate) a[2])))
+                .on("findRowsByCompanyIdAndDateBetween", a -> assignments.filter(x ->
+                                x.getSchedule().getCompany().getId().equals(a[0])
+                                        && !x.getDate().isBefore((LocalDate) a[1])
+                                        && !x.getDate().isAfter((LocalDate) a[2])
+                                        && x.getStatus() != a[3]).stream()
+                        .map(x -> new Object[]{x.getId(), x.getEmployee().getId(), x.getDate(),
+                                x.getStartTime(), x.getEndTime(), x.getDuration()})
+                        .toList());
+    }
+
+    private List<Employee> activeEmployees(Object companyId) {
+        return employees.filter(e -> e.isActive() && e.getCompany().getId().equals(companyId));
+    }
+
+    private static <E> List<E> orEmpty(List<E> values) {
+        return values != null ? values : List.of();
+    }
+
+    /** Remet la base en mémoire dans l’état initial (plannings et affectations vidés). */
+    public void reset() {
+        schedules.rows().clear();
+        assignments.rows().clear();
+    }
+
+    /** Somme des appels repository depuis la construction (≈ requêtes SQL émises). */
+    public long statements() {
+        return companies.statements() + sites.statements() + employees.statements()
+                + preferences.statements() + availabilities.statements() + weeklyRules.statements()
+                + shifts.statements() + overrides.statements() + templates.statements() + absences.statements() + employeeAbsences.statements()
+                + schedules.statements() + assignments.statements();
+    }
+}
@@ -0,0 +1,283 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Jeu de données synthétique et déterministe pour les benchmarks :
+ * N sites, M employés par site, règles hebdomadaires + vacations, absences.
+ * <p>
+ * Même graine ⇒ mêmes données : les résultats restent comparables d’un commit à l’autre.
+ */
+public final class BenchmarkData {
+
+    static final List<String> SKILLS = List.of("SSIAP", "CYNO", "PALPATION", "VIDEO", "SST");
+
+    static final AgentType[] AGENT_TYPES = {
+            AgentType.ADS, AgentType.ADS_Filtrage, AgentType.SSIAP1, AgentType.CHEF_DE_POSTE, AgentType.RONDIER
+    };
+
+    public final Company company;
+    public final List<Site> sites = new ArrayList<>();
+    public final List<Employee> employees = new ArrayList<>();
+    public final List<EmployeePreference> preferences = new ArrayList<>();
+    public final List<EmployeeAvailability> availabilities = new ArrayList<>();
+    public final List<WeeklyScheduleRule> weeklyRules = new ArrayList<>();
+    public final List<SiteShift> shifts = new ArrayList<>();
+    public final List<Absence> absences = new ArrayList<>();
+    public final List<EmployeeAbsence> employeeAbsences = new ArrayList<>();
+    public final YearMonth month;
+
+    private final Random random;
+    private long nextId = 1;
+
+    private BenchmarkData(int siteCount, int employeesPerSite, YearMonth month, long seed) {
+        this.month = month;
+        this.random = new Random(seed);
+
+        company = Company.builder()
+                .id(nextId++)
+                .name("Bench Sécurité")
+                .subscriptionStatus(Company.SubscriptionStatus.ACTIVE)
+                .build();
+
+        for (int s = 0; s < siteCount; s++) {
+            Site site = Site.builder()
+                    .id(nextId++)
+                    .company(company)
+                    .name("Site " + (s + 1))
+                    .address((s + 1) + " rue du Banc d’Essai")
+                    .city("Arpajon")
+                    .zipCode("91290")
+                    .country("France")
+                    .active(true)
+                    .employees(new ArrayList<>())
+                    .build();
+            sites.add(site);
+
+            // Site.employees reste vide : Employee/Site sont des @Data dont hashCode() se rappellent mutuellement
+            for (int e = 0; e < employeesPerSite; e++) {
+                newEmployee(site);
+            }
+            newRules(site);
+            newShifts(site);
+        }
+        company.setSites(sites);
+        newAbsences(0.03);
+    }
+
+    /** Jeu par défaut : le mois de référence reste fixe pour ne pas dériver avec le calendrier. */
+    public static BenchmarkData generate(int siteCount, int employeesPerSite, long seed) {
+        return new BenchmarkData(siteCount, employeesPerSite, YearMonth.of(2025, 3), seed);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Employés                                                          */
+    /* ------------------------------------------------------------------ */
+
+    private Employee newEmployee(Site site) {
+        long id = nextId++;
+
+        Set<AgentType> types = new HashSet<>();
+        types.add(AGENT_TYPES[random.nextInt(AGENT_TYPES.length)]);
+        if (random.nextInt(3) == 0) {
+            types.add(AGENT_TYPES[random.nextInt(AGENT_TYPES.length)]);
+        }
+
+        List<String> skills = new ArrayList<>();
+        for (String skill : SKILLS) {
+            if (random.nextInt(3) == 0) skills.add(skill);
+        }
+
+        Employee employee = Employee.builder()
+                .id(id)
+                .company(company)
+                .site(site)
+                .firstName("Agent")
+                .lastName(String.valueOf(id))
+                .email("agent" + id + "@bench.local")
+                .position("Agent de sécurité")
+                .employeeCode("EMP-" + id)
+                .contractType(Employee.ContractType.FULL_TIME)
+                .maxHoursPerWeek(35 + random.nextInt(14))
+                .preferredSites(new ArrayList<>(List.of(site.getId())))
+                .skillSets(skills)
+                .agentTypes(types)
+                .isActive(random.nextInt(20) != 0)
+                .build();
+
+        EmployeePreference preference = EmployeePreference.builder()
+                .id(nextId++)
+                .employee(employee)
+                .canWorkWeekends(random.nextInt(5) != 0)
+                .canWorkWeeks(true)
+                .canWorkNights(random.nextBoolean())
+                .noPreference(true)
+                .minHoursPerDay(4)
+                .maxHoursPerDay(12)
+                .minHoursPerWeek(20)
+                .maxHoursPerWeek(employee.getMaxHoursPerWeek())
+                .preferredConsecutiveDays(5)
+                .minConsecutiveDaysOff(2)
+                .build();
+        employee.setPreference(preference);
+        preferences.add(preference);
+
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            if (random.nextInt(7) == 0) continue;          // ~1 jour off par semaine
+            availabilities.add(EmployeeAvailability.builder()
+                    .id(nextId++)
+                    .employee(employee)
+                    .dayOfWeek(dow)
+                    .startTime(LocalTime.MIN)
+                    .endTime(LocalTime.of(23, 59))
+                    .isRecurring(true)
+                    .build());
+        }
+
+        employees.add(employee);
+        return employee;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Règles / vacations                                                */
+    /* ------------------------------------------------------------------ */
+
+    private void newRules(Site site) {
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            boolean weekend = dow == DayOfWeek.SATURDAY || dow == DayOfWeek.SUNDAY;
+
+            WeeklyScheduleRule rule = WeeklyScheduleRule.builder()
+                    .id(nextId++)
+                    .site(site)
+                    .dayOfWeek(dow)
+                    .minEmployees(weekend ? 2 : 3)
+                    .maxEmployees(6)
+                    .requiresWeekendCoverage(weekend)
+                    .requiredSkills(new ArrayList<>())
+                    .requiredAgentTypes(new ArrayList<>())
+                    .build();
+
+            List<AgentSchedule> agents = new ArrayList<>();
+            agents.add(agent(rule, AgentType.ADS, "06:00", "14:00", weekend ? 1 : 2));
+            agents.add(agent(rule, AgentType.ADS, "14:00", "22:00", weekend ? 1 : 2));
+            agents.add(agent(rule, AgentType.SSIAP1, "08:00", "20:00", 1));
+            if (!weekend) {
+                agents.add(agent(rule, AgentType.CHEF_DE_POSTE, "07:00", "15:00", 1));
+            }
+            rule.setAgents(agents);
+            weeklyRules.add(rule);
+        }
+    }
+
+    private AgentSchedule agent(WeeklyScheduleRule rule, AgentType type, String start, String end, int count) {
+        return AgentSchedule.builder()
+                .id(nextId++)
+                .weeklyScheduleRule(rule)
+                .agentType(type)
+                .startTime(LocalTime.parse(start))
+                .endTime(LocalTime.parse(end))
+                .requiredCount(count)
+                .build();
+    }
+
+    private void newShifts(Site site) {
+        shifts.add(shift(site, "MATIN", "06:00", "14:00", 2));
+        shifts.add(shift(site, "SOIR", "14:00", "22:00", 2));
+    }
+
+    private SiteShift shift(Site site, String name, String start, String end, int required) {
+        return SiteShift.builder()
+                .id(nextId++)
+                .site(site)
+                .name(name)
+                .startTime(LocalTime.parse(start))
+                .endTime(LocalTime.parse(end))
+                .requiredEmployees(required)
+                .minExperience(0)
+                .requiredSkills(new ArrayList<>())
+                .requiredAgentTypes(new ArrayList<>())
+                .build();
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Absences                                                          */
+    /* ------------------------------------------------------------------ */
+
+    private void newAbsences(double rate) {
+        for (Employee employee : employees) {
+            for (int d = 1; d <= month.lengthOfMonth(); d++) {
+                if (random.nextDouble() >= rate) continue;
+                LocalDate date = month.atDay(d);
+                absences.add(Absence.builder()
+                        .id(nextId++)
+                        .employee(employee)
+                        .date(date)
+                        .type(AbsenceType.ABSENCE_NON_JUSTIFIEE)
+                        .build());
+                employeeAbsences.add(EmployeeAbsence.builder()
+                        .id(nextId++)
+                        .employee(employee)
+                        .type(AbsenceType.MALADIE)
+                        .startDate(date)
+                        .endDate(date)
+                        .approved(true)
+                        .build());
+            }
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Affectations “déjà planifiées” pour les micro-benchmarks          */
+    /* ------------------------------------------------------------------ */
+
+    /** Un mois d’affectations plausibles (1 vacation/jour, ~5 jours sur 7) pour chaque employé. */
+    public List<ScheduleAssignment> monthOfAssignments(Schedule schedule) {
+        List<ScheduleAssignment> result = new ArrayList<>();
+        LocalTime[][] slots = {
+                {LocalTime.of(6, 0), LocalTime.of(14, 0)},
+                {LocalTime.of(14, 0), LocalTime.of(22, 0)},
+                {LocalTime.of(8, 0), LocalTime.of(20, 0)}
+        };
+        for (Employee employee : employees) {
+            for (int d = 1; d <= month.lengthOfMonth(); d++) {
+                if (random.nextInt(7) < 2) continue;
+                LocalTime[] slot = slots[random.nextInt(slots.length)];
+                result.add(ScheduleAssignment.builder()
+                        .id(nextId++)
+                        .schedule(schedule)
+                        .employee(employee)
+                        .site(employee.getSite())
+                        .date(month.atDay(d))
+                        .startTime(slot[0])
+                        .endTime(slot[1])
+                        .duration((int) java.time.Duration.between(slot[0], slot[1]).toMinutes())
+                        .agentType(employee.getAgentTypes().iterator().next())
+                        .shift(slot[0].isBefore(LocalTime.NOON) ? "MATIN" : "SOIR")
+                        .status(ScheduleAssignment.AssignmentStatus.PENDING)
+                        .build());
+            }
+        }
+        return result;
+    }
+
+    public Schedule newSchedule(Site site) {
+        return Schedule.builder()
+                .id(nextId++)
+                .company(company)
+                .site(site)
+                .name(site.getName() + " - " + month)
+                .month(month.getMonthValue())
+                .year(month.getYear())
+                .build();
+    }
+
+    public Random random() {
+        return random;
+    }
+}
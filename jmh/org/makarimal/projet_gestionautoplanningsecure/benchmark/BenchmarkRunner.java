@@ -0,0 +1,45 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Point d’entrée des benchmarks.
+ * <p>
+ * Les résultats sont écrits en JSON dans {@code target/jmh/<label>.json} ; le label vient de
+ * {@code -Dbench.label=<sha du commit>} pour pouvoir comparer deux commits
+ * (ex. avec jmh.morethan.io). Filtre optionnel : {@code -Dbench.include=Overlap}.
+ * <p>
+ * Source set à part ({@code jmh/}, compilé contre les classes principales) : ni JMH ni
+ * ces classes ne font partie de l’artefact livré.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String label = System.getProperty("bench.label", "local");
+        String include = System.getProperty("bench.include", BenchmarkRunner.class.getPackageName() + ".*");
+
+        File dir = new File("target/jmh");
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IllegalStateException("Impossible de créer " + dir);
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .jvmArgsAppend("-Xms1g", "-Xmx1g")       // tas fixe : pas de bruit lié au dimensionnement
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(dir, label + ".json").getPath())
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,177 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EditStateStore;
+import org.makarimal.projet_gestionautoplanningsecure.service.ConcurrentEditMerger;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Éditions concurrentes des mêmes lignes : débit et mises à jour perdues.
+ * <p>
+ * {@code edit.editors} utilisateurs modifient chacun « leur » champ sur {@code edit.rows}
+ * lignes partagées (lecture, réflexion de {@code edit.think-us} µs, écriture de la ligne
+ * complète). La ligne versionnée est un {@link AtomicReference} : un compareAndSet raté
+ * joue le rôle de l’échec {@code @Version} au commit. Deux modes :
+ * <ul>
+ *   <li>{@code last-write-wins} : écriture sans contrôle, comme avant If-Match ;</li>
+ *   <li>{@code optimistic} : même algorithme que {@code ScheduleEditService} (fusion par
+ *       {@link ConcurrentEditMerger} si la version lue est périmée, nouvelle tentative
+ *       sur échec de version).</li>
+ * </ul>
+ * À la fin, chaque champ doit valoir le nombre d’éditions réussies de son propriétaire.
+ * Lancement : {@code java … ConcurrentEditLoadTest -Dedit.editors=16}.
+ * <p>
+ * Simulation en mémoire, pour mesurer l’algorithme seul (états de base dans une map, sans
+ * la table {@code edit_states}) : le comportement réel (JPA {@code @Version}, version exigée,
+ * fusion, 409) est vérifié par {@code ScheduleEditServiceTest}.
+ */
+public final class ConcurrentEditLoadTest {
+
+    private static final int EDITORS = Integer.getInteger("edit.editors", 8);
+    private static final int ROWS = Integer.getInteger("edit.rows", 4);
+    private static final int EDITS = Integer.getInteger("edit.per-editor", 20_000);
+    private static final int THINK_US = Integer.getInteger("edit.think-us", 20);
+    private static final int MAX_ATTEMPTS = 3;
+
+    private ConcurrentEditLoadTest() {
+    }
+
+    /** État d’une ligne à une version ; remplacé en entier à chaque écriture. */
+    private static final class Row {
+        final long version;
+        final Map<String, Object> fields;
+
+        Row(long version, Map<String, Object> fields) {
+            this.version = version;
+            this.fields = fields;
+        }
+    }
+
+    /** {@link EditStateStore} en mémoire : premier état gardé, version {@code keep + 1} en arrière purgée. */
+    private static final class InMemoryEditStateStore extends EditStateStore {
+        private final Map<String, String> states = new ConcurrentHashMap<>();
+
+        InMemoryEditStateStore() {
+            super(null);
+        }
+
+        @Override
+        public void save(String key, long version, String fields, int keep) {
+            states.putIfAbsent(key + "@" + version, fields);
+            states.remove(key + "@" + (version - keep - 1));
+        }
+
+        @Override
+        public String find(String key, long version) {
+            return states.get(key + "@" + version);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%d éditeurs, %d lignes, %d éditions chacun, réflexion %d µs%n",
+                EDITORS, ROWS, EDITS, THINK_US);
+        run("last-write-wins", false);
+        run("optimistic", true);
+    }
+
+    private static void run(String label, boolean optimistic) throws InterruptedException {
+        ConcurrentEditMerger merger = new ConcurrentEditMerger(new InMemoryEditStateStore(), new ObjectMapper(), 20);
+        AtomicReference<Row>[] rows = newRows();
+        int[][] succeeded = new int[ROWS][EDITORS];
+        AtomicLong merges = new AtomicLong();
+        AtomicLong retries = new AtomicLong();
+        AtomicLong reloads = new AtomicLong();
+
+        Thread[] editors = new Thread[EDITORS];
+        long start = System.nanoTime();
+        for (int e = 0; e < EDITORS; e++) {
+            int editor = e;
+            editors[e] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String field = "f" + editor;
+                for (int i = 0; i < EDITS; i++) {
+                    int r = random.nextInt(ROWS);
+                    String key = "row:" + r;
+                    int value = succeeded[r][editor] + 1;
+
+                    Row read = rows[r].get();
+                    Map<String, Object> mine = new HashMap<>(read.fields);
+                    mine.put(field, value);
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(THINK_US));
+
+                    if (!optimistic) {
+                        rows[r].set(new Row(read.version + 1, mine));
+                        succeeded[r][editor] = value;
+                        continue;
+                    }
+                    long base = read.version;
+                    for (int attempt = 1; ; attempt++) {
+                        Row current = rows[r].get();
+                        merger.remember(key, current.version, current.fields);
+                        Map<String, Object> toApply = mine;
+                        if (current.version != base) {
+                            try {
+                                toApply = merger.merge(key, base, current.version, current.fields, mine);
+                                merges.incrementAndGet();
+                            } catch (ResponseStatusException ex) {
+                                // version de base évincée : le client recharge et recommence
+                                reloads.incrementAndGet();
+                                base = current.version;
+                                mine = new HashMap<>(current.fields);
+                                mine.put(field, value);
+                                toApply = mine;
+                            }
+                        }
+                        if (rows[r].compareAndSet(current, new Row(current.version + 1, toApply))) {
+                            merger.remember(key, current.version + 1, toApply);
+                            succeeded[r][editor] = value;
+                            break;
+                        }
+                        retries.incrementAndGet();
+                        if (attempt >= MAX_ATTEMPTS) {
+                            // 409 renvoyé au client, qui recharge et recommence
+                            reloads.incrementAndGet();
+                            base = rows[r].get().version;
+                            mine = new HashMap<>(rows[r].get().fields);
+                            mine.put(field, value);
+                            attempt = 0;
+                        }
+                    }
+                }
+            }, "editor-" + e);
+            editors[e].start();
+        }
+        for (Thread t : editors) t.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long lost = 0;
+        for (int r = 0; r < ROWS; r++) {
+            Map<String, Object> fields = rows[r].get().fields;
+            for (int e = 0; e < EDITORS; e++) {
+                lost += succeeded[r][e] - (Integer) fields.get("f" + e);
+            }
+        }
+        System.out.printf("%-16s débit %9.0f éditions/s   fusions %8d   tentatives %7d   rechargements %6d   perdues %d%n",
+                label, (double) EDITORS * EDITS / seconds, merges.get(), retries.get(), reloads.get(), lost);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReference<Row>[] newRows() {
+        AtomicReference<Row>[] rows = new AtomicReference[ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            Map<String, Object> fields = new HashMap<>();
+            for (int e = 0; e < EDITORS; e++) fields.put("f" + e, 0);
+            rows[r] = new AtomicReference<>(new Row(0, fields));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,165 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Implémentation “en mémoire” d’un repository Spring Data, construite par proxy.
+ * <p>
+ * Les opérations CRUD de base (save, findById, delete…) sont gérées ici ; chaque requête
+ * dérivée utilisée par le code mesuré doit être déclarée via {@link #on(String, Function)}.
+ * Une méthode non déclarée lève une {@link UnsupportedOperationException} explicite plutôt
+ * que de renvoyer un résultat silencieusement faux.
+ */
+public final class InMemoryRepository<T> implements InvocationHandler {
+
+    private final Map<Long, T> rows = new LinkedHashMap<>();
+    private final Map<String, Function<Object[], Object>> queries = new HashMap<>();
+    private final Function<T, Long> idGetter;
+    private final IdSetter<T> idSetter;
+    private long sequence = 1_000_000;
+    private long statements;
+
+    @FunctionalInterface
+    public interface IdSetter<T> {
+        void set(T entity, Long id);
+    }
+
+    public InMemoryRepository(Function<T, Long> idGetter, IdSetter<T> idSetter) {
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+    }
+
+    /** Déclare le comportement d’une requête dérivée (ex. « findBySiteId »). */
+    public InMemoryRepository<T> on(String methodName, Function<Object[], Object> query) {
+        queries.put(methodName, query);
+        return this;
+    }
+
+    public InMemoryRepository<T> load(Collection<? extends T> entities) {
+        entities.forEach(this::store);
+        return this;
+    }
+
+    public List<T> filter(Predicate<T> predicate) {
+        List<T> result = new ArrayList<>();
+        for (T row : rows.values()) {
+            if (predicate.test(row)) result.add(row);
+        }
+        return result;
+    }
+
+    public Optional<T> first(Predicate<T> predicate) {
+        for (T row : rows.values()) {
+            if (predicate.test(row)) return Optional.of(row);
+        }
+        return Optional.empty();
+    }
+
+    public Collection<T> rows() {
+        return rows.values();
+    }
+
+    /** Nombre d’appels au repository (≈ requêtes SQL qu’aurait émises la vraie couche JPA). */
+    public long statements() {
+        return statements;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R proxy(Class<R> repositoryType) {
+        return (R) Proxy.newProxyInstance(
+                repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (name) {
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> "InMemoryRepository@" + Integer.toHexString(System.identityHashCode(proxy));
+            };
+        }
+        statements++;
+
+        Function<Object[], Object> query = queries.get(name);
+        if (query != null) {
+            return query.apply(args == null ? new Object[0] : args);
+        }
+
+        switch (name) {
+            case "save", "saveAndFlush" -> {
+                return store((T) args[0]);
+            }
+            case "saveAll", "saveAllAndFlush" -> {
+                List<T> saved = new ArrayList<>();
+                ((Iterable<T>) args[0]).forEach(e -> saved.add(store(e)));
+                return saved;
+            }
+            case "findById" -> {
+                return Optional.ofNullable(rows.get((Long) args[0]));
+            }
+            case "getReferenceById", "getById", "getOne" -> {
+                return rows.get((Long) args[0]);
+            }
+            case "existsById" -> {
+                return rows.containsKey((Long) args[0]);
+            }
+            case "findAll" -> {
+                if (args == null || args.length == 0) return new ArrayList<>(rows.values());
+            }
+            case "findAllById" -> {
+                List<T> found = new ArrayList<>();
+                ((Iterable<Long>) args[0]).forEach(id -> {
+                    T row = rows.get(id);
+                    if (row != null) found.add(row);
+                });
+                return found;
+            }
+            case "count" -> {
+                return (long) rows.size();
+            }
+            case "delete" -> {
+                rows.remove(idGetter.apply((T) args[0]));
+                return null;
+            }
+            case "deleteById" -> {
+                rows.remove((Long) args[0]);
+                return null;
+            }
+            case "deleteAll", "deleteAllInBatch" -> {
+                if (args == null || args.length == 0) {
+                    rows.clear();
+                } else {
+                    List<T> doomed = new ArrayList<>();
+                    ((Iterable<T>) args[0]).forEach(doomed::add);
+                    doomed.forEach(e -> rows.remove(idGetter.apply(e)));
+                }
+                return null;
+            }
+            case "flush" -> {
+                return null;
+            }
+            default -> {
+            }
+        }
+        throw new UnsupportedOperationException(
+                method.getDeclaringClass().getSimpleName() + "." + name + " non simulé en mémoire");
+    }
+
+    private T store(T entity) {
+        Long id = idGetter.apply(entity);
+        if (id == null) {
+            id = sequence++;
+            idSetter.set(entity, id);
+        }
+        rows.put(id, entity);
+        return entity;
+    }
+}
@@ -0,0 +1,86 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.makarimal.projet_gestionautoplanningsecure.model.Role;
+import org.makarimal.projet_gestionautoplanningsecure.model.User;
+import org.makarimal.projet_gestionautoplanningsecure.security.JwtService;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d’authentification d’une requête côté JWT :
+ * <ul>
+ *   <li>{@code legacy} : ancien chemin — clé + parser reconstruits et 3 parsings par requête
+ *       (extractUsername ×2 puis extractExpiration) ;</li>
+ *   <li>{@code singleParse} : clé/parser construits une fois, un seul parsing, cache désactivé ;</li>
+ *   <li>{@code cachedParse} : idem avec le cache des tokens vérifiés (client “bavard”).</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private String secret;
+    private String token;
+    private User user;
+    private JwtService uncached;
+    private JwtService cached;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        secret = Encoders.BASE64URL.encode(Keys.secretKeyFor(SignatureAlgorithm.HS256).getEncoded());
+        uncached = new JwtService(secret, 3_600_000L, 0);
+        cached = new JwtService(secret, 3_600_000L, 1024);
+        user = User.builder()
+                .id(1L)
+                .email("bench@autoplanning.local")
+                .username("bench")
+                .roles(List.of(Role.ADMIN))
+                .isActive(true)
+                .build();
+        token = uncached.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        String username = legacyParse(token).getSubject();
+        String again = legacyParse(token).getSubject();
+        return username.equals(again)
+                && username.equals(user.getUsername())
+                && !legacyParse(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public boolean singleParse() {
+        Claims claims = uncached.parseToken(token);
+        return uncached.isTokenValid(claims, user);
+    }
+
+    @Benchmark
+    public boolean cachedParse() {
+        Claims claims = cached.parseToken(token);
+        return cached.isTokenValid(claims, user);
+    }
+
+    /** Reproduction fidèle de l’ancien JwtService.extractAllClaims (hors System.out). */
+    private Claims legacyParse(String jwt) {
+        if (jwt.split("\\.").length != 3) {
+            throw new IllegalStateException("malformé");
+        }
+        Key key = Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(secret));
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody();
+    }
+}
@@ -0,0 +1,70 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.Site;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Macro-benchmark : génération d’un mois complet pour un site, sur la couche
+ * repository en mémoire ({@link BenchmarkContext}). Mesure le coût algorithmique
+ * hors base ; le nombre d’appels repository est exposé en compteur secondaire.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MonthGenerationBenchmark {
+
+    /** Même graine à chaque invocation : tirages identiques, seul le code mesuré varie. */
+    private static final long SEED = 42L;
+
+    @Param({"50", "200"})
+    public int employeesPerSite;
+
+    private BenchmarkData data;
+    private BenchmarkContext context;
+    private Site site;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+        public long repositoryCalls;
+    }
+
+    @Setup(Level.Trial)
+    public void setUpData() {
+        data = BenchmarkData.generate(1, employeesPerSite, 42L);
+        site = data.sites.get(0);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpContext() {
+        context = new BenchmarkContext(data);
+        context.reset();
+    }
+
+    @Benchmark
+    public Schedule scheduleGeneratorService(Statements statements) {
+        long before = context.statements();
+        Schedule schedule = context.scheduleGenerator.generateSchedule(
+                data.company.getId(), site.getId(), data.month.getMonthValue(), data.month.getYear());
+        statements.repositoryCalls += context.statements() - before;
+        return schedule;
+    }
+
+    @Benchmark
+    public void assignmentGenerator(Statements statements, Blackhole bh) {
+        Schedule schedule = data.newSchedule(site);
+        context.schedules.load(List.of(schedule));
+        long before = context.statements();
+        context.assignmentGenerator.generateForSchedule(schedule.getId(), SEED);
+        statements.repositoryCalls += context.statements() - before;
+        bh.consume(context.assignments.rows().size());
+    }
+}
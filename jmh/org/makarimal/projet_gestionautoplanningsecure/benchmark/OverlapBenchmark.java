@@ -0,0 +1,81 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.Employee;
+import org.makarimal.projet_gestionautoplanningsecure.model.EmployeeAvailability;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.util.TimeSlots;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Micro-benchmarks des contrôles de chevauchement et de disponibilité
+ * tels qu’exécutés par les générateurs pour chaque (candidat × créneau).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverlapBenchmark {
+
+    @Param({"50", "200"})
+    public int employeesPerSite;
+
+    private List<Employee> candidates;
+    private Map<Long, List<ScheduleAssignment>> assignmentsByEmployee;
+    private Map<Long, List<EmployeeAvailability>> availabilitiesByEmployee;
+    private LocalDate date;
+    private final LocalTime start = LocalTime.of(14, 0);
+    private final LocalTime end = LocalTime.of(22, 0);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = BenchmarkData.generate(1, employeesPerSite, 42L);
+        Schedule schedule = data.newSchedule(data.sites.get(0));
+        candidates = data.employees;
+        assignmentsByEmployee = data.monthOfAssignments(schedule).stream()
+                .collect(Collectors.groupingBy(a -> a.getEmployee().getId()));
+        availabilitiesByEmployee = data.availabilities.stream()
+                .collect(Collectors.groupingBy(a -> a.getEmployee().getId()));
+        date = data.month.atDay(15);
+    }
+
+    /** Un créneau contre toutes les affectations du mois de chaque candidat. */
+    @Benchmark
+    public void overlapCheck(Blackhole bh) {
+        for (Employee e : candidates) {
+            bh.consume(TimeSlots.hasConflict(
+                    assignmentsByEmployee.getOrDefault(e.getId(), List.of()), date, start, end));
+        }
+    }
+
+    /** Disponibilité déclarée + chevauchement + plafond journalier, comme ScheduleGeneratorService. */
+    @Benchmark
+    public void availabilityCheck(Blackhole bh) {
+        for (Employee e : candidates) {
+            boolean available = availabilitiesByEmployee.getOrDefault(e.getId(), List.of()).stream()
+                    .anyMatch(a -> a.getDayOfWeek() == date.getDayOfWeek()
+                            && !a.getStartTime().isAfter(start)
+                            && !a.getEndTime().isBefore(end));
+            if (available) {
+                List<ScheduleAssignment> existing = assignmentsByEmployee.getOrDefault(e.getId(), List.of());
+                int dailyMinutes = existing.stream()
+                        .filter(a -> a.getDate().equals(date))
+                        .mapToInt(ScheduleAssignment::getDuration)
+                        .sum();
+                available = !TimeSlots.hasConflict(existing, date, start, end)
+                        && dailyMinutes + 480 <= e.getPreference().getMaxHoursPerDay() * 60;
+            }
+            bh.consume(available);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.makarimal.projet_gestionautoplanningsecure.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Charge HTTP sur une instance de l’application en marche : débit, p50 / p99 et codes
+ * de réponse, pour comparer les modèles d’exécution sur le vrai code (JDBC, sérialisation,
+ * filtres, admission).
+ * <p>
+ * Procédure : démarrer l’application sur la même base avec
+ * {@code planning.threads.virtual=false}, lancer ce programme avec {@code -Dload.label=platform},
+ * redémarrer avec {@code planning.threads.virtual=true}, relancer avec
+ * {@code -Dload.label=virtual}. Paramètres :
+ * <ul>
+ *   <li>{@code load.base-url} (défaut {@code http://localhost:8080}), {@code load.token} (JWT) ;</li>
+ *   <li>{@code load.paths} : chemins GET séparés par des virgules, tirés au hasard
+ *       (ex. {@code /planning/site/3?month=5&year=2025,/schedules/12}) ;</li>
+ *   <li>{@code load.clients} clients concurrents en boucle fermée pendant
+ *       {@code load.seconds} s, après {@code load.warmup-seconds} s d’échauffement.</li>
+ * </ul>
+ * Les 503 (admission) sont comptés à part et exclus des percentiles.
+ */
+public final class ThreadModelLoadTest {
+
+    private static final String LABEL = System.getProperty("load.label", "run");
+    private static final String BASE_URL = System.getProperty("load.base-url", "http://localhost:8080");
+    private static final String TOKEN = System.getProperty("load.token", "");
+    private static final String PATHS = System.getProperty("load.paths", "");
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 60);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 15);
+
+    private ThreadModelLoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<String> paths = Arrays.stream(PATHS.split(",")).map(String::trim).filter(p -> !p.isEmpty()).toList();
+        if (paths.isEmpty() || TOKEN.isBlank()) {
+            System.err.println("Renseigner -Dload.token=<JWT> et -Dload.paths=/chemin1,/chemin2");
+            System.exit(2);
+        }
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, CLIENTS / 8)))
+                .build();
+
+        System.out.printf("%s : %d clients, %s, %d chemins%n", LABEL, CLIENTS, BASE_URL, paths.size());
+        run(client, paths, WARMUP_SECONDS, false);
+        run(client, paths, SECONDS, true);
+        System.exit(0);
+    }
+
+    private static void run(HttpClient client, List<String> paths, int seconds, boolean report)
+            throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<long[]> perClient = Collections.synchronizedList(new ArrayList<>());
+        Map<Integer, AtomicInteger> statuses = new ConcurrentSkipListMap<>();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < CLIENTS; c++) {
+            clients.execute(() -> {
+                long[] latencies = new long[1024];
+                int n = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (System.nanoTime() < end) {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + paths.get(random.nextInt(paths.size()))))
+                                .header("Authorization", "Bearer " + TOKEN)
+                                .timeout(Duration.ofSeconds(30))
+                                .GET()
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            statuses.computeIfAbsent(status, s -> new AtomicInteger()).incrementAndGet();
+                            if (status != 503) {
+                                if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+                                latencies[n++] = System.nanoTime() - sent;
+                            }
+                        } catch (java.io.IOException e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    perClient.add(Arrays.copyOf(latencies, n));
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        clients.shutdown();
+        if (!report) {
+            return;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("%-9s débit %8.0f req/s   p50 %6d ms   p99 %6d ms   max %6d ms   erreurs %d   statuts %s%n",
+                LABEL, all.length / elapsed, percentile(all, 0.50), percentile(all, 0.99),
+                percentile(all, 1.0), errors.get(), statuses);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]);
+    }
+}
@@ -2,11 +2,16 @@ package org.makarimal.projet_gestionautoplanningsecure.model;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.makarimal.projet_gestionautoplanningsecure.config.CacheRegions;
 import lombok.*;
 
 import java.time.LocalTime;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.AGENT_SCHEDULE)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
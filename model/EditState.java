@@ -0,0 +1,40 @@
+package org.makarimal.projet_gestionautoplanningsecure.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Champs éditables d’une entité à une version, base des fusions à trois voies de
+ * {@code ConcurrentEditMerger}. Partagé par toutes les instances via la base : une écriture
+ * périmée se fusionne quelle que soit l’instance qui la reçoit. Seules les dernières versions
+ * de chaque entité sont gardées. Écrit et lu en JDBC par {@code EditStateStore}.
+ */
+@Getter @Setter
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(
+        name = "edit_states",
+        uniqueConstraints = @UniqueConstraint(name = "uk_edit_states_key_version", columnNames = {"entity_key", "version"})
+)
+public class EditState {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** {@code schedule:<id>} ou {@code assignment:<id>} */
+    @Column(name = "entity_key", nullable = false, length = 64)
+    private String key;
+
+    @Column(nullable = false)
+    private long version;
+
+    /** Champ → valeur canonique (texte), en JSON. */
+    @Column(nullable = false, columnDefinition = "text")
+    private String fields;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
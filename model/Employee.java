@@ -88,6 +88,12 @@ public class Employee {
     private List<String> skillSets;
 
     private boolean isActive;
+
+    /** Entre dans le jeton de l’URL d’agenda : l’incrémenter révoque l’URL de cet employé. */
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long calendarTokenVersion;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -0,0 +1,52 @@
+package org.makarimal.projet_gestionautoplanningsecure.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bail de génération d’un (site, mois), partagé par toutes les instances via la base.
+ * <p>
+ * La ligne n’est jamais supprimée : {@code token} augmente à chaque acquisition et sert de
+ * jeton de clôture (fencing) — une génération ne valide ses écritures que si le bail porte
+ * encore son jeton. Écrite en JDBC par {@code GenerationLeaseStore}.
+ */
+@Getter @Setter
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "generation_leases")
+public class GenerationLease {
+
+    public enum Status {
+        /** Génération en cours (jusqu’à {@code expiresAt} sans renouvellement). */
+        RUNNING,
+        /** Terminée et validée : le résultat est en base. */
+        DONE,
+        /** Échouée ou abandonnée : le prochain demandeur relance. */
+        FAILED
+    }
+
+    /** {@code site:<id>:<yyyy-MM>} */
+    @Id
+    @Column(name = "lease_key", length = 64)
+    private String key;
+
+    /** Instance et acquisition ({@code <instance>/<uuid>}). */
+    @Column(nullable = false, length = 160)
+    private String owner;
+
+    @Column(nullable = false)
+    private long token;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status;
+
+    @Column(name = "acquired_at", nullable = false)
+    private LocalDateTime acquiredAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
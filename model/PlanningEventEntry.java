@@ -0,0 +1,39 @@
+package org.makarimal.projet_gestionautoplanningsecure.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Journal des changements d’affectations diffusés en SSE : une ligne par (transaction, site),
+ * écrite dans la transaction des affectations. L’id, attribué par la base, est la position
+ * du message pour toutes les instances ; chacune relit le journal pour servir ses abonnés.
+ * Écrit et lu en JDBC par {@code PlanningEventStore}.
+ */
+@Getter @Setter
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(
+        name = "planning_events",
+        indexes = {
+                @Index(name = "idx_planning_events_site", columnList = "site_id, id"),
+                @Index(name = "idx_planning_events_created", columnList = "created_at")
+        }
+)
+public class PlanningEventEntry {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    /** Deltas du message, en JSON. */
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
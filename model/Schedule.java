@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.OptimisticLock;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -43,6 +44,7 @@ public class Schedule {
             cascade = CascadeType.ALL,
             orphanRemoval = true)
     @JsonManagedReference
+    @OptimisticLock(excluded = true)       // chaque affectation a sa propre version
     @Builder.Default                       // évite le NPE quand on utilise le builder
     private List<ScheduleAssignment> assignments = new ArrayList<>();
 
@@ -70,11 +72,19 @@ public class Schedule {
     @Builder.Default                      // % d’assignations confirmées
     private Integer completionRate = 0;
 
+    /** Graine de la dernière génération d’affectations (rejouable), null si jamais générée. */
+    private Long generationSeed;
+
     /* ----------  Audit  ---------- */
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    /** Verrou optimiste : exposé en ETag, contrôlé par If-Match. Défaut SQL pour les lignes existantes. */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @PrePersist
     void prePersist() {
         LocalDateTime now = LocalDateTime.now();
@@ -2,12 +2,16 @@ package org.makarimal.projet_gestionautoplanningsecure.model;
 
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentDeltaListener;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -19,6 +23,7 @@ import java.time.LocalTime;
 @AllArgsConstructor
 @Entity
 @Table(name = "schedule_assignments")
+@EntityListeners(AssignmentDeltaListener.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class ScheduleAssignment {
     @Id
@@ -71,6 +76,18 @@ public class ScheduleAssignment {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    /** Verrou optimiste : exposé en ETag, contrôlé par If-Match. Défaut SQL pour les lignes existantes. */
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    /** Statut lu en base : distingue un changement de statut d’une autre modification. */
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private AssignmentStatus loadedStatus;
+
     public enum AssignmentStatus {
         ASSIGNED, CONFIRMED, DECLINED, PENDING
     }
@@ -88,4 +105,9 @@ public class ScheduleAssignment {
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
+
+    @PostLoad
+    protected void onLoad() {
+        loadedStatus = status;
+    }
 }
\ No newline at end of file
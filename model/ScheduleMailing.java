@@ -0,0 +1,37 @@
+package org.makarimal.projet_gestionautoplanningsecure.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dernier envoi réussi du planning d’un employé (mail + PDF). Un envoi relancé après un
+ * échec partiel saute les employés déjà servis depuis le précédent envoi complet
+ * ({@link Schedule#getSentAt()}).
+ */
+@Getter @Setter
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(
+        name = "schedule_mailings",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_mailing_schedule_employee",
+                columnNames = {"schedule_id", "employee_id"}
+        )
+)
+public class ScheduleMailing {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "schedule_id", nullable = false)
+    private Long scheduleId;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    @Column(nullable = false)
+    private LocalDateTime sentAt;
+}
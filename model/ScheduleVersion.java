@@ -0,0 +1,79 @@
+package org.makarimal.projet_gestionautoplanningsecure.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Version immuable du contenu d’un planning (ses affectations).
+ * <p>
+ * Les versions d’un planning forment une chaîne linéaire numérotée à partir de 1.
+ * {@code payload} contient soit l’état complet ({@code keyframe}), soit le delta
+ * (lignes retirées / ajoutées) par rapport à la version précédente ; encodage
+ * {@code RosterDelta}. Écrite uniquement par {@code ScheduleVersionService}.
+ */
+@Getter @Setter
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(
+        name = "schedule_versions",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_schedule_version_number",
+                columnNames = {"schedule_id", "version_number"}
+        )
+)
+public class ScheduleVersion {
+
+    public enum Reason {
+        /** Après une génération automatique. */
+        GENERATED,
+        /** Juste avant qu’un rafraîchissement n’efface les affectations. */
+        BEFORE_REFRESH,
+        /** Demandée explicitement. */
+        MANUAL,
+        /** Après retour à une version antérieure ({@code restoredFrom}). */
+        ROLLBACK
+    }
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "schedule_id", nullable = false)
+    private Long scheduleId;
+
+    @Column(name = "version_number", nullable = false)
+    private int number;
+
+    @Column(nullable = false)
+    private boolean keyframe;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Reason reason;
+
+    /** Version restaurée, pour {@link Reason#ROLLBACK}. */
+    @Column(name = "restored_from")
+    private Integer restoredFrom;
+
+    @Column(name = "assignment_count", nullable = false)
+    private int assignmentCount;
+
+    @Column(name = "added_count", nullable = false)
+    private int addedCount;
+
+    @Column(name = "removed_count", nullable = false)
+    private int removedCount;
+
+    /** État complet ou delta, compressé (gzip). */
+    @Column(nullable = false, length = 16_777_215)
+    private byte[] payload;
+
+    /** Taille de {@code payload}, pour lister les versions sans le lire. */
+    @Column(name = "payload_size", nullable = false)
+    private int payloadSize;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
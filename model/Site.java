@@ -3,6 +3,9 @@ package org.makarimal.projet_gestionautoplanningsecure.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.makarimal.projet_gestionautoplanningsecure.config.CacheRegions;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,6 +20,8 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SITE)
 @Table(name = "sites")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Site {
@@ -0,0 +1,55 @@
+package org.makarimal.projet_gestionautoplanningsecure.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Ligne de la table de synthèse de couverture : pour un site, un jour et un type d’agent,
+ * besoin (règles / modèles) et affectations (hors refusées, dont confirmées).
+ * Maintenue par {@code CoverageSummaryService} ; écrite en JDBC par {@code SiteCoverageWriter}.
+ */
+@Getter @Setter
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(
+        name = "site_coverage_days",
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_coverage_site_date_type",
+                columnNames = {"site_id", "coverage_date", "agent_type"}
+        ),
+        indexes = @Index(name = "idx_coverage_company_date", columnList = "company_id, coverage_date")
+)
+public class SiteCoverageDay {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    @Column(name = "coverage_date", nullable = false)
+    private LocalDate date;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "agent_type", nullable = false)
+    private AgentType agentType;
+
+    @Column(name = "required_count", nullable = false)
+    private int required;
+
+    @Column(name = "assigned_count", nullable = false)
+    private int assigned;
+
+    @Column(name = "confirmed_count", nullable = false)
+    private int confirmed;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
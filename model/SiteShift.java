@@ -2,6 +2,11 @@ package org.makarimal.projet_gestionautoplanningsecure.model;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.makarimal.projet_gestionautoplanningsecure.config.CacheRegions;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +20,8 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SITE_SHIFT)
 @Table(name = "site_shifts")
 public class SiteShift {
     @Id
@@ -43,11 +50,15 @@ public class SiteShift {
     @ElementCollection
     @CollectionTable(name = "site_shift_required_skills", joinColumns = @JoinColumn(name = "shift_id"))
     @Column(name = "skill")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SITE_SHIFT_COLLECTIONS)
+    @Fetch(FetchMode.SUBSELECT)
     private List<String> requiredSkills;
 
     @ElementCollection
     @CollectionTable(name = "site_shift_agent_types", joinColumns = @JoinColumn(name = "shift_id"))
     @Enumerated(EnumType.STRING)
     @Column(name = "agent_type")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SITE_SHIFT_COLLECTIONS)
+    @Fetch(FetchMode.SUBSELECT)
     private List<AgentType> requiredAgentTypes;
 }
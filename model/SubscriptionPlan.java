@@ -2,6 +2,9 @@ package org.makarimal.projet_gestionautoplanningsecure.model;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.makarimal.projet_gestionautoplanningsecure.config.CacheRegions;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,6 +18,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.SUBSCRIPTION_PLAN)
 @Table(name = "subscription_plans")
 public class SubscriptionPlan {
     @Id
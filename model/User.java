@@ -1,6 +1,7 @@
 package org.makarimal.projet_gestionautoplanningsecure.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -52,6 +53,11 @@ public class User implements UserDetails {
     private String position;
     private String phone;
     private boolean isActive;
+
+    /** Incrémentée pour révoquer tous les JWT déjà émis (claim {@code tv}). */
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long tokenVersion;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
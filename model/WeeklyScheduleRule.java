@@ -2,6 +2,11 @@ package org.makarimal.projet_gestionautoplanningsecure.model;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.makarimal.projet_gestionautoplanningsecure.config.CacheRegions;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,6 +18,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.WEEKLY_RULE)
 @Table(name = "weekly_schedule_rules")
 @Data
 @Builder
@@ -39,10 +46,14 @@ public class WeeklyScheduleRule {
 
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.WEEKLY_RULE_COLLECTIONS)
+    @Fetch(FetchMode.SUBSELECT)
     private List<String> requiredSkills;
 
     @OneToMany(mappedBy = "weeklyScheduleRule", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
     @JsonManagedReference
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.WEEKLY_RULE_COLLECTIONS)
+    @Fetch(FetchMode.SUBSELECT)
     private List<AgentSchedule> agents;
 
     @ElementCollection(fetch = FetchType.EAGER)
@@ -50,6 +61,8 @@ public class WeeklyScheduleRule {
             joinColumns = @JoinColumn(name = "rule_id"))
     @Enumerated(EnumType.STRING)
     @Column(name = "agent_type")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.WEEKLY_RULE_COLLECTIONS)
+    @Fetch(FetchMode.SUBSELECT)
     private List<AgentType> requiredAgentTypes = new ArrayList<>();
 
 
@@ -0,0 +1,16 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+
+/**
+ * Intercepteur Hibernate : compte les entités hydratées pendant la requête HTTP suivie.
+ */
+public class EntityLoadCounter implements Interceptor {
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        SqlStatementCounter.recordEntityLoad();
+        return false;
+    }
+}
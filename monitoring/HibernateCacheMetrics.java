@@ -0,0 +1,78 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.makarimal.projet_gestionautoplanningsecure.config.CacheRegions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Expose les statistiques du cache de second niveau par région :
+ * {@code hibernate.l2.hits|misses|puts} (compteurs) et {@code hibernate.l2.entries} (jauge),
+ * tag {@code region}.
+ */
+@Component
+@ConditionalOnProperty(name = "planning.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class HibernateCacheMetrics implements MeterBinder {
+
+    private static final List<String> REGIONS = List.of(
+            CacheRegions.COMPANY,
+            CacheRegions.SITE,
+            CacheRegions.SUBSCRIPTION_PLAN,
+            CacheRegions.WEEKLY_RULE,
+            CacheRegions.WEEKLY_RULE_COLLECTIONS,
+            CacheRegions.AGENT_SCHEDULE,
+            CacheRegions.SITE_SHIFT,
+            CacheRegions.SITE_SHIFT_COLLECTIONS,
+            CacheRegions.QUERY_RESULTS,
+            CacheRegions.UPDATE_TIMESTAMPS);
+
+    private final Statistics statistics;
+
+    public HibernateCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String region : REGIONS) {
+            counter(registry, "hibernate.l2.hits", "Lectures servies par le cache", region,
+                    CacheRegionStatistics::getHitCount);
+            counter(registry, "hibernate.l2.misses", "Lectures absentes du cache", region,
+                    CacheRegionStatistics::getMissCount);
+            counter(registry, "hibernate.l2.puts", "Entrées écrites dans le cache", region,
+                    CacheRegionStatistics::getPutCount);
+            Gauge.builder("hibernate.l2.entries", statistics, s -> value(s, region,
+                            CacheRegionStatistics::getElementCountInMemory))
+                    .description("Entrées présentes en mémoire")
+                    .tag("region", region)
+                    .register(registry);
+        }
+    }
+
+    private void counter(MeterRegistry registry, String name, String description, String region,
+                         ToDoubleFunction<CacheRegionStatistics> fn) {
+        FunctionCounter.builder(name, statistics, s -> value(s, region, fn))
+                .description(description)
+                .tag("region", region)
+                .register(registry);
+    }
+
+    /** La région n’existe qu’une fois utilisée ; avant, ou si les statistiques sont coupées : 0. */
+    private static double value(Statistics statistics, String region, ToDoubleFunction<CacheRegionStatistics> fn) {
+        if (!statistics.isStatisticsEnabled()) {
+            return 0;
+        }
+        CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+        return stats != null ? Math.max(0, fn.applyAsDouble(stats)) : 0;
+    }
+}
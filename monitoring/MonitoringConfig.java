@@ -0,0 +1,24 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MonitoringConfig {
+
+    @Bean
+    public SqlStatementCounter sqlStatementCounter() {
+        return new SqlStatementCounter();
+    }
+
+    /** Branche le compteur de requêtes et de chargements d’entités sur la SessionFactory. */
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer(SqlStatementCounter counter) {
+        return props -> {
+            props.put(AvailableSettings.STATEMENT_INSPECTOR, counter);
+            props.put(AvailableSettings.INTERCEPTOR, new EntityLoadCounter());
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import io.micrometer.core.instrument.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métriques métier des chemins chauds (génération, lecture planning, PDF, mail).
+ * <p>
+ * Les tags {@code company} / {@code site} sont bornés : au-delà de
+ * {@code planning.metrics.max-tag-values} valeurs distinctes, les nouvelles
+ * valeurs sont regroupées sous {@code "other"} pour ne pas faire exploser
+ * le nombre de séries côté Prometheus.
+ */
+@Component
+public class PlanningMetrics {
+
+    static final String OTHER = "other";
+
+    private final MeterRegistry registry;
+    private final int maxTagValues;
+    private final Set<String> companies = ConcurrentHashMap.newKeySet();
+    private final Set<String> sites = ConcurrentHashMap.newKeySet();
+
+    public PlanningMetrics(MeterRegistry registry,
+                           @Value("${planning.metrics.max-tag-values:200}") int maxTagValues) {
+        this.registry = registry;
+        this.maxTagValues = maxTagValues;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Génération                                                        */
+    /* ------------------------------------------------------------------ */
+
+    public void recordGeneration(String generator, Long companyId, Long siteId, long durationNanos,
+                                 int assignmentsCreated, int unfilledSlots, long sqlStatements) {
+        Tags tags = Tags.of("generator", generator,
+                "company", bounded(companies, companyId),
+                "site", bounded(sites, siteId),
+                "outcome", "success");
+
+        Timer.builder("planning.generation")
+                .description("Durée d’une génération mensuelle")
+                .tags(tags)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+
+        Counter.builder("planning.generation.assignments")
+                .description("Affectations créées par la génération")
+                .tags(tags)
+                .register(registry)
+                .increment(assignmentsCreated);
+        Counter.builder("planning.generation.unfilled")
+                .description("Créneaux restés non pourvus")
+                .tags(tags)
+                .register(registry)
+                .increment(unfilledSlots);
+        DistributionSummary.builder("planning.generation.sql.statements")
+                .description("Requêtes SQL émises par une génération")
+                .tags(tags)
+                .register(registry)
+                .record(sqlStatements);
+    }
+
+    public void recordGenerationFailure(String generator, Long companyId, Long siteId, long durationNanos) {
+        Timer.builder("planning.generation")
+                .tags("generator", generator,
+                        "company", bounded(companies, companyId),
+                        "site", bounded(sites, siteId),
+                        "outcome", "error")
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Lectures planning                                                 */
+    /* ------------------------------------------------------------------ */
+
+    public void recordQuery(String operation, Long siteId, long durationNanos) {
+        Timer.builder("planning.query")
+                .description("Lectures PlanningQueryService")
+                .tags("operation", operation, "site", bounded(sites, siteId))
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  PDF / mail                                                        */
+    /* ------------------------------------------------------------------ */
+
+    public void recordPdf(Long companyId, long durationNanos, int bytes) {
+        String company = bounded(companies, companyId);
+        Timer.builder("planning.pdf.render")
+                .description("Rendu PDF d’un planning employé")
+                .tags("company", company)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("planning.pdf.bytes")
+                .baseUnit("bytes")
+                .tags("company", company)
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void recordMail(long durationNanos, boolean success) {
+        Timer.builder("planning.mail.send")
+                .description("Envoi SMTP d’un planning")
+                .tags("outcome", success ? "success" : "failure")
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            registry.counter("planning.mail.failures").increment();
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Budget SQL par requête HTTP                                        */
+    /* ------------------------------------------------------------------ */
+
+    public void recordSqlBudget(String endpoint, int statements, boolean exceeded) {
+        DistributionSummary.builder("http.sql.statements")
+                .description("Requêtes SQL par requête HTTP")
+                .tags("endpoint", endpoint)
+                .register(registry)
+                .record(statements);
+        if (exceeded) {
+            registry.counter("http.sql.budget.exceeded", "endpoint", endpoint).increment();
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private String bounded(Set<String> seen, Long id) {
+        if (id == null) {
+            return "none";
+        }
+        String value = id.toString();
+        if (seen.contains(value)) {
+            return value;
+        }
+        if (seen.size() >= maxTagValues) {
+            return OTHER;
+        }
+        seen.add(value);
+        return value;
+    }
+}
@@ -0,0 +1,55 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Compteurs SQL / chargements d’entités pour une requête HTTP.
+ * <p>
+ * Chaque requête SQL est réduite à une « empreinte » (littéraux et listes IN normalisés) :
+ * une empreinte répétée N fois dans la même requête HTTP signe un N+1.
+ */
+public class RequestSqlStats {
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private int statements;
+    private int entityLoads;
+    private final Map<String, Integer> fingerprints = new HashMap<>();
+
+    void recordStatement(String sql) {
+        statements++;
+        fingerprints.merge(fingerprint(sql), 1, Integer::sum);
+    }
+
+    void recordEntityLoad() {
+        entityLoads++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public int getEntityLoads() {
+        return entityLoads;
+    }
+
+    /** Empreintes exécutées au moins {@code minCount} fois, les plus fréquentes d’abord. */
+    public List<Map.Entry<String, Integer>> repeated(int minCount, int limit) {
+        return fingerprints.entrySet().stream()
+                .filter(e -> e.getValue() >= minCount)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    static String fingerprint(String sql) {
+        String fp = STRING_LITERAL.matcher(sql).replaceAll("?");
+        fp = NUMBER.matcher(fp).replaceAll("?");
+        fp = IN_LIST.matcher(fp).replaceAll("(?)");
+        return SPACES.matcher(fp).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+}
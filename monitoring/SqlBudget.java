@@ -0,0 +1,19 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import java.lang.annotation.*;
+
+/**
+ * Budget SQL déclaré d’un endpoint (sur la méthode ou le contrôleur).
+ * Sans annotation, c’est {@code planning.sql-budget.default-statements} qui s’applique.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SqlBudget {
+
+    /** Nombre maximum de requêtes SQL pour une requête HTTP. */
+    int statements();
+
+    /** Nombre maximum d’entités chargées ; négatif = pas de limite. */
+    int entityLoads() default -1;
+}
@@ -0,0 +1,12 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+/**
+ * Levée en mode strict ({@code planning.sql-budget.strict=true}, typiquement en test d’intégration)
+ * quand un endpoint dépasse son budget SQL.
+ */
+public class SqlBudgetExceededException extends IllegalStateException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
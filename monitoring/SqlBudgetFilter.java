@@ -0,0 +1,145 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.util.BeforeCommitResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compte les requêtes SQL et les entités chargées par requête HTTP.
+ * <ul>
+ *   <li>les compteurs sont renvoyés dans les en-têtes {@code X-Sql-Statements} / {@code X-Entity-Loads},
+ *       posés juste avant l’envoi des premiers octets : le corps n’est jamais mis en tampon
+ *       (téléchargements, exports et flux restent en streaming). Ils comptent donc ce qui
+ *       précède l’écriture ; le budget, les métriques et les logs portent sur toute la requête ;</li>
+ *   <li>au-delà du budget ({@link SqlBudget} ou valeur par défaut), un warning liste les
+ *       requêtes répétées (empreintes) pour localiser les N+1 ;</li>
+ *   <li>en mode strict, le dépassement lève {@link SqlBudgetExceededException} (tests d’intégration).</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    static final String ENTITY_LOADS_HEADER = "X-Entity-Loads";
+
+    private final PlanningMetrics metrics;
+    private final boolean enabled;
+    private final boolean headers;
+    private final boolean strict;
+    private final int defaultStatements;
+    private final int repeatThreshold;
+
+    public SqlBudgetFilter(PlanningMetrics metrics,
+                           @Value("${planning.sql-budget.enabled:true}") boolean enabled,
+                           @Value("${planning.sql-budget.headers:true}") boolean headers,
+                           @Value("${planning.sql-budget.strict:false}") boolean strict,
+                           @Value("${planning.sql-budget.default-statements:50}") int defaultStatements,
+                           @Value("${planning.sql-budget.repeat-threshold:3}") int repeatThreshold) {
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.headers = headers;
+        this.strict = strict;
+        this.defaultStatements = defaultStatements;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+
+        RequestSqlStats stats = SqlStatementCounter.openRequestScope();
+        BeforeCommitResponse wrapper = headers ? new BeforeCommitResponse(response, () -> {
+            response.setHeader(STATEMENTS_HEADER, String.valueOf(stats.getStatements()));
+            response.setHeader(ENTITY_LOADS_HEADER, String.valueOf(stats.getEntityLoads()));
+        }) : null;
+        try {
+            filterChain.doFilter(request, wrapper != null ? wrapper : response);
+        } finally {
+            SqlStatementCounter.closeRequestScope();
+        }
+
+        if (wrapper != null) {
+            wrapper.beforeCommit();   // réponse sans corps : pas encore envoyée
+        }
+
+        String endpoint = request.getMethod() + " " + endpointPattern(request);
+        SqlBudget budget = declaredBudget(request);
+        int maxStatements = budget != null ? budget.statements() : defaultStatements;
+        int maxLoads = budget != null ? budget.entityLoads() : -1;
+
+        boolean exceeded = stats.getStatements() > maxStatements
+                || (maxLoads >= 0 && stats.getEntityLoads() > maxLoads);
+        metrics.recordSqlBudget(endpoint, stats.getStatements(), exceeded);
+
+        if (exceeded) {
+            String message = String.format(
+                    "Budget SQL dépassé pour %s : %d requêtes (max %d), %d entités chargées%s",
+                    endpoint, stats.getStatements(), maxStatements, stats.getEntityLoads(),
+                    maxLoads >= 0 ? " (max " + maxLoads + ")" : "");
+            String repeated = describeRepeated(stats.repeated(repeatThreshold, 5));
+            log.warn("{}{}", message, repeated);
+
+            if (strict) {
+                throw new SqlBudgetExceededException(message + repeated);
+            }
+        } else {
+            log.debug("{} : {} requêtes SQL, {} entités", endpoint,
+                    stats.getStatements(), stats.getEntityLoads());
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private SqlBudget declaredBudget(HttpServletRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod method)) {
+            return null;
+        }
+        SqlBudget budget = AnnotatedElementUtils.findMergedAnnotation(method.getMethod(), SqlBudget.class);
+        return budget != null
+                ? budget
+                : AnnotatedElementUtils.findMergedAnnotation(method.getBeanType(), SqlBudget.class);
+    }
+
+    /** Motif de route (ex. /schedules/{id}) plutôt que l’URI : cardinalité bornée pour les métriques. */
+    private String endpointPattern(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "unmapped";
+    }
+
+    private String describeRepeated(List<Map.Entry<String, Integer>> repeated) {
+        if (repeated.isEmpty()) {
+            return "";
+        }
+        return repeated.stream()
+                .map(e -> "\n  " + e.getValue() + "× " + e.getKey())
+                .collect(Collectors.joining("", "\nRequêtes répétées (N+1 probable) :", ""));
+    }
+}
@@ -0,0 +1,52 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Compte les requêtes SQL préparées par Hibernate, par thread.
+ * <p>
+ * Le compteur est monotone : on lit {@link #current()} avant / après un traitement
+ * et on fait la différence. Si une requête HTTP est en cours de suivi
+ * ({@link #openRequestScope()}), la requête y est aussi enregistrée avec son empreinte.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+    private static final ThreadLocal<RequestSqlStats> REQUEST = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        RequestSqlStats stats = REQUEST.get();
+        if (stats != null) {
+            stats.recordStatement(sql);
+        }
+        return sql;
+    }
+
+    /** Nombre de requêtes émises par le thread courant depuis son démarrage. */
+    public static long current() {
+        return COUNT.get()[0];
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Portée “requête HTTP”                                             */
+    /* ------------------------------------------------------------------ */
+
+    public static RequestSqlStats openRequestScope() {
+        RequestSqlStats stats = new RequestSqlStats();
+        REQUEST.set(stats);
+        return stats;
+    }
+
+    public static void closeRequestScope() {
+        REQUEST.remove();
+    }
+
+    static void recordEntityLoad() {
+        RequestSqlStats stats = REQUEST.get();
+        if (stats != null) {
+            stats.recordEntityLoad();
+        }
+    }
+}
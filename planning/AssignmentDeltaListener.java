@@ -0,0 +1,63 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.makarimal.projet_gestionautoplanningsecure.dto.PlanningEventDTO.DeltaDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.PlanningEventDTO.DeltaType;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Écouteur JPA de {@link ScheduleAssignment} : toute écriture passant par Hibernate
+ * (services de planning, générateurs, absences, éditions par lot) alimente le
+ * {@link PlanningEventStream} du site, sans qu’aucun appelant n’ait à y penser.
+ * Instancié par Spring (conteneur de beans Hibernate).
+ */
+@Component
+@RequiredArgsConstructor
+public class AssignmentDeltaListener {
+
+    private final PlanningEventStream stream;
+
+    @PostPersist
+    void onPersist(ScheduleAssignment a) {
+        stream.stage(siteId(a), delta(DeltaType.ADDED, a));
+        a.setLoadedStatus(a.getStatus());
+    }
+
+    @PostUpdate
+    void onUpdate(ScheduleAssignment a) {
+        DeltaType type = a.getStatus() != a.getLoadedStatus() ? DeltaType.STATUS_CHANGED : DeltaType.UPDATED;
+        stream.stage(siteId(a), delta(type, a));
+        a.setLoadedStatus(a.getStatus());
+    }
+
+    @PostRemove
+    void onRemove(ScheduleAssignment a) {
+        stream.stage(siteId(a), delta(DeltaType.DELETED, a));
+    }
+
+    /** Les associations sont chargées avec l’affectation ; seuls leurs ids sont lus. */
+    private static Long siteId(ScheduleAssignment a) {
+        if (a.getSite() != null) return a.getSite().getId();
+        return a.getSchedule() != null && a.getSchedule().getSite() != null
+                ? a.getSchedule().getSite().getId() : null;
+    }
+
+    private static DeltaDTO delta(DeltaType type, ScheduleAssignment a) {
+        return DeltaDTO.builder()
+                .type(type)
+                .assignmentId(a.getId())
+                .scheduleId(a.getSchedule() != null ? a.getSchedule().getId() : null)
+                .employeeId(a.getEmployee() != null ? a.getEmployee().getId() : null)
+                .date(a.getDate())
+                .startTime(a.getStartTime())
+                .endTime(a.getEndTime())
+                .shift(a.getShift())
+                .agentType(a.getAgentType() != null ? a.getAgentType().name() : null)
+                .status(a.getStatus() != null ? a.getStatus().name() : null)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Publié (via {@code ApplicationEventPublisher}) quand des affectations ou des absences
+ * changent. Les index en mémoire l’écoutent après commit pour se périmer.
+ */
+@Getter
+@ToString
+public class AssignmentsChangedEvent {
+
+    private final Long companyId;
+    /** null si plusieurs sites (ou inconnu). */
+    private final Long siteId;
+    /** Vide = potentiellement tous les employés de la société. */
+    private final Set<Long> employeeIds;
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public AssignmentsChangedEvent(Long companyId, Long siteId, Set<Long> employeeIds, LocalDate from, LocalDate to) {
+        this.companyId = companyId;
+        this.siteId = siteId;
+        this.employeeIds = employeeIds == null ? Set.of() : Set.copyOf(employeeIds);
+        this.from = from;
+        this.to = to;
+    }
+
+    /** Événement couvrant exactement les affectations données (dates min/max, employés). */
+    public static AssignmentsChangedEvent of(Long companyId, Collection<ScheduleAssignment> assignments) {
+        LocalDate from = null;
+        LocalDate to = null;
+        Long siteId = null;
+        boolean singleSite = true;
+        for (ScheduleAssignment a : assignments) {
+            if (from == null || a.getDate().isBefore(from)) from = a.getDate();
+            if (to == null || a.getDate().isAfter(to)) to = a.getDate();
+            Long site = a.getSite() != null ? a.getSite().getId()
+                    : a.getSchedule() != null ? a.getSchedule().getSite().getId() : null;
+            if (siteId == null && singleSite) siteId = site;
+            else if (site != null && !site.equals(siteId)) singleSite = false;
+        }
+        Set<Long> employeeIds = assignments.stream()
+                .map(a -> a.getEmployee().getId())
+                .collect(Collectors.toSet());
+        return new AssignmentsChangedEvent(companyId, singleSite ? siteId : null, employeeIds, from, to);
+    }
+
+    /** true si l’événement touche l’intervalle [start, end]. */
+    public boolean overlaps(LocalDate start, LocalDate end) {
+        return from == null || to == null || (!from.isAfter(end) && !to.isBefore(start));
+    }
+}
@@ -0,0 +1,48 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Demande compilée pour une date : bornes de la règle hebdomadaire (éventuellement
+ * surchargées par un {@code SiteScheduleOverride}) et créneaux à pourvoir.
+ */
+@Getter
+@Builder(toBuilder = true)
+@ToString
+public class DayDemand {
+
+    private final LocalDate date;
+    /** Une règle hebdomadaire existe pour ce jour de la semaine. */
+    private final boolean ruleDefined;
+    /** Fermé par un override (max = 0) : aucun créneau. */
+    private final boolean closed;
+    /** Un override a été appliqué sur cette date. */
+    private final boolean overridden;
+    private final int minEmployees;
+    private final int maxEmployees;
+    private final int minExperienceLevel;
+    private final List<String> requiredSkills;
+    private final List<SlotDemand> slots;
+
+    public List<SlotDemand> slots(SlotDemand.Source source) {
+        return slots.stream().filter(s -> s.getSource() == source).toList();
+    }
+
+    /**
+     * Créneaux par type d’agent : ceux des règles hebdomadaires, ou à défaut
+     * ceux des modèles de vacation actifs pour ce jour.
+     */
+    public List<SlotDemand> agentSlots() {
+        List<SlotDemand> rules = slots(SlotDemand.Source.RULE);
+        return rules.isEmpty() ? slots(SlotDemand.Source.TEMPLATE) : rules;
+    }
+
+    public int required(SlotDemand.Source source) {
+        return slots.stream().filter(s -> s.getSource() == source).mapToInt(SlotDemand::getCount).sum();
+    }
+}
@@ -0,0 +1,295 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteScheduleOverrideRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteShiftRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteShiftTemplateRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.WeeklyScheduleRuleRepository;
+import org.makarimal.projet_gestionautoplanningsecure.config.ReplicaStickiness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compile le paramétrage d’un site (règles hebdomadaires, modèles de vacation,
+ * vacations, overrides datés) en une {@link SiteDemandTable} par mois.
+ * <p>
+ * Les tables sont mises en cache par (site, mois) ; toute écriture sur le paramétrage
+ * d’un site doit appeler {@link #invalidate(Long)}. L’invalidation ne touche que l’instance
+ * qui écrit : avec plusieurs répliques, les autres gardent l’ancienne table au plus
+ * {@code planning.demand.ttl-seconds}, borné par {@code planning.cache.max-stale-seconds}
+ * comme les régions du cache de second niveau.
+ */
+@Slf4j
+@Component
+public class DemandCompiler {
+
+    private final WeeklyScheduleRuleRepository weeklyRuleRepository;
+    private final SiteShiftRepository shiftRepository;
+    private final SiteShiftTemplateRepository templateRepository;
+    private final SiteScheduleOverrideRepository overrideRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int cacheSize;
+    private final long ttlMillis;
+    private final long replicaLagMillis;
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    /** Incrémenté à chaque éviction : une table compilée pendant une invalidation n’est pas mise en cache. */
+    private final AtomicLong generation = new AtomicLong();
+    /** Dernière éviction (epoch ms) : une table lue moins de {@link #replicaLagMillis} après n’est pas gardée. */
+    private volatile long evictedAt;
+
+    private static final class Cached {
+        final SiteDemandTable table;
+        final long builtAtMillis;
+
+        Cached(SiteDemandTable table, long builtAtMillis) {
+            this.table = table;
+            this.builtAtMillis = builtAtMillis;
+        }
+    }
+
+    public DemandCompiler(WeeklyScheduleRuleRepository weeklyRuleRepository,
+                          SiteShiftRepository shiftRepository,
+                          SiteShiftTemplateRepository templateRepository,
+                          SiteScheduleOverrideRepository overrideRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${planning.demand.cache-size:500}") int cacheSize,
+                          @Value("${planning.demand.ttl-seconds:30}") long ttlSeconds,
+                          @Value("${planning.cache.max-stale-seconds:120}") long maxStaleSeconds,
+                          ObjectProvider<ReplicaStickiness> replicaStickiness) {
+        this.weeklyRuleRepository = weeklyRuleRepository;
+        this.shiftRepository = shiftRepository;
+        this.templateRepository = templateRepository;
+        this.overrideRepository = overrideRepository;
+        this.eventPublisher = eventPublisher;
+        this.cacheSize = cacheSize;
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds <= 0 ? maxStaleSeconds : Math.min(ttlSeconds, maxStaleSeconds));
+        this.replicaLagMillis = ReplicaStickiness.replicaLagMillis(replicaStickiness);
+    }
+
+    /** Table du mois, depuis le cache si elle a été compilée il y a moins du TTL. */
+    @Transactional(readOnly = true)
+    public SiteDemandTable compile(Long siteId, YearMonth month) {
+        String key = key(siteId, month);
+        long now = System.currentTimeMillis();
+        Cached cached = cache.get(key);
+        if (cached != null && now - cached.builtAtMillis < ttlMillis) {
+            return cached.table;
+        }
+
+        long gen = generation.get();
+        SiteDemandTable table = build(siteId, month);
+        if (generation.get() != gen || now - evictedAt < replicaLagMillis) {
+            return table;       // invalidation pendant la compilation, ou réplica peut-être en retard
+        }
+        if (cache.size() >= cacheSize) {
+            cache.values().removeIf(c -> now - c.builtAtMillis >= ttlMillis);
+            if (cache.size() >= cacheSize) {
+                cache.clear();  // paramétrage rarement modifié : une purge complète suffit
+            }
+        }
+        cache.put(key, new Cached(table, now));
+        return table;
+    }
+
+    /**
+     * Oublie toutes les tables du site. Rejoué après le commit si une transaction est
+     * en cours, pour qu’une compilation concurrente ne remette pas en cache l’état d’avant.
+     * Publie {@link SiteDemandChangedEvent} pour les synthèses calculées sur le besoin :
+     * l’éviction après commit est enregistrée avant et passe en premier, les écouteurs
+     * recompilent donc le besoin validé.
+     */
+    public void invalidate(Long siteId) {
+        evict(siteId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    return Ordered.HIGHEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCommit() {
+                    evict(siteId);
+                }
+            });
+        }
+        eventPublisher.publishEvent(new SiteDemandChangedEvent(siteId));
+    }
+
+    private void evict(Long siteId) {
+        generation.incrementAndGet();
+        evictedAt = System.currentTimeMillis();
+        String prefix = siteId + ":";
+        cache.keySet().removeIf(k -> k.startsWith(prefix));
+    }
+
+    private static String key(Long siteId, YearMonth month) {
+        return siteId + ":" + month;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Compilation                                                       */
+    /* ------------------------------------------------------------------ */
+
+    private SiteDemandTable build(Long siteId, YearMonth month) {
+        List<WeeklyScheduleRule> rules = weeklyRuleRepository.findBySiteId(siteId);
+        List<SiteShift> shifts = shiftRepository.findBySiteId(siteId);
+        List<SiteShiftTemplate> templates = templateRepository.findBySiteIdAndIsActive(siteId, true);
+
+        Map<LocalDate, SiteScheduleOverride> overrides = new HashMap<>();
+        overrideRepository.findBySiteIdAndOverrideDateBetween(siteId, month.atDay(1), month.atEndOfMonth())
+                .forEach(o -> overrides.put(o.getOverrideDate(), o));
+
+        /* ---- une fois par jour de la semaine, pas par date ---- */
+        Map<DayOfWeek, List<WeeklyScheduleRule>> rulesByDay = new EnumMap<>(DayOfWeek.class);
+        rules.forEach(r -> rulesByDay.computeIfAbsent(r.getDayOfWeek(), d -> new ArrayList<>()).add(r));
+
+        Map<DayOfWeek, List<SlotDemand>> slotsByDay = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek dow : DayOfWeek.values()) {
+            List<WeeklyScheduleRule> dayRules = rulesByDay.getOrDefault(dow, List.of());
+            List<SlotDemand> slots = new ArrayList<>();
+
+            for (WeeklyScheduleRule rule : dayRules) {
+                if (rule.getAgents() == null) continue;
+                for (AgentSchedule agent : rule.getAgents()) {
+                    slots.add(SlotDemand.builder()
+                            .source(SlotDemand.Source.RULE)
+                            .agentType(agent.getAgentType())
+                            .startTime(agent.getStartTime())
+                            .endTime(agent.getEndTime())
+                            .count(agent.getRequiredCount())
+                            .minExperience(rule.getMinExperienceLevel())
+                            .requiredSkills(copy(rule.getRequiredSkills()))
+                            .notes(agent.getNotes())
+                            .build());
+                }
+            }
+
+            for (SiteShiftTemplate template : templates) {
+                if (template.getDayOfWeek() != dow) continue;
+                for (SiteShiftTemplateAgent agent : template.getAgents()) {
+                    slots.add(SlotDemand.builder()
+                            .source(SlotDemand.Source.TEMPLATE)
+                            .agentType(agent.getAgentType())
+                            .label(template.getName())
+                            .startTime(agent.getStartTime())
+                            .endTime(agent.getEndTime())
+                            .count(agent.getRequiredCount())
+                            .requiredSkills(List.of())
+                            .notes(agent.getNotes())
+                            .build());
+                }
+            }
+
+            // Les vacations ne s’appliquent qu’aux jours couverts par une règle
+            if (!dayRules.isEmpty()) {
+                for (SiteShift shift : shifts) {
+                    slots.add(SlotDemand.builder()
+                            .source(SlotDemand.Source.SHIFT)
+                            .label(shift.getName())
+                            .startTime(shift.getStartTime())
+                            .endTime(shift.getEndTime())
+                            .count(shift.getRequiredEmployees())
+                            .minExperience(shift.getMinExperience() != null ? shift.getMinExperience() : 0)
+                            .requiredSkills(copy(shift.getRequiredSkills()))
+                            .build());
+                }
+            }
+            slotsByDay.put(dow, List.copyOf(slots));
+        }
+
+        /* ---- puis date par date, overrides compris ---- */
+        DayDemand[] days = new DayDemand[month.lengthOfMonth()];
+        for (int d = 1; d <= days.length; d++) {
+            LocalDate date = month.atDay(d);
+            List<WeeklyScheduleRule> dayRules = rulesByDay.getOrDefault(date.getDayOfWeek(), List.of());
+            WeeklyScheduleRule first = dayRules.isEmpty() ? null : dayRules.get(0);
+
+            DayDemand.DayDemandBuilder day = DayDemand.builder()
+                    .date(date)
+                    .ruleDefined(first != null)
+                    .minEmployees(first != null ? first.getMinEmployees() : 0)
+                    .maxEmployees(first != null ? first.getMaxEmployees() : 0)
+                    .minExperienceLevel(first != null ? first.getMinExperienceLevel() : 0)
+                    .requiredSkills(first != null ? copy(first.getRequiredSkills()) : List.of())
+                    .slots(slotsByDay.get(date.getDayOfWeek()));
+
+            SiteScheduleOverride override = overrides.get(date);
+            if (override != null) {
+                applyOverride(day, override, slotsByDay.get(date.getDayOfWeek()));
+            }
+            days[d - 1] = day.build();
+        }
+
+        log.debug("Demande compilée site {} / {} : {} règles, {} modèles, {} vacations, {} overrides",
+                siteId, month, rules.size(), templates.size(), shifts.size(), overrides.size());
+        return new SiteDemandTable(siteId, month, !rules.isEmpty(), days);
+    }
+
+    /**
+     * Override daté : remplace les bornes, l’expérience et les compétences ;
+     * max = 0 ferme le jour ; un max positif plafonne l’effectif de chaque source.
+     */
+    private void applyOverride(DayDemand.DayDemandBuilder day, SiteScheduleOverride override, List<SlotDemand> slots) {
+        day.overridden(true);
+
+        Integer max = override.getMaxEmployees();
+        if (max != null && max == 0) {
+            day.closed(true).minEmployees(0).maxEmployees(0).slots(List.of());
+            return;
+        }
+        if (override.getMinEmployees() != null) day.minEmployees(override.getMinEmployees());
+        if (max != null) day.maxEmployees(max);
+
+        int minExperience = override.getMinExperienceLevel() != null ? override.getMinExperienceLevel() : -1;
+        List<String> skills = override.getRequiredSkills() != null && !override.getRequiredSkills().isEmpty()
+                ? List.copyOf(override.getRequiredSkills())
+                : null;
+        if (minExperience >= 0) day.minExperienceLevel(minExperience);
+        if (skills != null) day.requiredSkills(skills);
+
+        Map<SlotDemand.Source, Integer> remaining = new EnumMap<>(SlotDemand.Source.class);
+        List<SlotDemand> result = new ArrayList<>();
+        for (SlotDemand slot : slots) {
+            int count = slot.getCount();
+            if (max != null) {
+                int left = remaining.getOrDefault(slot.getSource(), max);
+                count = Math.min(count, left);
+                remaining.put(slot.getSource(), left - count);
+                if (count == 0) continue;
+            }
+            result.add(SlotDemand.builder()
+                    .source(slot.getSource())
+                    .agentType(slot.getAgentType())
+                    .label(slot.getLabel())
+                    .startTime(slot.getStartTime())
+                    .endTime(slot.getEndTime())
+                    .count(count)
+                    .minExperience(minExperience >= 0 ? minExperience : slot.getMinExperience())
+                    .requiredSkills(skills != null ? skills : slot.getRequiredSkills())
+                    .notes(slot.getNotes())
+                    .build());
+        }
+        day.slots(List.copyOf(result));
+    }
+
+    private static List<String> copy(List<String> values) {
+        return values == null ? List.of() : List.copyOf(values);
+    }
+}
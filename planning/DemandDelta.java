@@ -0,0 +1,51 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+/**
+ * Modification hypothétique de la demande pour une simulation (« +1 agent le week-end »,
+ * « 0 SSIAP1 le 14 »…). Ne touche jamais au paramétrage persistant.
+ * <p>
+ * Sélection : jours de la semaine et/ou date, type d’agent, libellé, horaires (null = tous).
+ * Action : nouveau créneau si {@code add}, sinon {@code count} absolu ou {@code countDelta}.
+ */
+@Getter
+@Builder
+@ToString
+public class DemandDelta {
+
+    private final Set<DayOfWeek> daysOfWeek;
+    private final LocalDate date;
+    private final AgentType agentType;
+    private final String label;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+
+    private final boolean add;
+    private final Integer count;
+    private final int countDelta;
+
+    public boolean appliesTo(LocalDate day) {
+        if (date != null && !date.equals(day)) return false;
+        return daysOfWeek == null || daysOfWeek.isEmpty() || daysOfWeek.contains(day.getDayOfWeek());
+    }
+
+    public boolean matches(SlotDemand slot) {
+        return (agentType == null || agentType == slot.getAgentType())
+                && (label == null || label.equalsIgnoreCase(slot.getLabel()))
+                && (startTime == null || startTime.equals(slot.getStartTime()))
+                && (endTime == null || endTime.equals(slot.getEndTime()));
+    }
+
+    int apply(int current) {
+        return Math.max(0, count != null ? count : current + countDelta);
+    }
+}
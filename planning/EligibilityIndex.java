@@ -0,0 +1,189 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Photo en mémoire de tout ce qu’il faut pour juger l’éligibilité d’un employé à un créneau
+ * (types d’agent, compétences, disponibilités, absences, affectations) pour une société et un mois.
+ * <p>
+ * Construite en quelques requêtes « à plat » par {@link EligibilityIndexCache} ; les affectations
+ * sont chargées une semaine avant et après le mois pour les calculs de repos et d’heures hebdo.
+ * Pour une génération sur plusieurs mois, un seul index couvre tout l’horizon
+ * ({@link #getMonth()} est alors le premier mois).
+ */
+public class EligibilityIndex {
+
+    /** Données statiques d’un employé actif. */
+    @Getter
+    @Builder
+    public static class Candidate {
+        private final Long employeeId;
+        private final String firstName;
+        private final String lastName;
+        private final Long homeSiteId;
+        private final int maxMinutesPerWeek;
+        /** null = pas de préférence, donc pas de plafond journalier. */
+        private final Integer maxMinutesPerDay;
+        private final Set<AgentType> agentTypes;
+        private final Set<String> skills;
+        private final Set<Long> preferredSites;
+        private final boolean canWorkWeekends;
+        private final boolean canWorkNights;
+        /** Vide = aucune disponibilité déclarée, l’employé n’est pas restreint. */
+        private final Map<DayOfWeek, List<LocalTime[]>> availabilities;
+    }
+
+    /** Une affectation existante, bornes absolues (passage de minuit résolu). */
+    @Getter
+    public static class Slot {
+        private final Long assignmentId;
+        private final LocalDate date;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final int minutes;
+
+        public Slot(Long assignmentId, LocalDate date, LocalTime startTime, LocalTime endTime, Integer duration) {
+            this.assignmentId = assignmentId;
+            this.date = date;
+            this.start = LocalDateTime.of(date, startTime);
+            LocalDateTime end = LocalDateTime.of(date, endTime);
+            this.end = end.isAfter(start) ? end : end.plusDays(1);
+            this.minutes = duration != null ? duration : (int) java.time.Duration.between(start, this.end).toMinutes();
+        }
+    }
+
+    @Getter
+    private final Long companyId;
+    @Getter
+    private final YearMonth month;
+    @Getter
+    private final long builtAtMillis;
+
+    private final Map<Long, Candidate> candidates;
+    private final Map<Long, List<Slot>> slotsByEmployee;
+    private final Map<Long, Set<LocalDate>> absences;
+
+    EligibilityIndex(Long companyId, YearMonth month,
+                     Map<Long, Candidate> candidates,
+                     Map<Long, List<Slot>> slotsByEmployee,
+                     Map<Long, Set<LocalDate>> absences) {
+        this.companyId = companyId;
+        this.month = month;
+        this.builtAtMillis = System.currentTimeMillis();
+        this.candidates = candidates;
+        this.slotsByEmployee = slotsByEmployee;
+        this.absences = absences;
+        slotsByEmployee.values().forEach(l -> l.sort(Comparator.comparing(Slot::getStart)));
+    }
+
+    /** Premier jour couvert (mois − 7 jours). */
+    public static LocalDate windowStart(YearMonth month) {
+        return month.atDay(1).minusDays(7);
+    }
+
+    /** Dernier jour couvert (mois + 7 jours). */
+    public static LocalDate windowEnd(YearMonth month) {
+        return month.atEndOfMonth().plusDays(7);
+    }
+
+    public Collection<Candidate> candidates() {
+        return candidates.values();
+    }
+
+    public Candidate candidate(Long employeeId) {
+        return candidates.get(employeeId);
+    }
+
+    public boolean isAbsent(Long employeeId, LocalDate date) {
+        return absences.getOrDefault(employeeId, Set.of()).contains(date);
+    }
+
+    /** true si une disponibilité déclarée couvre entièrement le créneau (ou si aucune n’est déclarée). */
+    public boolean isAvailable(Candidate candidate, LocalDate date, LocalTime start, LocalTime end) {
+        if (candidate.getAvailabilities().isEmpty()) {
+            return true;
+        }
+        for (LocalTime[] range : candidate.getAvailabilities().getOrDefault(date.getDayOfWeek(), List.of())) {
+            if (!range[0].isAfter(start) && !range[1].isBefore(end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean overlaps(Long employeeId, LocalDateTime start, LocalDateTime end, Long ignoredAssignmentId) {
+        for (Slot slot : slotsByEmployee.getOrDefault(employeeId, List.of())) {
+            if (Objects.equals(slot.getAssignmentId(), ignoredAssignmentId)) continue;
+            if (slot.getStart().isBefore(end) && slot.getEnd().isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comme {@link #overlaps}, bornes comprises : deux créneaux qui se touchent sont en
+     * conflit (règle de la génération, pas d’enchaînement sans pause).
+     */
+    public boolean overlapsOrTouches(Long employeeId, LocalDateTime start, LocalDateTime end) {
+        for (Slot slot : slotsByEmployee.getOrDefault(employeeId, List.of())) {
+            if (!slot.getStart().isAfter(end) && !slot.getEnd().isBefore(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Plus petit repos (minutes) entre le créneau et les affectations voisines ; {@link Long#MAX_VALUE} si aucune. */
+    public long minRestMinutes(Long employeeId, LocalDateTime start, LocalDateTime end, Long ignoredAssignmentId) {
+        long min = Long.MAX_VALUE;
+        for (Slot slot : slotsByEmployee.getOrDefault(employeeId, List.of())) {
+            if (Objects.equals(slot.getAssignmentId(), ignoredAssignmentId)) continue;
+            if (!slot.getEnd().isAfter(start)) {
+                min = Math.min(min, java.time.Duration.between(slot.getEnd(), start).toMinutes());
+            } else if (!slot.getStart().isBefore(end)) {
+                min = Math.min(min, java.time.Duration.between(end, slot.getStart()).toMinutes());
+            }
+        }
+        return min;
+    }
+
+    /** Affectations de l’employé sur la fenêtre, triées par début (lecture seule). */
+    public List<Slot> slots(Long employeeId) {
+        return Collections.unmodifiableList(slotsByEmployee.getOrDefault(employeeId, List.of()));
+    }
+
+    /** Minutes déjà planifiées le jour {@code date}. */
+    public int dayMinutes(Long employeeId, LocalDate date) {
+        int total = 0;
+        for (Slot slot : slotsByEmployee.getOrDefault(employeeId, List.of())) {
+            if (slot.getDate().equals(date)) {
+                total += slot.getMinutes();
+            }
+        }
+        return total;
+    }
+
+    /** Minutes déjà planifiées sur la semaine (lundi → dimanche) contenant {@code date}. */
+    public int weekMinutes(Long employeeId, LocalDate date, Long ignoredAssignmentId) {
+        LocalDate weekStart = date.with(DayOfWeek.MONDAY);
+        LocalDate weekEnd = weekStart.plusDays(6);
+        int total = 0;
+        for (Slot slot : slotsByEmployee.getOrDefault(employeeId, List.of())) {
+            if (Objects.equals(slot.getAssignmentId(), ignoredAssignmentId)) continue;
+            if (!slot.getDate().isBefore(weekStart) && !slot.getDate().isAfter(weekEnd)) {
+                total += slot.getMinutes();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,191 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.repository.*;
+import org.makarimal.projet_gestionautoplanningsecure.config.ReplicaStickiness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Construit et garde en cache les {@link EligibilityIndex} par (société, mois).
+ * <p>
+ * Un index est périmé par {@link AssignmentsChangedEvent} (après commit) ; le TTL couvre
+ * les changements qui ne publient pas d’événement (fiche employé, disponibilités).
+ * Au plus {@code planning.eligibility.cache-size} index sont gardés.
+ */
+@Slf4j
+@Component
+public class EligibilityIndexCache {
+
+    private final EmployeeRepository employeeRepository;
+    private final EmployeePreferenceRepository preferenceRepository;
+    private final EmployeeAvailabilityRepository availabilityRepository;
+    private final AbsenceRepository absenceRepository;
+    private final EmployeeAbsenceRepository employeeAbsenceRepository;
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final long ttlMillis;
+    private final int cacheSize;
+    private final long replicaLagMillis;
+
+    private final Map<String, EligibilityIndex> cache = new ConcurrentHashMap<>();
+    /** Incrémenté à chaque invalidation : un index construit pendant une écriture n’est pas mis en cache. */
+    private final AtomicLong generation = new AtomicLong();
+    /** Dernière invalidation (epoch ms) : un index lu moins de {@link #replicaLagMillis} après n’est pas gardé. */
+    private volatile long invalidatedAt;
+
+    public EligibilityIndexCache(EmployeeRepository employeeRepository,
+                                 EmployeePreferenceRepository preferenceRepository,
+                                 EmployeeAvailabilityRepository availabilityRepository,
+                                 AbsenceRepository absenceRepository,
+                                 EmployeeAbsenceRepository employeeAbsenceRepository,
+                                 ScheduleAssignmentRepository assignmentRepository,
+                                 @Value("${planning.eligibility.ttl-seconds:300}") long ttlSeconds,
+                                 @Value("${planning.eligibility.cache-size:200}") int cacheSize,
+                                 ObjectProvider<ReplicaStickiness> replicaStickiness) {
+        this.employeeRepository = employeeRepository;
+        this.preferenceRepository = preferenceRepository;
+        this.availabilityRepository = availabilityRepository;
+        this.absenceRepository = absenceRepository;
+        this.employeeAbsenceRepository = employeeAbsenceRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.cacheSize = cacheSize;
+        this.replicaLagMillis = ReplicaStickiness.replicaLagMillis(replicaStickiness);
+    }
+
+    @Transactional(readOnly = true)
+    public EligibilityIndex get(Long companyId, YearMonth month) {
+        String key = companyId + ":" + month;
+        EligibilityIndex index = cache.get(key);
+        if (index != null && System.currentTimeMillis() - index.getBuiltAtMillis() < ttlMillis) {
+            return index;
+        }
+        long gen = generation.get();
+        long startedAt = System.currentTimeMillis();
+        index = load(companyId, month);
+        if (generation.get() == gen && startedAt - invalidatedAt >= replicaLagMillis) {
+            if (cache.size() >= cacheSize) {
+                long now = System.currentTimeMillis();
+                cache.values().removeIf(i -> now - i.getBuiltAtMillis() >= ttlMillis);
+                if (cache.size() >= cacheSize) {
+                    cache.clear();
+                }
+            }
+            cache.put(key, index);
+        }
+        return index;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        generation.incrementAndGet();
+        invalidatedAt = System.currentTimeMillis();
+        String prefix = event.getCompanyId() + ":";
+        cache.entrySet().removeIf(e -> e.getKey().startsWith(prefix)
+                && event.overlaps(EligibilityIndex.windowStart(e.getValue().getMonth()),
+                                  EligibilityIndex.windowEnd(e.getValue().getMonth())));
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    /** Index construit à l’instant, sans passer par le cache (génération réelle). */
+    @Transactional(readOnly = true)
+    public EligibilityIndex load(Long companyId, YearMonth month) {
+        return load(companyId, month, month);
+    }
+
+    /**
+     * Index couvrant les mois {@code first} → {@code last} (génération sur un horizon) :
+     * une seule lecture pour tous les mois, fenêtre élargie d’une semaine de chaque côté.
+     */
+    @Transactional(readOnly = true)
+    public EligibilityIndex load(Long companyId, YearMonth first, YearMonth last) {
+        long start = System.nanoTime();
+        LocalDate from = EligibilityIndex.windowStart(first);
+        LocalDate to = EligibilityIndex.windowEnd(last);
+
+        Map<Long, Set<AgentType>> agentTypes = new HashMap<>();
+        for (Object[] row : employeeRepository.findAgentTypePairsByCompanyId(companyId)) {
+            agentTypes.computeIfAbsent((Long) row[0], k -> EnumSet.noneOf(AgentType.class)).add((AgentType) row[1]);
+        }
+        Map<Long, Set<String>> skills = new HashMap<>();
+        for (Object[] row : employeeRepository.findSkillPairsByCompanyId(companyId)) {
+            skills.computeIfAbsent((Long) row[0], k -> new HashSet<>()).add((String) row[1]);
+        }
+        Map<Long, Set<Long>> preferredSites = new HashMap<>();
+        for (Object[] row : employeeRepository.findPreferredSitePairsByCompanyId(companyId)) {
+            preferredSites.computeIfAbsent((Long) row[0], k -> new HashSet<>()).add((Long) row[1]);
+        }
+        Map<Long, Object[]> preferences = new HashMap<>();
+        for (Object[] row : preferenceRepository.findRowsByCompanyId(companyId)) {
+            preferences.put((Long) row[0], row);
+        }
+        Map<Long, Map<DayOfWeek, List<LocalTime[]>>> availabilities = new HashMap<>();
+        for (Object[] row : availabilityRepository.findRowsByCompanyId(companyId)) {
+            availabilities.computeIfAbsent((Long) row[0], k -> new EnumMap<>(DayOfWeek.class))
+                    .computeIfAbsent((DayOfWeek) row[1], k -> new ArrayList<>())
+                    .add(new LocalTime[]{(LocalTime) row[2], (LocalTime) row[3]});
+        }
+
+        Map<Long, EligibilityIndex.Candidate> candidates = new HashMap<>();
+        for (Object[] row : employeeRepository.findActiveRowsByCompanyId(companyId)) {
+            Long id = (Long) row[0];
+            Object[] pref = preferences.get(id);
+            Integer maxHours = (Integer) row[4];
+            Integer maxHoursPerDay = pref != null ? (Integer) pref[3] : null;
+            candidates.put(id, EligibilityIndex.Candidate.builder()
+                    .employeeId(id)
+                    .firstName((String) row[1])
+                    .lastName((String) row[2])
+                    .homeSiteId((Long) row[3])
+                    .maxMinutesPerWeek(maxHours != null ? maxHours * 60 : 0)
+                    .agentTypes(agentTypes.getOrDefault(id, Set.of()))
+                    .skills(skills.getOrDefault(id, Set.of()))
+                    .preferredSites(preferredSites.getOrDefault(id, Set.of()))
+                    .maxMinutesPerDay(maxHoursPerDay != null ? maxHoursPerDay * 60 : null)
+                    .canWorkWeekends(pref == null || (Boolean) pref[1])
+                    .canWorkNights(pref == null || (Boolean) pref[2])
+                    .availabilities(availabilities.getOrDefault(id, Map.of()))
+                    .build());
+        }
+
+        Map<Long, Set<LocalDate>> absences = new HashMap<>();
+        for (Object[] row : absenceRepository.findRowsByCompanyIdAndDateBetween(companyId, from, to)) {
+            absences.computeIfAbsent((Long) row[0], k -> new HashSet<>()).add((LocalDate) row[1]);
+        }
+        for (Object[] row : employeeAbsenceRepository.findRowsByCompanyIdOverlapping(companyId, from, to)) {
+            Set<LocalDate> dates = absences.computeIfAbsent((Long) row[0], k -> new HashSet<>());
+            LocalDate last = ((LocalDate) row[2]).isAfter(to) ? to : (LocalDate) row[2];
+            for (LocalDate d = ((LocalDate) row[1]).isBefore(from) ? from : (LocalDate) row[1];
+                 !d.isAfter(last); d = d.plusDays(1)) {
+                dates.add(d);
+            }
+        }
+
+        Map<Long, List<EligibilityIndex.Slot>> slots = new HashMap<>();
+        for (Object[] row : assignmentRepository.findRowsByCompanyIdAndDateBetween(
+                companyId, from, to, ScheduleAssignment.AssignmentStatus.DECLINED)) {
+            slots.computeIfAbsent((Long) row[1], k -> new ArrayList<>())
+                    .add(new EligibilityIndex.Slot((Long) row[0], (LocalDate) row[2],
+                            (LocalTime) row[3], (LocalTime) row[4], (Integer) row[5]));
+        }
+
+        EligibilityIndex index = new EligibilityIndex(companyId, first, candidates, slots, absences);
+        log.debug("Index d’éligibilité société {} / {} → {} : {} employés en {} ms",
+                companyId, first, last, candidates.size(), (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+}
@@ -0,0 +1,212 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Moteur de génération en mémoire : lit un {@link PlanningSnapshot}, produit un
+ * {@link GenerationResult}. Aucun accès base, aucun état partagé : utilisable pour la
+ * génération réelle comme pour des simulations en parallèle.
+ * <p>
+ * Règles (celles du générateur historique) : jour couvert par une règle, compétences du jour,
+ * disponibilité déclarée, pas d’absence ni de chevauchement, plafond journalier de la
+ * préférence ; on sert d’abord les employés les moins chargés de la semaine.
+ * <p>
+ * Sur un horizon de plusieurs mois ({@link #runHorizon}), les créneaux planifiés d’un mois
+ * restent comptés pour les suivants : semaine à cheval sur deux mois, plafond journalier,
+ * nuit de fin de mois qui déborde sur le 1er.
+ */
+@Component
+public class GenerationEngine {
+
+    /** Quels créneaux de la demande le moteur remplit. */
+    public enum Mode {
+        /** Vacations du site ({@code SiteShift}) — générateur de planning. */
+        SHIFTS(SlotDemand.Source.SHIFT),
+        /** Créneaux par type d’agent (règles, à défaut modèles) — générateur d’affectations. */
+        AGENT_TYPES(SlotDemand.Source.RULE);
+
+        private final SlotDemand.Source source;
+
+        Mode(SlotDemand.Source source) {
+            this.source = source;
+        }
+
+        public SlotDemand.Source source() {
+            return source;
+        }
+    }
+
+    public GenerationResult run(PlanningSnapshot snapshot, Mode mode) {
+        return run(snapshot, mode, new Planned());
+    }
+
+    /**
+     * Mois consécutifs d’un même site, dans l’ordre, partageant l’index d’éligibilité
+     * (chargé une fois sur tout l’horizon). Un résultat par mois.
+     */
+    public List<GenerationResult> runHorizon(List<PlanningSnapshot> months, Mode mode) {
+        Planned planned = new Planned();
+        List<GenerationResult> results = new ArrayList<>(months.size());
+        for (PlanningSnapshot snapshot : months) {
+            results.add(run(snapshot, mode, planned));
+        }
+        return results;
+    }
+
+    private GenerationResult run(PlanningSnapshot snapshot, Mode mode, Planned planned) {
+        Run run = new Run(snapshot, planned);
+
+        for (DayDemand day : snapshot.getDemand().days()) {
+            if (day.isClosed() || (mode == Mode.SHIFTS && !day.isRuleDefined())) continue;
+
+            List<SlotDemand> slots = mode == Mode.SHIFTS ? day.slots(SlotDemand.Source.SHIFT) : day.agentSlots();
+            if (slots.isEmpty()) continue;
+
+            List<EligibilityIndex.Candidate> eligible = snapshot.getEmployees().stream()
+                    .filter(c -> c.getSkills().containsAll(day.getRequiredSkills()))
+                    .filter(c -> mode != Mode.SHIFTS || c.getMaxMinutesPerWeek() >= day.getMinEmployees() * 8 * 60)
+                    .toList();
+
+            for (SlotDemand slot : slots) {
+                run.required += slot.getCount();
+                if (slot.getCount() == 0) continue;
+                run.fill(day.getDate(), slot, eligible);
+            }
+        }
+        return run.result();
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  État d’une exécution (local au thread appelant)                   */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * Créneaux planifiés par l’exécution, avec leurs cumuls par jour et par semaine
+     * (lundi) : conservés d’un mois à l’autre sur un horizon.
+     */
+    private static final class Planned {
+        final Map<Long, List<EligibilityIndex.Slot>> slots = new HashMap<>();
+        final Map<Long, Map<LocalDate, Integer>> dayMinutes = new HashMap<>();
+        final Map<Long, Map<LocalDate, Integer>> weekMinutes = new HashMap<>();
+
+        void add(Long id, EligibilityIndex.Slot slot) {
+            slots.computeIfAbsent(id, k -> new ArrayList<>()).add(slot);
+            dayMinutes.computeIfAbsent(id, k -> new HashMap<>()).merge(slot.getDate(), slot.getMinutes(), Integer::sum);
+            weekMinutes.computeIfAbsent(id, k -> new HashMap<>())
+                    .merge(slot.getDate().with(DayOfWeek.MONDAY), slot.getMinutes(), Integer::sum);
+        }
+
+        int day(Long id, LocalDate date) {
+            return dayMinutes.getOrDefault(id, Map.of()).getOrDefault(date, 0);
+        }
+
+        int week(Long id, LocalDate date) {
+            return weekMinutes.getOrDefault(id, Map.of()).getOrDefault(date.with(DayOfWeek.MONDAY), 0);
+        }
+    }
+
+    private static final class Run {
+
+        private final PlanningSnapshot snapshot;
+        private final EligibilityIndex index;
+        private final Planned planned;
+        private final List<GenerationResult.PlannedAssignment> assignments = new ArrayList<>();
+        private final List<GenerationResult.UnfilledSlot> unfilled = new ArrayList<>();
+        private final Map<Long, Integer> minutesByEmployee = new HashMap<>();
+        private int required;
+        private int filled;
+
+        Run(PlanningSnapshot snapshot, Planned planned) {
+            this.snapshot = snapshot;
+            this.index = snapshot.getIndex();
+            this.planned = planned;
+        }
+
+        void fill(LocalDate date, SlotDemand slot, List<EligibilityIndex.Candidate> eligible) {
+            EligibilityIndex.Slot candidateSlot = new EligibilityIndex.Slot(
+                    null, date, slot.getStartTime(), slot.getEndTime(), null);
+
+            List<EligibilityIndex.Candidate> available = new ArrayList<>();
+            Map<Long, Integer> workload = new HashMap<>();
+            for (EligibilityIndex.Candidate c : eligible) {
+                if (slot.getAgentType() != null && !c.getAgentTypes().contains(slot.getAgentType())) continue;
+                if (!isAvailable(c, date, candidateSlot)) continue;
+                if (snapshot.isAbsent(c.getEmployeeId(), date)) continue;
+                if (!c.getSkills().containsAll(slot.getRequiredSkills())) continue;
+                available.add(c);
+                workload.put(c.getEmployeeId(), weekMinutes(c.getEmployeeId(), date));
+            }
+
+            available.sort(Comparator
+                    .comparing((EligibilityIndex.Candidate c) -> workload.get(c.getEmployeeId()))
+                    .thenComparing(c -> c.getSkills().size(), Comparator.reverseOrder())
+                    .thenComparing(EligibilityIndex.Candidate::getEmployeeId));
+
+            int taken = Math.min(slot.getCount(), available.size());
+            for (int i = 0; i < taken; i++) {
+                EligibilityIndex.Candidate c = available.get(i);
+                planned.add(c.getEmployeeId(), candidateSlot);
+                minutesByEmployee.merge(c.getEmployeeId(), candidateSlot.getMinutes(), Integer::sum);
+                assignments.add(new GenerationResult.PlannedAssignment(
+                        c.getEmployeeId(), date, slot.getStartTime(), slot.getEndTime(),
+                        candidateSlot.getMinutes(), agentTypeFor(slot, c), slot.getLabel(), slot.getNotes()));
+            }
+            filled += taken;
+
+            if (taken < slot.getCount()) {
+                unfilled.add(new GenerationResult.UnfilledSlot(date, slot.getStartTime(), slot.getEndTime(),
+                        slot.getAgentType(), slot.getLabel(), slot.getCount() - taken));
+            }
+        }
+
+        private boolean isAvailable(EligibilityIndex.Candidate c, LocalDate date, EligibilityIndex.Slot slot) {
+            if (!index.isAvailable(c, date, slot.getStart().toLocalTime(), slot.getEnd().toLocalTime())) {
+                return false;
+            }
+            Long id = c.getEmployeeId();
+            if (index.overlapsOrTouches(id, slot.getStart(), slot.getEnd()) || overlapsPlanned(id, slot.getStart(), slot.getEnd())) {
+                return false;
+            }
+            // Plafond journalier en minutes ; sans préférence, pas de plafond
+            if (c.getMaxMinutesPerDay() == null) {
+                return true;
+            }
+            int dayMinutes = index.dayMinutes(id, date) + planned.day(id, date);
+            return dayMinutes + slot.getMinutes() <= c.getMaxMinutesPerDay();
+        }
+
+        /** Bornes comprises, comme {@link EligibilityIndex#overlapsOrTouches}. */
+        private boolean overlapsPlanned(Long id, LocalDateTime start, LocalDateTime end) {
+            for (EligibilityIndex.Slot s : planned.slots.getOrDefault(id, List.of())) {
+                if (!s.getStart().isAfter(end) && !s.getEnd().isBefore(start)) return true;
+            }
+            return false;
+        }
+
+        private int weekMinutes(Long id, LocalDate date) {
+            return index.weekMinutes(id, date, null) + planned.week(id, date);
+        }
+
+        /** Type imposé par le créneau, sinon le premier type de l’employé (colonne non nulle). */
+        private static AgentType agentTypeFor(SlotDemand slot, EligibilityIndex.Candidate c) {
+            if (slot.getAgentType() != null) return slot.getAgentType();
+            return c.getAgentTypes().stream().min(Comparator.naturalOrder()).orElse(null);
+        }
+
+        GenerationResult result() {
+            return GenerationResult.builder()
+                    .assignments(List.copyOf(assignments))
+                    .unfilled(List.copyOf(unfilled))
+                    .required(required)
+                    .filled(filled)
+                    .minutesByEmployee(Map.copyOf(minutesByEmployee))
+                    .build();
+        }
+    }
+}
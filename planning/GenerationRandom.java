@@ -0,0 +1,47 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Aléa reproductible des générateurs.
+ * <p>
+ * Une génération reçoit une graine (enregistrée sur le {@code Schedule}) ; chaque (site, jour)
+ * en dérive son propre flux par mélange de la graine et de la clé. Le tirage d’un jour ne dépend
+ * donc ni de l’ordre de traitement des jours ni du thread qui les traite : rejouer la graine
+ * redonne le même planning, en séquentiel comme en parallèle.
+ */
+public final class GenerationRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private GenerationRandom() {
+    }
+
+    /** Nouvelle graine pour une génération qui n’en impose pas. */
+    public static long newSeed() {
+        return new SplittableRandom().nextLong();
+    }
+
+    /** Flux du (site, jour) pour la graine donnée. */
+    public static SplittableRandom forDay(long seed, Long siteId, LocalDate date) {
+        long key = mix64(seed + GOLDEN_GAMMA * (siteId != null ? siteId : 0L));
+        return new SplittableRandom(mix64(key + GOLDEN_GAMMA * date.toEpochDay()));
+    }
+
+    /** Mélange de Fisher-Yates avec le flux donné (Collections.shuffle n’accepte qu’un Random). */
+    public static <T> void shuffle(List<T> list, SplittableRandom random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(j, list.set(i, list.get(j)));
+        }
+    }
+
+    /** Finaliseur SplitMix64 : deux clés voisines donnent des graines sans corrélation. */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,57 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+/** Sortie du {@link GenerationEngine} : rien n’est persisté, l’appelant décide. */
+@Getter
+@Builder
+public class GenerationResult {
+
+    private final List<PlannedAssignment> assignments;
+    private final List<UnfilledSlot> unfilled;
+    private final int required;
+    private final int filled;
+    /** Minutes planifiées par employé sur le mois (affectations générées uniquement). */
+    private final Map<Long, Integer> minutesByEmployee;
+
+    public int unfilledCount() {
+        return required - filled;
+    }
+
+    /** Taux de couverture en %, 100 si aucune demande. */
+    public double coverageRate() {
+        return required == 0 ? 100.0 : Math.round(1000.0 * filled / required) / 10.0;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PlannedAssignment {
+        private final Long employeeId;
+        private final LocalDate date;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+        private final int minutes;
+        private final AgentType agentType;
+        private final String label;
+        private final String notes;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class UnfilledSlot {
+        private final LocalDate date;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+        private final AgentType agentType;
+        private final String label;
+        private final int missing;
+    }
+}
@@ -0,0 +1,148 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Occupation de tous les employés d’une société sur un mois, tous sites confondus.
+ * <p>
+ * Par employé, les affectations sont rangées par début dans des tableaux primitifs
+ * (minutes epoch) : un balayage détecte chevauchements et repos insuffisants en O(n).
+ * Les écritures ({@code ScheduleService}, {@code AssignmentBatchService}) contrôlent
+ * l’employé sur toute la société avec leurs propres lectures ciblées.
+ */
+public class OccupancyIndex {
+
+    /** Une affectation, bornes absolues (passage de minuit résolu). */
+    @Getter
+    @AllArgsConstructor
+    public static class Occupancy {
+        private final Long assignmentId;
+        private final Long employeeId;
+        private final String employeeName;
+        private final Long siteId;
+        private final Long scheduleId;
+        private final LocalDate date;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+    }
+
+    public enum ConflictType { OVERLAP, REST }
+
+    /** Deux affectations du même employé en conflit ({@code gapMinutes} négatif si chevauchement). */
+    @Getter
+    @AllArgsConstructor
+    public static class Conflict {
+        private final ConflictType type;
+        private final Occupancy first;
+        private final Occupancy second;
+        private final long gapMinutes;
+    }
+
+    private static final class Timeline {
+        final Occupancy[] items;
+        final long[] starts;
+        final long[] ends;
+
+        Timeline(List<Occupancy> sorted) {
+            int n = sorted.size();
+            items = sorted.toArray(new Occupancy[0]);
+            starts = new long[n];
+            ends = new long[n];
+            for (int i = 0; i < n; i++) {
+                starts[i] = minutes(items[i].getStart());
+                ends[i] = minutes(items[i].getEnd());
+            }
+        }
+    }
+
+    @Getter
+    private final Long companyId;
+    @Getter
+    private final YearMonth month;
+    @Getter
+    private final int size;
+    private final Map<Long, Timeline> byEmployee;
+
+    private OccupancyIndex(Long companyId, YearMonth month, int size, Map<Long, Timeline> byEmployee) {
+        this.companyId = companyId;
+        this.month = month;
+        this.size = size;
+        this.byEmployee = byEmployee;
+    }
+
+    /** Premier jour chargé : la veille du mois (vacations de nuit qui débordent). */
+    public static LocalDate windowStart(YearMonth month) {
+        return month.atDay(1).minusDays(1);
+    }
+
+    public static LocalDate windowEnd(YearMonth month) {
+        return month.atEndOfMonth();
+    }
+
+    /**
+     * Construit l’index depuis les lignes
+     * [id, employeeId, firstName, lastName, siteId, scheduleId, date, startTime, endTime].
+     */
+    public static OccupancyIndex fromRows(Long companyId, YearMonth month, List<Object[]> rows) {
+        Map<Long, List<Occupancy>> grouped = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            LocalDate date = (LocalDate) row[6];
+            LocalDateTime start = LocalDateTime.of(date, (LocalTime) row[7]);
+            LocalDateTime end = LocalDateTime.of(date, (LocalTime) row[8]);
+            if (!end.isAfter(start)) end = end.plusDays(1);
+            Long employeeId = (Long) row[1];
+            grouped.computeIfAbsent(employeeId, k -> new ArrayList<>()).add(new Occupancy(
+                    (Long) row[0], employeeId, row[2] + " " + row[3],
+                    (Long) row[4], (Long) row[5], date, start, end));
+        }
+        Map<Long, Timeline> byEmployee = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((id, list) -> {
+            // déjà trié par la requête, sauf en cas d’égalité de début : on garantit l’ordre
+            list.sort(Comparator.comparing(Occupancy::getStart).thenComparing(Occupancy::getEnd));
+            byEmployee.put(id, new Timeline(list));
+        });
+        return new OccupancyIndex(companyId, month, rows.size(), byEmployee);
+    }
+
+    public int employeeCount() {
+        return byEmployee.size();
+    }
+
+    /**
+     * Balayage linéaire : chaque affectation est comparée à celle qui finit le plus tard
+     * parmi les précédentes. Seuls les conflits touchant le mois sont rapportés.
+     */
+    public List<Conflict> scan(long minRestMinutes) {
+        List<Conflict> conflicts = new ArrayList<>();
+        for (Timeline t : byEmployee.values()) {
+            int latest = 0;
+            for (int i = 1; i < t.items.length; i++) {
+                long gap = t.starts[i] - t.ends[latest];
+                if (gap < minRestMinutes && inMonth(t.items[latest], t.items[i])) {
+                    conflicts.add(new Conflict(gap < 0 ? ConflictType.OVERLAP : ConflictType.REST,
+                            t.items[latest], t.items[i], gap));
+                }
+                if (t.ends[i] > t.ends[latest]) latest = i;
+            }
+        }
+        conflicts.sort(Comparator.comparing((Conflict c) -> c.getSecond().getStart())
+                .thenComparing(c -> c.getFirst().getEmployeeId()));
+        return conflicts;
+    }
+
+    private boolean inMonth(Occupancy a, Occupancy b) {
+        return YearMonth.from(a.getDate()).equals(month) || YearMonth.from(b.getDate()).equals(month);
+    }
+
+    private static long minutes(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
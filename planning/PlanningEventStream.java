@@ -0,0 +1,411 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.PlanningEventDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.PlanningEventDTO.DeltaDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.PlanningEventEntry;
+import org.makarimal.projet_gestionautoplanningsecure.repository.PlanningEventStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Flux SSE des changements d’affectations, par site, sur toutes les instances.
+ * <p>
+ * Les deltas d’une transaction sont regroupés par site et écrits, dans la même transaction,
+ * au journal {@code planning_events} ({@link PlanningEventStore}) : l’id attribué par la base
+ * est l’id SSE du message, commun à toutes les instances. Chaque instance relit le journal
+ * ({@code planning.events.poll-millis}, tout de suite après ses propres commits) et le
+ * diffuse à ses abonnés. Un client qui se reconnecte, sur n’importe quelle instance, avec
+ * {@code Last-Event-ID} reçoit ce qu’il a manqué ; si c’est plus ancien que la rétention
+ * ({@code planning.events.retention-minutes}), il reçoit {@code reset} et recharge le planning.
+ * <p>
+ * Envoi : chaque abonné a sa file, vidée sur {@code planning-events-delivery} ; un client
+ * lent ne bloque ni les commits ni les autres abonnés. File pleine
+ * ({@code planning.events.max-queue}) : la connexion est fermée, le client se reconnecte
+ * et rattrape depuis le journal.
+ */
+@Slf4j
+@Component
+public class PlanningEventStream {
+
+    static final String EVENT_CHANGES = "changes";
+    static final String EVENT_READY = "ready";
+    static final String EVENT_RESET = "reset";
+
+    private static final Object TX_KEY = PlanningEventStream.class.getName() + ".pending";
+    private static final TypeReference<List<DeltaDTO>> DELTAS = new TypeReference<>() {
+    };
+    private static final int POLL_BATCH = 500;
+
+    private final PlanningEventStore store;
+    private final ObjectMapper objectMapper;
+    /** Résolu à l’usage : l’écouteur JPA qui appelle {@link #stage} est créé avec la fabrique. */
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final long timeoutMillis;
+    private final long graceMillis;
+    private final long retentionMillis;
+    private final int maxQueue;
+
+    private final Map<Long, List<Subscriber>> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService delivery;
+
+    /* Lecture du journal (thread du scheduler) */
+    private long settled = -1;              // tous les ids ≤ settled ont été traités
+    private final Set<Long> recent = new HashSet<>();   // ids > settled déjà diffusés
+
+    public PlanningEventStream(PlanningEventStore store,
+                               ObjectMapper objectMapper,
+                               ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                               @Value("${planning.events.timeout-minutes:30}") long timeoutMinutes,
+                               @Value("${planning.events.heartbeat-seconds:20}") long heartbeatSeconds,
+                               @Value("${planning.events.poll-millis:500}") long pollMillis,
+                               @Value("${planning.events.grace-seconds:10}") long graceSeconds,
+                               @Value("${planning.events.retention-minutes:60}") long retentionMinutes,
+                               @Value("${planning.events.max-queue:1000}") int maxQueue,
+                               @Value("${planning.events.delivery-threads:4}") int deliveryThreads) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.entityManagerFactory = entityManagerFactory;
+        this.timeoutMillis = TimeUnit.MINUTES.toMillis(timeoutMinutes);
+        this.graceMillis = TimeUnit.SECONDS.toMillis(graceSeconds);
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(retentionMinutes);
+        this.maxQueue = maxQueue;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "planning-events-poll");
+            t.setDaemon(true);
+            return t;
+        });
+        this.delivery = Executors.newFixedThreadPool(deliveryThreads, r -> {
+            Thread t = new Thread(r, "planning-events-delivery");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        // Commentaire périodique : garde la connexion ouverte à travers les proxys
+        scheduler.scheduleAtFixedRate(this::sendHeartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::prune, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Publication                                                       */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * Enregistre un delta ; écrit au journal avec la transaction courante (abandonné en cas
+     * de rollback), immédiatement hors transaction.
+     */
+    public void stage(Long siteId, DeltaDTO delta) {
+        if (siteId == null) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(Map.of(siteId, List.of(delta)));
+            wakeUp();
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<Long, List<DeltaDTO>> pending = (Map<Long, List<DeltaDTO>>) TransactionSynchronizationManager.getResource(TX_KEY);
+        if (pending == null) {
+            Map<Long, List<DeltaDTO>> created = new LinkedHashMap<>();
+            TransactionSynchronizationManager.bindResource(TX_KEY, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // Les @PostUpdate / @PostRemove tombent au flush : le provoquer avant d’écrire
+                    flushEntityManager();
+                    Map<Long, List<DeltaDTO>> batch = new LinkedHashMap<>(created);
+                    created.clear();
+                    append(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TX_KEY);
+                    if (status == STATUS_COMMITTED) {
+                        if (!created.isEmpty()) {
+                            // deltas arrivés après beforeCommit : écrits à part, hors de la connexion validée
+                            Map<Long, List<DeltaDTO>> late = new LinkedHashMap<>(created);
+                            scheduler.execute(() -> append(late));
+                        }
+                        wakeUp();
+                    }
+                }
+            });
+            pending = created;
+        }
+        pending.computeIfAbsent(siteId, k -> new ArrayList<>()).add(delta);
+    }
+
+    private void flushEntityManager() {
+        EntityManagerFactory emf = entityManagerFactory.getIfUnique();
+        if (emf != null && TransactionSynchronizationManager.getResource(emf) instanceof EntityManagerHolder holder) {
+            holder.getEntityManager().flush();
+        }
+    }
+
+    private void append(Map<Long, List<DeltaDTO>> deltasBySite) {
+        if (deltasBySite.isEmpty()) return;
+        Map<Long, String> payloads = new LinkedHashMap<>();
+        deltasBySite.forEach((siteId, deltas) -> {
+            try {
+                payloads.put(siteId, objectMapper.writeValueAsString(deltas));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Delta de planning non sérialisable", e);
+            }
+        });
+        store.append(payloads);
+    }
+
+    private void wakeUp() {
+        try {
+            scheduler.execute(this::poll);
+        } catch (RejectedExecutionException e) {
+            // arrêt en cours
+        }
+    }
+
+    /** Diffuse les nouveaux messages du journal (toutes instances) aux abonnés de cette instance. */
+    private synchronized void poll() {
+        try {
+            if (settled < 0) {
+                settled = store.maxId();
+                return;
+            }
+            // Curseur de lecture distinct de « settled » : les messages récents sont relus
+            // tant qu’un id inférieur peut encore devenir visible (commit en cours)
+            LocalDateTime graceFrom = LocalDateTime.now().minusNanos(graceMillis * 1_000_000);
+            long cursor = settled;
+            long newSettled = settled;
+            List<PlanningEventEntry> entries;
+            do {
+                entries = store.since(cursor, POLL_BATCH);
+                for (PlanningEventEntry entry : entries) {
+                    if (recent.add(entry.getId())) {
+                        dispatch(entry);
+                    }
+                    if (entry.getCreatedAt().isBefore(graceFrom)) {
+                        newSettled = entry.getId();
+                    }
+                    cursor = entry.getId();
+                }
+            } while (entries.size() == POLL_BATCH);
+            settled = newSettled;
+            recent.removeIf(id -> id <= newSettled);
+        } catch (RuntimeException e) {
+            log.warn("Lecture du journal planning_events en échec : {}", e.getMessage());
+        }
+    }
+
+    private void dispatch(PlanningEventEntry entry) {
+        List<Subscriber> subscribers = channels.get(entry.getSiteId());
+        if (subscribers == null || subscribers.isEmpty()) return;
+        PlanningEventDTO event = toEvent(entry);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(entry.getId(), changes(event));
+        }
+    }
+
+    private void prune() {
+        try {
+            int removed = store.prune(LocalDateTime.now().minusNanos(retentionMillis * 1_000_000));
+            if (removed > 0) log.debug("Journal planning_events : {} message(s) purgé(s)", removed);
+        } catch (RuntimeException e) {
+            log.warn("Purge du journal planning_events en échec : {}", e.getMessage());
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Abonnement                                                        */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * @param lastEventId dernier id reçu, null pour un nouvel abonnement
+     */
+    public SseEmitter subscribe(Long siteId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        List<Subscriber> channel = channels.computeIfAbsent(siteId, k -> new CopyOnWriteArrayList<>());
+        Subscriber subscriber = new Subscriber(emitter, channel);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        // Inscrit avant la lecture du journal : rien ne tombe entre le rattrapage et le direct
+        channel.add(subscriber);
+
+        List<Queued> backlog = new ArrayList<>();
+        try {
+            Long resumeFrom = parseOffset(lastEventId);
+            Long oldest = store.minId();
+            long current = store.maxId();
+            if (lastEventId != null && (resumeFrom == null || oldest == null
+                    || resumeFrom < oldest - 1 || resumeFrom > current)) {
+                backlog.add(new Queued(null, SseEmitter.event().name(EVENT_RESET).id(String.valueOf(current)).data(current)));
+            } else {
+                if (resumeFrom != null) {
+                    LocalDateTime graceFrom = LocalDateTime.now().minusNanos(graceMillis * 1_000_000);
+                    for (PlanningEventEntry entry : store.replay(siteId, resumeFrom, graceFrom)) {
+                        backlog.add(new Queued(entry.getId(), changes(toEvent(entry))));
+                    }
+                }
+                long position = resumeFrom != null ? Math.max(resumeFrom, current) : current;
+                backlog.add(new Queued(null, SseEmitter.event().name(EVENT_READY).id(String.valueOf(position)).data(position)));
+            }
+        } catch (RuntimeException e) {
+            subscriber.close();
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        subscriber.start(backlog);
+        log.debug("Abonnement SSE site {} (reprise : {})", siteId, lastEventId);
+        return emitter;
+    }
+
+    private static Long parseOffset(String lastEventId) {
+        if (lastEventId == null) return null;
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return null;    // id d’un ancien format : reset
+        }
+    }
+
+    private PlanningEventDTO toEvent(PlanningEventEntry entry) {
+        try {
+            return PlanningEventDTO.builder()
+                    .siteId(entry.getSiteId())
+                    .offset(entry.getId())
+                    .deltas(objectMapper.readValue(entry.getPayload(), DELTAS))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Message planning_events illisible : " + entry.getId(), e);
+        }
+    }
+
+    private static SseEventBuilder changes(PlanningEventDTO event) {
+        return SseEmitter.event().name(EVENT_CHANGES).id(String.valueOf(event.getOffset())).data(event);
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    /** Entrée de file ; {@code id} null pour ready / reset / ping (jamais dédoublonnés). */
+    private static final class Queued {
+        final Long id;
+        final SseEventBuilder event;
+
+        Queued(Long id, SseEventBuilder event) {
+            this.id = id;
+            this.event = event;
+        }
+    }
+
+    /** Un abonné : file propre, envoyée dans l’ordre par un seul thread de livraison à la fois. */
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final List<Subscriber> channel;
+        final Deque<Queued> queue = new ArrayDeque<>();
+        boolean started;
+        boolean draining;
+        boolean closed;
+
+        Subscriber(SseEmitter emitter, List<Subscriber> channel) {
+            this.emitter = emitter;
+            this.channel = channel;
+        }
+
+        /** Rattrapage en tête de file ; les messages directs déjà rattrapés sont retirés. */
+        void start(List<Queued> backlog) {
+            synchronized (this) {
+                Set<Long> replayed = new HashSet<>();
+                backlog.forEach(q -> replayed.add(q.id));
+                queue.removeIf(q -> q.id != null && replayed.contains(q.id));
+                for (int i = backlog.size() - 1; i >= 0; i--) {
+                    queue.addFirst(backlog.get(i));
+                }
+                started = true;
+                if (!schedule()) return;
+            }
+            delivery.execute(this::drain);
+        }
+
+        void offer(Long id, SseEventBuilder event) {
+            boolean overflow;
+            synchronized (this) {
+                if (closed) return;
+                overflow = queue.size() >= maxQueue;
+                if (!overflow) {
+                    queue.addLast(new Queued(id, event));
+                    if (!schedule()) return;
+                }
+            }
+            if (overflow) {
+                log.debug("Abonné SSE trop lent : connexion fermée, reprise par Last-Event-ID");
+                close();
+                emitter.complete();
+                return;
+            }
+            delivery.execute(this::drain);
+        }
+
+        /** @return true si l’appelant doit lancer {@link #drain} (appelé sous le verrou) */
+        private boolean schedule() {
+            if (!started || draining || closed || queue.isEmpty()) return false;
+            draining = true;
+            return true;
+        }
+
+        void drain() {
+            while (true) {
+                Queued next;
+                synchronized (this) {
+                    next = closed ? null : queue.pollFirst();
+                    if (next == null) {
+                        draining = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(next.event);
+                } catch (IOException | IllegalStateException e) {
+                    // client parti : il se reconnectera avec Last-Event-ID
+                    close();
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+            }
+            channel.remove(this);
+        }
+    }
+
+    private void sendHeartbeat() {
+        channels.values().forEach(channel -> channel.forEach(
+                subscriber -> subscriber.offer(null, SseEmitter.event().comment("ping"))));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+        delivery.shutdownNow();
+        channels.values().forEach(channel -> channel.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+}
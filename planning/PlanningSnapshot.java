@@ -0,0 +1,67 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Entrée complète et immuable du {@link GenerationEngine} pour un site et un mois :
+ * demande compilée, employés du site et état de la société (affectations, absences).
+ * <p>
+ * Aucune référence à une entité JPA : un snapshot peut être partagé entre threads
+ * (scénarios de simulation en parallèle).
+ */
+@Getter
+public class PlanningSnapshot {
+
+    private final Long companyId;
+    private final Long siteId;
+    private final YearMonth month;
+    private final SiteDemandTable demand;
+    private final EligibilityIndex index;
+    /** Employés actifs rattachés au site, triés par id (résultat déterministe). */
+    private final List<EligibilityIndex.Candidate> employees;
+    /** Absences hypothétiques ajoutées par un scénario. */
+    private final Map<Long, Set<LocalDate>> extraAbsences;
+
+    private PlanningSnapshot(Long siteId, SiteDemandTable demand, EligibilityIndex index,
+                             List<EligibilityIndex.Candidate> employees,
+                             Map<Long, Set<LocalDate>> extraAbsences) {
+        this.companyId = index.getCompanyId();
+        this.siteId = siteId;
+        this.month = demand.getMonth();
+        this.demand = demand;
+        this.index = index;
+        this.employees = employees;
+        this.extraAbsences = extraAbsences;
+    }
+
+    public static PlanningSnapshot of(Long siteId, SiteDemandTable demand, EligibilityIndex index) {
+        List<EligibilityIndex.Candidate> employees = index.candidates().stream()
+                .filter(c -> siteId.equals(c.getHomeSiteId()))
+                .sorted(Comparator.comparing(EligibilityIndex.Candidate::getEmployeeId))
+                .toList();
+        return new PlanningSnapshot(siteId, demand, index, employees, Map.of());
+    }
+
+    /** Variante « et si… » : demande modifiée et absences supplémentaires, le reste est partagé. */
+    public PlanningSnapshot withScenario(List<DemandDelta> deltas, SlotDemand.Source source,
+                                         Map<Long, Set<LocalDate>> leaves) {
+        Map<Long, Set<LocalDate>> absences = new HashMap<>(extraAbsences);
+        if (leaves != null) {
+            leaves.forEach((id, dates) -> absences.merge(id, Set.copyOf(dates), (a, b) -> {
+                Set<LocalDate> merged = new HashSet<>(a);
+                merged.addAll(b);
+                return Set.copyOf(merged);
+            }));
+        }
+        return new PlanningSnapshot(siteId, demand.withDeltas(deltas, source), index, employees, Map.copyOf(absences));
+    }
+
+    public boolean isAbsent(Long employeeId, LocalDate date) {
+        return index.isAbsent(employeeId, date)
+                || extraAbsences.getOrDefault(employeeId, Set.of()).contains(date);
+    }
+}
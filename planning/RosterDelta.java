@@ -0,0 +1,165 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Différence entre deux contenus de planning : lignes retirées et ajoutées, chacune
+ * triée selon {@link RosterRow#ORDER}. Un état complet est un delta sans retrait.
+ * <p>
+ * Toutes les opérations sont des fusions de listes triées (un seul passage, pas de
+ * table de hachage) ; les doublons exacts sont comptés comme un multi-ensemble.
+ * Encodage binaire compact compressé en gzip ; les enums sont écrits par leur nom.
+ */
+@Getter
+@AllArgsConstructor
+public class RosterDelta {
+
+    private static final int FORMAT = 1;
+
+    private final List<RosterRow> removed;
+    private final List<RosterRow> added;
+
+    public static RosterDelta full(List<RosterRow> rows) {
+        return new RosterDelta(List.of(), rows);
+    }
+
+    /** Delta qui transforme {@code from} en {@code to} (listes triées). */
+    public static RosterDelta between(List<RosterRow> from, List<RosterRow> to) {
+        List<RosterRow> removed = new ArrayList<>();
+        List<RosterRow> added = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < from.size() && j < to.size()) {
+            int c = RosterRow.ORDER.compare(from.get(i), to.get(j));
+            if (c == 0) {
+                i++;
+                j++;
+            } else if (c < 0) {
+                removed.add(from.get(i++));
+            } else {
+                added.add(to.get(j++));
+            }
+        }
+        while (i < from.size()) removed.add(from.get(i++));
+        while (j < to.size()) added.add(to.get(j++));
+        return new RosterDelta(removed, added);
+    }
+
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+
+    /** Applique le delta à {@code base} (triée) ; le résultat est trié. */
+    public List<RosterRow> applyTo(List<RosterRow> base) {
+        List<RosterRow> kept = new ArrayList<>(base.size());
+        int i = 0, j = 0;
+        while (i < base.size()) {
+            int c = j < removed.size() ? RosterRow.ORDER.compare(base.get(i), removed.get(j)) : -1;
+            if (c == 0) {
+                i++;
+                j++;
+            } else if (c < 0) {
+                kept.add(base.get(i++));
+            } else {
+                j++;  // retrait absent de la base : ignoré
+            }
+        }
+        List<RosterRow> result = new ArrayList<>(kept.size() + added.size());
+        i = 0;
+        j = 0;
+        while (i < kept.size() && j < added.size()) {
+            result.add(RosterRow.ORDER.compare(kept.get(i), added.get(j)) <= 0 ? kept.get(i++) : added.get(j++));
+        }
+        while (i < kept.size()) result.add(kept.get(i++));
+        while (j < added.size()) result.add(added.get(j++));
+        return result;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Encodage                                                          */
+    /* ------------------------------------------------------------------ */
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeByte(FORMAT);
+            writeRows(out, removed);
+            writeRows(out, added);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static RosterDelta decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(payload)))) {
+            int format = in.readUnsignedByte();
+            if (format != FORMAT) {
+                throw new IllegalStateException("Format de version inconnu : " + format);
+            }
+            List<RosterRow> removed = readRows(in);
+            List<RosterRow> added = readRows(in);
+            return new RosterDelta(removed, added);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeRows(DataOutputStream out, List<RosterRow> rows) throws IOException {
+        out.writeInt(rows.size());
+        for (RosterRow row : rows) {
+            out.writeLong(row.getEmployeeId());
+            out.writeLong(row.getSiteId() != null ? row.getSiteId() : -1L);
+            out.writeInt((int) row.getDate().toEpochDay());
+            out.writeInt(row.getStartTime().toSecondOfDay());
+            out.writeInt(row.getEndTime().toSecondOfDay());
+            out.writeInt(row.getDuration());
+            writeString(out, row.getAgentType() != null ? row.getAgentType().name() : null);
+            writeString(out, row.getShift());
+            writeString(out, row.getStatus() != null ? row.getStatus().name() : null);
+            writeString(out, row.getNotes());
+        }
+    }
+
+    private static List<RosterRow> readRows(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<RosterRow> rows = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            long employeeId = in.readLong();
+            long siteId = in.readLong();
+            LocalDate date = LocalDate.ofEpochDay(in.readInt());
+            LocalTime start = LocalTime.ofSecondOfDay(in.readInt());
+            LocalTime end = LocalTime.ofSecondOfDay(in.readInt());
+            int duration = in.readInt();
+            String agentType = readString(in);
+            String shift = readString(in);
+            String status = readString(in);
+            String notes = readString(in);
+            rows.add(new RosterRow(null, employeeId, siteId >= 0 ? siteId : null, date, start, end, duration,
+                    agentType != null ? AgentType.valueOf(agentType) : null,
+                    shift,
+                    status != null ? ScheduleAssignment.AssignmentStatus.valueOf(status) : null,
+                    notes));
+        }
+        return rows;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
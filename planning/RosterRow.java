@@ -0,0 +1,60 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Comparator;
+
+/**
+ * Contenu d’une affectation tel qu’il est versionné : identifiée par ses valeurs,
+ * pas par son id (une régénération recrée les lignes). {@code assignmentId} n’est
+ * renseigné que pour l’état courant lu en base.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RosterRow {
+
+    /**
+     * Ordre total sur le contenu. Les trois premiers critères forment la clé de créneau
+     * ({@link #SLOT}) : deux listes triées ainsi le sont aussi par créneau.
+     */
+    public static final Comparator<RosterRow> ORDER = Comparator
+            .comparing(RosterRow::getDate)
+            .thenComparing(RosterRow::getStartTime)
+            .thenComparing(RosterRow::getEmployeeId)
+            .thenComparing(RosterRow::getEndTime)
+            .thenComparing(RosterRow::getDuration)
+            .thenComparing(RosterRow::getSiteId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(r -> name(r.getAgentType()), Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RosterRow::getShift, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(r -> name(r.getStatus()), Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RosterRow::getNotes, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /** Même employé, même jour, même heure de début. */
+    public static final Comparator<RosterRow> SLOT = Comparator
+            .comparing(RosterRow::getDate)
+            .thenComparing(RosterRow::getStartTime)
+            .thenComparing(RosterRow::getEmployeeId);
+
+    private final Long assignmentId;
+    private final Long employeeId;
+    private final Long siteId;
+    private final LocalDate date;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+    private final int duration;
+    private final AgentType agentType;
+    private final String shift;
+    private final ScheduleAssignment.AssignmentStatus status;
+    private final String notes;
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+}
@@ -0,0 +1,20 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleVersion;
+
+/**
+ * Demande de version du contenu d’un planning, traitée de façon synchrone dans la
+ * transaction courante : publiée juste avant un rafraîchissement (l’état qui va être
+ * effacé est conservé) et juste après une génération.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ScheduleCheckpointEvent {
+
+    private final Long scheduleId;
+    private final ScheduleVersion.Reason reason;
+}
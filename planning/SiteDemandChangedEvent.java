@@ -0,0 +1,17 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Publié par {@link DemandCompiler#invalidate(Long)} quand le paramétrage d’un site
+ * (règles, modèles, vacations, overrides) change : le besoin compilé n’est plus valable.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class SiteDemandChangedEvent {
+
+    private final Long siteId;
+}
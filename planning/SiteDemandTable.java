@@ -0,0 +1,105 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Demande d’un site pour un mois, indexée par jour du mois.
+ * Produite par {@link DemandCompiler} ; immuable, donc partageable entre threads.
+ */
+public class SiteDemandTable {
+
+    @Getter
+    private final Long siteId;
+    @Getter
+    private final YearMonth month;
+    /** Au moins une règle hebdomadaire est définie pour le site. */
+    @Getter
+    private final boolean hasRules;
+    private final DayDemand[] days;
+
+    SiteDemandTable(Long siteId, YearMonth month, boolean hasRules, DayDemand[] days) {
+        this.siteId = siteId;
+        this.month = month;
+        this.hasRules = hasRules;
+        this.days = days;
+    }
+
+    public DayDemand day(LocalDate date) {
+        if (!YearMonth.from(date).equals(month)) {
+            throw new IllegalArgumentException(date + " hors du mois " + month);
+        }
+        return days[date.getDayOfMonth() - 1];
+    }
+
+    public List<DayDemand> days() {
+        return Arrays.asList(days.clone());
+    }
+
+    /**
+     * Copie modifiée par des deltas de simulation ; les nouveaux créneaux prennent la source
+     * {@code source}. La table d’origine (partagée via le cache) n’est pas touchée.
+     */
+    public SiteDemandTable withDeltas(List<DemandDelta> deltas, SlotDemand.Source source) {
+        if (deltas == null || deltas.isEmpty()) {
+            return this;
+        }
+        DayDemand[] copy = new DayDemand[days.length];
+        for (int i = 0; i < days.length; i++) {
+            DayDemand day = days[i];
+            List<SlotDemand> slots = new ArrayList<>(day.getSlots());
+            boolean changed = false;
+
+            for (DemandDelta delta : deltas) {
+                if (!delta.appliesTo(day.getDate()) || day.isClosed()) continue;
+                if (delta.isAdd()) {
+                    slots.add(SlotDemand.builder()
+                            .source(source == SlotDemand.Source.SHIFT ? source : agentSource(day))
+                            .agentType(delta.getAgentType())
+                            .label(delta.getLabel())
+                            .startTime(delta.getStartTime())
+                            .endTime(delta.getEndTime())
+                            .count(delta.apply(0))
+                            .requiredSkills(day.getRequiredSkills())
+                            .build());
+                    changed = true;
+                    continue;
+                }
+                for (int s = 0; s < slots.size(); s++) {
+                    SlotDemand slot = slots.get(s);
+                    if (sameFamily(slot.getSource(), source) && delta.matches(slot)) {
+                        slots.set(s, slot.toBuilder().count(delta.apply(slot.getCount())).build());
+                        changed = true;
+                    }
+                }
+            }
+            copy[i] = changed ? day.toBuilder().slots(List.copyOf(slots)).build() : day;
+        }
+        return new SiteDemandTable(siteId, month, hasRules, copy);
+    }
+
+    /** Un créneau ajouté doit rester visible par {@link DayDemand#agentSlots()}. */
+    private static SlotDemand.Source agentSource(DayDemand day) {
+        return day.slots(SlotDemand.Source.RULE).isEmpty() && !day.slots(SlotDemand.Source.TEMPLATE).isEmpty()
+                ? SlotDemand.Source.TEMPLATE
+                : SlotDemand.Source.RULE;
+    }
+
+    /** Règles et modèles décrivent la même demande par type d’agent. */
+    private static boolean sameFamily(SlotDemand.Source a, SlotDemand.Source b) {
+        return a == b || (a != SlotDemand.Source.SHIFT && b != SlotDemand.Source.SHIFT);
+    }
+
+    public int required(SlotDemand.Source source) {
+        int total = 0;
+        for (DayDemand day : days) {
+            total += day.required(source);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,46 @@
+package org.makarimal.projet_gestionautoplanningsecure.planning;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Un besoin de personnel sur un créneau : « {@code count} agents de type X de start à end ».
+ * Immuable : partagé sans copie entre les générateurs via {@link SiteDemandTable}.
+ */
+@Getter
+@Builder(toBuilder = true)
+@ToString
+public class SlotDemand {
+
+    /** Origine du besoin dans le paramétrage du site. */
+    public enum Source {
+        /** {@code WeeklyScheduleRule} + {@code AgentSchedule} */
+        RULE,
+        /** {@code SiteShiftTemplate} + {@code SiteShiftTemplateAgent} actif */
+        TEMPLATE,
+        /** {@code SiteShift} (vacation quotidienne) */
+        SHIFT
+    }
+
+    private final Source source;
+    /** null pour une vacation ({@link Source#SHIFT}) sans type imposé. */
+    private final AgentType agentType;
+    /** Nom de la vacation, null pour les règles et modèles. */
+    private final String label;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+    private final int count;
+    private final int minExperience;
+    private final List<String> requiredSkills;
+    private final String notes;
+
+    public int durationMinutes() {
+        return (int) Duration.between(startTime, endTime).toMinutes();
+    }
+}
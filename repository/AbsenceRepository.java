@@ -3,6 +3,8 @@ package org.makarimal.projet_gestionautoplanningsecure.repository;
 import org.makarimal.projet_gestionautoplanningsecure.model.Absence;
 import org.makarimal.projet_gestionautoplanningsecure.model.EmployeeAbsence;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -14,4 +16,15 @@ public interface AbsenceRepository extends JpaRepository<Absence, Long> {
     List<Absence> findByEmployeeIdAndDateBetween(Long employeeId, LocalDate first, LocalDate last);
 
    // List<EmployeeAbsence> findByEmployeeIdAndStartDateLessThanEqualAndEndDateGreaterThanEqual(Long employeeId, LocalDate last, LocalDate first);
+
+    /** [employeeId, date] des absences de la société sur la période. */
+    @Query("""
+           select a.employee.id, a.date
+           from Absence a
+           where a.employee.company.id = :companyId
+             and a.date between :from and :to
+           """)
+    List<Object[]> findRowsByCompanyIdAndDateBetween(@Param("companyId") Long companyId,
+                                                     @Param("from") LocalDate from,
+                                                     @Param("to") LocalDate to);
 }
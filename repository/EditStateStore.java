@@ -0,0 +1,41 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * États {@code edit_states} en JDBC, dans la transaction de l’édition (même connexion) :
+ * un état n’est visible des autres instances que si l’écriture qui l’a produit est validée.
+ * <p>
+ * L’insertion ignore un état déjà connu ({@code on conflict do nothing}) : une erreur de
+ * clé en double annulerait la transaction de l’édition sous PostgreSQL.
+ */
+@Repository
+public class EditStateStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EditStateStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Enregistre l’état à {@code version} et purge ceux antérieurs à {@code version - keep}. */
+    public void save(String key, long version, String fields, int keep) {
+        jdbcTemplate.update("""
+                insert into edit_states (entity_key, version, fields, created_at) values (?, ?, ?, ?)
+                on conflict (entity_key, version) do nothing
+                """, key, version, fields, Timestamp.valueOf(LocalDateTime.now()));
+        jdbcTemplate.update("delete from edit_states where entity_key = ? and version < ?", key, version - keep);
+    }
+
+    /** @return champs en JSON, null si cette version n’est pas (ou plus) connue */
+    public String find(String key, long version) {
+        List<String> fields = jdbcTemplate.queryForList(
+                "select fields from edit_states where entity_key = ? and version = ?", String.class, key, version);
+        return fields.isEmpty() ? null : fields.get(0);
+    }
+}
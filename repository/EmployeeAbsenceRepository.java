@@ -5,6 +5,7 @@ import org.makarimal.projet_gestionautoplanningsecure.model.AbsenceType;
 import org.makarimal.projet_gestionautoplanningsecure.model.EmployeeAbsence;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -33,4 +34,20 @@ public interface EmployeeAbsenceRepository extends JpaRepository<EmployeeAbsence
             LocalDate endDate
     );
 
+    /**
+     * [employeeId, startDate, endDate] des absences <em>validées</em> de la société qui
+     * chevauchent la période ; une demande en attente ne bloque pas la génération.
+     */
+    @Query("""
+           select a.employee.id, a.startDate, a.endDate
+           from EmployeeAbsence a
+           where a.employee.company.id = :companyId
+             and a.approved = true
+             and a.startDate <= :to
+             and a.endDate >= :from
+           """)
+    List<Object[]> findRowsByCompanyIdOverlapping(@Param("companyId") Long companyId,
+                                                  @Param("from") LocalDate from,
+                                                  @Param("to") LocalDate to);
+
 }
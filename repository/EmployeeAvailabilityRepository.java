@@ -3,6 +3,8 @@ package org.makarimal.projet_gestionautoplanningsecure.repository;
 
 import org.makarimal.projet_gestionautoplanningsecure.model.EmployeeAvailability;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +12,13 @@ import java.util.List;
 public interface EmployeeAvailabilityRepository extends JpaRepository<EmployeeAvailability, Long> {
     List<EmployeeAvailability> findByEmployeeId(Long employeeId);
     void deleteByEmployeeId(Long employeeId);
+    long deleteByIdAndEmployeeId(Long id, Long employeeId);
+
+    /** [employeeId, dayOfWeek, startTime, endTime] pour toute la société. */
+    @Query("""
+           select a.employee.id, a.dayOfWeek, a.startTime, a.endTime
+           from EmployeeAvailability a
+           where a.employee.company.id = :companyId
+           """)
+    List<Object[]> findRowsByCompanyId(@Param("companyId") Long companyId);
 }
\ No newline at end of file
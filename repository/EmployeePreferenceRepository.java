@@ -2,10 +2,21 @@ package org.makarimal.projet_gestionautoplanningsecure.repository;
 
 import org.makarimal.projet_gestionautoplanningsecure.model.EmployeePreference;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 @Repository
 public interface EmployeePreferenceRepository extends JpaRepository<EmployeePreference, Long> {
     Optional<EmployeePreference> findByEmployeeId(Long employeeId);
+
+    /** [employeeId, canWorkWeekends, canWorkNights, maxHoursPerDay, minConsecutiveDaysOff] pour toute la société. */
+    @Query("""
+           select p.employee.id, p.canWorkWeekends, p.canWorkNights, p.maxHoursPerDay, p.minConsecutiveDaysOff
+           from EmployeePreference p
+           where p.employee.company.id = :companyId
+           """)
+    List<Object[]> findRowsByCompanyId(@Param("companyId") Long companyId);
 }
\ No newline at end of file
@@ -4,9 +4,11 @@ import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
 import org.makarimal.projet_gestionautoplanningsecure.model.Employee;
 import org.makarimal.projet_gestionautoplanningsecure.model.Site;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,6 +21,18 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     Optional<Employee> findByEmployeeCode(String employeeCode);
     boolean existsByEmailAndCompanyId(String email, Long companyId);
     boolean existsByEmployeeCodeAndCompanyId(String employeeCode, Long companyId);
+    boolean existsByIdAndCompanyId(Long id, Long companyId);
+
+    @Query("SELECT e.company.id FROM Employee e WHERE e.id = :id")
+    Optional<Long> findCompanyIdById(@Param("id") Long id);
+
+    @Query("SELECT e.calendarTokenVersion FROM Employee e WHERE e.id = :id")
+    Optional<Long> findCalendarTokenVersionById(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Employee e SET e.calendarTokenVersion = e.calendarTokenVersion + 1 WHERE e.id = :id")
+    int incrementCalendarTokenVersion(@Param("id") Long id);
 
     @Query("SELECT e FROM Employee e WHERE e.company.id = :companyId AND " +
             "(:department IS NULL OR e.department = :department) AND " +
@@ -47,4 +61,42 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
            """)
     List<Employee> findActiveBySiteAndAgentType(@Param("site") Site site,
                                                 @Param("agentType") AgentType agentType);
+
+    /* ---------- lectures “à plat” pour les index en mémoire (pas d’entités, pas de N+1) ---------- */
+
+    /** [id, firstName, lastName, siteId, maxHoursPerWeek] des employés actifs. */
+    @Query("""
+           select e.id, e.firstName, e.lastName, s.id, e.maxHoursPerWeek
+           from Employee e left join e.site s
+           where e.company.id = :companyId
+             and e.isActive = true
+           """)
+    List<Object[]> findActiveRowsByCompanyId(@Param("companyId") Long companyId);
+
+    /** [employeeId, agentType] */
+    @Query("""
+           select e.id, t
+           from Employee e join e.agentTypes t
+           where e.company.id = :companyId
+             and e.isActive = true
+           """)
+    List<Object[]> findAgentTypePairsByCompanyId(@Param("companyId") Long companyId);
+
+    /** [employeeId, skill] */
+    @Query("""
+           select e.id, k
+           from Employee e join e.skillSets k
+           where e.company.id = :companyId
+             and e.isActive = true
+           """)
+    List<Object[]> findSkillPairsByCompanyId(@Param("companyId") Long companyId);
+
+    /** [employeeId, preferredSiteId] */
+    @Query("""
+           select e.id, p
+           from Employee e join e.preferredSites p
+           where e.company.id = :companyId
+             and e.isActive = true
+           """)
+    List<Object[]> findPreferredSitePairsByCompanyId(@Param("companyId") Long companyId);
 }
\ No newline at end of file
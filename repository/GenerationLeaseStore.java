@@ -0,0 +1,100 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.GenerationLease;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Baux de génération en JDBC : chaque opération est une seule requête conditionnelle,
+ * atomique en base, sans verrou tenu entre deux appels.
+ * <p>
+ * {@link #tryAcquire} et {@link #release} s’exécutent hors transaction (auto-commit) ;
+ * {@link #fence} s’exécute dans la transaction de la génération, juste avant son commit.
+ * Les échéances utilisent l’horloge de l’instance : un décalage entre instances doit rester
+ * petit devant la durée du bail.
+ */
+@Repository
+public class GenerationLeaseStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GenerationLeaseStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** @return jeton de clôture si le bail est obtenu, null s’il est tenu par une génération en cours */
+    public Long tryAcquire(String key, String owner, Duration ttl) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp acquired = Timestamp.valueOf(now);
+        Timestamp expires = Timestamp.valueOf(now.plus(ttl));
+        try {
+            jdbcTemplate.update("""
+                    insert into generation_leases (lease_key, owner, token, status, acquired_at, expires_at)
+                    values (?, ?, 1, 'RUNNING', ?, ?)
+                    """, key, owner, acquired, expires);
+            return 1L;
+        } catch (DuplicateKeyException e) {
+            // ligne existante : reprise si terminée, échouée ou expirée
+        }
+        int updated = jdbcTemplate.update("""
+                update generation_leases
+                   set owner = ?, token = token + 1, status = 'RUNNING', acquired_at = ?, expires_at = ?
+                 where lease_key = ? and (status <> 'RUNNING' or expires_at < ?)
+                """, owner, acquired, expires, key, acquired);
+        if (updated == 0) {
+            return null;
+        }
+        List<Long> tokens = jdbcTemplate.queryForList(
+                "select token from generation_leases where lease_key = ? and owner = ?", Long.class, key, owner);
+        return tokens.isEmpty() ? null : tokens.get(0);
+    }
+
+    /** Prolonge un bail en cours ; false s’il a été perdu (expiré puis repris). */
+    public boolean renew(String key, long token, Duration ttl) {
+        return jdbcTemplate.update("""
+                update generation_leases set expires_at = ?
+                 where lease_key = ? and token = ? and status = 'RUNNING'
+                """, Timestamp.valueOf(LocalDateTime.now().plus(ttl)), key, token) == 1;
+    }
+
+    /**
+     * Contrôle de clôture, dans la transaction des écritures : la ligne du bail reste
+     * verrouillée jusqu’au commit, aucune autre instance ne peut la reprendre entre-temps.
+     *
+     * @throws IllegalStateException bail repris par une autre instance : la transaction doit échouer
+     */
+    public void fence(String key, long token, Duration ttl) {
+        if (!renew(key, token, ttl)) {
+            throw new IllegalStateException("Bail de génération perdu (" + key + ", jeton " + token + ")");
+        }
+    }
+
+    public void release(String key, long token, GenerationLease.Status status) {
+        jdbcTemplate.update("""
+                update generation_leases set status = ?, expires_at = ?
+                 where lease_key = ? and token = ?
+                """, status.name(), Timestamp.valueOf(LocalDateTime.now()), key, token);
+    }
+
+    /** État courant du bail, null s’il n’a jamais été pris. */
+    public GenerationLease find(String key) {
+        List<GenerationLease> leases = jdbcTemplate.query("""
+                select lease_key, owner, token, status, acquired_at, expires_at
+                  from generation_leases where lease_key = ?
+                """, (rs, i) -> GenerationLease.builder()
+                .key(rs.getString(1))
+                .owner(rs.getString(2))
+                .token(rs.getLong(3))
+                .status(GenerationLease.Status.valueOf(rs.getString(4)))
+                .acquiredAt(rs.getTimestamp(5).toLocalDateTime())
+                .expiresAt(rs.getTimestamp(6).toLocalDateTime())
+                .build(), key);
+        return leases.isEmpty() ? null : leases.get(0);
+    }
+}
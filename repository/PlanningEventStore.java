@@ -0,0 +1,88 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.PlanningEventEntry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Journal {@code planning_events} en JDBC. {@link #append} s’exécute dans la transaction
+ * des affectations (même connexion) : un message existe si et seulement si ses écritures
+ * sont validées. Les lectures sont en auto-commit.
+ * <p>
+ * Les ids sont attribués à l’insertion mais deviennent visibles au commit : un id peut
+ * apparaître après un id plus grand. Les lecteurs relisent donc une fenêtre de grâce
+ * ({@code createdAt} récent) et dédoublonnent par id.
+ */
+@Repository
+public class PlanningEventStore {
+
+    private static final RowMapper<PlanningEventEntry> ROW = (rs, i) -> PlanningEventEntry.builder()
+            .id(rs.getLong("id"))
+            .siteId(rs.getLong("site_id"))
+            .payload(rs.getString("payload"))
+            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PlanningEventStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Un message par site ({@code siteId → payload JSON}). */
+    public void append(Map<Long, String> payloads) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "insert into planning_events (site_id, payload, created_at) values (?, ?, ?)",
+                payloads.entrySet().stream()
+                        .map(e -> new Object[]{e.getKey(), e.getValue(), now})
+                        .toList());
+    }
+
+    /** Messages d’id supérieur à {@code afterId}, tous sites, dans l’ordre des ids. */
+    public List<PlanningEventEntry> since(long afterId, int limit) {
+        return jdbcTemplate.query("""
+                select id, site_id, payload, created_at from planning_events
+                 where id > ? order by id limit ?
+                """, ROW, afterId, limit);
+    }
+
+    /**
+     * Messages d’un site à rejouer après {@code afterId}, plus ceux de la fenêtre de grâce
+     * (éventuellement déjà reçus : le client ignore un id connu).
+     */
+    public List<PlanningEventEntry> replay(Long siteId, long afterId, LocalDateTime graceFrom) {
+        return jdbcTemplate.query("""
+                select id, site_id, payload, created_at from planning_events
+                 where site_id = ? and (id > ? or created_at > ?) order by id
+                """, ROW, siteId, afterId, Timestamp.valueOf(graceFrom));
+    }
+
+    /** @return 0 si le journal est vide */
+    public long maxId() {
+        Long max = jdbcTemplate.queryForObject("select max(id) from planning_events", Long.class);
+        return max != null ? max : 0;
+    }
+
+    /** @return null si le journal est vide */
+    public Long minId() {
+        return jdbcTemplate.queryForObject("select min(id) from planning_events", Long.class);
+    }
+
+    /**
+     * Purge les messages antérieurs à {@code before}, sauf le dernier : le journal garde
+     * toujours la position courante, une reprise depuis celle-ci reste possible.
+     */
+    public int prune(LocalDateTime before) {
+        return jdbcTemplate.update("""
+                delete from planning_events
+                 where created_at < ? and id < (select max(id) from planning_events)
+                """, Timestamp.valueOf(before));
+    }
+}
@@ -0,0 +1,94 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Insertion JDBC par lots des affectations (clonage de mois, écritures en masse).
+ * <p>
+ * Contourne le contexte de persistance : pas d’entité gérée, pas d’identifiant relu,
+ * un aller-retour par lot de {@code planning.batch.size} lignes. Participe à la
+ * transaction JPA courante (même DataSource).
+ */
+@Repository
+public class ScheduleAssignmentBatchWriter {
+
+    private static final String INSERT_SQL = """
+            insert into schedule_assignments
+                (schedule_id, employee_id, site_id, date, start_time, end_time, duration,
+                 agent_type, notes, shift, status, created_at, updated_at, version)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public ScheduleAssignmentBatchWriter(JdbcTemplate jdbcTemplate,
+                                         @Value("${planning.batch.size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /** Une ligne à insérer ; les ids suffisent, aucune entité n’est chargée. */
+    @Getter
+    @AllArgsConstructor
+    public static class Row {
+        private final Long scheduleId;
+        private final Long employeeId;
+        /** null : affectation au site du planning ({@code site_id} NULL). */
+        private final Long siteId;
+        private final LocalDate date;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+        private final int duration;
+        private final AgentType agentType;
+        private final String notes;
+        private final String shift;
+        private final ScheduleAssignment.AssignmentStatus status;
+    }
+
+    /** @return nombre de lignes insérées */
+    public int insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, rows, batchSize, (ps, row) -> {
+            ps.setLong(1, row.getScheduleId());
+            ps.setLong(2, row.getEmployeeId());
+            if (row.getSiteId() != null) ps.setLong(3, row.getSiteId()); else ps.setNull(3, Types.BIGINT);
+            ps.setDate(4, Date.valueOf(row.getDate()));
+            ps.setTime(5, Time.valueOf(row.getStartTime()));
+            ps.setTime(6, Time.valueOf(row.getEndTime()));
+            ps.setInt(7, row.getDuration());
+            ps.setString(8, row.getAgentType() != null ? row.getAgentType().name() : null);
+            ps.setString(9, row.getNotes());
+            ps.setString(10, row.getShift());
+            ps.setString(11, row.getStatus().name());
+            ps.setTimestamp(12, now);
+            ps.setTimestamp(13, now);
+        });
+        int inserted = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) {
+                // SUCCESS_NO_INFO (-2) : le pilote n’indique pas le nombre, la ligne est insérée
+                inserted += c >= 0 ? c : 1;
+            }
+        }
+        return inserted;
+    }
+}
@@ -1,12 +1,16 @@
 package org.makarimal.projet_gestionautoplanningsecure.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ScheduleAssignmentRepository
@@ -65,4 +69,173 @@ public interface ScheduleAssignmentRepository
 
 
     List<ScheduleAssignment> findByEmployeeIdAndDate(Long employeeId, LocalDate date);
+
+    /** [id, employeeId, date, startTime, endTime, duration] des affectations actives de la société. */
+    @Query("""
+           select sa.id, sa.employee.id, sa.date, sa.startTime, sa.endTime, sa.duration
+           from ScheduleAssignment sa
+           where sa.schedule.company.id = :companyId
+             and sa.date between :from and :to
+             and sa.status <> :excluded
+           """)
+    List<Object[]> findRowsByCompanyIdAndDateBetween(@Param("companyId") Long companyId,
+                                                     @Param("from") LocalDate from,
+                                                     @Param("to") LocalDate to,
+                                                     @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
+
+    /** [employeeId, siteId, date, startTime, endTime, duration, agentType, notes, shift] d’un planning (clonage). */
+    @Query("""
+           select sa.employee.id, s.id, sa.date, sa.startTime, sa.endTime, sa.duration,
+                  sa.agentType, sa.notes, sa.shift
+           from ScheduleAssignment sa left join sa.site s
+           where sa.schedule.id = :scheduleId
+             and sa.status <> :excluded
+           order by sa.date, sa.startTime
+           """)
+    List<Object[]> findCloneRowsByScheduleId(@Param("scheduleId") Long scheduleId,
+                                             @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
+
+    /**
+     * Contenu versionné d’un planning, toutes affectations :
+     * [id, employeeId, siteId, date, start, end, duration, agentType, shift, status, notes].
+     */
+    @Query("""
+           select sa.id, sa.employee.id, s.id, sa.date, sa.startTime, sa.endTime, sa.duration,
+                  sa.agentType, sa.shift, sa.status, sa.notes
+           from ScheduleAssignment sa left join sa.site s
+           where sa.schedule.id = :scheduleId
+           order by sa.date, sa.startTime, sa.employee.id
+           """)
+    List<Object[]> findVersionRowsByScheduleId(@Param("scheduleId") Long scheduleId);
+
+    /**
+     * [id, employeeId, firstName, lastName, siteId, scheduleId, date, startTime, endTime] des affectations
+     * actives de la société, triées par (employé, début) — index d’occupation.
+     */
+    @Query("""
+           select sa.id, e.id, e.firstName, e.lastName, coalesce(s.id, sc.site.id), sc.id,
+                  sa.date, sa.startTime, sa.endTime
+           from ScheduleAssignment sa
+                join sa.employee e
+                join sa.schedule sc
+                left join sa.site s
+           where sc.company.id = :companyId
+             and sa.date between :from and :to
+             and sa.status <> :excluded
+           order by e.id, sa.date, sa.startTime
+           """)
+    List<Object[]> findOccupancyRowsByCompanyId(@Param("companyId") Long companyId,
+                                                @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to,
+                                                @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
+
+    /**
+     * [id, employeeId, firstName, lastName, date, startTime, endTime, duration] des employés
+     * affectés au planning, sur tous les plannings de la société entre {@code from} et
+     * {@code to}, triées par (employé, début).
+     */
+    @Query("""
+           select sa.id, e.id, e.firstName, e.lastName, sa.date, sa.startTime, sa.endTime, sa.duration
+           from ScheduleAssignment sa
+                join sa.employee e
+                join sa.schedule sc
+           where sc.company.id = :companyId
+             and sa.date between :from and :to
+             and sa.status <> :excluded
+             and e.id in (select p.employee.id from ScheduleAssignment p
+                          where p.schedule.id = :scheduleId and p.status <> :excluded)
+           order by e.id, sa.date, sa.startTime
+           """)
+    List<Object[]> findComplianceRows(@Param("companyId") Long companyId,
+                                      @Param("scheduleId") Long scheduleId,
+                                      @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to,
+                                      @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
+
+    /**
+     * [id, date, startTime, endTime, shift, agentType, status, updatedAt, siteName, address, city]
+     * des affectations d’un employé (flux iCalendar), triées par début.
+     */
+    @Query("""
+           select sa.id, sa.date, sa.startTime, sa.endTime, sa.shift, sa.agentType, sa.status, sa.updatedAt,
+                  coalesce(s.name, ss.name), coalesce(s.address, ss.address), coalesce(s.city, ss.city)
+           from ScheduleAssignment sa
+                join sa.schedule sc
+                join sc.site ss
+                left join sa.site s
+           where sa.employee.id = :employeeId
+             and sa.date between :from and :to
+             and sa.status <> :excluded
+           order by sa.date, sa.startTime
+           """)
+    List<Object[]> findCalendarRowsByEmployeeId(@Param("employeeId") Long employeeId,
+                                                @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to,
+                                                @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
+
+    /**
+     * [employeeId, employeeCode, lastName, firstName, jour de semaine (1 = dimanche … 7 = samedi),
+     * startTime, endTime, nombre, minutes] : vacations de la société agrégées par employé et
+     * type de vacation, triées par employé (export paie, lu en flux).
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+           select e.id, e.employeeCode, e.lastName, e.firstName, extract(day of week from sa.date),
+                  sa.startTime, sa.endTime, count(sa), sum(sa.duration)
+           from ScheduleAssignment sa
+                join sa.employee e
+                join sa.schedule sc
+           where sc.company.id = :companyId
+             and sa.date between :from and :to
+             and sa.status <> :excluded
+           group by e.id, e.employeeCode, e.lastName, e.firstName, extract(day of week from sa.date),
+                    sa.startTime, sa.endTime
+           order by e.lastName, e.firstName, e.id
+           """)
+    Stream<Object[]> streamHoursByCompanyId(@Param("companyId") Long companyId,
+                                            @Param("from") LocalDate from,
+                                            @Param("to") LocalDate to,
+                                            @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
+
+    /**
+     * [siteId, date, agentType, affectées, confirmées] de la société (d’un site si
+     * {@code siteId} n’est pas null), hors refusées — table de synthèse de couverture.
+     */
+    @Query("""
+           select coalesce(s.id, ss.id), sa.date, sa.agentType, count(sa),
+                  sum(case when sa.status = :confirmed then 1 else 0 end)
+           from ScheduleAssignment sa
+                join sa.schedule sc
+                join sc.site ss
+                left join sa.site s
+           where sc.company.id = :companyId
+             and (:siteId is null or coalesce(s.id, ss.id) = :siteId)
+             and sa.date between :from and :to
+             and sa.status <> :excluded
+           group by coalesce(s.id, ss.id), sa.date, sa.agentType
+           """)
+    List<Object[]> findCoverageRowsByCompanyId(@Param("companyId") Long companyId,
+                                               @Param("siteId") Long siteId,
+                                               @Param("from") LocalDate from,
+                                               @Param("to") LocalDate to,
+                                               @Param("confirmed") ScheduleAssignment.AssignmentStatus confirmed,
+                                               @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
+
+    /**
+     * Vacations commençant les jours donnés (fériés et veilles de fériés), par date :
+     * [employeeId, date, startTime, endTime, nombre].
+     */
+    @Query("""
+           select e.id, sa.date, sa.startTime, sa.endTime, count(sa)
+           from ScheduleAssignment sa
+                join sa.employee e
+                join sa.schedule sc
+           where sc.company.id = :companyId
+             and sa.date in :days
+             and sa.status <> :excluded
+           group by e.id, sa.date, sa.startTime, sa.endTime
+           """)
+    List<Object[]> findHoursOnDaysByCompanyId(@Param("companyId") Long companyId,
+                                              @Param("days") Collection<LocalDate> days,
+                                              @Param("excluded") ScheduleAssignment.AssignmentStatus excluded);
 }
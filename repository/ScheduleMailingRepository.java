@@ -0,0 +1,35 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleMailing;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ScheduleMailingRepository extends JpaRepository<ScheduleMailing, Long> {
+
+    /** Employés servis par un envoi postérieur à {@code since} (null = tous les envois). */
+    @Query("""
+           select m.employeeId from ScheduleMailing m
+           where m.scheduleId = :scheduleId and (:since is null or m.sentAt > :since)
+           """)
+    List<Long> findEmployeeIdsSentSince(@Param("scheduleId") Long scheduleId,
+                                        @Param("since") LocalDateTime since);
+
+    /** @return 0 si l’employé n’a encore jamais reçu ce planning (ligne à insérer) */
+    @Transactional
+    @Modifying
+    @Query("""
+           update ScheduleMailing m set m.sentAt = :sentAt
+           where m.scheduleId = :scheduleId and m.employeeId = :employeeId
+           """)
+    int markSent(@Param("scheduleId") Long scheduleId,
+                 @Param("employeeId") Long employeeId,
+                 @Param("sentAt") LocalDateTime sentAt);
+}
@@ -0,0 +1,37 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ScheduleVersionRepository extends JpaRepository<ScheduleVersion, Long> {
+
+    Optional<ScheduleVersion> findTopByScheduleIdOrderByNumberDesc(Long scheduleId);
+
+    boolean existsByScheduleIdAndNumber(Long scheduleId, int number);
+
+    /** [number, keyframe, reason, restoredFrom, assignmentCount, addedCount, removedCount, payloadSize, createdAt], sans les données. */
+    @Query("""
+           select v.number, v.keyframe, v.reason, v.restoredFrom, v.assignmentCount,
+                  v.addedCount, v.removedCount, v.payloadSize, v.createdAt
+           from ScheduleVersion v
+           where v.scheduleId = :scheduleId
+           order by v.number desc
+           """)
+    List<Object[]> findSummariesByScheduleId(@Param("scheduleId") Long scheduleId);
+
+    /** Dernier état complet au plus tard à {@code number} : point de départ de la reconstruction. */
+    @Query("""
+           select max(v.number) from ScheduleVersion v
+           where v.scheduleId = :scheduleId and v.keyframe = true and v.number <= :number
+           """)
+    Integer findKeyframeNumber(@Param("scheduleId") Long scheduleId, @Param("number") int number);
+
+    List<ScheduleVersion> findByScheduleIdAndNumberBetweenOrderByNumber(Long scheduleId, int from, int to);
+}
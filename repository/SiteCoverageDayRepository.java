@@ -0,0 +1,49 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.SiteCoverageDay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SiteCoverageDayRepository extends JpaRepository<SiteCoverageDay, Long> {
+
+    /** [siteId, agentType, besoin, affectés, confirmés] cumulés sur la période. */
+    @Query("""
+           select c.siteId, c.agentType, sum(c.required), sum(c.assigned), sum(c.confirmed)
+           from SiteCoverageDay c
+           where c.companyId = :companyId
+             and c.date between :from and :to
+             and (:siteId is null or c.siteId = :siteId)
+           group by c.siteId, c.agentType
+           order by c.siteId, c.agentType
+           """)
+    List<Object[]> sumByCompanyId(@Param("companyId") Long companyId,
+                                  @Param("siteId") Long siteId,
+                                  @Param("from") LocalDate from,
+                                  @Param("to") LocalDate to);
+
+    @Query("""
+           select c from SiteCoverageDay c
+           where c.companyId = :companyId
+             and c.date between :from and :to
+             and (:siteId is null or c.siteId = :siteId)
+           order by c.siteId, c.date, c.agentType
+           """)
+    List<SiteCoverageDay> findDays(@Param("companyId") Long companyId,
+                                   @Param("siteId") Long siteId,
+                                   @Param("from") LocalDate from,
+                                   @Param("to") LocalDate to);
+
+    /** [companyId, dernière date] des lignes du site à partir de {@code from} (vide si aucune). */
+    @Query("""
+           select c.companyId, max(c.date) from SiteCoverageDay c
+           where c.siteId = :siteId and c.date >= :from
+           group by c.companyId
+           """)
+    List<Object[]> findExtentBySiteId(@Param("siteId") Long siteId, @Param("from") LocalDate from);
+}
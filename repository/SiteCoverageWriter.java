@@ -0,0 +1,83 @@
+package org.makarimal.projet_gestionautoplanningsecure.repository;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.SiteCoverageDay;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Remplacement JDBC d’une plage de la table de synthèse de couverture : suppression
+ * des lignes de la plage puis insertion par lots de {@code planning.batch.size}.
+ * Participe à la transaction courante.
+ * <p>
+ * Deux remplacements concurrents d’un même site se heurteraient sur
+ * {@code uk_coverage_site_date_type} (chacun supprime, puis insère la même clé) : l’appelant
+ * prend d’abord {@link #lockSites}, qui les sérialise jusqu’au commit.
+ */
+@Repository
+public class SiteCoverageWriter {
+
+    private static final String INSERT_SQL = """
+            insert into site_coverage_days
+                (company_id, site_id, coverage_date, agent_type,
+                 required_count, assigned_count, confirmed_count, updated_at)
+            values (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public SiteCoverageWriter(JdbcTemplate jdbcTemplate,
+                              @Value("${planning.batch.size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Verrouille les lignes {@code sites} concernées (un site, ou tous ceux de la société)
+     * jusqu’à la fin de la transaction, dans l’ordre des ids : pas d’interblocage entre un
+     * recalcul de site et un recalcul de société.
+     */
+    public void lockSites(Long companyId, Long siteId) {
+        if (siteId != null) {
+            jdbcTemplate.queryForList("select id from sites where id = ? for update", Long.class, siteId);
+        } else {
+            jdbcTemplate.queryForList("select id from sites where company_id = ? order by id for update",
+                    Long.class, companyId);
+        }
+    }
+
+    /**
+     * Remplace les lignes de la société sur [from, to] (d’un seul site si {@code siteId}
+     * n’est pas null) par {@code rows}.
+     */
+    public void replace(Long companyId, Long siteId, LocalDate from, LocalDate to, List<SiteCoverageDay> rows) {
+        if (siteId != null) {
+            jdbcTemplate.update("delete from site_coverage_days where site_id = ? and coverage_date between ? and ?",
+                    siteId, Date.valueOf(from), Date.valueOf(to));
+        } else {
+            jdbcTemplate.update("delete from site_coverage_days where company_id = ? and coverage_date between ? and ?",
+                    companyId, Date.valueOf(from), Date.valueOf(to));
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, batchSize, (ps, row) -> {
+            ps.setLong(1, row.getCompanyId());
+            ps.setLong(2, row.getSiteId());
+            ps.setDate(3, Date.valueOf(row.getDate()));
+            ps.setString(4, row.getAgentType().name());
+            ps.setInt(5, row.getRequired());
+            ps.setInt(6, row.getAssigned());
+            ps.setInt(7, row.getConfirmed());
+            ps.setTimestamp(8, now);
+        });
+    }
+}
@@ -1,8 +1,11 @@
 package org.makarimal.projet_gestionautoplanningsecure.repository;
 
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.makarimal.projet_gestionautoplanningsecure.model.Site;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,8 +16,10 @@ import java.util.Optional;
 @Repository
 public interface SiteRepository extends JpaRepository<Site, Long> {
     List<Site> findByCompanyId(Long companyId);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Site> findByCompanyIdAndId(Long companyId, Long id);
     boolean existsByNameAndCompanyId(String name, Long companyId);
+    boolean existsByIdAndCompanyId(Long id, Long companyId);
 
     @Query("SELECT s FROM Site s WHERE s.company.id = :companyId AND " +
             "(:city IS NULL OR s.city = :city) AND " +
@@ -25,7 +30,11 @@ public interface SiteRepository extends JpaRepository<Site, Long> {
             @Param("active") Boolean active
     );
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Site> findByIdAndCompanyId(Long siteId, Long companyId);
 
     List<Site> findAllByCompanyId(Long companyId);
+
+    @Query("SELECT s.id FROM Site s WHERE s.company.id = :companyId")
+    List<Long> findIdsByCompanyId(@Param("companyId") Long companyId);
 }
\ No newline at end of file
@@ -11,4 +11,5 @@ public interface SiteScheduleOverrideRepository extends JpaRepository<SiteSchedu
 
     List<SiteScheduleOverride> findAllBySiteId(Long siteId);
     Optional<SiteScheduleOverride> findBySiteIdAndOverrideDate(Long siteId, LocalDate overrideDate);
+    List<SiteScheduleOverride> findBySiteIdAndOverrideDateBetween(Long siteId, LocalDate from, LocalDate to);
 }
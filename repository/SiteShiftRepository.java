@@ -1,12 +1,17 @@
 package org.makarimal.projet_gestionautoplanningsecure.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.makarimal.projet_gestionautoplanningsecure.model.SiteShift;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 @Repository
 public interface SiteShiftRepository extends JpaRepository<SiteShift, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<SiteShift> findBySiteId(Long siteId);
     void deleteBySiteId(Long siteId);
+    long deleteByIdAndSiteId(Long id, Long siteId);
 }
\ No newline at end of file
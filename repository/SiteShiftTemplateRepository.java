@@ -5,8 +5,10 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 @Repository
 public interface SiteShiftTemplateRepository extends JpaRepository<SiteShiftTemplate, Long> {
     List<SiteShiftTemplate> findBySiteId(Long siteId);
     List<SiteShiftTemplate> findBySiteIdAndIsActive(Long siteId, boolean isActive);
+    Optional<SiteShiftTemplate> findByIdAndSiteIdAndSiteCompanyId(Long id, Long siteId, Long companyId);
 }
\ No newline at end of file
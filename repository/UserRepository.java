@@ -1,7 +1,10 @@
 package org.makarimal.projet_gestionautoplanningsecure.repository;
 
+import org.makarimal.projet_gestionautoplanningsecure.model.Role;
 import org.makarimal.projet_gestionautoplanningsecure.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -15,4 +18,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
 
     List<User> findByCompanyId(Long id);
+
+    /** État d’autorisation [actif, id société, version de jeton], sans charger l’entité (rôles EAGER, société). */
+    @Query("select u.isActive, c.id, u.tokenVersion from User u left join u.company c where u.id = :id")
+    List<Object[]> findAuthStateById(@Param("id") Long id);
+
+    @Query("select r from User u join u.roles r where u.id = :id")
+    List<Role> findRolesById(@Param("id") Long id);
 }
@@ -1,7 +1,10 @@
 package org.makarimal.projet_gestionautoplanningsecure.repository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.makarimal.projet_gestionautoplanningsecure.model.Site;
 import org.makarimal.projet_gestionautoplanningsecure.model.WeeklyScheduleRule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.DayOfWeek;
 import java.util.List;
@@ -9,6 +12,7 @@ import java.util.Optional;
 
 public interface WeeklyScheduleRuleRepository extends JpaRepository<WeeklyScheduleRule, Long> {
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<WeeklyScheduleRule> findBySiteId(Long siteId);
 
     Optional<WeeklyScheduleRule> findBySiteIdAndDayOfWeek(Long siteId, DayOfWeek dayOfWeek);
@@ -17,5 +21,6 @@ public interface WeeklyScheduleRuleRepository extends JpaRepository<WeeklySchedu
 
     List<WeeklyScheduleRule> findBySiteAndDayOfWeek(Site site, DayOfWeek dayOfWeek);
 
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<WeeklyScheduleRule> findAllBySiteId(Long id);
 }
@@ -1,12 +1,14 @@
 // src/main/java/org/makarimal/projet_gestionautoplanningsecure/security/JwtAuthenticationFilter.java
 package org.makarimal.projet_gestionautoplanningsecure.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.model.User;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -25,6 +27,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserStatusCache userStatusCache;
 
     @Override
     protected void doFilterInternal(
@@ -43,18 +46,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         final String authHeader = request.getHeader("Authorization");
-        log.info("🔎 Authorization header = {}", authHeader);
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             log.info("⏭️  Pas de Bearer → on continue la chaîne sans authentifier");
-            log.debug("Authorization header absent ou mal formé : {}", authHeader);
             filterChain.doFilter(request, response);
             return;
         }
 
         final String jwt = authHeader.substring(7);   // « Bearer « + espace = 7 »
+        Claims claims;
         String userEmail;
         try {
-            userEmail = jwtService.extractUsername(jwt);
+            claims = jwtService.parseToken(jwt);        // un seul parsing, réutilisé pour la validation
+            userEmail = claims.getSubject();
             log.info("📧 Username extrait du token = {}", userEmail);
         } catch (Exception ex) {          // signature, expiration, format, …
             log.debug("JWT invalide : {}", ex.getMessage());
@@ -64,8 +67,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // Si aucun autre filtre n’a déjà authentifié l’utilisateur
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(userEmail);
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            // Cas courant : principal issu des claims, confronté à l’état servi par le cache
+            // (actif, rôles, société, version de jeton ; 0 requête dans le TTL).
+            // Anciens tokens sans claims : repli sur le chargement complet de l’utilisateur.
+            User principal = jwtService.principalFromClaims(claims);
+            if (principal != null && !userStatusCache.matches(principal)) {
+                log.debug("Token périmé (compte désactivé, droits, société ou révocation) : {}", userEmail);
+                filterChain.doFilter(request, response);
+                return;
+            }
+            UserDetails userDetails = principal != null
+                    ? principal
+                    : userDetailsService.loadUserByUsername(userEmail);
+            if (jwtService.isTokenValid(claims, userDetails)) {
                 UsernamePasswordAuthenticationToken auth =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
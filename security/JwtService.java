@@ -3,36 +3,119 @@ package org.makarimal.projet_gestionautoplanningsecure.security;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.model.Company;
+import org.makarimal.projet_gestionautoplanningsecure.model.Role;
+import org.makarimal.projet_gestionautoplanningsecure.model.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
 public class JwtService {
 
-    @Value("${spring.security.jwt.secret}")
-    private String secretKey;
+    /* Claims portés par le token : le filtre reconstruit le principal sans requête. */
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_COMPANY_ID = "cid";
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_FIRST_NAME = "fn";
+    public static final String CLAIM_LAST_NAME = "ln";
+    public static final String CLAIM_TOKEN_VERSION = "tv";
+
+    private final long jwtExpiration;
+
+    /* Clé et parser construits une seule fois : ils sont immuables et thread-safe. */
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    /* Tokens déjà vérifiés (clé = SHA-256 du token) → évite de refaire HMAC + parsing JSON. */
+    private final int cacheSize;
+    private final Map<String, VerifiedToken> verifiedTokens;
+
+    @Getter
+    @AllArgsConstructor
+    private static class VerifiedToken {
+        private final Claims claims;
+        private final long expiresAtMillis;
+    }
 
-    @Value("${spring.security.jwt.expiration}")
-    private long jwtExpiration;
+    public JwtService(@Value("${spring.security.jwt.secret}") String secretKey,
+                      @Value("${spring.security.jwt.expiration}") long jwtExpiration,
+                      @Value("${spring.security.jwt.cache-size:1024}") int cacheSize) {
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64URL.decode(secretKey));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.cacheSize = cacheSize;
+        this.verifiedTokens = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > JwtService.this.cacheSize;
+            }
+        });
+    }
 
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+        final Claims claims = parseToken(token);
         return claimsResolver.apply(claims);
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            if (user.getCompany() != null) {
+                claims.put(CLAIM_COMPANY_ID, user.getCompany().getId());
+            }
+            claims.put(CLAIM_ROLES, user.getRoles().stream().map(Role::name).toList());
+            claims.put(CLAIM_FIRST_NAME, user.getFirstName());
+            claims.put(CLAIM_LAST_NAME, user.getLastName());
+            claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion());
+        }
+        return generateToken(claims, userDetails);
+    }
+
+    /**
+     * Principal reconstruit depuis les claims (id, société, rôles, nom, version de jeton) ;
+     * {@code null} pour un token émis avant l’ajout de ces claims.
+     * La société n’est qu’une référence (id seul) : ne pas la sérialiser telle quelle.
+     * Rôles, société et version sont ceux de l’émission : {@link UserStatusCache#matches}
+     * les confronte à la base.
+     */
+    public User principalFromClaims(Claims claims) {
+        Number userId = claims.get(CLAIM_USER_ID, Number.class);
+        List<?> roles = claims.get(CLAIM_ROLES, List.class);
+        if (userId == null || roles == null) {
+            return null;
+        }
+
+        Number companyId = claims.get(CLAIM_COMPANY_ID, Number.class);
+        Number tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Number.class);
+        return User.builder()
+                .id(userId.longValue())
+                .email(claims.getSubject())
+                .username(claims.getSubject())
+                .firstName(claims.get(CLAIM_FIRST_NAME, String.class))
+                .lastName(claims.get(CLAIM_LAST_NAME, String.class))
+                .company(companyId != null ? Company.builder().id(companyId.longValue()).build() : null)
+                .roles(roles.stream().map(r -> Role.valueOf(r.toString())).collect(Collectors.toCollection(ArrayList::new)))
+                .isActive(true)
+                .tokenVersion(tokenVersion != null ? tokenVersion.longValue() : 0L)
+                .build();
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -42,24 +125,30 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(parseToken(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /** Validation à partir de claims déjà extraits (un seul parsing par requête). */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        return claims.getSubject().equals(userDetails.getUsername()) && !isTokenExpired(claims);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
-    private Claims extractAllClaims(String token) {
+    /**
+     * Vérifie la signature et renvoie les claims du token.
+     * Un token déjà vérifié et non expiré est servi depuis le cache.
+     *
+     * @throws JwtException si le token est absent, malformé, mal signé ou expiré
+     */
+    public Claims parseToken(String token) {
         if (token == null) {
             throw new MalformedJwtException("Le token est null.");
         }
@@ -71,28 +160,56 @@ public class JwtService {
             token = token.substring(7).trim();
         }
 
-        System.out.println("Token après nettoyage : " + token); // Log utile
-
         // Vérifie la structure de base du token
-        if (token.split("\\.").length != 3) {
+        if (countDots(token) != 2) {
             throw new MalformedJwtException("Token JWT malformé. Il doit contenir exactement deux points.");
         }
 
+        if (cacheSize <= 0) {
+            return verify(token);
+        }
+
+        String key = sha256(token);
+        VerifiedToken cached = verifiedTokens.get(key);
+        long now = System.currentTimeMillis();
+        if (cached != null) {
+            if (cached.getExpiresAtMillis() > now) {
+                return cached.getClaims();
+            }
+            verifiedTokens.remove(key);
+        }
+
+        Claims claims = verify(token);
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(key, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
+    }
+
+    private Claims verify(String token) {
         try {
-            return Jwts
-                    .parserBuilder()
-                    .setSigningKey(getSignInKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return parser.parseClaimsJws(token).getBody();
         } catch (JwtException e) {
-            System.err.println("Erreur lors de l'analyse du JWT : " + e.getMessage());
+            log.debug("Erreur lors de l'analyse du JWT : {}", e.getMessage());
             throw e;
         }
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64URL.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static int countDots(String token) {
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == '.') dots++;
+        }
+        return dots;
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
     }
 }
@@ -0,0 +1,116 @@
+package org.makarimal.projet_gestionautoplanningsecure.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.makarimal.projet_gestionautoplanningsecure.model.Role;
+import org.makarimal.projet_gestionautoplanningsecure.model.User;
+import org.makarimal.projet_gestionautoplanningsecure.repository.UserRepository;
+import org.makarimal.projet_gestionautoplanningsecure.config.ReplicaStickiness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache court (TTL) de l’état d’autorisation des utilisateurs authentifiés par JWT :
+ * actif, rôles, société et version de jeton.
+ * <p>
+ * Le filtre JWT construit le principal à partir des claims sans requête ; ce cache
+ * permet quand même de refuser, dans un délai borné par le TTL (ou immédiatement si le
+ * service qui modifie l’utilisateur appelle {@link #evict(Long)}), un token dont le compte
+ * a été désactivé, dont les rôles ou la société ont changé, ou qui a été révoqué
+ * (version de jeton incrémentée).
+ */
+@Component
+public class UserStatusCache {
+
+    private final UserRepository userRepository;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final long replicaLagMillis;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    /** Dernière éviction (epoch ms) : un état lu moins de {@link #replicaLagMillis} après n’est pas gardé. */
+    private volatile long evictedAt;
+
+    @Getter
+    @AllArgsConstructor
+    private static class Entry {
+        private final boolean active;
+        private final Long companyId;
+        private final Set<Role> roles;
+        private final long tokenVersion;
+        private final long expiresAtMillis;
+    }
+
+    public UserStatusCache(UserRepository userRepository,
+                           @Value("${spring.security.jwt.user-status-ttl-seconds:60}") long ttlSeconds,
+                           @Value("${spring.security.jwt.user-status-max-entries:10000}") int maxEntries,
+                           ObjectProvider<ReplicaStickiness> replicaStickiness) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+        this.replicaLagMillis = ReplicaStickiness.replicaLagMillis(replicaStickiness);
+    }
+
+    /**
+     * true si le principal issu des claims correspond encore à la base : compte existant et
+     * actif, mêmes rôles, même société, même version de jeton. Deux requêtes au plus par TTL
+     * et par utilisateur.
+     */
+    public boolean matches(User principal) {
+        Entry entry = load(principal.getId());
+        if (!entry.isActive()) {
+            return false;
+        }
+        Long companyId = principal.getCompany() != null ? principal.getCompany().getId() : null;
+        return Objects.equals(entry.getCompanyId(), companyId)
+                && entry.getRoles().equals(toSet(principal.getRoles()))
+                && entry.getTokenVersion() == principal.getTokenVersion();
+    }
+
+    /** À appeler quand un compte est (dés)activé, supprimé, change de rôles ou de société. */
+    public void evict(Long userId) {
+        evictedAt = System.currentTimeMillis();
+        entries.remove(userId);
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private Entry load(Long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.getExpiresAtMillis() > now) {
+            return entry;
+        }
+
+        List<Object[]> state = userRepository.findAuthStateById(userId);
+        if (state.isEmpty()) {
+            entry = new Entry(false, null, Set.of(), -1, now + ttlMillis);
+        } else {
+            Object[] row = state.get(0);
+            entry = new Entry(Boolean.TRUE.equals(row[0]), (Long) row[1],
+                    toSet(userRepository.findRolesById(userId)), ((Number) row[2]).longValue(), now + ttlMillis);
+        }
+        if (now - evictedAt < replicaLagMillis) {
+            return entry;       // réplica peut-être en retard sur l’écriture qui a évincé
+        }
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(e -> e.getExpiresAtMillis() <= now);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(userId, entry);
+        return entry;
+    }
+
+    private static Set<Role> toSet(List<Role> roles) {
+        return roles == null || roles.isEmpty() ? Set.of() : EnumSet.copyOf(roles);
+    }
+}
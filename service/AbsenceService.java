@@ -5,12 +5,15 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
 import org.makarimal.projet_gestionautoplanningsecure.repository.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -21,6 +24,7 @@ public class AbsenceService {
     private final EmployeeRepository employeeRepository;
     private final ScheduleAssignmentRepository assignmentRepository;
     private final ScheduleRepository scheduleRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Gère une absence non justifiée :
@@ -53,6 +57,9 @@ public class AbsenceService {
                     .distinct()
                     .forEach(this::recomputeCompletionRate);
         }
+
+        eventPublisher.publishEvent(new AssignmentsChangedEvent(
+                employee.getCompany().getId(), null, Set.of(employeeId), startTime, endTime));
     }
 
 
@@ -0,0 +1,302 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.AssignmentBatchRequest;
+import org.makarimal.projet_gestionautoplanningsecure.dto.AssignmentBatchResultDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleAssignmentRequest;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.model.Site;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
+import org.makarimal.projet_gestionautoplanningsecure.planning.EligibilityIndex;
+import org.makarimal.projet_gestionautoplanningsecure.planning.EligibilityIndexCache;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EmployeeRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Applique un lot d’ajouts / modifications / suppressions d’affectations d’un planning.
+ * <p>
+ * L’état du mois est chargé une fois ({@link EligibilityIndex} + affectations du planning),
+ * chaque opération est validée sur ce calendrier en mémoire (mêmes règles que
+ * {@link ScheduleService#addAssignment}), puis tout est écrit dans une seule transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AssignmentBatchService {
+
+    private final ScheduleService scheduleService;
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final EmployeeRepository employeeRepository;
+    private final SiteRepository siteRepository;
+    private final EligibilityIndexCache eligibilityIndexCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public AssignmentBatchResultDTO apply(Long companyId, Long scheduleId, AssignmentBatchRequest request) {
+        Schedule schedule = scheduleService.getSchedule(companyId, scheduleId);
+        YearMonth month = YearMonth.of(schedule.getYear(), schedule.getMonth());
+
+        Map<Long, ScheduleAssignment> existing = new HashMap<>();
+        for (ScheduleAssignment a : assignmentRepository.findByScheduleId(scheduleId)) {
+            existing.put(a.getId(), a);
+        }
+        Map<Long, Site> sites = loadSites(companyId, schedule, request);
+        Calendar calendar = new Calendar(eligibilityIndexCache.load(companyId, month), schedule, month, sites);
+
+        List<AssignmentBatchResultDTO.OperationResult> results = new ArrayList<>();
+        Map<Integer, ScheduleAssignment> toAdd = new LinkedHashMap<>();
+        Set<Long> updatedIds = new HashSet<>();
+        List<ScheduleAssignment> toDelete = new ArrayList<>();
+
+        List<AssignmentBatchRequest.Operation> operations = request.getOperations();
+        for (int i = 0; i < operations.size(); i++) {
+            AssignmentBatchRequest.Operation op = operations.get(i);
+            ScheduleAssignmentRequest req = op.getAssignment();
+            String error = switch (op.getOp()) {
+                case ADD -> {
+                    String e = calendar.validate(req, null);
+                    if (e == null) {
+                        toAdd.put(i, build(schedule, sites, req));
+                        calendar.add(req, null);
+                    }
+                    yield e;
+                }
+                case UPDATE -> {
+                    ScheduleAssignment current = existing.get(op.getAssignmentId());
+                    if (current == null) yield "Affectation non trouvée dans ce planning : " + op.getAssignmentId();
+                    if (isStale(op, current)) yield staleMessage(op, current);
+                    calendar.remove(current.getEmployee().getId(), current.getId());
+                    String e = calendar.validate(req, current.getId());
+                    if (e == null) {
+                        calendar.add(req, current.getId());
+                        applyUpdate(current, sites, req, schedule);
+                        updatedIds.add(current.getId());
+                    } else {
+                        calendar.restore(current);
+                    }
+                    yield e;
+                }
+                case DELETE -> {
+                    ScheduleAssignment current = existing.get(op.getAssignmentId());
+                    if (current == null) yield "Affectation non trouvée dans ce planning : " + op.getAssignmentId();
+                    if (isStale(op, current)) yield staleMessage(op, current);
+                    existing.remove(op.getAssignmentId());
+                    calendar.remove(current.getEmployee().getId(), current.getId());
+                    updatedIds.remove(current.getId());
+                    toDelete.add(current);
+                    yield null;
+                }
+            };
+            results.add(AssignmentBatchResultDTO.OperationResult.builder()
+                    .index(i)
+                    .op(op.getOp())
+                    .success(error == null)
+                    .assignmentId(error == null ? op.getAssignmentId() : null)
+                    .error(error)
+                    .build());
+        }
+
+        int failed = (int) results.stream().filter(r -> !r.isSuccess()).count();
+        if (request.isAtomic() && failed > 0) {
+            // Rien ne part en base : les entités déjà modifiées en mémoire sont abandonnées
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return AssignmentBatchResultDTO.builder()
+                    .applied(false)
+                    .succeeded(0)
+                    .failed(failed)
+                    .results(results)
+                    .build();
+        }
+
+        /* ---------- écritures groupées ---------- */
+        // Modifications : dirty checking, écrites au flush ; suppressions et ajouts groupés
+        assignmentRepository.deleteAll(toDelete);
+        assignmentRepository.saveAll(toAdd.values());
+        toAdd.forEach((i, a) -> results.get(i).setAssignmentId(a.getId()));
+
+        Set<Long> employeeIds = new HashSet<>(calendar.touchedEmployees);
+        if (!employeeIds.isEmpty()) {
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(companyId, schedule.getSite().getId(),
+                    employeeIds, month.atDay(1), month.atEndOfMonth()));
+        }
+
+        log.debug("Lot planning {} : {} ajouts, {} modifications, {} suppressions, {} rejets",
+                scheduleId, toAdd.size(), updatedIds.size(), toDelete.size(), failed);
+
+        return AssignmentBatchResultDTO.builder()
+                .applied(true)
+                .succeeded(results.size() - failed)
+                .failed(failed)
+                .results(results)
+                .build();
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    /** Sites référencés par le lot, en une requête, restreints à la société. */
+    private Map<Long, Site> loadSites(Long companyId, Schedule schedule, AssignmentBatchRequest request) {
+        Set<Long> ids = new HashSet<>();
+        for (AssignmentBatchRequest.Operation op : request.getOperations()) {
+            if (op.getAssignment() != null && op.getAssignment().getSiteId() != null) {
+                ids.add(op.getAssignment().getSiteId());
+            }
+        }
+        Map<Long, Site> sites = new HashMap<>();
+        sites.put(schedule.getSite().getId(), schedule.getSite());
+        ids.remove(schedule.getSite().getId());
+        if (!ids.isEmpty()) {
+            for (Site site : siteRepository.findAllById(ids)) {
+                if (site.getCompany().getId().equals(companyId)) sites.put(site.getId(), site);
+            }
+        }
+        return sites;
+    }
+
+    private ScheduleAssignment build(Schedule schedule, Map<Long, Site> sites, ScheduleAssignmentRequest req) {
+        EligibilityIndex.Slot slot = new EligibilityIndex.Slot(null, req.getDate(), req.getStartTime(), req.getEndTime(), null);
+        return ScheduleAssignment.builder()
+                .schedule(schedule)
+                .employee(employeeRepository.getReferenceById(req.getEmployeeId()))
+                .site(sites.get(siteIdOf(req, schedule)))
+                .date(req.getDate())
+                .startTime(req.getStartTime())
+                .endTime(req.getEndTime())
+                .duration(slot.getMinutes())
+                .agentType(req.getAgentType())
+                .notes(req.getNotes())
+                .shift(req.getShift())
+                .status(ScheduleAssignment.AssignmentStatus.PENDING)
+                .build();
+    }
+
+    private void applyUpdate(ScheduleAssignment a, Map<Long, Site> sites, ScheduleAssignmentRequest req, Schedule schedule) {
+        EligibilityIndex.Slot slot = new EligibilityIndex.Slot(null, req.getDate(), req.getStartTime(), req.getEndTime(), null);
+        if (!a.getEmployee().getId().equals(req.getEmployeeId())) {
+            a.setEmployee(employeeRepository.getReferenceById(req.getEmployeeId()));
+        }
+        a.setSite(sites.get(siteIdOf(req, schedule)));
+        a.setDate(req.getDate());
+        a.setStartTime(req.getStartTime());
+        a.setEndTime(req.getEndTime());
+        a.setDuration(slot.getMinutes());
+        a.setAgentType(req.getAgentType());
+        a.setNotes(req.getNotes());
+        a.setShift(req.getShift());
+    }
+
+    private static boolean isStale(AssignmentBatchRequest.Operation op, ScheduleAssignment current) {
+        return op.getVersion() != null && op.getVersion() != current.getVersion();
+    }
+
+    private static String staleMessage(AssignmentBatchRequest.Operation op, ScheduleAssignment current) {
+        return "Affectation modifiée entre-temps : version " + op.getVersion()
+                + " envoyée, version " + current.getVersion() + " en base";
+    }
+
+    private static Long siteIdOf(ScheduleAssignmentRequest req, Schedule schedule) {
+        return req.getSiteId() != null ? req.getSiteId() : schedule.getSite().getId();
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Calendrier en mémoire du mois                                     */
+    /* ------------------------------------------------------------------ */
+
+    private static final class Calendar {
+
+        private final EligibilityIndex index;
+        private final Schedule schedule;
+        private final YearMonth month;
+        private final Map<Long, Site> sites;
+        /** Copie de travail des affectations, par employé (copiée à la première modification). */
+        private final Map<Long, List<EligibilityIndex.Slot>> slots = new HashMap<>();
+        private final Set<Long> touchedEmployees = new HashSet<>();
+
+        Calendar(EligibilityIndex index, Schedule schedule, YearMonth month, Map<Long, Site> sites) {
+            this.index = index;
+            this.schedule = schedule;
+            this.month = month;
+            this.sites = sites;
+        }
+
+        /** @return message d’erreur, ou null si l’opération est valide */
+        String validate(ScheduleAssignmentRequest req, Long assignmentId) {
+            if (req == null) return "Les données de l’affectation sont obligatoires";
+            Long employeeId = req.getEmployeeId();
+            LocalDate date = req.getDate();
+
+            EligibilityIndex.Candidate c = index.candidate(employeeId);
+            if (c == null || !schedule.getSite().getId().equals(c.getHomeSiteId())) {
+                return "Employé non trouvé dans ce site.";
+            }
+            if (!YearMonth.from(date).equals(month)) {
+                return "La date " + date + " n’appartient pas au mois du planning";
+            }
+            if (!sites.containsKey(siteIdOf(req, schedule))) {
+                return "Le site ne fait pas partie de l'entreprise.";
+            }
+            if (index.isAbsent(employeeId, date)) {
+                return "L’employé est en absence le " + date;
+            }
+
+            DayOfWeek dow = date.getDayOfWeek();
+            if ((dow == DayOfWeek.SATURDAY || dow == DayOfWeek.SUNDAY) && !c.isCanWorkWeekends()) {
+                return "L’employé ne peut pas travailler le week-end.";
+            }
+            boolean night = req.getStartTime().isAfter(LocalTime.of(20, 59)) || req.getEndTime().isBefore(LocalTime.of(5, 1));
+            if (night && !c.isCanWorkNights()) {
+                return "L’employé ne peut pas travailler de nuit.";
+            }
+
+            EligibilityIndex.Slot slot = new EligibilityIndex.Slot(assignmentId, date, req.getStartTime(), req.getEndTime(), null);
+            for (EligibilityIndex.Slot other : slotsOf(employeeId)) {
+                if (other.getStart().isBefore(slot.getEnd()) && other.getEnd().isAfter(slot.getStart())) {
+                    return "Chevauchement avec une autre vacation.";
+                }
+                long gap = !other.getEnd().isAfter(slot.getStart())
+                        ? java.time.Duration.between(other.getEnd(), slot.getStart()).toMinutes()
+                        : java.time.Duration.between(slot.getEnd(), other.getStart()).toMinutes();
+                if (gap < ReplacementService.MIN_REST_MINUTES) {
+                    return "Au moins 12h de repos entre deux vacations.";
+                }
+            }
+            return null;
+        }
+
+        void add(ScheduleAssignmentRequest req, Long assignmentId) {
+            mutableSlots(req.getEmployeeId()).add(
+                    new EligibilityIndex.Slot(assignmentId, req.getDate(), req.getStartTime(), req.getEndTime(), null));
+        }
+
+        void remove(Long employeeId, Long assignmentId) {
+            mutableSlots(employeeId).removeIf(s -> assignmentId.equals(s.getAssignmentId()));
+        }
+
+        void restore(ScheduleAssignment a) {
+            mutableSlots(a.getEmployee().getId()).add(new EligibilityIndex.Slot(
+                    a.getId(), a.getDate(), a.getStartTime(), a.getEndTime(), a.getDuration()));
+        }
+
+        private List<EligibilityIndex.Slot> slotsOf(Long employeeId) {
+            List<EligibilityIndex.Slot> working = slots.get(employeeId);
+            return working != null ? working : index.slots(employeeId);
+        }
+
+        private List<EligibilityIndex.Slot> mutableSlots(Long employeeId) {
+            touchedEmployees.add(employeeId);
+            return slots.computeIfAbsent(employeeId, id -> new ArrayList<>(index.slots(id)));
+        }
+    }
+}
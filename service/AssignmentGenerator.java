@@ -3,17 +3,26 @@ package org.makarimal.projet_gestionautoplanningsecure.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.SqlStatementCounter;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
+import org.makarimal.projet_gestionautoplanningsecure.planning.DemandCompiler;
+import org.makarimal.projet_gestionautoplanningsecure.planning.GenerationRandom;
+import org.makarimal.projet_gestionautoplanningsecure.planning.ScheduleCheckpointEvent;
+import org.makarimal.projet_gestionautoplanningsecure.planning.SiteDemandTable;
 import org.makarimal.projet_gestionautoplanningsecure.repository.EmployeeRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleRepository;
-import org.makarimal.projet_gestionautoplanningsecure.repository.WeeklyScheduleRuleRepository;
+import org.makarimal.projet_gestionautoplanningsecure.util.TimeSlots;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.*;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.stream.Collectors;
 @Slf4j
 
@@ -23,54 +32,79 @@ public class AssignmentGenerator {
 
     private final ScheduleRepository scheduleRepo;
     private final EmployeeRepository employeeRepo;
-    private final WeeklyScheduleRuleRepository weeklyRuleRepo;
+    private final DemandCompiler demandCompiler;
     private final ScheduleAssignmentRepository assignRepo;
+    private final PlanningMetrics metrics;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public void generateForSchedule(Long scheduleId) {
+        generateForSchedule(scheduleId, null);
+    }
+
+    /**
+     * @param seed graine de l’aléa (rejouer une génération) ; null = nouvelle graine.
+     *             Dans les deux cas, elle est enregistrée sur le planning.
+     */
+    @Transactional
+    public void generateForSchedule(Long scheduleId, Long seed) {
+
+        long startNanos = System.nanoTime();
+        long sqlBefore = SqlStatementCounter.current();
 
         Schedule schedule = scheduleRepo.findById(scheduleId)
                 .orElseThrow(() -> new RuntimeException("Schedule not found"));
 
         Site site = schedule.getSite();
+        Long companyId = schedule.getCompany().getId();
         YearMonth ym = YearMonth.of(schedule.getYear(), schedule.getMonth());
         int daysInMonth = ym.lengthOfMonth();
 
-        List<WeeklyScheduleRule> rules = weeklyRuleRepo.findAllBySiteId(site.getId());
+        SiteDemandTable demand = demandCompiler.compile(site.getId(), ym);
 
-        if (rules.isEmpty()) throw new IllegalStateException("No weekly rules");
+        if (!demand.isHasRules()) {
+            metrics.recordGenerationFailure("assignment", companyId, site.getId(), System.nanoTime() - startNanos);
+            throw new IllegalStateException("No weekly rules");
+        }
+
+        long generationSeed = seed != null ? seed : GenerationRandom.newSeed();
+        schedule.setGenerationSeed(generationSeed);
 
         List<ScheduleAssignment> toSave = new ArrayList<>();
+        int[] unfilled = {0};
 
         for (int d = 1; d <= daysInMonth; d++) {
             LocalDate date = ym.atDay(d);
-            DayOfWeek dow  = date.getDayOfWeek();
+            // un flux par (site, jour) : indépendant de l’ordre de traitement des jours
+            SplittableRandom random = GenerationRandom.forDay(generationSeed, site.getId(), date);
 
-            // toutes les règles de ce jour (on peut en avoir plusieurs)
-            rules.stream()
-                    .filter(r -> r.getDayOfWeek() == dow)
-                    .forEach(rule -> rule.getAgents().forEach(agentRule -> {
+            // tous les créneaux de ce jour (plusieurs règles possibles, overrides appliqués)
+            demand.day(date).agentSlots()
+                    .forEach(agentRule -> {
 
                         // 1. filtre par type d’agent
                         List<Employee> pool = employeeRepo
                                 .findBySiteAndIsActiveTrueAndAgentTypesContaining(site, agentRule.getAgentType());
 
-                        // 2. retrait des employés déjà planifiés sur ce créneau
+                        // 2. retrait des employés déjà planifiés sur ce créneau ; ordre stable
+                        //    avant le tirage (l’ordre rendu par la base n’est pas garanti)
                         pool = pool.stream()
                                 .filter(emp -> isAvailable(emp, date,
                                         agentRule.getStartTime(),
                                         agentRule.getEndTime()))
+                                .sorted(Comparator.comparing(Employee::getId))
                                 .collect(Collectors.toList());
 
-                        if (pool.size() < agentRule.getRequiredCount()) {
+                        if (pool.size() < agentRule.getCount()) {
                             // Pas assez d’effectif, on log mais on continue
                             log.warn("Pas assez d’{} pour {} {}", agentRule.getAgentType(), date, site.getName());
+                            unfilled[0] += agentRule.getCount();
                             return;
                         }
 
                         // 3. sélect° (round‑robin simple)
-                        Collections.shuffle(pool);
-                        pool.subList(0, agentRule.getRequiredCount()).forEach(emp -> {
+                        GenerationRandom.shuffle(pool, random);
+                        pool.subList(0, agentRule.getCount()).forEach(emp -> {
                             ScheduleAssignment sa = ScheduleAssignment.builder()
                                     .schedule(schedule)
                                     .employee(emp)
@@ -85,16 +119,22 @@ public class AssignmentGenerator {
                                     .build();
                             toSave.add(sa);
                         });
-                    }));
+                    });
         }
 
         assignRepo.saveAll(toSave);
+        eventPublisher.publishEvent(new ScheduleCheckpointEvent(scheduleId, ScheduleVersion.Reason.GENERATED));
+        if (!toSave.isEmpty()) {
+            eventPublisher.publishEvent(AssignmentsChangedEvent.of(companyId, toSave));
+        }
+
+        log.debug("Planning {} généré avec la graine {}", scheduleId, generationSeed);
+        metrics.recordGeneration("assignment", companyId, site.getId(), System.nanoTime() - startNanos,
+                toSave.size(), unfilled[0], SqlStatementCounter.current() - sqlBefore);
     }
 
     /** true si l'employee n’a aucune assignation chevauchant ce créneau */
     private boolean isAvailable(Employee emp, LocalDate date, LocalTime start, LocalTime end) {
-        return assignRepo.findByEmployeeId(emp.getId()).stream()
-                .noneMatch(a -> a.getDate().equals(date)
-                        && !(a.getEndTime().isBefore(start) || a.getStartTime().isAfter(end)));
+        return !TimeSlots.hasConflict(assignRepo.findByEmployeeId(emp.getId()), date, start, end);
     }
 }
@@ -0,0 +1,374 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.CalendarEventDTO;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EmployeeRepository;
+import org.makarimal.projet_gestionautoplanningsecure.config.ReplicaStickiness;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flux iCalendar (RFC 5545) des vacations d’un employé, pour abonnement depuis un agenda.
+ * <p>
+ * Le flux couvre {@code planning.calendar.months-back} mois passés et
+ * {@code planning.calendar.months-ahead} mois à venir. Il est gardé en cache par employé
+ * et périmé par {@link AssignmentsChangedEvent} (après commit). Chaque affectation garde
+ * le même UID d’un flux à l’autre : l’agenda met à jour l’événement au lieu de le dupliquer.
+ * <p>
+ * Synchronisation incrémentale : le jeton de synchronisation (aussi ETag) identifie le
+ * contenu publié. Les derniers contenus sont conservés par employé ; un client qui présente
+ * un jeton connu ne reçoit que les événements modifiés ou ajoutés, plus un
+ * {@code STATUS:CANCELLED} par vacation retirée. Jeton inconnu : flux complet.
+ */
+@Slf4j
+@Service
+public class CalendarFeedService {
+
+    private static final String CRLF = "\r\n";
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final DateTimeFormatter UTC_STAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final PlanningQueryService planning;
+    private final EmployeeRepository employeeRepository;
+    private final ZoneId zone;
+    private final String uidDomain;
+    private final int monthsBack;
+    private final int monthsAhead;
+    private final long ttlMillis;
+    private final int syncHistorySize;
+    private final long replicaLagMillis;
+    private final SecretKeySpec accessKey;
+
+    private final Map<Long, Feed> feeds = new ConcurrentHashMap<>();
+    private final Map<Long, SyncHistory> histories = new ConcurrentHashMap<>();
+    /** Incrémenté à chaque invalidation : un flux construit pendant une écriture n’est pas mis en cache. */
+    private final AtomicLong generation = new AtomicLong();
+    /** Dernière invalidation (epoch ms) : un flux lu moins de {@link #replicaLagMillis} après n’est pas gardé. */
+    private volatile long invalidatedAt;
+
+    public CalendarFeedService(PlanningQueryService planning,
+                               EmployeeRepository employeeRepository,
+                               @Value("${planning.calendar.zone:Europe/Paris}") String zone,
+                               @Value("${planning.calendar.uid-domain:planning}") String uidDomain,
+                               @Value("${planning.calendar.months-back:1}") int monthsBack,
+                               @Value("${planning.calendar.months-ahead:3}") int monthsAhead,
+                               @Value("${planning.calendar.ttl-minutes:60}") long ttlMinutes,
+                               @Value("${planning.calendar.sync-history:5}") int syncHistorySize,
+                               @Value("${planning.calendar.secret}") String secret,
+                               ObjectProvider<ReplicaStickiness> replicaStickiness) {
+        this.planning = planning;
+        this.employeeRepository = employeeRepository;
+        this.zone = ZoneId.of(zone);
+        this.uidDomain = uidDomain;
+        this.monthsBack = monthsBack;
+        this.monthsAhead = monthsAhead;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.syncHistorySize = Math.max(1, syncHistorySize);
+        this.replicaLagMillis = ReplicaStickiness.replicaLagMillis(replicaStickiness);
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < 32) {
+            throw new IllegalStateException("planning.calendar.secret : au moins 32 octets requis");
+        }
+        this.accessKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    /** Flux publié d’un employé. */
+    @Getter
+    public static final class Feed {
+        private final Long companyId;
+        private final LocalDate from;
+        private final LocalDate to;
+        /** Jeton de synchronisation, aussi utilisé comme ETag. */
+        private final String syncToken;
+        /** Dernière modification connue (epoch ms, à la seconde). */
+        private final long lastModified;
+        private final String body;
+        private final long builtAt;
+        private final Map<Long, CalendarEventDTO> events;
+
+        Feed(Long companyId, LocalDate from, LocalDate to, String syncToken, long lastModified,
+             String body, Map<Long, CalendarEventDTO> events) {
+            this.companyId = companyId;
+            this.from = from;
+            this.to = to;
+            this.syncToken = syncToken;
+            this.lastModified = lastModified;
+            this.body = body;
+            this.builtAt = System.currentTimeMillis();
+            this.events = events;
+        }
+    }
+
+    /** Derniers contenus publiés d’un employé : jeton → événements (LRU). */
+    private final class SyncHistory {
+        private final LinkedHashMap<String, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > syncHistorySize;
+            }
+        };
+
+        synchronized Snapshot record(String token, Map<Long, CalendarEventDTO> events) {
+            return snapshots.computeIfAbsent(token, t -> new Snapshot(events, System.currentTimeMillis()));
+        }
+
+        synchronized Snapshot get(String token) {
+            return snapshots.get(token);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Snapshot {
+        private final Map<Long, CalendarEventDTO> events;
+        private final long firstSeen;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Lecture                                                           */
+    /* ------------------------------------------------------------------ */
+
+    public Feed feed(Long employeeId) {
+        Feed cached = feeds.get(employeeId);
+        if (cached != null && System.currentTimeMillis() - cached.builtAt < ttlMillis) {
+            return cached;
+        }
+        long gen = generation.get();
+        long startedAt = System.currentTimeMillis();
+        Feed built = build(employeeId);
+        if (generation.get() == gen && startedAt - invalidatedAt >= replicaLagMillis) {
+            feeds.put(employeeId, built);
+        }
+        return built;
+    }
+
+    /**
+     * Changements depuis {@code syncToken} : événements modifiés ou ajoutés, annulation des
+     * vacations retirées. null si le jeton est inconnu (trop ancien, redémarrage, autre instance).
+     */
+    public String changesSince(Long employeeId, Feed feed, String syncToken) {
+        SyncHistory history = histories.get(employeeId);
+        Snapshot previous = history == null ? null : history.get(syncToken);
+        if (previous == null) return null;
+
+        List<CalendarEventDTO> changed = new ArrayList<>();
+        for (CalendarEventDTO event : feed.events.values()) {
+            if (!event.equals(previous.getEvents().get(event.getAssignmentId()))) {
+                changed.add(event);
+            }
+        }
+        List<CalendarEventDTO> removed = new ArrayList<>();
+        for (CalendarEventDTO event : previous.getEvents().values()) {
+            // Sorti de la fenêtre glissante ≠ supprimé : on ne l’annule pas dans l’agenda
+            if (!feed.events.containsKey(event.getAssignmentId()) && !event.getDate().isBefore(feed.from)) {
+                removed.add(event);
+            }
+        }
+        return render(changed, removed);
+    }
+
+    private Feed build(Long employeeId) {
+        Long companyId = employeeRepository.findCompanyIdById(employeeId)
+                .orElseThrow(() -> new EntityNotFoundException("Employee not found"));
+        LocalDate today = LocalDate.now(zone);
+        LocalDate from = today.minusMonths(monthsBack).withDayOfMonth(1);
+        LocalDate to = today.plusMonths(monthsAhead).with(TemporalAdjusters.lastDayOfMonth());
+
+        Map<Long, CalendarEventDTO> events = new LinkedHashMap<>();
+        long fingerprint = 17;
+        LocalDateTime lastUpdate = null;
+        for (CalendarEventDTO event : planning.getEmployeeCalendarEvents(employeeId, from, to)) {
+            events.put(event.getAssignmentId(), event);
+            fingerprint = 31 * fingerprint + event.getAssignmentId();
+            fingerprint = 31 * fingerprint + event.hashCode();
+            if (event.getUpdatedAt() != null && (lastUpdate == null || event.getUpdatedAt().isAfter(lastUpdate))) {
+                lastUpdate = event.getUpdatedAt();
+            }
+        }
+        String token = Long.toHexString(fingerprint) + "-" + Integer.toHexString(events.size());
+
+        // Un retrait ne laisse pas de updatedAt : la première publication du contenu fait foi
+        Snapshot snapshot = histories.computeIfAbsent(employeeId, id -> new SyncHistory()).record(token, events);
+        long lastModified = snapshot.getFirstSeen();
+        if (lastUpdate != null) {
+            lastModified = Math.max(lastModified, lastUpdate.atZone(zone).toInstant().toEpochMilli());
+        }
+        lastModified = lastModified / 1000 * 1000;
+
+        log.debug("Flux iCalendar employé {} : {} vacations ({} → {})", employeeId, events.size(), from, to);
+        return new Feed(companyId, from, to, token, lastModified, render(events.values(), List.of()), events);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        generation.incrementAndGet();
+        invalidatedAt = System.currentTimeMillis();
+        if (event.getEmployeeIds().isEmpty()) {
+            feeds.values().removeIf(f -> Objects.equals(f.companyId, event.getCompanyId())
+                    && event.overlaps(f.from, f.to));
+        } else {
+            event.getEmployeeIds().forEach(feeds::remove);
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Jeton d’accès (URL d’abonnement)                                  */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * Jeton permettant à un agenda de lire le flux sans JWT. Dérivé de l’employé, de sa
+     * version de jeton et de {@code planning.calendar.secret} (propre aux agendas, distinct
+     * du secret JWT) : {@link #rotateAccessToken} révoque l’URL d’un employé, changer le
+     * secret révoque toutes les URL.
+     */
+    public String accessToken(Long employeeId) {
+        long version = employeeRepository.findCalendarTokenVersionById(employeeId)
+                .orElseThrow(() -> new EntityNotFoundException("Employee not found"));
+        return accessToken(employeeId, version);
+    }
+
+    /** Nouvelle URL pour l’employé (URL divulguée, départ…) ; l’ancienne cesse de fonctionner. */
+    public String rotateAccessToken(Long employeeId) {
+        if (employeeRepository.incrementCalendarTokenVersion(employeeId) == 0) {
+            throw new EntityNotFoundException("Employee not found");
+        }
+        log.info("Jeton d’agenda de l’employé {} renouvelé", employeeId);
+        return accessToken(employeeId);
+    }
+
+    private String accessToken(Long employeeId, long version) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(accessKey);
+            byte[] digest = mac.doFinal(("calendar:" + employeeId + ":" + version).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 indisponible", e);
+        }
+    }
+
+    public boolean isValidAccessToken(Long employeeId, String token) {
+        if (token == null) return false;
+        Optional<Long> version = employeeRepository.findCalendarTokenVersionById(employeeId);
+        return version.isPresent() && MessageDigest.isEqual(
+                accessToken(employeeId, version.get()).getBytes(StandardCharsets.US_ASCII),
+                token.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Rendu RFC 5545                                                    */
+    /* ------------------------------------------------------------------ */
+
+    private String render(Collection<CalendarEventDTO> events, Collection<CalendarEventDTO> cancelled) {
+        StringBuilder out = new StringBuilder(256 + 400 * (events.size() + cancelled.size()));
+        line(out, "BEGIN:VCALENDAR");
+        line(out, "VERSION:2.0");
+        line(out, "PRODID:-//makarimal//Planning//FR");
+        line(out, "CALSCALE:GREGORIAN");
+        line(out, "METHOD:PUBLISH");
+        line(out, "X-WR-CALNAME:Planning");
+        String refresh = "PT" + Math.max(1, TimeUnit.MILLISECONDS.toMinutes(ttlMillis)) + "M";
+        line(out, "REFRESH-INTERVAL;VALUE=DURATION:" + refresh);
+        line(out, "X-PUBLISHED-TTL:" + refresh);
+        for (CalendarEventDTO event : events) {
+            event(out, event, false);
+        }
+        for (CalendarEventDTO event : cancelled) {
+            event(out, event, true);
+        }
+        line(out, "END:VCALENDAR");
+        return out.toString();
+    }
+
+    private void event(StringBuilder out, CalendarEventDTO e, boolean cancelled) {
+        Instant start = LocalDateTime.of(e.getDate(), e.getStartTime()).atZone(zone).toInstant();
+        // Fin ≤ début : vacation de nuit, se termine le lendemain
+        LocalDate endDate = e.getEndTime().isAfter(e.getStartTime()) ? e.getDate() : e.getDate().plusDays(1);
+        Instant end = LocalDateTime.of(endDate, e.getEndTime()).atZone(zone).toInstant();
+        Instant stamp = cancelled || e.getUpdatedAt() == null
+                ? Instant.now().truncatedTo(ChronoUnit.SECONDS)
+                : e.getUpdatedAt().atZone(zone).toInstant();
+
+        line(out, "BEGIN:VEVENT");
+        line(out, "UID:assignment-" + e.getAssignmentId() + "@" + uidDomain);
+        line(out, "DTSTAMP:" + UTC_STAMP.format(stamp));
+        line(out, "LAST-MODIFIED:" + UTC_STAMP.format(stamp));
+        line(out, "DTSTART:" + UTC_STAMP.format(start));
+        line(out, "DTEND:" + UTC_STAMP.format(end));
+        String shift = e.getShift() != null ? e.getShift() : "Vacation";
+        line(out, "SUMMARY:" + escape(e.getSiteName() != null ? shift + " – " + e.getSiteName() : shift));
+        String location = String.join(", ", nonBlank(e.getSiteName(), e.getAddress(), e.getCity()));
+        if (!location.isEmpty()) {
+            line(out, "LOCATION:" + escape(location));
+        }
+        if (e.getAgentType() != null) {
+            line(out, "DESCRIPTION:" + escape("Poste : " + e.getAgentType()));
+        }
+        line(out, "STATUS:" + (cancelled ? "CANCELLED" : "PENDING".equals(e.getStatus()) ? "TENTATIVE" : "CONFIRMED"));
+        line(out, "TRANSP:OPAQUE");
+        line(out, "END:VEVENT");
+    }
+
+    private static List<String> nonBlank(String... values) {
+        List<String> kept = new ArrayList<>();
+        for (String v : values) {
+            if (v != null && !v.isBlank()) kept.add(v.trim());
+        }
+        return kept;
+    }
+
+    /** Échappement des valeurs TEXT (RFC 5545 §3.3.11). */
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case ';' -> sb.append("\\;");
+                case ',' -> sb.append("\\,");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> { }
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Ligne terminée par CRLF, repliée à 75 octets UTF-8 sans couper un caractère (§3.1). */
+    private static void line(StringBuilder out, String content) {
+        int octets = 0;
+        for (int i = 0; i < content.length(); ) {
+            int cp = content.codePointAt(i);
+            int size = cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+            if (octets + size > MAX_LINE_OCTETS) {
+                out.append(CRLF).append(' ');
+                octets = 1;
+            }
+            out.appendCodePoint(cp);
+            octets += size;
+            i += Character.charCount(cp);
+        }
+        out.append(CRLF);
+    }
+}
@@ -9,6 +9,7 @@ import org.makarimal.projet_gestionautoplanningsecure.model.User;
 import org.makarimal.projet_gestionautoplanningsecure.repository.CompanyRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.SubscriptionPlanRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.UserRepository;
+import org.makarimal.projet_gestionautoplanningsecure.security.UserStatusCache;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -27,6 +28,7 @@ public class CompanyService {
     private final SubscriptionPlanRepository subscriptionPlanRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserStatusCache userStatusCache;
 
     @PreAuthorize("hasRole('SUPER_ADMIN')")
     @Transactional
@@ -105,10 +107,14 @@ public class CompanyService {
     public void deleteCompany(Long id) {
         Company company = getCompany(id);
 
-        // Désactiver tous les utilisateurs de l'entreprise
+        // Désactiver tous les utilisateurs de l'entreprise et révoquer leurs tokens
         List<User> companyUsers = userRepository.findByCompanyId(id);
-        companyUsers.forEach(user -> user.setActive(false));
+        companyUsers.forEach(user -> {
+            user.setActive(false);
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        });
         userRepository.saveAll(companyUsers);
+        companyUsers.forEach(user -> userStatusCache.evict(user.getId()));
 
         company.setSubscriptionStatus(Company.SubscriptionStatus.INACTIVE);
         companyRepository.save(company);
@@ -0,0 +1,255 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import org.makarimal.projet_gestionautoplanningsecure.dto.ComplianceReportDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ComplianceReportDTO.Rule;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EmployeePreferenceRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contrôle de conformité d’un planning en un seul passage.
+ * <p>
+ * Les limites portent sur l’employé, pas sur le site : pour chaque employé du planning, on
+ * lit ses affectations sur tous les sites de la société, semaines ISO complètes autour du
+ * mois (plus la veille, pour le repos quotidien). Seules les violations du mois sont
+ * rapportées : affectations datées dans le mois, semaines qui le recoupent.
+ * <p>
+ * Les affectations arrivent triées par (employé, début) ; pour chaque employé, la semaine
+ * courante est suivie par quelques accumulateurs primitifs (minutes, minutes de nuit, plus
+ * longue coupure, jours travaillés en masque de bits) et contrôlée à sa clôture : O(n).
+ */
+@Component
+public class ComplianceValidator {
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+    private static final long MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    /** Plage de nuit légale : 21 h → 6 h. */
+    private static final long NIGHT_START = 21 * 60;
+    private static final long NIGHT_END = 6 * 60;
+
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final EmployeePreferenceRepository preferenceRepository;
+    private final int maxWeeklyMinutes;
+    private final int minDailyRestMinutes;
+    private final int minWeeklyRestMinutes;
+    private final int maxNightShiftMinutes;
+    private final int maxWeeklyNightMinutes;
+
+    public ComplianceValidator(ScheduleAssignmentRepository assignmentRepository,
+                               EmployeePreferenceRepository preferenceRepository,
+                               @Value("${planning.compliance.max-hours-per-week:48}") int maxHoursPerWeek,
+                               @Value("${planning.compliance.min-daily-rest-hours:11}") int minDailyRestHours,
+                               @Value("${planning.compliance.min-weekly-rest-hours:35}") int minWeeklyRestHours,
+                               @Value("${planning.compliance.max-night-shift-hours:8}") int maxNightShiftHours,
+                               @Value("${planning.compliance.max-night-hours-per-week:40}") int maxNightHoursPerWeek) {
+        this.assignmentRepository = assignmentRepository;
+        this.preferenceRepository = preferenceRepository;
+        this.maxWeeklyMinutes = maxHoursPerWeek * 60;
+        this.minDailyRestMinutes = minDailyRestHours * 60;
+        this.minWeeklyRestMinutes = minWeeklyRestHours * 60;
+        this.maxNightShiftMinutes = maxNightShiftHours * 60;
+        this.maxWeeklyNightMinutes = maxNightHoursPerWeek * 60;
+    }
+
+    @Transactional(readOnly = true)
+    public ComplianceReportDTO validate(Schedule schedule) {
+        long startNanos = System.nanoTime();
+
+        YearMonth month = YearMonth.of(schedule.getYear(), schedule.getMonth());
+        LocalDate from = month.atDay(1).with(DayOfWeek.MONDAY).minusDays(1);
+        LocalDate to = month.atEndOfMonth().with(DayOfWeek.SUNDAY);
+        List<Object[]> rows = assignmentRepository.findComplianceRows(
+                schedule.getCompany().getId(), schedule.getId(), from, to, ScheduleAssignment.AssignmentStatus.DECLINED);
+        Map<Long, Integer> minDaysOff = new HashMap<>();
+        for (Object[] row : preferenceRepository.findRowsByCompanyId(schedule.getCompany().getId())) {
+            if (row[4] != null) minDaysOff.put((Long) row[0], (Integer) row[4]);
+        }
+
+        Pass pass = new Pass(month, minDaysOff);
+        for (Object[] row : rows) {
+            pass.accept(row);
+        }
+        pass.closeWeek();
+
+        return ComplianceReportDTO.builder()
+                .scheduleId(schedule.getId())
+                .assignmentsChecked(rows.size())
+                .employeesChecked(pass.employees)
+                .compliant(pass.violations.isEmpty())
+                .violations(pass.violations)
+                .elapsedMicros((System.nanoTime() - startNanos) / 1_000)
+                .build();
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Un passage : état de l’employé et de la semaine courants          */
+    /* ------------------------------------------------------------------ */
+
+    private final class Pass {
+
+        final LocalDate firstDay;
+        final LocalDate lastDay;
+        final Map<Long, Integer> minDaysOff;
+        final List<ComplianceReportDTO.Violation> violations = new ArrayList<>();
+        int employees;
+
+        Long employeeId;
+        String employeeName;
+        long prevEnd;               // fin de la vacation précédente (minutes epoch), toutes semaines
+
+        long weekStart = -1;        // lundi 00:00 de la semaine courante
+        long weekMinutes;
+        long weekNightMinutes;
+        long lastEndInWeek;
+        long longestGap;
+        int workedDays;             // bit i = jour i (lundi = 0) travaillé
+
+        Pass(YearMonth month, Map<Long, Integer> minDaysOff) {
+            this.firstDay = month.atDay(1);
+            this.lastDay = month.atEndOfMonth();
+            this.minDaysOff = minDaysOff;
+        }
+
+        void accept(Object[] row) {
+            Long id = (Long) row[1];
+            if (!id.equals(employeeId)) {
+                closeWeek();
+                employees++;
+                employeeId = id;
+                employeeName = row[2] + " " + row[3];
+                prevEnd = Long.MIN_VALUE;
+            }
+
+            Long assignmentId = (Long) row[0];
+            LocalDate date = (LocalDate) row[4];
+            long day = date.toEpochDay() * MINUTES_PER_DAY;
+            long start = day + minuteOfDay((LocalTime) row[5]);
+            long end = day + minuteOfDay((LocalTime) row[6]);
+            if (end <= start) end += MINUTES_PER_DAY;       // vacation de nuit
+            long duration = row[7] != null ? (Integer) row[7] : end - start;
+
+            long monday = date.with(DayOfWeek.MONDAY).toEpochDay() * MINUTES_PER_DAY;
+            if (monday != weekStart) {
+                closeWeek();
+                weekStart = monday;
+                lastEndInWeek = Math.max(monday, prevEnd);
+            }
+
+            // Hors du mois : compté dans la semaine, pas rapporté
+            boolean inMonth = !date.isBefore(firstDay) && !date.isAfter(lastDay);
+
+            // Repos quotidien (chevauchement = repos négatif)
+            if (inMonth && prevEnd != Long.MIN_VALUE && start - prevEnd < minDailyRestMinutes) {
+                violation(Rule.DAILY_REST, date, assignmentId, start - prevEnd, minDailyRestMinutes);
+            }
+
+            // Nuit
+            long night = nightMinutes(start, end);
+            if (inMonth && night > 0 && duration > maxNightShiftMinutes) {
+                violation(Rule.NIGHT_SHIFT_LENGTH, date, assignmentId, duration, maxNightShiftMinutes);
+            }
+
+            longestGap = Math.max(longestGap, start - lastEndInWeek);
+            lastEndInWeek = Math.max(lastEndInWeek, end);
+            prevEnd = Math.max(prevEnd, end);
+            weekMinutes += duration;
+            weekNightMinutes += night;
+            workedDays |= 1 << (date.getDayOfWeek().getValue() - 1);
+        }
+
+        void closeWeek() {
+            if (weekStart < 0) return;
+            LocalDate monday = LocalDate.ofEpochDay(weekStart / MINUTES_PER_DAY);
+            if (monday.isAfter(lastDay) || monday.plusDays(6).isBefore(firstDay)) {
+                resetWeek();    // veille de la fenêtre : sert seulement au repos quotidien
+                return;
+            }
+            long gap = Math.max(longestGap, weekStart + MINUTES_PER_WEEK - lastEndInWeek);
+
+            if (weekMinutes > maxWeeklyMinutes) {
+                violation(Rule.WEEKLY_HOURS, monday, null, weekMinutes, maxWeeklyMinutes);
+            }
+            if (gap < minWeeklyRestMinutes) {
+                violation(Rule.WEEKLY_REST, monday, null, gap, minWeeklyRestMinutes);
+            }
+            if (weekNightMinutes > maxWeeklyNightMinutes) {
+                violation(Rule.NIGHT_WEEKLY_HOURS, monday, null, weekNightMinutes, maxWeeklyNightMinutes);
+            }
+            int required = minDaysOff.getOrDefault(employeeId, 0);
+            int daysOff = longestRunOff(workedDays);
+            if (required > 0 && daysOff < required) {
+                violations.add(ComplianceReportDTO.Violation.builder()
+                        .rule(Rule.DAYS_OFF)
+                        .employeeId(employeeId)
+                        .employeeName(employeeName)
+                        .date(monday)
+                        .value(daysOff)
+                        .limit(required)
+                        .build());
+            }
+            resetWeek();
+        }
+
+        private void resetWeek() {
+            weekStart = -1;
+            weekMinutes = 0;
+            weekNightMinutes = 0;
+            longestGap = 0;
+            workedDays = 0;
+        }
+
+        /** Valeurs en minutes, rapportées en heures. */
+        private void violation(Rule rule, LocalDate date, Long assignmentId, long value, long limit) {
+            violations.add(ComplianceReportDTO.Violation.builder()
+                    .rule(rule)
+                    .employeeId(employeeId)
+                    .employeeName(employeeName)
+                    .date(date)
+                    .assignmentId(assignmentId)
+                    .value(Math.round(value / 6.0) / 10.0)
+                    .limit(limit / 60.0)
+                    .build());
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private static long minuteOfDay(LocalTime t) {
+        return t.getHour() * 60L + t.getMinute();
+    }
+
+    /** Minutes de [start, end[ comprises dans une plage 21 h → 6 h. */
+    static long nightMinutes(long start, long end) {
+        long total = 0;
+        for (long day = Math.floorDiv(start, MINUTES_PER_DAY) - 1; day * MINUTES_PER_DAY < end; day++) {
+            long from = day * MINUTES_PER_DAY + NIGHT_START;
+            long to = (day + 1) * MINUTES_PER_DAY + NIGHT_END;
+            total += Math.max(0, Math.min(end, to) - Math.max(start, from));
+        }
+        return total;
+    }
+
+    /** Plus longue suite de jours non travaillés dans la semaine (masque 7 bits). */
+    static int longestRunOff(int workedDays) {
+        int best = 0;
+        int run = 0;
+        for (int i = 0; i < 7; i++) {
+            run = (workedDays & (1 << i)) == 0 ? run + 1 : 0;
+            best = Math.max(best, run);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,107 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.makarimal.projet_gestionautoplanningsecure.exception.EditConflictException;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EditStateStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.*;
+
+/**
+ * Fusion à trois voies des modifications écrites avec un If-Match périmé.
+ * <p>
+ * Les champs éditables de chaque version écrite ou lue par l’édition sont gardés en base
+ * ({@link EditStateStore}, {@code planning.edits.history-versions} dernières versions par
+ * entité) : la fusion fonctionne quelle que soit l’instance qui reçoit l’écriture. Le client
+ * qui écrit depuis la version V voit ses champs modifiés (différents de V) appliqués sur
+ * l’état courant ; si le même champ a aussi changé depuis V vers une autre valeur, c’est un
+ * conflit. Version V inconnue (purgée, ou produite hors édition — génération, import — puis
+ * remplacée sans avoir été lue ici) : 412, le client recharge.
+ * <p>
+ * Les valeurs sont comparées sous forme canonique ({@code toString}), telle qu’enregistrée.
+ * À appeler dans la transaction de l’édition : un état n’est gardé que si elle est validée.
+ */
+@Component
+public class ConcurrentEditMerger {
+
+    private static final TypeReference<Map<String, String>> FIELDS = new TypeReference<>() {
+    };
+
+    private final EditStateStore store;
+    private final ObjectMapper objectMapper;
+    private final int historyVersions;
+
+    public ConcurrentEditMerger(EditStateStore store,
+                                ObjectMapper objectMapper,
+                                @Value("${planning.edits.history-versions:20}") int historyVersions) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.historyVersions = historyVersions;
+    }
+
+    /** Enregistre l’état d’une entité ({@code key}, ex. {@code assignment:42}) à une version. */
+    public void remember(String key, long version, Map<String, Object> fields) {
+        Map<String, String> canonical = new LinkedHashMap<>();
+        fields.forEach((name, value) -> canonical.put(name, canonical(value)));
+        try {
+            store.save(key, version, objectMapper.writeValueAsString(canonical), historyVersions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("État d’édition non sérialisable : " + key, e);
+        }
+    }
+
+    /**
+     * @param current champs en base, à la version {@code currentVersion}
+     * @param mine    champs envoyés par le client, qui a lu {@code baseVersion}
+     * @return champs à écrire
+     * @throws EditConflictException un même champ modifié des deux côtés
+     */
+    public Map<String, Object> merge(String key, long baseVersion, long currentVersion,
+                                     Map<String, Object> current, Map<String, Object> mine) {
+        Map<String, String> base = baseVersion < currentVersion ? lookup(key, baseVersion) : null;
+        if (base == null) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                    "Version " + baseVersion + " périmée (version courante " + currentVersion + ") : recharger");
+        }
+        Map<String, Object> merged = new LinkedHashMap<>(current);
+        List<String> conflicts = new ArrayList<>();
+        for (Map.Entry<String, Object> field : mine.entrySet()) {
+            String before = base.get(field.getKey());
+            String theirs = canonical(current.get(field.getKey()));
+            String ours = canonical(field.getValue());
+            if (Objects.equals(ours, before)) {
+                continue;                                   // pas touché par le client : valeur courante
+            }
+            if (!Objects.equals(theirs, before) && !Objects.equals(theirs, ours)) {
+                conflicts.add(field.getKey());
+            } else {
+                merged.put(field.getKey(), field.getValue());
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            throw new EditConflictException(conflicts, currentVersion);
+        }
+        return merged;
+    }
+
+    private Map<String, String> lookup(String key, long version) {
+        String json = store.find(key, version);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, FIELDS);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("État d’édition illisible : " + key + "@" + version, e);
+        }
+    }
+
+    private static String canonical(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
@@ -0,0 +1,86 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ConflictReportDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.model.Site;
+import org.makarimal.projet_gestionautoplanningsecure.planning.OccupancyIndex;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Détecte, sur tous les sites d’une société, les employés réservés deux fois
+ * ou sans repos suffisant entre deux vacations.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConflictService {
+
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final SiteRepository siteRepository;
+
+    private OccupancyIndex loadOccupancy(Long companyId, YearMonth month) {
+        return OccupancyIndex.fromRows(companyId, month, assignmentRepository.findOccupancyRowsByCompanyId(
+                companyId, OccupancyIndex.windowStart(month), OccupancyIndex.windowEnd(month),
+                ScheduleAssignment.AssignmentStatus.DECLINED));
+    }
+
+    @Transactional(readOnly = true)
+    public ConflictReportDTO detect(Long companyId, int month, int year) {
+        long start = System.nanoTime();
+        OccupancyIndex index = loadOccupancy(companyId, YearMonth.of(year, month));
+        List<OccupancyIndex.Conflict> conflicts = index.scan(ReplacementService.MIN_REST_MINUTES);
+
+        Map<Long, String> siteNames = new HashMap<>();
+        for (Site site : siteRepository.findAllByCompanyId(companyId)) {
+            siteNames.put(site.getId(), site.getName());
+        }
+
+        int overlaps = (int) conflicts.stream().filter(c -> c.getType() == OccupancyIndex.ConflictType.OVERLAP).count();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        log.debug("Conflits société {} {}/{} : {} affectations, {} conflits en {} ms",
+                companyId, month, year, index.getSize(), conflicts.size(), elapsed);
+
+        return ConflictReportDTO.builder()
+                .companyId(companyId)
+                .month(month)
+                .year(year)
+                .assignmentsScanned(index.getSize())
+                .employeesScanned(index.employeeCount())
+                .overlaps(overlaps)
+                .restViolations(conflicts.size() - overlaps)
+                .elapsedMillis(elapsed)
+                .conflicts(conflicts.stream()
+                        .map(c -> ConflictReportDTO.ConflictDTO.builder()
+                                .type(c.getType().name())
+                                .employeeId(c.getFirst().getEmployeeId())
+                                .employeeName(c.getFirst().getEmployeeName())
+                                .gapMinutes(c.getGapMinutes())
+                                .first(toDto(c.getFirst(), siteNames))
+                                .second(toDto(c.getSecond(), siteNames))
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    private static ConflictReportDTO.SlotDTO toDto(OccupancyIndex.Occupancy o, Map<Long, String> siteNames) {
+        return ConflictReportDTO.SlotDTO.builder()
+                .assignmentId(o.getAssignmentId())
+                .scheduleId(o.getScheduleId())
+                .siteId(o.getSiteId())
+                .siteName(siteNames.get(o.getSiteId()))
+                .date(o.getDate())
+                .start(o.getStart())
+                .end(o.getEnd())
+                .build();
+    }
+}
@@ -0,0 +1,230 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.CoverageReportDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.CoverageReportDTO.CoverageLineDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.model.SiteCoverageDay;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
+import org.makarimal.projet_gestionautoplanningsecure.planning.*;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteCoverageDayRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteCoverageWriter;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Table de synthèse de couverture (site, jour, type d’agent → besoin / affectés / confirmés).
+ * <p>
+ * Mise à jour après commit sur la plage touchée par chaque {@link AssignmentsChangedEvent}
+ * (écritures unitaires, génération, clonage, lots) et, pour le besoin, sur
+ * {@link SiteDemandChangedEvent}. Une mise à jour recalcule la plage entière (une requête
+ * d’agrégat + tables de besoin en cache) : idempotente, elle corrige aussi une mise à jour
+ * précédente perdue. {@link #rebuild} reconstruit une période complète (reprise d’historique).
+ * <p>
+ * Chaque mise à jour s’exécute dans sa propre transaction, sous verrou des sites concernés
+ * ({@link SiteCoverageWriter#lockSites}) : deux mises à jour d’un même site se suivent, la
+ * seconde relit l’état validé par la première. Un conflit d’écriture ou un interblocage est
+ * rejoué (au plus {@value #MAX_ATTEMPTS} tentatives) ; après quoi l’échec est journalisé
+ * sans faire échouer l’écriture déjà validée.
+ */
+@Slf4j
+@Service
+public class CoverageSummaryService {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final SiteCoverageDayRepository coverageRepository;
+    private final SiteCoverageWriter coverageWriter;
+    private final SiteRepository siteRepository;
+    private final DemandCompiler demandCompiler;
+    private final PlanningMetrics metrics;
+    private final TransactionTemplate transactionTemplate;
+
+    public CoverageSummaryService(ScheduleAssignmentRepository assignmentRepository,
+                                  SiteCoverageDayRepository coverageRepository,
+                                  SiteCoverageWriter coverageWriter,
+                                  SiteRepository siteRepository,
+                                  DemandCompiler demandCompiler,
+                                  PlanningMetrics metrics,
+                                  PlatformTransactionManager transactionManager) {
+        this.assignmentRepository = assignmentRepository;
+        this.coverageRepository = coverageRepository;
+        this.coverageWriter = coverageWriter;
+        this.siteRepository = siteRepository;
+        this.demandCompiler = demandCompiler;
+        this.metrics = metrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Mise à jour incrémentale                                          */
+    /* ------------------------------------------------------------------ */
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAssignmentsChanged(AssignmentsChangedEvent event) {
+        if (event.getFrom() == null || event.getTo() == null) return;
+        withRetry(event, () -> refresh(event.getCompanyId(), event.getSiteId(), event.getFrom(), event.getTo()));
+    }
+
+    /** Besoin modifié : recalcul des lignes existantes du site à partir du mois courant. */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSiteDemandChanged(SiteDemandChangedEvent event) {
+        LocalDate from = YearMonth.now().atDay(1);
+        withRetry(event, () -> {
+            int written = 0;
+            for (Object[] extent : coverageRepository.findExtentBySiteId(event.getSiteId(), from)) {
+                written += refresh((Long) extent[0], event.getSiteId(), from, (LocalDate) extent[1]);
+            }
+            return written;
+        });
+    }
+
+    /** Une transaction par tentative ; l’écriture qui a déclenché la mise à jour est déjà validée. */
+    private void withRetry(Object cause, Supplier<Integer> update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.execute(status -> update.get());
+                return;
+            } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    log.error("Synthèse de couverture non mise à jour après {} tentatives ({}) : {}",
+                            attempt, cause, e.getMessage());
+                    return;
+                }
+                log.debug("Synthèse de couverture ({}) : conflit, tentative {}", cause, attempt + 1);
+            } catch (RuntimeException e) {
+                log.error("Synthèse de couverture non mise à jour ({}) : {}", cause, e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reconstruction de [from, to] pour toute la société, un mois par transaction.
+     * @return nombre de lignes écrites
+     */
+    public int rebuild(Long companyId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Période invalide : " + from + " → " + to);
+        }
+        int written = 0;
+        for (YearMonth month = YearMonth.from(from); !month.atDay(1).isAfter(to); month = month.plusMonths(1)) {
+            LocalDate start = max(month.atDay(1), from);
+            LocalDate end = min(month.atEndOfMonth(), to);
+            Integer rows = transactionTemplate.execute(status -> refresh(companyId, null, start, end));
+            written += rows != null ? rows : 0;
+        }
+        log.info("Synthèse de couverture reconstruite pour la société {} ({} → {}) : {} lignes",
+                companyId, from, to, written);
+        return written;
+    }
+
+    /**
+     * Recalcule la plage [from, to] de la société (d’un site si {@code siteId} n’est pas null).
+     * Doit s’exécuter dans une transaction.
+     */
+    int refresh(Long companyId, Long siteId, LocalDate from, LocalDate to) {
+        long startNanos = System.nanoTime();
+        // avant toute lecture : l’agrégat reflète ce qu’a validé la mise à jour précédente
+        coverageWriter.lockSites(companyId, siteId);
+        List<Long> siteIds = siteId != null ? List.of(siteId) : siteRepository.findIdsByCompanyId(companyId);
+
+        Map<String, SiteCoverageDay> rows = new LinkedHashMap<>();
+        for (Long site : siteIds) {
+            for (YearMonth month = YearMonth.from(from); !month.atDay(1).isAfter(to); month = month.plusMonths(1)) {
+                SiteDemandTable table = demandCompiler.compile(site, month);
+                LocalDate start = max(month.atDay(1), from);
+                LocalDate end = min(month.atEndOfMonth(), to);
+                for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+                    for (SlotDemand slot : table.day(date).agentSlots()) {
+                        if (slot.getAgentType() == null || slot.getCount() <= 0) continue;
+                        SiteCoverageDay row = row(rows, companyId, site, date, slot.getAgentType());
+                        row.setRequired(row.getRequired() + slot.getCount());
+                    }
+                }
+            }
+        }
+
+        for (Object[] r : assignmentRepository.findCoverageRowsByCompanyId(companyId, siteId, from, to,
+                ScheduleAssignment.AssignmentStatus.CONFIRMED, ScheduleAssignment.AssignmentStatus.DECLINED)) {
+            if (r[2] == null) continue;
+            SiteCoverageDay row = row(rows, companyId, (Long) r[0], (LocalDate) r[1], (AgentType) r[2]);
+            row.setAssigned(((Number) r[3]).intValue());
+            row.setConfirmed(((Number) r[4]).intValue());
+        }
+
+        List<SiteCoverageDay> values = new ArrayList<>(rows.values());
+        coverageWriter.replace(companyId, siteId, from, to, values);
+        metrics.recordQuery("coverage-refresh", siteId, System.nanoTime() - startNanos);
+        return values.size();
+    }
+
+    private static SiteCoverageDay row(Map<String, SiteCoverageDay> rows, Long companyId, Long siteId,
+                                       LocalDate date, AgentType agentType) {
+        return rows.computeIfAbsent(siteId + ":" + date + ":" + agentType, k -> SiteCoverageDay.builder()
+                .companyId(companyId)
+                .siteId(siteId)
+                .date(date)
+                .agentType(agentType)
+                .build());
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Lecture                                                           */
+    /* ------------------------------------------------------------------ */
+
+    @Transactional(readOnly = true)
+    public CoverageReportDTO report(Long companyId, Long siteId, LocalDate from, LocalDate to, boolean daily) {
+        long startNanos = System.nanoTime();
+        List<CoverageLineDTO> totals = coverageRepository.sumByCompanyId(companyId, siteId, from, to).stream()
+                .map(r -> CoverageLineDTO.builder()
+                        .siteId((Long) r[0])
+                        .agentType(((AgentType) r[1]).name())
+                        .required(((Number) r[2]).longValue())
+                        .assigned(((Number) r[3]).longValue())
+                        .confirmed(((Number) r[4]).longValue())
+                        .build())
+                .toList();
+
+        List<CoverageLineDTO> days = null;
+        if (daily) {
+            days = coverageRepository.findDays(companyId, siteId, from, to).stream()
+                    .map(c -> CoverageLineDTO.builder()
+                            .siteId(c.getSiteId())
+                            .date(c.getDate())
+                            .agentType(c.getAgentType().name())
+                            .required(c.getRequired())
+                            .assigned(c.getAssigned())
+                            .confirmed(c.getConfirmed())
+                            .build())
+                    .toList();
+        }
+
+        metrics.recordQuery("coverage-report", siteId, System.nanoTime() - startNanos);
+        return CoverageReportDTO.builder().from(from).to(to).totals(totals).days(days).build();
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.makarimal.projet_gestionautoplanningsecure.dto.EmployeeAbsenceRequest;
 import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
 import org.makarimal.projet_gestionautoplanningsecure.repository.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -12,6 +14,7 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -23,6 +26,7 @@ public class EmployeeAbsenceService {
     private final ScheduleRepository scheduleRepository;
     private final PlanningPdfService planningPdfService;
     private final MailService mailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public EmployeeAbsence addAbsence(EmployeeAbsenceRequest request) {
@@ -45,6 +49,7 @@ public class EmployeeAbsenceService {
                 .findByEmployeeIdAndDateBetween(employee.getId(), request.getStartDate(), request.getEndDate());
 
         assignmentRepository.deleteAll(oldAssignments); // ou use setStatus(DECLINED) si tu préfères
+        publishChange(employee, request.getStartDate(), request.getEndDate());
 
         return saved;
     }
@@ -83,6 +88,7 @@ public class EmployeeAbsenceService {
 
         oldAssignments.forEach(a -> a.setStatus(ScheduleAssignment.AssignmentStatus.DECLINED));
         assignmentRepository.saveAll(oldAssignments);
+        publishChange(employee, startTime, endTime);
 
         // Rechercher le planning du site pour ce mois
         YearMonth ym = YearMonth.from(startTime); // on suppose que c'est dans le même mois
@@ -124,21 +130,33 @@ public class EmployeeAbsenceService {
     public EmployeeAbsence updateAbsence(Long id, EmployeeAbsenceRequest request) {
         EmployeeAbsence absence = absenceRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Absence non trouvée"));
+        LocalDate previousStart = absence.getStartDate();
+        LocalDate previousEnd = absence.getEndDate();
 
         absence.setStartDate(request.getStartDate());
         absence.setEndDate(request.getEndDate());
         absence.setType(request.getType());
         absence.setReason(request.getReason());
 
-        return absenceRepository.save(absence);
+        EmployeeAbsence saved = absenceRepository.save(absence);
+        publishChange(saved.getEmployee(),
+                previousStart.isBefore(saved.getStartDate()) ? previousStart : saved.getStartDate(),
+                previousEnd.isAfter(saved.getEndDate()) ? previousEnd : saved.getEndDate());
+        return saved;
     }
 
     @Transactional
     public void deleteAbsence(Long id) {
-        if (!absenceRepository.existsById(id)) {
-            throw new EntityNotFoundException("Absence non trouvée");
-        }
-        absenceRepository.deleteById(id);
+        EmployeeAbsence absence = absenceRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Absence non trouvée"));
+        absenceRepository.delete(absence);
+        publishChange(absence.getEmployee(), absence.getStartDate(), absence.getEndDate());
+    }
+
+    /** Les index d’éligibilité (remplaçants…) doivent oublier la période touchée. */
+    private void publishChange(Employee employee, LocalDate from, LocalDate to) {
+        eventPublisher.publishEvent(new AssignmentsChangedEvent(
+                employee.getCompany().getId(), null, Set.of(employee.getId()), from, to));
     }
 
 
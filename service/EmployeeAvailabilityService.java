@@ -25,6 +25,8 @@ public class EmployeeAvailabilityService {
     private final EmployeeAvailabilityRepository availabilityRepository;
     @Autowired
     private final EmployeePreferenceRepository preferenceRepository;
+    @Autowired
+    private final TenantGuard tenantGuard;
 
     @Transactional
     public EmployeeAvailability addAvailability(Long companyId, Long employeeId, EmployeeAvailabilityRequest request) {
@@ -44,31 +46,23 @@ public class EmployeeAvailabilityService {
     }
 
     public List<EmployeeAvailability> getAvailabilities(Long companyId, Long employeeId) {
-        if (!employeeRepository.findById(employeeId)
-                .filter(e -> e.getCompany().getId().equals(companyId))
-                .isPresent()) {
-            throw new EntityNotFoundException("Employee not found");
-        }
+        tenantGuard.requireEmployee(companyId, employeeId);
 
         return availabilityRepository.findByEmployeeId(employeeId);
     }
 
     @Transactional
     public void deleteAvailability(Long companyId, Long employeeId, Long availabilityId) {
-        if (!employeeRepository.findById(employeeId)
-                .filter(e -> e.getCompany().getId().equals(companyId))
-                .isPresent()) {
-            throw new EntityNotFoundException("Employee not found");
-        }
+        tenantGuard.requireEmployee(companyId, employeeId);
 
-        availabilityRepository.deleteById(availabilityId);
+        if (availabilityRepository.deleteByIdAndEmployeeId(availabilityId, employeeId) == 0) {
+            throw new EntityNotFoundException("Availability not found");
+        }
     }
 
     @Transactional
     public EmployeePreference updatePreferences(Long companyId, Long employeeId, EmployeePreferenceRequest request) {
-        Employee employee = employeeRepository.findById(employeeId)
-                .filter(e -> e.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Employee not found"));
+        Employee employee = tenantGuard.employeeReference(companyId, employeeId);
 
         EmployeePreference preference = preferenceRepository.findByEmployeeId(employeeId)
                 .orElse(EmployeePreference.builder().employee(employee).build());
@@ -89,11 +83,7 @@ public class EmployeeAvailabilityService {
     }
 
     public EmployeePreference getPreferences(Long companyId, Long employeeId) {
-        if (!employeeRepository.findById(employeeId)
-                .filter(e -> e.getCompany().getId().equals(companyId))
-                .isPresent()) {
-            throw new EntityNotFoundException("Employee not found");
-        }
+        tenantGuard.requireEmployee(companyId, employeeId);
 
         return preferenceRepository.findByEmployeeId(employeeId)
                 .orElseThrow(() -> new EntityNotFoundException("Employee preferences not found"));
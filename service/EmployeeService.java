@@ -32,7 +32,7 @@ public class EmployeeService {
     @Transactional
     public EmployeeResponse create(EmployeeRequest req) {
 
-        Company company = auth.getCurrentUser().getCompany();
+        Company company = auth.getCurrentCompany();
 
         /* unicité mail / code ----------- */
         if (employeeRepo.existsByEmailAndCompanyId(req.getEmail(), company.getId()))
@@ -90,15 +90,16 @@ public class EmployeeService {
         return toDto(emp);
     }
 
+    @Transactional(readOnly = true)
     public List<Employee> getAllForCurrentCompany() {
-        Long companyId = auth.getCurrentUser().getCompany().getId();
+        Long companyId = auth.getCurrentCompanyId();
         return employeeRepo.findByCompanyId(companyId);
     }
 
     /*
 
     public List<EmployeeResponse> getAllForCurrentCompany() {
-        Long companyId = auth.getCurrentUser().getCompany().getId();
+        Long companyId = auth.getCurrentCompanyId();
         return employeeRepo.findByCompanyId(companyId).stream()
                 .map(this::toDto)
                 .collect(Collectors.toList());
@@ -168,6 +169,7 @@ public class EmployeeService {
 
 
     /** Lecture par id (DTO) ---------------------------------------------- */
+    @Transactional(readOnly = true)
     public EmployeeResponse get(Long id) {
         Employee entity = loadEntity(id);
         return toDto(entity);
@@ -179,10 +181,11 @@ public class EmployeeService {
 
 
     /** Liste filtrée (DTO) ------------------------------------------------ */
+    @Transactional(readOnly = true)
     public List<EmployeeResponse> getByFilters(String department,
                                                Employee.ContractType type) {
 
-        Company company = auth.getCurrentUser().getCompany();
+        Company company = auth.getCurrentCompany();
         return employeeRepo
                 .findByFilters(company.getId(), department, type)
                 .stream()
@@ -265,7 +268,7 @@ public class EmployeeService {
 
     /** Charge l’entité (sécurisé entreprise) */
     private Employee loadEntity(Long id) {
-        Company company = auth.getCurrentUser().getCompany();
+        Company company = auth.getCurrentCompany();
         return employeeRepo.findById(id)
                 .filter(e -> e.getCompany().getId().equals(company.getId()))
                 .orElseThrow(() -> new EntityNotFoundException("Employé introuvable"));
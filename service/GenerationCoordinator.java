@@ -0,0 +1,270 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.model.GenerationLease;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.repository.GenerationLeaseStore;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Une seule génération à la fois par (site, mois), sur toutes les instances.
+ * <p>
+ * Chaque mois généré est couvert par un bail en base ({@link GenerationLeaseStore}) :
+ * acquis avant la génération, renouvelé pendant, contrôlé par son jeton dans la transaction
+ * des écritures (une instance dont le bail a expiré et a été repris ne peut pas valider),
+ * libéré ensuite. Un demandeur qui trouve un mois déjà en génération ne relance rien :
+ * <ul>
+ *   <li>même demande en cours sur cette instance : il attend sa fin et relit le planning
+ *       généré (ses propres entités, contrôle de société compris) ;</li>
+ *   <li>sinon (autre instance, autre horizon) : il attend la fin du bail et relit le
+ *       planning généré ; si la génération a échoué ou que son instance a disparu
+ *       (bail expiré), il la relance lui-même.</li>
+ * </ul>
+ * Les baux d’un horizon sont pris dans l’ordre des mois, sans attente en les tenant :
+ * pas d’interblocage entre deux horizons qui se chevauchent.
+ */
+@Slf4j
+@Service
+public class GenerationCoordinator {
+
+    private final ScheduleGeneratorService scheduleGeneratorService;
+    private final AssignmentGenerator assignmentGenerator;
+    private final ScheduleRepository scheduleRepository;
+    private final GenerationLeaseStore leaseStore;
+    private final TransactionTemplate transactionTemplate;
+    private final String instanceId;
+    private final Duration leaseTtl;
+    private final long pollMillis;
+    private final long maxWaitMillis;
+
+    /** Générations lancées par cette instance, par demande ({@link #jobKey}). */
+    private final Map<String, CompletableFuture<List<Schedule>>> running = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService renewals;
+
+    public GenerationCoordinator(ScheduleGeneratorService scheduleGeneratorService,
+                                 AssignmentGenerator assignmentGenerator,
+                                 ScheduleRepository scheduleRepository,
+                                 GenerationLeaseStore leaseStore,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${planning.instance-id:}") String instanceId,
+                                 @Value("${planning.generation.lease-seconds:120}") long leaseSeconds,
+                                 @Value("${planning.generation.poll-millis:250}") long pollMillis,
+                                 @Value("${planning.generation.max-wait-seconds:300}") long maxWaitSeconds) {
+        this.scheduleGeneratorService = scheduleGeneratorService;
+        this.assignmentGenerator = assignmentGenerator;
+        this.scheduleRepository = scheduleRepository;
+        this.leaseStore = leaseStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.instanceId = instanceId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : instanceId;
+        this.leaseTtl = Duration.ofSeconds(leaseSeconds);
+        this.pollMillis = pollMillis;
+        this.maxWaitMillis = TimeUnit.SECONDS.toMillis(maxWaitSeconds);
+        this.renewals = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "generation-lease-renewal");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public Schedule generateSchedule(Long companyId, Long siteId, int month, int year) {
+        return run(companyId, siteId, YearMonth.of(year, month), 1, "",
+                () -> List.of(scheduleGeneratorService.generateSchedule(companyId, siteId, month, year))).get(0);
+    }
+
+    public List<Schedule> generateHorizon(Long companyId, Long siteId, int month, int year, int months) {
+        if (months < 1 || months > ScheduleGeneratorService.MAX_HORIZON_MONTHS) {
+            throw new IllegalArgumentException("Horizon de 1 à " + ScheduleGeneratorService.MAX_HORIZON_MONTHS + " mois");
+        }
+        return run(companyId, siteId, YearMonth.of(year, month), months, "",
+                () -> scheduleGeneratorService.generateHorizon(companyId, siteId, month, year, months));
+    }
+
+    /**
+     * Affectations d’un planning existant ({@link AssignmentGenerator}), sous le bail de son
+     * (site, mois). {@code seed} distingue la demande : seule une demande identique se
+     * rattache à une génération en cours sur cette instance.
+     */
+    public Schedule generateAssignments(Long companyId, Long scheduleId, Long seed) {
+        Schedule schedule = scheduleRepository.findById(scheduleId)
+                .filter(s -> s.getCompany().getId().equals(companyId))
+                .orElseThrow(() -> new EntityNotFoundException("Schedule not found or not owned by company"));
+        return run(companyId, schedule.getSite().getId(), YearMonth.of(schedule.getYear(), schedule.getMonth()), 1,
+                "assignments:" + seed,
+                () -> {
+                    assignmentGenerator.generateForSchedule(scheduleId, seed);
+                    return List.of(scheduleRepository.findById(scheduleId).orElseThrow());
+                }).get(0);
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private List<Schedule> run(Long companyId, Long siteId, YearMonth first, int months, String variant,
+                               Supplier<List<Schedule>> generation) {
+        String jobKey = jobKey(siteId, first, months) + variant;
+        CompletableFuture<List<Schedule>> mine = new CompletableFuture<>();
+        CompletableFuture<List<Schedule>> existing = running.putIfAbsent(jobKey, mine);
+        if (existing != null) {
+            log.debug("Génération {} déjà en cours sur cette instance : attente de sa fin", jobKey);
+            join(existing);
+            // entités de l’autre demande : relues pour celle-ci (et pour sa société)
+            return loadResult(companyId, siteId, first, months);
+        }
+        try {
+            List<Schedule> result = acquireAndRun(companyId, siteId, first, months, generation);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            running.remove(jobKey, mine);
+        }
+    }
+
+    private List<Schedule> acquireAndRun(Long companyId, Long siteId, YearMonth first, int months,
+                                         Supplier<List<Schedule>> generation) {
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (true) {
+            Map<String, Long> held = new LinkedHashMap<>();
+            List<GenerationLease> blocking = new ArrayList<>();
+            for (int i = 0; i < months; i++) {
+                String key = leaseKey(siteId, first.plusMonths(i));
+                Long token = leaseStore.tryAcquire(key, instanceId + "/" + UUID.randomUUID(), leaseTtl);
+                if (token != null) {
+                    held.put(key, token);
+                } else {
+                    GenerationLease lease = leaseStore.find(key);
+                    if (lease != null) blocking.add(lease);
+                }
+            }
+            if (blocking.isEmpty() && held.size() == months) {
+                return runUnderLeases(held, generation);
+            }
+
+            // Au moins un mois en cours ailleurs : rendre les autres (jamais générés ici) et attendre
+            held.forEach((key, token) -> leaseStore.release(key, token, GenerationLease.Status.FAILED));
+            boolean allDone = true;
+            for (GenerationLease lease : blocking) {
+                log.info("Génération {} en cours ({}, jeton {}) : attente", lease.getKey(), lease.getOwner(), lease.getToken());
+                allDone &= awaitCompletion(lease, deadline);
+            }
+            // Rattachement : chaque mois demandé était en génération et elle a réussi
+            if (allDone && held.isEmpty() && blocking.size() == months) {
+                return loadResult(companyId, siteId, first, months);
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Génération déjà en cours pour ce site et ce mois : réessayer plus tard");
+            }
+        }
+    }
+
+    private List<Schedule> runUnderLeases(Map<String, Long> held, Supplier<List<Schedule>> generation) {
+        ScheduledFuture<?> renewal = renewals.scheduleAtFixedRate(
+                () -> held.forEach((key, token) -> {
+                    if (!leaseStore.renew(key, token, leaseTtl)) {
+                        log.warn("Bail de génération {} perdu (jeton {})", key, token);
+                    }
+                }),
+                leaseTtl.toMillis() / 3, leaseTtl.toMillis() / 3, TimeUnit.MILLISECONDS);
+        GenerationLease.Status outcome = GenerationLease.Status.FAILED;
+        try {
+            List<Schedule> result = transactionTemplate.execute(status -> {
+                List<Schedule> schedules = generation.get();
+                // Clôture : les écritures ne sont validées que si chaque bail porte encore notre jeton
+                held.forEach((key, token) -> leaseStore.fence(key, token, leaseTtl));
+                return schedules;
+            });
+            outcome = GenerationLease.Status.DONE;
+            return result;
+        } finally {
+            renewal.cancel(false);
+            GenerationLease.Status released = outcome;
+            held.forEach((key, token) -> leaseStore.release(key, token, released));
+        }
+    }
+
+    /**
+     * Attend la fin du bail observé : terminé, échoué, expiré ou repris.
+     *
+     * @return true s’il s’est terminé avec succès
+     */
+    private boolean awaitCompletion(GenerationLease observed, long deadline) {
+        while (System.currentTimeMillis() < deadline) {
+            GenerationLease current = leaseStore.find(observed.getKey());
+            if (current == null || current.getToken() != observed.getToken()) {
+                return false;   // repris entre-temps : nouvelle tentative d’acquisition
+            }
+            if (current.getStatus() != GenerationLease.Status.RUNNING) {
+                return current.getStatus() == GenerationLease.Status.DONE;
+            }
+            if (current.getExpiresAt().isBefore(LocalDateTime.now())) {
+                return false;   // instance disparue : le bail peut être repris
+            }
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Attente de génération interrompue");
+            }
+        }
+        return false;
+    }
+
+    private List<Schedule> loadResult(Long companyId, Long siteId, YearMonth first, int months) {
+        List<Schedule> schedules = new ArrayList<>(months);
+        for (int i = 0; i < months; i++) {
+            YearMonth month = first.plusMonths(i);
+            schedules.add(scheduleRepository.findBySiteIdAndMonthAndYear(siteId, month.getMonthValue(), month.getYear())
+                    .orElseThrow(() -> new IllegalStateException("Planning généré introuvable : " + month)));
+        }
+        checkOwner(companyId, schedules);
+        return schedules;
+    }
+
+    private static void checkOwner(Long companyId, List<Schedule> schedules) {
+        for (Schedule schedule : schedules) {
+            if (!schedule.getCompany().getId().equals(companyId)) {
+                throw new EntityNotFoundException("Site not found or not owned by company");
+            }
+        }
+    }
+
+    private static void join(CompletableFuture<List<Schedule>> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    static String leaseKey(Long siteId, YearMonth month) {
+        return "site:" + siteId + ":" + month;
+    }
+
+    private static String jobKey(Long siteId, YearMonth first, int months) {
+        return leaseKey(siteId, first) + "+" + months;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        renewals.shutdownNow();
+    }
+}
@@ -1,6 +1,7 @@
 package org.makarimal.projet_gestionautoplanningsecure.service;
 
-import lombok.RequiredArgsConstructor;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -8,12 +9,36 @@ import org.springframework.stereotype.Service;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
 public class MailService {
 
     private final JavaMailSender mailSender;
+    private final PlanningMetrics metrics;
+    private final Executor mailExecutor;
+
+    public MailService(JavaMailSender mailSender,
+                       PlanningMetrics metrics,
+                       @Qualifier("mailExecutor") Executor mailExecutor) {
+        this.mailSender = mailSender;
+        this.metrics = metrics;
+        this.mailExecutor = mailExecutor;
+    }
+
+    /**
+     * Produit la pièce jointe puis envoie le mail sur l’exécuteur dédié : PDF (logo distant)
+     * et SMTP bloquent sur le réseau, les envois d’un même planning se recouvrent.
+     */
+    public CompletableFuture<Void> dispatchSchedulePdf(String toEmail,
+                                                       String subject,
+                                                       String text,
+                                                       Supplier<byte[]> pdf) {
+        return CompletableFuture.runAsync(
+                () -> sendSchedulePdfToEmployee(toEmail, subject, text, pdf.get()), mailExecutor);
+    }
 
     /**
      * Envoie un email avec le PDF en pièce jointe.
@@ -22,6 +47,8 @@ public class MailService {
                                           String subject,
                                           String text,
                                           byte[] pdfData) {
+        long startNanos = System.nanoTime();
+        boolean sent = false;
         try {
             MimeMessage msg = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(msg, true, "UTF-8");
@@ -32,8 +59,11 @@ public class MailService {
                     new ByteArrayResource(pdfData),
                     "application/pdf");
             mailSender.send(msg);
+            sent = true;
         } catch (MessagingException e) {
             throw new RuntimeException("Impossible d’envoyer le mail", e);
+        } finally {
+            metrics.recordMail(System.nanoTime() - startNanos, sent);
         }
     }
 }
@@ -0,0 +1,196 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.util.PublicHolidays;
+import org.makarimal.projet_gestionautoplanningsecure.util.TableWriter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Export paie : heures du mois par employé (jour / nuit / week-end / férié).
+ * <p>
+ * Les totaux sont agrégés en base par (employé, jour de semaine, horaire) : quelques lignes
+ * par employé quel que soit le nombre de vacations. La part de nuit (21 h → 6 h) dépend
+ * seulement de l’horaire, elle est calculée une fois par groupe. Le résultat est lu en flux,
+ * trié par employé, et chaque employé est écrit dès que ses groupes sont lus.
+ * <p>
+ * Une vacation est rattachée au mois où elle commence, mais ses heures week-end et fériées
+ * sont coupées à minuit : une nuit du vendredi au samedi compte en week-end pour sa partie
+ * après minuit, la veille d’un férié compte en férié à partir de minuit. Heures week-end et
+ * fériées sont disjointes : un férié tombant un dimanche compte en férié.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PayrollExportService {
+
+    private static final ScheduleAssignment.AssignmentStatus EXCLUDED = ScheduleAssignment.AssignmentStatus.DECLINED;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final PlanningMetrics metrics;
+
+    /** Cumuls d’un employé, en minutes. */
+    private static final class Hours {
+        long shifts;
+        long total;
+        long night;
+        long weekend;
+        long holiday;
+        /** Minutes fériées tombant un week-end, retirées du week-end. */
+        long holidayOnWeekend;
+    }
+
+    /** @return nombre d’employés exportés */
+    @Transactional(readOnly = true)
+    public int writeMonthlyHours(Long companyId, YearMonth month, TableWriter out) throws IOException {
+        long startNanos = System.nanoTime();
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.atEndOfMonth();
+
+        // Fériés du mois, plus le lendemain de sa fin (nuit du 31 décembre)
+        Set<LocalDate> holidays = Stream.concat(PublicHolidays.of(month.getYear()).stream(),
+                        PublicHolidays.of(month.getYear() + 1).stream())
+                .filter(d -> !d.isBefore(from) && !d.isAfter(to.plusDays(1)))
+                .collect(Collectors.toSet());
+        Map<Long, Hours> holidayHours = holidays.isEmpty() ? Map.of() : holidayHours(companyId, holidays, from, to);
+
+        out.row("Matricule", "Nom", "Prénom", "Vacations", "Heures totales",
+                "Heures de jour", "Heures de nuit", "Heures week-end", "Heures fériées");
+
+        int employees = 0;
+        try (Stream<Object[]> rows = assignmentRepository.streamHoursByCompanyId(companyId, from, to, EXCLUDED)) {
+            Long currentId = null;
+            Object[] current = null;
+            Hours hours = null;
+            for (Object[] r : (Iterable<Object[]>) rows::iterator) {
+                Long employeeId = (Long) r[0];
+                if (!employeeId.equals(currentId)) {
+                    if (current != null) {
+                        writeRow(out, current, hours, holidayHours.get(currentId));
+                        employees++;
+                    }
+                    currentId = employeeId;
+                    current = r;
+                    hours = new Hours();
+                }
+                int dayOfWeek = ((Number) r[4]).intValue();
+                long count = ((Number) r[7]).longValue();
+                long minutes = ((Number) r[8]).longValue();
+                hours.shifts += count;
+                hours.total += minutes;
+                LocalTime start = (LocalTime) r[5];
+                LocalTime end = (LocalTime) r[6];
+                hours.night += count * nightMinutes(start, end);
+                if (isWeekend(dayOfWeek)) {
+                    hours.weekend += count * minutesOnStartDay(start, end);
+                }
+                if (isWeekend(dayOfWeek % 7 + 1)) {
+                    hours.weekend += count * minutesOnNextDay(start, end);
+                }
+            }
+            if (current != null) {
+                writeRow(out, current, hours, holidayHours.get(currentId));
+                employees++;
+            }
+        }
+
+        metrics.recordQuery("payroll-hours", null, System.nanoTime() - startNanos);
+        log.debug("Export paie société {} ({}) : {} employés", companyId, month, employees);
+        return employees;
+    }
+
+    /** Parts fériées des vacations commençant un férié (avant minuit) ou sa veille (après). */
+    private Map<Long, Hours> holidayHours(Long companyId, Set<LocalDate> holidays, LocalDate from, LocalDate to) {
+        Set<LocalDate> days = new HashSet<>();
+        for (LocalDate holiday : holidays) {
+            days.add(holiday);
+            days.add(holiday.minusDays(1));
+        }
+        days.removeIf(d -> d.isBefore(from) || d.isAfter(to));
+
+        Map<Long, Hours> byEmployee = new HashMap<>();
+        for (Object[] r : assignmentRepository.findHoursOnDaysByCompanyId(companyId, days, EXCLUDED)) {
+            Hours hours = byEmployee.computeIfAbsent((Long) r[0], id -> new Hours());
+            LocalDate date = (LocalDate) r[1];
+            LocalTime start = (LocalTime) r[2];
+            LocalTime end = (LocalTime) r[3];
+            long count = ((Number) r[4]).longValue();
+            if (holidays.contains(date)) {
+                addHoliday(hours, date, count * minutesOnStartDay(start, end));
+            }
+            if (holidays.contains(date.plusDays(1))) {
+                addHoliday(hours, date.plusDays(1), count * minutesOnNextDay(start, end));
+            }
+        }
+        return byEmployee;
+    }
+
+    private static void addHoliday(Hours hours, LocalDate day, long minutes) {
+        hours.holiday += minutes;
+        if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+            hours.holidayOnWeekend += minutes;
+        }
+    }
+
+    private static void writeRow(TableWriter out, Object[] employee, Hours hours, Hours holiday) throws IOException {
+        long holidayMinutes = holiday != null ? holiday.holiday : 0;
+        long weekendMinutes = hours.weekend - (holiday != null ? holiday.holidayOnWeekend : 0);
+        out.row(employee[1], employee[2], employee[3],
+                hours.shifts,
+                toHours(hours.total),
+                toHours(Math.max(0, hours.total - hours.night)),
+                toHours(hours.night),
+                toHours(weekendMinutes),
+                toHours(holidayMinutes));
+    }
+
+    /** Jour de semaine HQL : 1 = dimanche … 7 = samedi. */
+    private static boolean isWeekend(int dayOfWeek) {
+        return dayOfWeek == 1 || dayOfWeek == 7;
+    }
+
+    /** Minutes d’une vacation avant minuit, le jour où elle commence. */
+    private static long minutesOnStartDay(LocalTime start, LocalTime end) {
+        long s = start.toSecondOfDay() / 60;
+        long e = end.toSecondOfDay() / 60;
+        return e > s ? e - s : MINUTES_PER_DAY - s;
+    }
+
+    /** Minutes d’une vacation après minuit (fin ≤ début : elle se termine le lendemain). */
+    private static long minutesOnNextDay(LocalTime start, LocalTime end) {
+        long s = start.toSecondOfDay() / 60;
+        long e = end.toSecondOfDay() / 60;
+        return e > s ? 0 : e;
+    }
+
+    /** Minutes de nuit d’une vacation ; fin ≤ début : elle se termine le lendemain. */
+    private static long nightMinutes(LocalTime start, LocalTime end) {
+        long s = start.toSecondOfDay() / 60;
+        long e = end.toSecondOfDay() / 60;
+        if (e <= s) e += MINUTES_PER_DAY;
+        return ComplianceValidator.nightMinutes(s, e);
+    }
+
+    private static BigDecimal toHours(long minutes) {
+        return BigDecimal.valueOf(minutes).divide(BigDecimal.valueOf(60), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -10,37 +10,97 @@ import com.itextpdf.layout.element.Image;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.UnitValue;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
 import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class PlanningPdfService {
 
     private static final DateTimeFormatter DATE_FMT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    private final PlanningMetrics metrics;
+
+    /** Contenu du PDF d’un employé, en valeurs simples : rendu possible hors session Hibernate. */
+    @Getter
+    @Builder
+    public static class EmployeePlanning {
+        private final Long companyId;
+        private final String logoUrl;
+        private final String siteName;
+        private final int month;
+        private final int year;
+        private final String firstName;
+        private final String lastName;
+        private final List<Row> rows;
+    }
+
+    @Getter
+    @Builder
+    public static class Row {
+        private final LocalDate date;
+        private final String shift;
+        private final String mission;
+        private final String status;
+        private final Integer duration;
+    }
+
+    /**
+     * Lit tout ce dont le PDF a besoin. À appeler sur le thread (et dans la session) qui a
+     * chargé les entités : le rendu peut ensuite se faire sur n’importe quel thread.
+     */
+    public EmployeePlanning capture(Schedule schedule, List<ScheduleAssignment> assignments) {
+        return EmployeePlanning.builder()
+                .companyId(schedule.getCompany().getId())
+                .logoUrl(schedule.getCompany().getLogoUrl())
+                .siteName(schedule.getSite().getName())
+                .month(schedule.getMonth())
+                .year(schedule.getYear())
+                .firstName(assignments.get(0).getEmployee().getFirstName())
+                .lastName(assignments.get(0).getEmployee().getLastName())
+                .rows(assignments.stream()
+                        .map(a -> Row.builder()
+                                .date(a.getDate())
+                                .shift(a.getShift())
+                                .mission(a.getEmployee().getPosition())
+                                .status(a.getStatus().name())
+                                .duration(a.getDuration())
+                                .build())
+                        .toList())
+                .build();
+    }
+
     /**
      * Génère un PDF (dans un byte[]) pour le planning d’un employé donné.
      */
     public byte[] generatePdfForEmployee(Schedule schedule, List<ScheduleAssignment> assignments) {
+        return generatePdf(capture(schedule, assignments));
+    }
+
+    public byte[] generatePdf(EmployeePlanning planning) {
+        long startNanos = System.nanoTime();
         try (ByteArrayOutputStream out = new ByteArrayOutputStream();
              PdfWriter writer = new PdfWriter(out);
              PdfDocument pdfDoc = new PdfDocument(writer);
              Document doc = new Document(pdfDoc)) {
 
             // --- Logo ---
-            if (schedule.getCompany().getLogoUrl() != null) {
+            if (planning.getLogoUrl() != null) {
                 try {
-                    ImageData imgData = ImageDataFactory.create(schedule.getCompany().getLogoUrl());
+                    ImageData imgData = ImageDataFactory.create(planning.getLogoUrl());
                     doc.add(new Image(imgData).scaleToFit(120, 60));
                 } catch (Exception e) {
                     log.warn("Impossible de charger le logo : {}", e.getMessage());
@@ -48,12 +108,12 @@ public class PlanningPdfService {
             }
 
             // --- Titre ---
-            doc.add(new Paragraph("Planning de " + assignments.get(0).getEmployee().getFirstName()
-                    + " " + assignments.get(0).getEmployee().getLastName())
+            doc.add(new Paragraph("Planning de " + planning.getFirstName()
+                    + " " + planning.getLastName())
                     .setBold().setFontSize(14));
-            doc.add(new Paragraph("Site : " + schedule.getSite().getName()));
+            doc.add(new Paragraph("Site : " + planning.getSiteName()));
             doc.add(new Paragraph("Mois : "
-                    + String.format("%02d/%d", schedule.getMonth(), schedule.getYear()))
+                    + String.format("%02d/%d", planning.getMonth(), planning.getYear()))
                     .setMarginBottom(10));
 
             // --- Tableau ---
@@ -66,18 +126,20 @@ public class PlanningPdfService {
             }
 
             // lignes
-            for (ScheduleAssignment a : assignments) {
+            for (Row a : planning.getRows()) {
                 table.addCell(new Cell().add(new Paragraph(a.getDate().format(DATE_FMT))));
                 table.addCell(new Cell().add(new Paragraph(a.getShift())));
-                table.addCell(new Cell().add(new Paragraph(a.getEmployee().getPosition())));
-                table.addCell(new Cell().add(new Paragraph(a.getStatus().name())));
+                table.addCell(new Cell().add(new Paragraph(a.getMission())));
+                table.addCell(new Cell().add(new Paragraph(a.getStatus())));
                 table.addCell(new Cell().add(new Paragraph(
                         String.valueOf(a.getDuration()) + " min")));
             }
 
             doc.add(table);
             doc.close();
-            return out.toByteArray();
+            byte[] pdf = out.toByteArray();
+            metrics.recordPdf(planning.getCompanyId(), System.nanoTime() - startNanos, pdf.length);
+            return pdf;
 
         } catch (IOException e) {
             log.error("Erreur génération PDF", e);
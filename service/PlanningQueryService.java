@@ -5,12 +5,16 @@ import org.makarimal.projet_gestionautoplanningsecure.dto.*;
 import org.makarimal.projet_gestionautoplanningsecure.model.Absence;
 import org.makarimal.projet_gestionautoplanningsecure.model.EmployeeAbsence;
 import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
 import org.makarimal.projet_gestionautoplanningsecure.repository.AbsenceRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.EmployeeAbsenceRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -24,9 +28,12 @@ public class PlanningQueryService {
 
     private final ScheduleAssignmentRepository assignmentRepository;
     private final EmployeeAbsenceRepository absenceRepository;
+    private final PlanningMetrics metrics;
 
     /* ---------- 1. planning d’un EMPLOYÉ ---------- */
+    @Transactional(readOnly = true)
     public Map<LocalDate, List<AssignmentDTO>> getEmployeePlanning(Long employeeId, int month, int year) {
+        long startNanos = System.nanoTime();
         LocalDate first = YearMonth.of(year, month).atDay(1);
         LocalDate last = first.withDayOfMonth(first.lengthOfMonth());
 
@@ -61,6 +68,7 @@ public class PlanningQueryService {
             }
         }
 
+        metrics.recordQuery("employee-planning", null, System.nanoTime() - startNanos);
         return calendar;
     }
 
@@ -68,7 +76,9 @@ public class PlanningQueryService {
 
 
     /* ---------- 2. planning d’un SITE (DTO complet) ---------- */
+    @Transactional(readOnly = true)
     public SitePlanningDTO getSitePlanning(Long siteId, int month, int year) {
+        long startNanos = System.nanoTime();
 
         List<ScheduleAssignment> list =
                 assignmentRepository.findBySiteMonthYear(siteId, month, year);
@@ -84,13 +94,16 @@ public class PlanningQueryService {
                 ? null
                 : list.get(0).getSchedule().getSite().getName();
 
-        return SitePlanningDTO.builder()
+        SitePlanningDTO dto = SitePlanningDTO.builder()
                 .siteId(siteId)
                 .siteName(siteName)
                 .month(month)
                 .year(year)
                 .calendar(calendar)
                 .build();
+
+        metrics.recordQuery("site-planning", siteId, System.nanoTime() - startNanos);
+        return dto;
     }
 
 
@@ -106,12 +119,41 @@ public class PlanningQueryService {
                 .build();
     }
 
+    @Transactional(readOnly = true)
     public Long findScheduleIdForEmployee(Long employeeId, int month, int year) {
+        long startNanos = System.nanoTime();
         List<ScheduleAssignment> assignments =
                 assignmentRepository.findByEmployeeAndScheduleMonthAndYear(employeeId, month, year);
 
+        metrics.recordQuery("employee-schedule-id", null, System.nanoTime() - startNanos);
         return assignments.isEmpty() ? null : assignments.get(0).getSchedule().getId();
     }
 
+    /* ---------- 3. vacations d’un employé (flux iCalendar) ---------- */
+    @Transactional(readOnly = true)
+    public List<CalendarEventDTO> getEmployeeCalendarEvents(Long employeeId, LocalDate from, LocalDate to) {
+        long startNanos = System.nanoTime();
+        List<CalendarEventDTO> events = assignmentRepository
+                .findCalendarRowsByEmployeeId(employeeId, from, to, ScheduleAssignment.AssignmentStatus.DECLINED)
+                .stream()
+                .map(r -> CalendarEventDTO.builder()
+                        .assignmentId((Long) r[0])
+                        .date((LocalDate) r[1])
+                        .startTime((LocalTime) r[2])
+                        .endTime((LocalTime) r[3])
+                        .shift((String) r[4])
+                        .agentType(r[5] != null ? r[5].toString() : null)
+                        .status(r[6].toString())
+                        .updatedAt((LocalDateTime) r[7])
+                        .siteName((String) r[8])
+                        .address((String) r[9])
+                        .city((String) r[10])
+                        .build())
+                .collect(toList());
+
+        metrics.recordQuery("employee-calendar", null, System.nanoTime() - startNanos);
+        return events;
+    }
+
 
 }
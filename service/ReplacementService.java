@@ -0,0 +1,113 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ReplacementCandidateDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.planning.DemandCompiler;
+import org.makarimal.projet_gestionautoplanningsecure.planning.EligibilityIndex;
+import org.makarimal.projet_gestionautoplanningsecure.planning.EligibilityIndexCache;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Propose des remplaçants pour une affectation libérée (absence, refus…).
+ * <p>
+ * Tout est évalué sur l’{@link EligibilityIndex} en mémoire : aucune requête par candidat.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReplacementService {
+
+    /** Repos minimal entre deux vacations, comme dans {@link ScheduleService#addAssignment}. */
+    static final long MIN_REST_MINUTES = 12 * 60;
+
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final EligibilityIndexCache eligibilityIndexCache;
+    private final DemandCompiler demandCompiler;
+
+    @Transactional(readOnly = true)
+    public List<ReplacementCandidateDTO> findReplacements(Long companyId, Long scheduleId, Long assignmentId, int limit) {
+        ScheduleAssignment vacated = assignmentRepository.findById(assignmentId)
+                .orElseThrow(() -> new EntityNotFoundException("Affectation non trouvée : " + assignmentId));
+
+        if (!vacated.getSchedule().getId().equals(scheduleId)
+                || !vacated.getSchedule().getCompany().getId().equals(companyId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "Cette affectation n’appartient pas à ce planning");
+        }
+
+        LocalDate date = vacated.getDate();
+        LocalTime startTime = vacated.getStartTime();
+        LocalTime endTime = vacated.getEndTime();
+        LocalDateTime start = LocalDateTime.of(date, startTime);
+        LocalDateTime end = LocalDateTime.of(date, endTime);
+        if (!end.isAfter(start)) end = end.plusDays(1);     // vacation de nuit
+        int minutes = (int) java.time.Duration.between(start, end).toMinutes();
+
+        Long siteId = vacated.getSite() != null ? vacated.getSite().getId() : vacated.getSchedule().getSite().getId();
+        List<String> requiredSkills = demandCompiler.compile(siteId, YearMonth.from(date)).day(date).getRequiredSkills();
+
+        boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+        boolean night = startTime.isAfter(LocalTime.of(20, 59)) || endTime.isBefore(LocalTime.of(5, 1));
+
+        EligibilityIndex index = eligibilityIndexCache.get(companyId, YearMonth.from(date));
+        Long vacatedEmployeeId = vacated.getEmployee().getId();
+
+        List<ReplacementCandidateDTO> ranked = new ArrayList<>();
+        for (EligibilityIndex.Candidate c : index.candidates()) {
+            Long id = c.getEmployeeId();
+
+            /* ---- exclusions dures ---- */
+            if (id.equals(vacatedEmployeeId)) continue;
+            if (index.isAbsent(id, date)) continue;
+            if (weekend && !c.isCanWorkWeekends()) continue;
+            if (night && !c.isCanWorkNights()) continue;
+            if (!index.isAvailable(c, date, startTime, endTime)) continue;
+            if (index.overlaps(id, start, end, assignmentId)) continue;
+
+            /* ---- critères de classement ---- */
+            boolean agentTypeMatch = vacated.getAgentType() == null || c.getAgentTypes().contains(vacated.getAgentType());
+            int skillsMatched = (int) requiredSkills.stream().filter(c.getSkills()::contains).count();
+            boolean restCompliant = index.minRestMinutes(id, start, end, assignmentId) >= MIN_REST_MINUTES;
+            int remaining = c.getMaxMinutesPerWeek() - index.weekMinutes(id, date, assignmentId) - minutes;
+            boolean homeSite = siteId.equals(c.getHomeSiteId());
+            boolean preferredSite = c.getPreferredSites().contains(siteId);
+
+            double score = (agentTypeMatch ? 40 : 0)
+                    + (restCompliant ? 25 : 0)
+                    + (requiredSkills.isEmpty() ? 10 : 10.0 * skillsMatched / requiredSkills.size())
+                    + Math.max(-20, Math.min(20, remaining / 60.0))        // ±1 point par heure restante
+                    + (homeSite ? 10 : preferredSite ? 5 : 0);
+
+            ranked.add(ReplacementCandidateDTO.builder()
+                    .employeeId(id)
+                    .employeeName(c.getFirstName() + " " + c.getLastName())
+                    .score(Math.round(score * 10) / 10.0)
+                    .remainingWeeklyMinutes(remaining)
+                    .agentTypeMatch(agentTypeMatch)
+                    .skillsMatched(skillsMatched)
+                    .skillsRequired(requiredSkills.size())
+                    .restCompliant(restCompliant)
+                    .homeSite(homeSite)
+                    .preferredSite(preferredSite)
+                    .build());
+        }
+
+        ranked.sort(Comparator.comparingDouble(ReplacementCandidateDTO::getScore).reversed()
+                .thenComparing(ReplacementCandidateDTO::getRemainingWeeklyMinutes, Comparator.reverseOrder()));
+        return ranked.size() > limit ? ranked.subList(0, limit) : ranked;
+    }
+}
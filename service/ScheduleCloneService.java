@@ -0,0 +1,179 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.PlanningEventDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleCloneResultDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
+import org.makarimal.projet_gestionautoplanningsecure.planning.EligibilityIndex;
+import org.makarimal.projet_gestionautoplanningsecure.planning.EligibilityIndexCache;
+import org.makarimal.projet_gestionautoplanningsecure.planning.PlanningEventStream;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentBatchWriter;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Reconduit un planning sur un autre mois en alignant les jours de la semaine
+ * (le lundi source devient un lundi cible).
+ * <p>
+ * Lecture « à plat » des affectations source, filtrage absences / chevauchements sur
+ * l’{@link EligibilityIndex} du mois cible, puis insertion JDBC par lots : aucune
+ * entité affectation n’est chargée ni créée par Hibernate.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduleCloneService {
+
+    private final ScheduleService scheduleService;
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final ScheduleAssignmentBatchWriter batchWriter;
+    private final EligibilityIndexCache eligibilityIndexCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlanningEventStream planningEventStream;
+
+    @Transactional
+    public ScheduleCloneResultDTO cloneToMonth(Long companyId, Long scheduleId, int targetMonth, int targetYear) {
+        long start = System.nanoTime();
+
+        Schedule source = scheduleService.getSchedule(companyId, scheduleId);
+        YearMonth sourceMonth = YearMonth.of(source.getYear(), source.getMonth());
+        YearMonth target = YearMonth.of(targetYear, targetMonth);
+        if (target.equals(sourceMonth)) {
+            throw new IllegalArgumentException("Le mois cible doit être différent du mois source");
+        }
+
+        Schedule targetSchedule = findOrCreateTarget(source, target);
+        Long siteId = source.getSite().getId();
+
+        // Affectations source groupées par date (une requête, pas d’entité)
+        List<Object[]> sourceRows = assignmentRepository.findCloneRowsByScheduleId(
+                scheduleId, ScheduleAssignment.AssignmentStatus.DECLINED);
+        Map<LocalDate, List<Object[]>> byDate = new HashMap<>();
+        for (Object[] row : sourceRows) {
+            byDate.computeIfAbsent((LocalDate) row[2], k -> new ArrayList<>()).add(row);
+        }
+
+        // État du mois cible (absences, affectations de toute la société) en quelques requêtes
+        EligibilityIndex index = eligibilityIndexCache.load(companyId, target);
+        Map<Long, List<EligibilityIndex.Slot>> planned = new HashMap<>();
+
+        long offset = weekdayOffset(sourceMonth, target);
+        List<ScheduleAssignmentBatchWriter.Row> rows = new ArrayList<>();
+        Set<Long> employeeIds = new HashSet<>();
+        int absent = 0, overlap = 0, inactive = 0;
+
+        for (LocalDate date = target.atDay(1); !date.isAfter(target.atEndOfMonth()); date = date.plusDays(1)) {
+            for (Object[] row : byDate.getOrDefault(sourceDate(date, offset, sourceMonth), List.of())) {
+                Long employeeId = (Long) row[0];
+                if (index.candidate(employeeId) == null) { inactive++; continue; }
+                if (index.isAbsent(employeeId, date)) { absent++; continue; }
+
+                EligibilityIndex.Slot slot = new EligibilityIndex.Slot(
+                        null, date, (LocalTime) row[3], (LocalTime) row[4], (Integer) row[5]);
+                if (index.overlaps(employeeId, slot.getStart(), slot.getEnd(), null)
+                        || overlapsPlanned(planned.get(employeeId), slot)) {
+                    overlap++;
+                    continue;
+                }
+                planned.computeIfAbsent(employeeId, k -> new ArrayList<>()).add(slot);
+                employeeIds.add(employeeId);
+
+                rows.add(new ScheduleAssignmentBatchWriter.Row(
+                        targetSchedule.getId(), employeeId, row[1] != null ? (Long) row[1] : siteId,
+                        date, slot.getStart().toLocalTime(), slot.getEnd().toLocalTime(), slot.getMinutes(),
+                        (AgentType) row[6], (String) row[7], (String) row[8],
+                        ScheduleAssignment.AssignmentStatus.PENDING));
+            }
+        }
+
+        int cloned = batchWriter.insert(rows);
+        if (cloned > 0) {
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(
+                    companyId, siteId, employeeIds, target.atDay(1), target.atEndOfMonth()));
+            // insertion JDBC : pas d’écouteur JPA, les abonnés rechargent le planning cible
+            planningEventStream.stage(siteId, PlanningEventDTO.DeltaDTO.builder()
+                    .type(PlanningEventDTO.DeltaType.RESYNC)
+                    .scheduleId(targetSchedule.getId())
+                    .build());
+        }
+
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        log.info("Planning {} cloné vers {} ({}) : {} affectations en {} ms ({} absents, {} chevauchements, {} inactifs)",
+                scheduleId, target, targetSchedule.getId(), cloned, elapsed, absent, overlap, inactive);
+
+        return ScheduleCloneResultDTO.builder()
+                .sourceScheduleId(scheduleId)
+                .targetScheduleId(targetSchedule.getId())
+                .targetMonth(targetMonth)
+                .targetYear(targetYear)
+                .sourceAssignments(sourceRows.size())
+                .cloned(cloned)
+                .skippedAbsent(absent)
+                .skippedOverlap(overlap)
+                .skippedInactive(inactive)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    /** Le planning cible existant est complété (jamais vidé) ; publié, il est refusé. */
+    private Schedule findOrCreateTarget(Schedule source, YearMonth target) {
+        Schedule existing = scheduleRepository
+                .findBySiteIdAndMonthAndYear(source.getSite().getId(), target.getMonthValue(), target.getYear())
+                .orElse(null);
+        if (existing != null) {
+            if (existing.isPublished()) {
+                throw new IllegalStateException("Cannot update published schedule");
+            }
+            return existing;
+        }
+        return scheduleRepository.saveAndFlush(Schedule.builder()
+                .company(source.getCompany())
+                .site(source.getSite())
+                .name(String.format("%s - %02d/%d", source.getSite().getName(),
+                        target.getMonthValue(), target.getYear()))
+                .month(target.getMonthValue())
+                .year(target.getYear())
+                .published(false)
+                .sent(false)
+                .completionRate(0)
+                .build());
+    }
+
+    /** Décalage multiple de 7 jours le plus proche de l’écart entre les deux mois. */
+    static long weekdayOffset(YearMonth source, YearMonth target) {
+        long days = ChronoUnit.DAYS.between(source.atDay(1), target.atDay(1));
+        return Math.round(days / 7.0) * 7;
+    }
+
+    /** Même jour de semaine dans le mois source ; en bordure, la semaine voisine. */
+    static LocalDate sourceDate(LocalDate targetDate, long offset, YearMonth source) {
+        LocalDate date = targetDate.minusDays(offset);
+        while (date.isBefore(source.atDay(1))) date = date.plusWeeks(1);
+        while (date.isAfter(source.atEndOfMonth())) date = date.minusWeeks(1);
+        return date;
+    }
+
+    private static boolean overlapsPlanned(List<EligibilityIndex.Slot> planned, EligibilityIndex.Slot slot) {
+        if (planned == null) return false;
+        for (EligibilityIndex.Slot p : planned) {
+            if (p.getStart().isBefore(slot.getEnd()) && p.getEnd().isAfter(slot.getStart())) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,209 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleAssignmentRequest;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleRequest;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Modifications concurrentes des plannings et affectations, sans verrou pessimiste.
+ * <p>
+ * Chaque écriture porte la version lue par le client (If-Match, ou champ {@code version} du
+ * corps) ; sans version, 428 ({@code planning.edits.require-if-match}, activé par défaut :
+ * une écriture aveugle écraserait silencieusement celle d’un autre). Version à jour :
+ * écriture directe. Version périmée : les champs modifiés par le client
+ * sont fusionnés sur l’état courant ({@link ConcurrentEditMerger}), 409 si les mêmes
+ * champs ont changé des deux côtés. Si une autre transaction écrit entre la lecture et
+ * le commit ({@code @Version}), la modification est rejouée (au plus
+ * {@value #MAX_ATTEMPTS} fois) sur l’état relu : aucune écriture n’est perdue.
+ * <p>
+ * Les champs horaires (date, début, fin) sont fusionnés ensemble : deux utilisateurs ne
+ * peuvent pas produire un créneau que ni l’un ni l’autre n’a saisi.
+ */
+@Slf4j
+@Service
+public class ScheduleEditService {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private final ScheduleService scheduleService;
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final ConcurrentEditMerger merger;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean requireIfMatch;
+
+    public ScheduleEditService(ScheduleService scheduleService,
+                               ScheduleRepository scheduleRepository,
+                               ScheduleAssignmentRepository assignmentRepository,
+                               ConcurrentEditMerger merger,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${planning.edits.require-if-match:true}") boolean requireIfMatch) {
+        this.scheduleService = scheduleService;
+        this.scheduleRepository = scheduleRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.merger = merger;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.requireIfMatch = requireIfMatch;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Planning                                                          */
+    /* ------------------------------------------------------------------ */
+
+    public Schedule updateSchedule(Long companyId, Long scheduleId, ScheduleRequest request, Long expectedVersion) {
+        checkPrecondition(expectedVersion);
+        String key = "schedule:" + scheduleId;
+        return withRetry(key, () -> {
+            Schedule current = scheduleService.getSchedule(companyId, scheduleId);
+            Map<String, Object> currentFields = fields(current);
+            merger.remember(key, current.getVersion(), currentFields);
+
+            ScheduleRequest toApply = request;
+            if (expectedVersion != null && expectedVersion != current.getVersion()) {
+                Map<String, Object> merged = merger.merge(key, expectedVersion, current.getVersion(),
+                        currentFields, fields(request));
+                List<?> period = (List<?>) merged.get("period");
+                toApply = ScheduleRequest.builder()
+                        .name((String) merged.get("name"))
+                        .siteId((Long) merged.get("siteId"))
+                        .month((Integer) period.get(0))
+                        .year((Integer) period.get(1))
+                        .build();
+                log.debug("Planning {} : If-Match {} fusionné sur la version {}", scheduleId,
+                        expectedVersion, current.getVersion());
+            }
+            Schedule saved = scheduleService.updateSchedule(companyId, scheduleId, toApply);
+            scheduleRepository.flush();  // version incrémentée, renvoyée en ETag
+            merger.remember(key, saved.getVersion(), fields(saved));
+            return saved;
+        });
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Affectations                                                      */
+    /* ------------------------------------------------------------------ */
+
+    public ScheduleAssignment updateAssignment(Long companyId, Long assignmentId,
+                                               ScheduleAssignmentRequest request, Long expectedVersion) {
+        checkPrecondition(expectedVersion);
+        String key = "assignment:" + assignmentId;
+        return withRetry(key, () -> {
+            ScheduleAssignment current = scheduleService.getAssignment(companyId, assignmentId);
+            Map<String, Object> currentFields = fields(current);
+            merger.remember(key, current.getVersion(), currentFields);
+
+            ScheduleAssignmentRequest toApply = request;
+            if (expectedVersion != null && expectedVersion != current.getVersion()) {
+                Map<String, Object> merged = merger.merge(key, expectedVersion, current.getVersion(),
+                        currentFields, fields(request));
+                List<?> slot = (List<?>) merged.get("slot");
+                toApply = ScheduleAssignmentRequest.builder()
+                        .employeeId(request.getEmployeeId())
+                        .date((LocalDate) slot.get(0))
+                        .startTime((LocalTime) slot.get(1))
+                        .endTime((LocalTime) slot.get(2))
+                        .siteId((Long) merged.get("siteId"))
+                        .agentType((AgentType) merged.get("agentType"))
+                        .notes((String) merged.get("notes"))
+                        .shift((String) merged.get("shift"))
+                        .build();
+                log.debug("Affectation {} : If-Match {} fusionné sur la version {}", assignmentId,
+                        expectedVersion, current.getVersion());
+            }
+            ScheduleAssignment saved = scheduleService.updateAssignment(companyId, assignmentId, toApply);
+            assignmentRepository.flush();
+            merger.remember(key, saved.getVersion(), fields(saved));
+            return saved;
+        });
+    }
+
+    /** Une suppression ne se fusionne pas : refusée (412) si l’affectation a changé depuis la lecture. */
+    public void deleteAssignment(Long companyId, Long scheduleId, Long assignmentId, Long expectedVersion) {
+        checkPrecondition(expectedVersion);
+        transactionTemplate.executeWithoutResult(status -> {
+            ScheduleAssignment current = scheduleService.getAssignment(companyId, assignmentId);
+            if (expectedVersion != null && expectedVersion != current.getVersion()) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                        "Affectation modifiée entre-temps (version " + current.getVersion() + ") : recharger");
+            }
+            scheduleService.deleteAssignment(companyId, scheduleId, assignmentId);
+        });
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private void checkPrecondition(Long expectedVersion) {
+        if (expectedVersion == null && requireIfMatch) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_REQUIRED, "Version lue requise (en-tête If-Match ou champ version)");
+        }
+    }
+
+    /** Une transaction par tentative : l’état est relu après une écriture concurrente. */
+    private <T> T withRetry(String key, Supplier<T> edit) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> edit.get());
+            } catch (ObjectOptimisticLockingFailureException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("{} : écriture concurrente, tentative {}", key, attempt + 1);
+            }
+        }
+    }
+
+    private static Map<String, Object> fields(Schedule schedule) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", schedule.getName());
+        fields.put("siteId", schedule.getSite().getId());
+        fields.put("period", List.of(schedule.getMonth(), schedule.getYear()));
+        return fields;
+    }
+
+    private static Map<String, Object> fields(ScheduleRequest request) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", request.getName());
+        fields.put("siteId", request.getSiteId());
+        fields.put("period", List.of(request.getMonth(), request.getYear()));
+        return fields;
+    }
+
+    private static Map<String, Object> fields(ScheduleAssignment assignment) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("slot", List.of(assignment.getDate(), assignment.getStartTime(), assignment.getEndTime()));
+        fields.put("siteId", assignment.getSite() != null ? assignment.getSite().getId() : null);
+        fields.put("agentType", assignment.getAgentType());
+        fields.put("notes", assignment.getNotes());
+        fields.put("shift", assignment.getShift());
+        return fields;
+    }
+
+    private static Map<String, Object> fields(ScheduleAssignmentRequest request) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("slot", List.of(request.getDate(), request.getStartTime(), request.getEndTime()));
+        fields.put("siteId", request.getSiteId());
+        fields.put("agentType", request.getAgentType());
+        fields.put("notes", request.getNotes());
+        fields.put("shift", request.getShift());
+        return fields;
+    }
+}
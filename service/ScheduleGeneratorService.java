@@ -6,18 +6,20 @@ import lombok.extern.slf4j.Slf4j;
 import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleRequest;
 import org.makarimal.projet_gestionautoplanningsecure.dto.SiteResponse;
 import org.makarimal.projet_gestionautoplanningsecure.model.*;
-import org.makarimal.projet_gestionautoplanningsecure.repository.AbsenceRepository;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.PlanningMetrics;
+import org.makarimal.projet_gestionautoplanningsecure.monitoring.SqlStatementCounter;
+import org.makarimal.projet_gestionautoplanningsecure.planning.*;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EmployeeRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
-import java.time.LocalDate;
-import java.time.LocalTime;
 import java.time.YearMonth;
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 @Service
 @Slf4j
@@ -28,213 +30,128 @@ public class ScheduleGeneratorService {
     @Autowired
     private final SiteService siteService;
     @Autowired
-    private final EmployeeService employeeService;
+    private final DemandCompiler demandCompiler;
     @Autowired
-    private final SiteRuleService siteRuleService;
+    private final EligibilityIndexCache eligibilityIndexCache;
     @Autowired
-    private final EmployeeAvailabilityService availabilityService;
+    private final GenerationEngine generationEngine;
+    @Autowired
+    private final EmployeeRepository employeeRepository;
     @Autowired
     private final ScheduleAssignmentRepository assignmentRepository;
     @Autowired
-    private final AbsenceRepository absenceRepository;
+    private final PlanningMetrics metrics;
+    @Autowired
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Nombre maximal de mois générés en une fois. */
+    public static final int MAX_HORIZON_MONTHS = 3;
 
     @Transactional
     public Schedule generateSchedule(Long companyId, Long siteId, int month, int year) {
-        // Vérifier que le site existe et appartient à l'entreprise
-        SiteResponse site = siteService.getSite(companyId, siteId);
-
-        // Récupérer les règles hebdomadaires et les vacations du site
-        List<WeeklyScheduleRule> siteRules = siteRuleService.getWeeklyScheduleRules(companyId, siteId);
-        List<SiteShift> shifts = siteRuleService.getSiteShifts(companyId, siteId);
-
-        if (siteRules.isEmpty()) {
-            throw new IllegalStateException("Aucune règle ou vacation définie pour le site");
-        }
-
-        // Créer le planning mensuel
-        Schedule schedule = scheduleService.createOrRefresh(companyId, new ScheduleRequest(
-                site.getName() + " - " + month + "/" + year,
-                siteId,
-                month,
-                year
-        ));
-
-        // Générer les affectations pour chaque jour du mois
-        YearMonth yearMonth = YearMonth.of(year, month);
-        LocalDate startDate = yearMonth.atDay(1);
-        LocalDate endDate = yearMonth.atEndOfMonth();
-
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            DayOfWeek currentDay = date.getDayOfWeek();
-
-            // Récupérer la règle de la semaine pour le jour en cours
-            Optional<WeeklyScheduleRule> ruleOpt = siteRules.stream()
-                    .filter(rule -> rule.getDayOfWeek() == currentDay)
-                    .findFirst();
-
-            if (ruleOpt.isEmpty()) continue; // Aucun planning pour ce jour
-
-            WeeklyScheduleRule ruleForDay = ruleOpt.get();
-
-            // Filtrer les employés éligibles pour ce jour
-            List<Employee> eligibleEmployees = employeeService.getActiveEmployeesForSite(siteId).stream()
-                    .filter(Employee::isActive)
-                    .filter(e -> hasRequiredSkills(e, ruleForDay.getRequiredSkills()))
-                    .filter(e -> e.getMaxHoursPerWeek() >= ruleForDay.getMinEmployees() * 8)
-                    .collect(Collectors.toList());
-
-            /* ---------- TRACE À AJOUTER ICI ------------------------------ */
-            log.debug("Day {}, règle {}, employés éligibles = {}",
-                    date, ruleForDay.getDayOfWeek(), eligibleEmployees.size());
-            /* ------------------------------------------------------------- */
-
-            if (eligibleEmployees.isEmpty()) {
-                System.out.println("Aucun employé éligible pour le " + currentDay);
-                continue;
-            }
-
-            // Générer les assignations pour ce jour
-            generateDailyAssignments(schedule, date, shifts, eligibleEmployees, ruleForDay);
-        }
-
-        // Mettre à jour le taux de complétion
-        updateCompletionRate(schedule);
-
-        return schedule;
+        return generate("schedule", companyId, siteId, YearMonth.of(year, month), 1).get(0);
     }
 
-
-    private void generateDailyAssignments(
-            Schedule schedule,
-            LocalDate date,
-            List<SiteShift> shifts,
-            List<Employee> employees,
-            WeeklyScheduleRule siteRule
-    ) {
-        for (SiteShift shift : shifts) {
-            List<Employee> availableEmployees = findAvailableEmployees(
-                    employees,
-                    date,
-                    shift.getStartTime(),
-                    shift.getEndTime(),
-                    shift.getMinExperience(),
-                    shift.getRequiredSkills()
-            );
-
-            for (int i = 0; i < shift.getRequiredEmployees() && i < availableEmployees.size(); i++) {
-                Employee employee = availableEmployees.get(i);
-
-                ScheduleAssignment assignment = ScheduleAssignment.builder()
-                        .schedule(schedule)
-                        .employee(employee)
-                        .date(date)
-                        .startTime(shift.getStartTime())
-                        .endTime(shift.getEndTime())
-                        .duration(calculateDuration(shift.getStartTime(), shift.getEndTime()))
-                        .status(ScheduleAssignment.AssignmentStatus.PENDING)
-                        .build();
-
-                // Lier au planning
-                schedule.getAssignments().add(assignment);
-
-                assignmentRepository.save(assignment);
-            }
+    /**
+     * Génère {@code months} mois consécutifs (1 à {@link #MAX_HORIZON_MONTHS}) à partir de
+     * {@code month}/{@code year} : un {@code Schedule} par mois, mais un seul index
+     * d’éligibilité et une seule exécution du moteur, qui garde les heures planifiées d’un
+     * mois pour le suivant (semaine à cheval, repos, plafond journalier).
+     */
+    @Transactional
+    public List<Schedule> generateHorizon(Long companyId, Long siteId, int month, int year, int months) {
+        if (months < 1 || months > MAX_HORIZON_MONTHS) {
+            throw new IllegalArgumentException("Horizon de 1 à " + MAX_HORIZON_MONTHS + " mois");
         }
+        return generate("horizon", companyId, siteId, YearMonth.of(year, month), months);
     }
 
+    private List<Schedule> generate(String operation, Long companyId, Long siteId, YearMonth first, int months) {
+        long startNanos = System.nanoTime();
+        long sqlBefore = SqlStatementCounter.current();
+        try {
+            // Vérifier que le site existe et appartient à l'entreprise
+            SiteResponse site = siteService.getSite(companyId, siteId);
+            YearMonth last = first.plusMonths(months - 1);
+
+            // Demande compilée de chaque mois (règles, vacations, overrides) : une seule lecture du paramétrage
+            List<SiteDemandTable> demands = new ArrayList<>(months);
+            for (YearMonth m = first; !m.isAfter(last); m = m.plusMonths(1)) {
+                SiteDemandTable demand = demandCompiler.compile(siteId, m);
+                if (!demand.isHasRules()) {
+                    throw new IllegalStateException("Aucune règle ou vacation définie pour le site");
+                }
+                demands.add(demand);
+            }
 
-    private List<Employee> findAvailableEmployees(
-            List<Employee> employees,
-            LocalDate date,
-            LocalTime startTime,
-            LocalTime endTime,
-            int minExperience,
-            List<String> requiredSkills
-    ) {
-        List<Employee> availableEmployees = employees.stream()
-                .filter(e -> isEmployeeAvailable(e, date, startTime, endTime))
-                .filter(e -> !absenceRepository.existsByEmployeeIdAndDate(e.getId(), date))
-                .filter(e -> hasRequiredSkills(e, requiredSkills))
-                .sorted(Comparator
-                        .comparing((Employee e) -> getEmployeeWorkload(e, date))
-                        .thenComparing(e -> e.getSkillSets().size(), Comparator.reverseOrder())
-                )
-                .toList();
-
-        /* ---------- TRACE À AJOUTER ICI ------------------------------ */
-        log.debug("Shift {}–{}, dispo après filtres = {}",
-                startTime, endTime, availableEmployees.size());
-        /* ------------------------------------------------------------- */
-        return availableEmployees;
-    }
-
-    private boolean isEmployeeAvailable(
-            Employee employee,
-            LocalDate date,
-            LocalTime startTime,
-            LocalTime endTime
-    ) {
-        // Vérifier les disponibilités de l'employé
-        List<EmployeeAvailability> availabilities = availabilityService.getAvailabilities(
-                employee.getCompany().getId(),
-                employee.getId()
-        );
-
-        boolean hasAvailability = availabilities.stream()
-                .anyMatch(a -> a.getDayOfWeek() == date.getDayOfWeek() &&
-                        !a.getStartTime().isAfter(startTime) &&
-                        !a.getEndTime().isBefore(endTime));
-
-        if (!hasAvailability) {
-            return false;
-        }
+            // Créer (ou vider) le planning de chaque mois
+            List<Schedule> schedules = new ArrayList<>(months);
+            for (SiteDemandTable demand : demands) {
+                YearMonth m = demand.getMonth();
+                schedules.add(scheduleService.createOrRefresh(companyId, ScheduleRequest.builder()
+                        .name(site.getName() + " - " + m.getMonthValue() + "/" + m.getYear())
+                        .siteId(siteId)
+                        .month(m.getMonthValue())
+                        .year(m.getYear())
+                        .build()));
+            }
 
-        // Vérifier les affectations existantes
-        List<ScheduleAssignment> existingAssignments = assignmentRepository.findByEmployeeId(employee.getId());
+            // Index relu après les refresh (affectations effacées), une fois pour tout l’horizon
+            EligibilityIndex index = eligibilityIndexCache.load(companyId, first, last);
+            List<PlanningSnapshot> snapshots = demands.stream()
+                    .map(demand -> PlanningSnapshot.of(siteId, demand, index))
+                    .toList();
+            List<GenerationResult> results = generationEngine.runHorizon(snapshots, GenerationEngine.Mode.SHIFTS);
+
+            int filled = 0;
+            int unfilled = 0;
+            for (int i = 0; i < schedules.size(); i++) {
+                Schedule schedule = schedules.get(i);
+                GenerationResult result = results.get(i);
+                log.debug("Site {} {}/{} : {} affectations, {} places non pourvues", siteId,
+                        schedule.getMonth(), schedule.getYear(), result.getFilled(), result.unfilledCount());
+                save(schedule, result);
+                filled += result.getFilled();
+                unfilled += result.unfilledCount();
+            }
 
-        // Vérifier les chevauchements
-        boolean hasConflict = existingAssignments.stream()
-                .anyMatch(a -> a.getDate().equals(date) &&
-                        !(a.getEndTime().isBefore(startTime) || a.getStartTime().isAfter(endTime)));
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(companyId, siteId, Set.of(),
+                    first.atDay(1), last.atEndOfMonth()));
 
-        if (hasConflict) {
-            return false;
+            metrics.recordGeneration(operation, companyId, siteId, System.nanoTime() - startNanos,
+                    filled, unfilled, SqlStatementCounter.current() - sqlBefore);
+            return schedules;
+        } catch (RuntimeException e) {
+            metrics.recordGenerationFailure(operation, companyId, siteId, System.nanoTime() - startNanos);
+            throw e;
         }
-
-        // Vérifier les heures max par jour
-        int dailyHours = existingAssignments.stream()
-                .filter(a -> a.getDate().equals(date))
-                .mapToInt(ScheduleAssignment::getDuration)
-                .sum();
-
-        EmployeePreference preferences = availabilityService.getPreferences(
-                employee.getCompany().getId(),
-                employee.getId()
-        );
-
-        return (dailyHours + calculateDuration(startTime, endTime)) <= preferences.getMaxHoursPerDay();
     }
 
-    private int getEmployeeWorkload(Employee employee, LocalDate date) {
-        LocalDate weekStart = date.with(DayOfWeek.MONDAY);
-        LocalDate weekEnd = weekStart.plusDays(6);
-
-        return assignmentRepository.findByEmployeeId(employee.getId()).stream()
-                .filter(a -> !a.getDate().isBefore(weekStart) && !a.getDate().isAfter(weekEnd))
-                .mapToInt(ScheduleAssignment::getDuration)
-                .sum();
-    }
-
-    private boolean hasRequiredSkills(Employee employee, List<String> requiredSkills) {
-        return employee.getSkillSets().containsAll(requiredSkills);
-    }
-
-    private boolean isWorkingDay(DayOfWeek dayOfWeek, WeeklyScheduleRule rule) {
-        return rule.getDayOfWeek().equals(dayOfWeek);
-    }
+    private void save(Schedule schedule, GenerationResult result) {
+        List<ScheduleAssignment> assignments = new ArrayList<>(result.getAssignments().size());
+        for (GenerationResult.PlannedAssignment planned : result.getAssignments()) {
+            ScheduleAssignment assignment = ScheduleAssignment.builder()
+                    .schedule(schedule)
+                    .employee(employeeRepository.getReferenceById(planned.getEmployeeId()))
+                    .site(schedule.getSite())
+                    .date(planned.getDate())
+                    .startTime(planned.getStartTime())
+                    .endTime(planned.getEndTime())
+                    .duration(planned.getMinutes())
+                    .agentType(planned.getAgentType())
+                    .shift(planned.getLabel())
+                    .status(ScheduleAssignment.AssignmentStatus.PENDING)
+                    .build();
+
+            // Lier au planning
+            schedule.getAssignments().add(assignment);
+            assignments.add(assignment);
+        }
+        assignmentRepository.saveAll(assignments);
+        eventPublisher.publishEvent(new ScheduleCheckpointEvent(schedule.getId(), ScheduleVersion.Reason.GENERATED));
 
-    private int calculateDuration(LocalTime start, LocalTime end) {
-        return (int) java.time.Duration.between(start, end).toMinutes();
+        // Mettre à jour le taux de complétion
+        updateCompletionRate(schedule);
     }
 
     private void updateCompletionRate(Schedule schedule) {
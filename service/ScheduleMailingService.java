@@ -0,0 +1,161 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.exception.MailDispatchException;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleMailing;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleMailingRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Envoi d’un planning par mail (un PDF par employé), en trois temps :
+ * <ol>
+ *   <li>transaction courte : lecture du planning et des affectations, copie en valeurs
+ *       simples de tout ce que le PDF et le mail utilisent ;</li>
+ *   <li>hors transaction (aucune connexion tenue) : rendu PDF et SMTP sur
+ *       {@code mailExecutor}, chaque envoi réussi enregistré aussitôt
+ *       ({@link ScheduleMailing}) ;</li>
+ *   <li>transaction courte : planning marqué envoyé si aucun envoi n’a échoué.</li>
+ * </ol>
+ * En cas d’échec partiel, {@link MailDispatchException} ; une relance ne renvoie qu’aux
+ * employés pas encore servis.
+ */
+@Slf4j
+@Service
+public class ScheduleMailingService {
+
+    private final ScheduleService scheduleService;
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final ScheduleMailingRepository mailingRepository;
+    private final MailService mailService;
+    private final PlanningPdfService planningPdfService;
+    private final TransactionTemplate transactionTemplate;
+
+    public ScheduleMailingService(ScheduleService scheduleService,
+                                  ScheduleRepository scheduleRepository,
+                                  ScheduleAssignmentRepository assignmentRepository,
+                                  ScheduleMailingRepository mailingRepository,
+                                  MailService mailService,
+                                  PlanningPdfService planningPdfService,
+                                  PlatformTransactionManager transactionManager) {
+        this.scheduleService = scheduleService;
+        this.scheduleRepository = scheduleRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.mailingRepository = mailingRepository;
+        this.mailService = mailService;
+        this.planningPdfService = planningPdfService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Mail à envoyer à un employé, sans référence aux entités. */
+    private static final class Mailing {
+        final Long employeeId;
+        final String email;
+        final String subject;
+        final String body;
+        final PlanningPdfService.EmployeePlanning planning;
+
+        Mailing(Long employeeId, String email, String subject, String body,
+                PlanningPdfService.EmployeePlanning planning) {
+            this.employeeId = employeeId;
+            this.email = email;
+            this.subject = subject;
+            this.body = body;
+            this.planning = planning;
+        }
+    }
+
+    public Schedule sendSchedule(Long companyId, Long scheduleId) {
+        List<Mailing> pending = transactionTemplate.execute(status -> prepare(companyId, scheduleId));
+
+        Map<Long, CompletableFuture<Void>> sends = new LinkedHashMap<>();
+        for (Mailing mailing : pending) {
+            sends.put(mailing.employeeId, mailService
+                    .dispatchSchedulePdf(mailing.email, mailing.subject, mailing.body,
+                            () -> planningPdfService.generatePdf(mailing.planning))
+                    .thenRun(() -> recordSent(scheduleId, mailing.employeeId)));
+        }
+
+        List<Long> failed = new ArrayList<>();
+        Throwable firstCause = null;
+        for (Map.Entry<Long, CompletableFuture<Void>> send : sends.entrySet()) {
+            try {
+                send.getValue().join();
+            } catch (CompletionException e) {
+                failed.add(send.getKey());
+                if (firstCause == null) firstCause = e.getCause();
+                log.warn("Planning {} : envoi à l’employé {} en échec : {}", scheduleId, send.getKey(),
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            }
+        }
+        if (!failed.isEmpty()) {
+            throw new MailDispatchException(pending.size() - failed.size(), failed, firstCause);
+        }
+
+        // marquer comme envoyé : les enregistrements ci-dessus deviennent antérieurs à sentAt
+        return transactionTemplate.execute(status -> {
+            Schedule s = scheduleService.getSchedule(companyId, scheduleId);
+            s.setSent(true);
+            s.setSentAt(LocalDateTime.now());
+            return scheduleRepository.save(s);
+        });
+    }
+
+    private List<Mailing> prepare(Long companyId, Long scheduleId) {
+        Schedule s = scheduleService.getSchedule(companyId, scheduleId);
+        Set<Long> alreadySent = new HashSet<>(mailingRepository.findEmployeeIdsSentSince(scheduleId, s.getSentAt()));
+
+        // regrouper les assignments par employé
+        Map<Long, List<ScheduleAssignment>> byEmp = assignmentRepository
+                .findByScheduleId(scheduleId)
+                .stream()
+                .collect(Collectors.groupingBy(a -> a.getEmployee().getId(), LinkedHashMap::new, Collectors.toList()));
+
+        String subj = "Votre planning " + s.getSite().getName()
+                + " " + String.format("%02d/%d", s.getMonth(), s.getYear());
+        List<Mailing> pending = new ArrayList<>();
+        byEmp.forEach((empId, assigns) -> {
+            if (alreadySent.contains(empId)) return;
+            String body = "Bonjour " + assigns.get(0).getEmployee().getFirstName()
+                    + ",\n\nVeuillez trouver ci-joint votre planning.";
+            pending.add(new Mailing(empId, assigns.get(0).getEmployee().getEmail(), subj, body,
+                    planningPdfService.capture(s, assigns)));
+        });
+        if (!alreadySent.isEmpty()) {
+            log.info("Planning {} : reprise de l’envoi, {} employé(s) déjà servi(s), {} restant(s)",
+                    scheduleId, alreadySent.size(), pending.size());
+        }
+        return pending;
+    }
+
+    /** Transaction propre (repository) : l’envoi est acquis même si la suite échoue. */
+    private void recordSent(Long scheduleId, Long employeeId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (mailingRepository.markSent(scheduleId, employeeId, now) > 0) {
+            return;
+        }
+        try {
+            mailingRepository.save(ScheduleMailing.builder()
+                    .scheduleId(scheduleId)
+                    .employeeId(employeeId)
+                    .sentAt(now)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // envoi concurrent du même planning : la ligne vient d’être créée
+            mailingRepository.markSent(scheduleId, employeeId, now);
+        }
+    }
+}
@@ -6,11 +6,16 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.makarimal.projet_gestionautoplanningsecure.dto.AssignmentDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ComplianceReportDTO;
 import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleAssignmentRequest;
 import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleRequest;
 import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleResponse;
+import org.makarimal.projet_gestionautoplanningsecure.exception.ComplianceViolationException;
 import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
+import org.makarimal.projet_gestionautoplanningsecure.planning.ScheduleCheckpointEvent;
 import org.makarimal.projet_gestionautoplanningsecure.repository.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
@@ -20,6 +25,7 @@ import java.io.IOException;
 import java.time.*;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -31,9 +37,9 @@ public class ScheduleService {
     private final ScheduleAssignmentRepository assignmentRepository;
     private final CompanyRepository companyRepository;
     private final SiteRepository siteRepository;
-    private final MailService mailService;
-    private final PlanningPdfService planningPdfService;
     private final AbsenceRepository absenceRepository;
+    private final ComplianceValidator complianceValidator;
+    private final ApplicationEventPublisher eventPublisher;
 
     /* ===============================================================
        CREATE  ▸ ou ▸  REFRESH  (si déjà un schedule même clé unique)
@@ -61,10 +67,16 @@ public class ScheduleService {
         /* ========= 1) planning déjà présent → on « rafraîchit » ========= */
         if (schedule != null) {
 
-            // suppression des vieilles affectations
+            // l’état qui va être effacé est versionné s’il a changé depuis la dernière version
+            eventPublisher.publishEvent(new ScheduleCheckpointEvent(schedule.getId(), ScheduleVersion.Reason.BEFORE_REFRESH));
+
+            // suppression des vieilles affectations de CE planning (pas des autres mois / sites)
             List<ScheduleAssignment> old =
-                    assignmentRepository.findAllForCompany(companyId);
+                    assignmentRepository.findByScheduleId(schedule.getId());
             assignmentRepository.deleteAll(old);
+            if (!old.isEmpty()) {
+                eventPublisher.publishEvent(AssignmentsChangedEvent.of(companyId, old));
+            }
 
             // remise à zéro des indicateurs
             schedule.setCompletionRate(0);
@@ -173,11 +185,30 @@ public class ScheduleService {
     }
 
     public Schedule publishSchedule(Long companyId, Long id) {
+        return publishSchedule(companyId, id, false);
+    }
+
+    /**
+     * Publie après contrôle de conformité ; en cas de violation, la publication est refusée
+     * ({@link ComplianceViolationException}) sauf si {@code force}.
+     */
+    public Schedule publishSchedule(Long companyId, Long id, boolean force) {
         Schedule s = getSchedule(companyId, id);
+        ComplianceReportDTO report = complianceValidator.validate(s);
+        if (!report.isCompliant()) {
+            if (!force) {
+                throw new ComplianceViolationException(report);
+            }
+            log.warn("Planning {} publié malgré {} violation(s) de conformité", id, report.getViolations().size());
+        }
         s.setPublished(true);
         return scheduleRepository.save(s);
     }
 
+    public ComplianceReportDTO checkCompliance(Long companyId, Long id) {
+        return complianceValidator.validate(getSchedule(companyId, id));
+    }
+
     /*public Schedule sendSchedule(Long companyId, Long id) {
         Schedule s = getSchedule(companyId, id);
         s.setSent(true);
@@ -300,19 +331,35 @@ public class ScheduleService {
                 .status(ScheduleAssignment.AssignmentStatus.PENDING)
                 .build();
 
-        return assignmentRepository.save(assignment);
+        ScheduleAssignment saved = assignmentRepository.save(assignment);
+        eventPublisher.publishEvent(AssignmentsChangedEvent.of(companyId, List.of(saved)));
+        return saved;
     }
 
-    @Transactional
-    public ScheduleAssignment updateAssignment(Long assignmentId, ScheduleAssignmentRequest request) {
+    /** Affectation d’un planning de la société (403 sinon). */
+    public ScheduleAssignment getAssignment(Long companyId, Long assignmentId) {
         ScheduleAssignment assignment = assignmentRepository.findById(assignmentId)
                 .orElseThrow(() -> new EntityNotFoundException("Affectation non trouvée"));
+        if (!assignment.getSchedule().getCompany().getId().equals(companyId)) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN,
+                    "Vous n’êtes pas autorisé·e à modifier cette affectation");
+        }
+        return assignment;
+    }
+
+    @Transactional
+    public ScheduleAssignment updateAssignment(Long companyId, Long assignmentId, ScheduleAssignmentRequest request) {
+        ScheduleAssignment assignment = getAssignment(companyId, assignmentId);
+        LocalDate previousDate = assignment.getDate();
+        Long previousSiteId = assignment.getSite() != null
+                ? assignment.getSite().getId() : assignment.getSchedule().getSite().getId();
 
         assignment.setDate(request.getDate());
         assignment.setStartTime(request.getStartTime());
         assignment.setEndTime(request.getEndTime());
 
         Site site = siteRepository.findById(request.getSiteId())
+                .filter(s -> s.getCompany().getId().equals(companyId))
                 .orElseThrow(() -> new EntityNotFoundException("Site non trouvé"));
         assignment.setSite(site);
 
@@ -327,7 +374,20 @@ public class ScheduleService {
         }
         assignment.setDuration((int) durationMin);
 
-        return assignmentRepository.save(assignment);
+        ScheduleAssignment saved = assignmentRepository.save(assignment);
+        Set<Long> employeeIds = Set.of(saved.getEmployee().getId());
+        if (previousSiteId.equals(site.getId())) {
+            LocalDate from = previousDate.isBefore(saved.getDate()) ? previousDate : saved.getDate();
+            LocalDate to = previousDate.isAfter(saved.getDate()) ? previousDate : saved.getDate();
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(companyId, site.getId(), employeeIds, from, to));
+        } else {
+            // Changement de site : l’ancien perd l’affectation, le nouveau la gagne
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(
+                    companyId, previousSiteId, employeeIds, previousDate, previousDate));
+            eventPublisher.publishEvent(new AssignmentsChangedEvent(
+                    companyId, site.getId(), employeeIds, saved.getDate(), saved.getDate()));
+        }
+        return saved;
     }
 
     @Transactional
@@ -345,6 +405,7 @@ public class ScheduleService {
 
         // 3) Supprimer
         assignmentRepository.delete(assignment);
+        eventPublisher.publishEvent(AssignmentsChangedEvent.of(companyId, List.of(assignment)));
     }
 
     public void handleUnjustifiedAbsence(Long employeeId, LocalDate date) {
@@ -364,33 +425,6 @@ public class ScheduleService {
     }
 
 
-    @Transactional
-    public Schedule sendSchedule(Long companyId, Long scheduleId) {
-        Schedule s = getSchedule(companyId, scheduleId);
-
-        // regrouper les assignments par employé
-        Map<Long, List<ScheduleAssignment>> byEmp = assignmentRepository
-                .findByScheduleId(scheduleId)
-                .stream()
-                .collect(Collectors.groupingBy(a -> a.getEmployee().getId()));
-
-        // pour chaque employé, on génère et on envoie
-        byEmp.forEach((empId, assigns) -> {
-            String email = assigns.get(0).getEmployee().getEmail();
-            byte[] pdf = planningPdfService.generatePdfForEmployee(s, assigns);
-            String subj = "Votre planning " + s.getSite().getName()
-                    + " " + String.format("%02d/%d", s.getMonth(), s.getYear());
-            String body = "Bonjour " + assigns.get(0).getEmployee().getFirstName()
-                    + ",\n\nVeuillez trouver ci-joint votre planning.";
-            mailService.sendSchedulePdfToEmployee(email, subj, body, pdf);
-        });
-
-        // marquer comme envoyé
-        s.setSent(true);
-        s.setSentAt(LocalDateTime.now());
-        return scheduleRepository.save(s);
-    }
-
     public ScheduleResponse toDto(Schedule schedule, List<ScheduleAssignment> assignments) {
         return ScheduleResponse.builder()
                 .id(schedule.getId())
@@ -404,6 +438,7 @@ public class ScheduleService {
                 .completionRate(schedule.getCompletionRate())
                 .createdAt(schedule.getCreatedAt())
                 .updatedAt(schedule.getUpdatedAt())
+                .version(schedule.getVersion())
                 .site(ScheduleResponse.SiteInfo.builder()
                         .id(schedule.getSite().getId())
                         .name(schedule.getSite().getName())
@@ -0,0 +1,332 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.PlanningEventDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleDiffDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleVersionDTO;
+import org.makarimal.projet_gestionautoplanningsecure.model.AgentType;
+import org.makarimal.projet_gestionautoplanningsecure.model.Schedule;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleVersion;
+import org.makarimal.projet_gestionautoplanningsecure.planning.AssignmentsChangedEvent;
+import org.makarimal.projet_gestionautoplanningsecure.planning.PlanningEventStream;
+import org.makarimal.projet_gestionautoplanningsecure.planning.RosterDelta;
+import org.makarimal.projet_gestionautoplanningsecure.planning.RosterRow;
+import org.makarimal.projet_gestionautoplanningsecure.planning.ScheduleCheckpointEvent;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentBatchWriter;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleVersionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Versions immuables du contenu des plannings.
+ * <p>
+ * Copie sur écriture : une version n’est créée que si le contenu a changé depuis la
+ * précédente, et ne stocke que le delta (lignes retirées / ajoutées). Un état complet
+ * est stocké toutes les {@code planning.versions.keyframe-interval} versions, ou quand
+ * le delta serait plus gros que l’état (régénération complète) : la reconstruction
+ * d’une version relit au plus un état complet et les deltas qui le suivent.
+ * <p>
+ * Diff et retour arrière sont des fusions de listes triées ; le retour arrière ne
+ * relance pas la génération : il supprime et insère (JDBC par lots) exactement les
+ * lignes qui diffèrent.
+ */
+@Slf4j
+@Service
+public class ScheduleVersionService {
+
+    private final ScheduleVersionRepository versionRepository;
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final ScheduleAssignmentBatchWriter batchWriter;
+    private final ScheduleService scheduleService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlanningEventStream planningEventStream;
+    private final int keyframeInterval;
+
+    public ScheduleVersionService(ScheduleVersionRepository versionRepository,
+                                  ScheduleAssignmentRepository assignmentRepository,
+                                  ScheduleAssignmentBatchWriter batchWriter,
+                                  ScheduleService scheduleService,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlanningEventStream planningEventStream,
+                                  @Value("${planning.versions.keyframe-interval:20}") int keyframeInterval) {
+        this.versionRepository = versionRepository;
+        this.assignmentRepository = assignmentRepository;
+        this.batchWriter = batchWriter;
+        this.scheduleService = scheduleService;
+        this.eventPublisher = eventPublisher;
+        this.planningEventStream = planningEventStream;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    /** Synchrone : la version est écrite dans la transaction de la génération / du rafraîchissement. */
+    @EventListener
+    public void onCheckpoint(ScheduleCheckpointEvent event) {
+        capture(event.getScheduleId(), event.getReason(), null);
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  API                                                               */
+    /* ------------------------------------------------------------------ */
+
+    @Transactional(readOnly = true)
+    public List<ScheduleVersionDTO> listVersions(Long companyId, Long scheduleId) {
+        scheduleService.getSchedule(companyId, scheduleId);
+        List<ScheduleVersionDTO> versions = new ArrayList<>();
+        for (Object[] r : versionRepository.findSummariesByScheduleId(scheduleId)) {
+            versions.add(ScheduleVersionDTO.builder()
+                    .scheduleId(scheduleId)
+                    .number((Integer) r[0])
+                    .keyframe((Boolean) r[1])
+                    .reason(((ScheduleVersion.Reason) r[2]).name())
+                    .restoredFrom((Integer) r[3])
+                    .assignmentCount((Integer) r[4])
+                    .added((Integer) r[5])
+                    .removed((Integer) r[6])
+                    .storedBytes((Integer) r[7])
+                    .createdAt((LocalDateTime) r[8])
+                    .build());
+        }
+        return versions;
+    }
+
+    /** Fige l’état courant (modifications manuelles) ; sans effet s’il n’a pas changé. */
+    @Transactional
+    public ScheduleVersionDTO snapshot(Long companyId, Long scheduleId) {
+        scheduleService.getSchedule(companyId, scheduleId);
+        ScheduleVersion version = capture(scheduleId, ScheduleVersion.Reason.MANUAL, null);
+        if (version == null) {
+            throw new IllegalStateException("Planning vide : aucune version à créer");
+        }
+        return toDto(version);
+    }
+
+    /** @param to null = état courant */
+    @Transactional(readOnly = true)
+    public ScheduleDiffDTO diff(Long companyId, Long scheduleId, int from, Integer to) {
+        scheduleService.getSchedule(companyId, scheduleId);
+        List<RosterRow> before = reconstruct(scheduleId, from);
+        List<RosterRow> after = to != null ? reconstruct(scheduleId, to) : loadCurrent(scheduleId);
+        RosterDelta delta = RosterDelta.between(before, after);
+
+        // Retraits et ajouts triés par ORDER, donc par créneau : seconde fusion sur le créneau
+        List<ScheduleDiffDTO.RowDTO> removed = new ArrayList<>();
+        List<ScheduleDiffDTO.RowDTO> added = new ArrayList<>();
+        List<ScheduleDiffDTO.ChangeDTO> changed = new ArrayList<>();
+        List<RosterRow> r = delta.getRemoved();
+        List<RosterRow> a = delta.getAdded();
+        int i = 0, j = 0;
+        while (i < r.size() && j < a.size()) {
+            int c = RosterRow.SLOT.compare(r.get(i), a.get(j));
+            if (c == 0) {
+                changed.add(new ScheduleDiffDTO.ChangeDTO(toDto(r.get(i++)), toDto(a.get(j++))));
+            } else if (c < 0) {
+                removed.add(toDto(r.get(i++)));
+            } else {
+                added.add(toDto(a.get(j++)));
+            }
+        }
+        while (i < r.size()) removed.add(toDto(r.get(i++)));
+        while (j < a.size()) added.add(toDto(a.get(j++)));
+
+        return ScheduleDiffDTO.builder()
+                .scheduleId(scheduleId)
+                .fromVersion(from)
+                .toVersion(to)
+                .added(added)
+                .removed(removed)
+                .changed(changed)
+                .build();
+    }
+
+    /**
+     * Ramène le planning au contenu de la version {@code number}. L’état courant est
+     * d’abord versionné s’il a changé (rien n’est perdu), puis le retour arrière
+     * devient lui-même une nouvelle version.
+     */
+    @Transactional
+    public ScheduleVersionDTO rollback(Long companyId, Long scheduleId, int number) {
+        long start = System.nanoTime();
+        Schedule schedule = scheduleService.getSchedule(companyId, scheduleId);
+        if (schedule.isPublished()) {
+            throw new IllegalStateException("Cannot update published schedule");
+        }
+        List<RosterRow> target = reconstruct(scheduleId, number);
+        capture(scheduleId, ScheduleVersion.Reason.MANUAL, null);
+
+        List<RosterRow> current = loadCurrent(scheduleId);
+        RosterDelta delta = RosterDelta.between(current, target);
+        if (!delta.isEmpty()) {
+            List<Long> deleted = delta.getRemoved().stream().map(RosterRow::getAssignmentId).toList();
+            assignmentRepository.deleteAllByIdInBatch(deleted);
+
+            Long siteId = schedule.getSite().getId();
+            List<ScheduleAssignmentBatchWriter.Row> rows = new ArrayList<>(delta.getAdded().size());
+            for (RosterRow row : delta.getAdded()) {
+                // site_id tel que versionné : null (site du planning) reste null
+                rows.add(new ScheduleAssignmentBatchWriter.Row(
+                        scheduleId, row.getEmployeeId(), row.getSiteId(),
+                        row.getDate(), row.getStartTime(), row.getEndTime(), row.getDuration(),
+                        row.getAgentType(), row.getNotes(), row.getShift(), row.getStatus()));
+            }
+            batchWriter.insert(rows);
+
+            publishChanges(companyId, siteId, scheduleId, delta);
+        }
+
+        ScheduleVersion version = capture(scheduleId, ScheduleVersion.Reason.ROLLBACK, number);
+        log.info("Planning {} ramené à la version {} : {} retirées, {} ajoutées en {} ms", scheduleId, number,
+                delta.getRemoved().size(), delta.getAdded().size(), (System.nanoTime() - start) / 1_000_000);
+        return version != null ? toDto(version) : null;
+    }
+
+    /* ------------------------------------------------------------------ */
+    /*  Versions                                                          */
+    /* ------------------------------------------------------------------ */
+
+    /**
+     * Crée une version si le contenu courant diffère de la dernière.
+     *
+     * @return la nouvelle version, la dernière si rien n’a changé, null si le planning
+     *         n’a jamais été versionné et qu’il est vide
+     */
+    ScheduleVersion capture(Long scheduleId, ScheduleVersion.Reason reason, Integer restoredFrom) {
+        List<RosterRow> current = loadCurrent(scheduleId);
+        ScheduleVersion latest = versionRepository.findTopByScheduleIdOrderByNumberDesc(scheduleId).orElse(null);
+
+        RosterDelta delta;
+        int number;
+        boolean keyframe;
+        if (latest == null) {
+            if (current.isEmpty()) {
+                return null;
+            }
+            number = 1;
+            delta = RosterDelta.full(current);
+            keyframe = true;
+        } else {
+            delta = RosterDelta.between(reconstruct(scheduleId, latest.getNumber()), current);
+            if (delta.isEmpty()) {
+                return latest;
+            }
+            number = latest.getNumber() + 1;
+            int changes = delta.getRemoved().size() + delta.getAdded().size();
+            keyframe = (number - 1) % keyframeInterval == 0 || changes >= current.size();
+        }
+
+        byte[] payload = (keyframe ? RosterDelta.full(current) : delta).encode();
+        ScheduleVersion version = versionRepository.save(ScheduleVersion.builder()
+                .scheduleId(scheduleId)
+                .number(number)
+                .keyframe(keyframe)
+                .reason(reason)
+                .restoredFrom(restoredFrom)
+                .assignmentCount(current.size())
+                .addedCount(delta.getAdded().size())
+                .removedCount(delta.getRemoved().size())
+                .payload(payload)
+                .payloadSize(payload.length)
+                .createdAt(LocalDateTime.now())
+                .build());
+        log.debug("Planning {} : version {} ({}, {} affectations, {} octets{})", scheduleId, number, reason,
+                current.size(), payload.length, keyframe ? ", complète" : "");
+        return version;
+    }
+
+    /** Contenu de la version : dernier état complet, puis deltas successifs. */
+    private List<RosterRow> reconstruct(Long scheduleId, int number) {
+        if (!versionRepository.existsByScheduleIdAndNumber(scheduleId, number)) {
+            throw new EntityNotFoundException("Version " + number + " not found");
+        }
+        Integer base = versionRepository.findKeyframeNumber(scheduleId, number);
+        if (base == null) {
+            throw new IllegalStateException("Aucun état complet avant la version " + number);
+        }
+        List<RosterRow> rows = List.of();
+        for (ScheduleVersion version : versionRepository.findByScheduleIdAndNumberBetweenOrderByNumber(scheduleId, base, number)) {
+            RosterDelta delta = RosterDelta.decode(version.getPayload());
+            rows = version.isKeyframe() ? delta.getAdded() : delta.applyTo(rows);
+        }
+        return rows;
+    }
+
+    private List<RosterRow> loadCurrent(Long scheduleId) {
+        List<RosterRow> rows = new ArrayList<>();
+        for (Object[] r : assignmentRepository.findVersionRowsByScheduleId(scheduleId)) {
+            rows.add(new RosterRow((Long) r[0], (Long) r[1], (Long) r[2], (LocalDate) r[3],
+                    (LocalTime) r[4], (LocalTime) r[5], r[6] != null ? (Integer) r[6] : 0,
+                    (AgentType) r[7], (String) r[8], (ScheduleAssignment.AssignmentStatus) r[9], (String) r[10]));
+        }
+        // déjà presque trié par la requête : le tri complet est quasi linéaire
+        rows.sort(RosterRow.ORDER);
+        return rows;
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private void publishChanges(Long companyId, Long siteId, Long scheduleId, RosterDelta delta) {
+        Set<Long> employeeIds = new HashSet<>();
+        Set<Long> siteIds = new LinkedHashSet<>();
+        siteIds.add(siteId);
+        LocalDate from = null;
+        LocalDate to = null;
+        for (List<RosterRow> rows : List.of(delta.getRemoved(), delta.getAdded())) {
+            for (RosterRow row : rows) {
+                employeeIds.add(row.getEmployeeId());
+                if (row.getSiteId() != null) siteIds.add(row.getSiteId());
+                if (from == null || row.getDate().isBefore(from)) from = row.getDate();
+                if (to == null || row.getDate().isAfter(to)) to = row.getDate();
+            }
+        }
+        // affectations détachées sur un autre site : tous les sites de la société sont concernés
+        eventPublisher.publishEvent(new AssignmentsChangedEvent(companyId, siteIds.size() == 1 ? siteId : null,
+                employeeIds, from, to));
+        // écritures en masse : pas d’écouteur JPA, les abonnés rechargent le planning
+        for (Long site : siteIds) {
+            planningEventStream.stage(site, PlanningEventDTO.DeltaDTO.builder()
+                    .type(PlanningEventDTO.DeltaType.RESYNC)
+                    .scheduleId(scheduleId)
+                    .build());
+        }
+    }
+
+    private static ScheduleVersionDTO toDto(ScheduleVersion version) {
+        return ScheduleVersionDTO.builder()
+                .scheduleId(version.getScheduleId())
+                .number(version.getNumber())
+                .reason(version.getReason().name())
+                .restoredFrom(version.getRestoredFrom())
+                .keyframe(version.isKeyframe())
+                .assignmentCount(version.getAssignmentCount())
+                .added(version.getAddedCount())
+                .removed(version.getRemovedCount())
+                .storedBytes(version.getPayloadSize())
+                .createdAt(version.getCreatedAt())
+                .build();
+    }
+
+    private static ScheduleDiffDTO.RowDTO toDto(RosterRow row) {
+        return ScheduleDiffDTO.RowDTO.builder()
+                .employeeId(row.getEmployeeId())
+                .siteId(row.getSiteId())
+                .date(row.getDate())
+                .startTime(row.getStartTime())
+                .endTime(row.getEndTime())
+                .duration(row.getDuration())
+                .agentType(row.getAgentType() != null ? row.getAgentType().name() : null)
+                .shift(row.getShift())
+                .status(row.getStatus() != null ? row.getStatus().name() : null)
+                .notes(row.getNotes())
+                .build();
+    }
+}
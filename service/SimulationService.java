@@ -0,0 +1,195 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.makarimal.projet_gestionautoplanningsecure.dto.SimulationRequest;
+import org.makarimal.projet_gestionautoplanningsecure.dto.SimulationResultDTO;
+import org.makarimal.projet_gestionautoplanningsecure.planning.*;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Simulation « et si… » : le {@link GenerationEngine} tourne en mémoire sur un
+ * {@link PlanningSnapshot} (demande et index en cache), une variante par scénario,
+ * en parallèle. Aucune écriture, aucune requête par scénario.
+ */
+@Slf4j
+@Service
+public class SimulationService {
+
+    static final String BASELINE = "baseline";
+
+    private final SiteService siteService;
+    private final DemandCompiler demandCompiler;
+    private final EligibilityIndexCache eligibilityIndexCache;
+    private final GenerationEngine generationEngine;
+    private final ThreadPoolTaskExecutor executor;
+    private final long timeoutMillis;
+
+    public SimulationService(SiteService siteService,
+                             DemandCompiler demandCompiler,
+                             EligibilityIndexCache eligibilityIndexCache,
+                             GenerationEngine generationEngine,
+                             @Qualifier("simulationExecutor") ThreadPoolTaskExecutor executor,
+                             @Value("${planning.simulation.timeout-seconds:30}") long timeoutSeconds) {
+        this.siteService = siteService;
+        this.demandCompiler = demandCompiler;
+        this.eligibilityIndexCache = eligibilityIndexCache;
+        this.generationEngine = generationEngine;
+        this.executor = executor;
+        this.timeoutMillis = timeoutSeconds * 1000;
+    }
+
+    public List<SimulationResultDTO> simulate(Long companyId, Long siteId, int month, int year,
+                                              SimulationRequest request) {
+        // Vérifier que le site existe et appartient à l'entreprise
+        siteService.getSite(companyId, siteId);
+
+        YearMonth yearMonth = YearMonth.of(year, month);
+        SiteDemandTable demand = demandCompiler.compile(siteId, yearMonth);
+        PlanningSnapshot baseline = PlanningSnapshot.of(siteId, demand, eligibilityIndexCache.get(companyId, yearMonth));
+
+        GenerationEngine.Mode mode = request.getGenerator() == SimulationRequest.Generator.ASSIGNMENT
+                ? GenerationEngine.Mode.AGENT_TYPES
+                : GenerationEngine.Mode.SHIFTS;
+
+        Map<String, PlanningSnapshot> scenarios = new LinkedHashMap<>();
+        scenarios.put(BASELINE, baseline);
+        for (SimulationRequest.Scenario scenario : request.getScenarios()) {
+            if (scenarios.containsKey(scenario.getName())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Nom de scénario en double : " + scenario.getName());
+            }
+            scenarios.put(scenario.getName(), baseline.withScenario(
+                    toDeltas(scenario.getSlotDeltas()), mode.source(), toLeaves(scenario.getLeaves(), yearMonth)));
+        }
+
+        Map<String, Future<SimulationResultDTO>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, PlanningSnapshot> e : scenarios.entrySet()) {
+            try {
+                futures.put(e.getKey(), executor.submit(() -> run(e.getKey(), e.getValue(), mode)));
+            } catch (TaskRejectedException ex) {
+                cancelAll(futures);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Trop de simulations en cours, réessayez plus tard");
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        List<SimulationResultDTO> results = new ArrayList<>(futures.size());
+        for (Map.Entry<String, Future<SimulationResultDTO>> e : futures.entrySet()) {
+            results.add(await(e.getKey(), e.getValue(), deadline));
+        }
+        return results;
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private SimulationResultDTO run(String name, PlanningSnapshot snapshot, GenerationEngine.Mode mode) {
+        long start = System.nanoTime();
+        GenerationResult result = generationEngine.run(snapshot, mode);
+
+        Map<Long, Double> hours = new TreeMap<>();
+        result.getMinutesByEmployee().forEach((id, minutes) -> hours.put(id, Math.round(minutes / 6.0) / 10.0));
+
+        return SimulationResultDTO.builder()
+                .scenario(name)
+                .required(result.getRequired())
+                .filled(result.getFilled())
+                .unfilled(result.unfilledCount())
+                .coverageRate(result.coverageRate())
+                .unfilledSlots(result.getUnfilled().stream()
+                        .map(u -> SimulationResultDTO.UnfilledSlotDTO.builder()
+                                .date(u.getDate())
+                                .startTime(u.getStartTime())
+                                .endTime(u.getEndTime())
+                                .agentType(u.getAgentType())
+                                .label(u.getLabel())
+                                .missing(u.getMissing())
+                                .build())
+                        .toList())
+                .hoursPerEmployee(hours)
+                .elapsedMillis((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    private SimulationResultDTO await(String name, Future<SimulationResultDTO> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return failed(name, "Délai de simulation dépassé");
+        } catch (ExecutionException e) {
+            log.warn("Scénario {} en échec", name, e.getCause());
+            return failed(name, String.valueOf(e.getCause().getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return failed(name, "Simulation interrompue");
+        }
+    }
+
+    private static SimulationResultDTO failed(String name, String error) {
+        return SimulationResultDTO.builder()
+                .scenario(name)
+                .unfilledSlots(List.of())
+                .hoursPerEmployee(Map.of())
+                .error(error)
+                .build();
+    }
+
+    private static void cancelAll(Map<String, Future<SimulationResultDTO>> futures) {
+        futures.values().forEach(f -> f.cancel(true));
+    }
+
+    private static List<DemandDelta> toDeltas(List<SimulationRequest.SlotDelta> deltas) {
+        if (deltas == null) return List.of();
+        List<DemandDelta> result = new ArrayList<>(deltas.size());
+        for (SimulationRequest.SlotDelta d : deltas) {
+            if (d.isAdd() && (d.getStartTime() == null || d.getEndTime() == null)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Un créneau ajouté doit préciser ses horaires");
+            }
+            result.add(DemandDelta.builder()
+                    .daysOfWeek(d.getDaysOfWeek())
+                    .date(d.getDate())
+                    .agentType(d.getAgentType())
+                    .label(d.getLabel())
+                    .startTime(d.getStartTime())
+                    .endTime(d.getEndTime())
+                    .add(d.isAdd())
+                    .count(d.getCount())
+                    .countDelta(d.getCountDelta())
+                    .build());
+        }
+        return result;
+    }
+
+    /** Dates d’absence, bornées au mois simulé. */
+    private static Map<Long, Set<LocalDate>> toLeaves(List<SimulationRequest.Leave> leaves, YearMonth month) {
+        if (leaves == null) return Map.of();
+        Map<Long, Set<LocalDate>> result = new HashMap<>();
+        for (SimulationRequest.Leave leave : leaves) {
+            if (leave.getTo().isBefore(leave.getFrom())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "La date de fin doit suivre la date de début");
+            }
+            Set<LocalDate> dates = result.computeIfAbsent(leave.getEmployeeId(), k -> new HashSet<>());
+            LocalDate from = leave.getFrom().isBefore(month.atDay(1)) ? month.atDay(1) : leave.getFrom();
+            LocalDate to = leave.getTo().isAfter(month.atEndOfMonth()) ? month.atEndOfMonth() : leave.getTo();
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                dates.add(d);
+            }
+        }
+        return result;
+    }
+}
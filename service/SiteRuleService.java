@@ -8,6 +8,7 @@ import org.makarimal.projet_gestionautoplanningsecure.dto.SiteScheduleRuleReques
 import org.makarimal.projet_gestionautoplanningsecure.dto.SiteShiftRequest;
 import org.makarimal.projet_gestionautoplanningsecure.dto.WeeklyScheduleRuleRequest;
 import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.planning.DemandCompiler;
 import org.makarimal.projet_gestionautoplanningsecure.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,8 +21,6 @@ import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 public class SiteRuleService {
-    @Autowired
-    private final SiteRepository siteRepository;
     @Autowired
     private final SiteShiftRepository shiftRepository;
     @Autowired
@@ -30,6 +29,10 @@ public class SiteRuleService {
     private final SiteScheduleOverrideRepository overrideRepository;
     @Autowired
     private final WeeklyScheduleRuleRepository weeklyRuleRepository;
+    @Autowired
+    private final DemandCompiler demandCompiler;
+    @Autowired
+    private final TenantGuard tenantGuard;
 
     @Transactional
     public SiteShift createShift(Long companyId, Long siteId, SiteShiftRequest request) {
@@ -37,9 +40,7 @@ public class SiteRuleService {
         if (crossesMidnight) {
             System.out.println("Vacation de nuit détectée : commence à " + request.getStartTime() + ", finit à " + request.getEndTime());
         }
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        Site site = tenantGuard.site(companyId, siteId);
 
         SiteShift shift = SiteShift.builder()
                 .site(site)
@@ -51,14 +52,13 @@ public class SiteRuleService {
                 .requiredSkills(request.getRequiredSkills())
                 .build();
 
+        demandCompiler.invalidate(siteId);
         return shiftRepository.save(shift);
     }
 
     @Transactional
     public List<WeeklyScheduleRule> defineWeeklyScheduleRule(Long companyId, Long siteId, @Valid List<WeeklyScheduleRuleRequest> requests) {
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        Site site = tenantGuard.site(companyId, siteId);
 
         List<WeeklyScheduleRule> newRules = requests.stream().map(req -> {
             WeeklyScheduleRule rule = WeeklyScheduleRule.builder()
@@ -89,15 +89,14 @@ public class SiteRuleService {
             return rule;
         }).collect(Collectors.toList());
 
+        demandCompiler.invalidate(siteId);
         return weeklyRuleRepository.saveAll(newRules);
     }
 
     @Transactional
     public SiteScheduleRule updateScheduleRule(Long companyId, Long siteId, SiteScheduleRuleRequest request) {
         // Vérifier si le site appartient à l'entreprise
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        tenantGuard.requireSite(companyId, siteId);
 
         // Chercher une règle de planning existante
         SiteScheduleRule rule = ruleRepository.findBySiteId(siteId)
@@ -119,24 +118,19 @@ public class SiteRuleService {
 
 
     public List<SiteShift> getSiteShifts(Long companyId, Long siteId) {
-        if (!siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .isPresent()) {
-            throw new EntityNotFoundException("Site not found");
-        }
+        tenantGuard.requireSite(companyId, siteId);
 
         return shiftRepository.findBySiteId(siteId);
     }
 
     @Transactional
     public void deleteShift(Long companyId, Long siteId, Long shiftId) {
-        if (!siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .isPresent()) {
-            throw new EntityNotFoundException("Site not found");
-        }
+        tenantGuard.requireSite(companyId, siteId);
 
-        shiftRepository.deleteById(shiftId);
+        if (shiftRepository.deleteByIdAndSiteId(shiftId, siteId) == 0) {
+            throw new EntityNotFoundException("Shift not found");
+        }
+        demandCompiler.invalidate(siteId);
     }
 
 
@@ -145,9 +139,7 @@ public class SiteRuleService {
     @Transactional
     public SiteScheduleOverride createOrUpdateOverride(Long companyId, Long siteId, SiteScheduleOverrideRequest request) {
         // Vérifier si le site appartient à l'entreprise
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        Site site = tenantGuard.site(companyId, siteId);
 
         // Chercher un override existant pour cette date
         SiteScheduleOverride override = overrideRepository
@@ -165,34 +157,27 @@ public class SiteRuleService {
         override.setRequiresWeekendCoverage(request.isRequiresWeekendCoverage());
         override.setRequiredSkills(request.getRequiredSkills());
 
+        demandCompiler.invalidate(siteId);
         return overrideRepository.save(override);
     }
 
 
     public SiteScheduleRule getScheduleRule(Long companyId, Long siteId) {
-        if (!siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .isPresent()) {
-            throw new EntityNotFoundException("Site not found");
-        }
+        tenantGuard.requireSite(companyId, siteId);
 
         return ruleRepository.findBySiteId(siteId)
                 .orElseThrow(() -> new EntityNotFoundException("Site schedule rule not found"));
     }
 
     public List<WeeklyScheduleRule> getWeeklyScheduleRules(Long companyId, Long siteId) {
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        tenantGuard.requireSite(companyId, siteId);
 
         return weeklyRuleRepository.findBySiteId(siteId);
     }
 
     @Transactional
     public List<WeeklyScheduleRule> replaceWeeklyRules(Long companyId, Long siteId, List<WeeklyScheduleRuleRequest> requests) {
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        tenantGuard.requireSite(companyId, siteId);
 
         // Supprimer les anciennes règles
         weeklyRuleRepository.deleteBySiteId(siteId);
@@ -205,11 +190,10 @@ public class SiteRuleService {
 
     @Transactional
     public void deleteWeeklyRules(Long companyId, Long siteId) {
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        tenantGuard.requireSite(companyId, siteId);
 
         weeklyRuleRepository.deleteBySiteId(siteId);
+        demandCompiler.invalidate(siteId);
     }
 
 
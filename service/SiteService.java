@@ -7,7 +7,6 @@ import org.makarimal.projet_gestionautoplanningsecure.dto.SiteResponse;
 import org.makarimal.projet_gestionautoplanningsecure.mapper.SiteMapper;
 import org.makarimal.projet_gestionautoplanningsecure.model.Company;
 import org.makarimal.projet_gestionautoplanningsecure.model.Site;
-import org.makarimal.projet_gestionautoplanningsecure.model.User;
 import org.makarimal.projet_gestionautoplanningsecure.repository.CompanyRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.UserRepository;
@@ -33,13 +32,8 @@ public class SiteService {
 
     @Transactional
     public SiteResponse createSite(SiteRequest request) {
-        // Utiliser AuthServiceHelper pour récupérer l'utilisateur courant
-        User user = authServiceHelper.getCurrentUser();
-        Company company = user.getCompany();
-
-        if (company == null) {
-            throw new IllegalStateException("User is not associated with a company");
-        }
+        // Société courante lue dans le principal : pas de requête sur l'utilisateur
+        Company company = authServiceHelper.getCurrentCompany();
 
         // Vérifier si un site avec ce nom existe déjà dans l'entreprise
         if (siteRepository.existsByNameAndCompanyId(request.getName(), company.getId())) {
@@ -6,7 +6,7 @@ import org.makarimal.projet_gestionautoplanningsecure.dto.SiteShiftTemplateReque
 import org.makarimal.projet_gestionautoplanningsecure.model.Site;
 import org.makarimal.projet_gestionautoplanningsecure.model.SiteShiftTemplate;
 import org.makarimal.projet_gestionautoplanningsecure.model.SiteShiftTemplateAgent;
-import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
+import org.makarimal.projet_gestionautoplanningsecure.planning.DemandCompiler;
 import org.makarimal.projet_gestionautoplanningsecure.repository.SiteShiftTemplateRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -21,13 +21,13 @@ public class SiteShiftTemplateService {
     @Autowired
     private final SiteShiftTemplateRepository templateRepository;
     @Autowired
-    private final SiteRepository siteRepository;
+    private final TenantGuard tenantGuard;
+    @Autowired
+    private final DemandCompiler demandCompiler;
 
     @Transactional
     public SiteShiftTemplate createTemplate(Long companyId, Long siteId, SiteShiftTemplateRequest request) {
-        Site site = siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+        Site site = tenantGuard.site(companyId, siteId);
 
         SiteShiftTemplate template = SiteShiftTemplate.builder()
                 .site(site)
@@ -50,22 +50,17 @@ public class SiteShiftTemplateService {
                 .collect(Collectors.toList());
 
         template.setAgents(agents);
+        demandCompiler.invalidate(siteId);
         return templateRepository.save(template);
     }
 
     public SiteShiftTemplate getTemplate(Long companyId, Long siteId, Long templateId) {
-        return templateRepository.findById(templateId)
-                .filter(t -> t.getSite().getId().equals(siteId))
-                .filter(t -> t.getSite().getCompany().getId().equals(companyId))
+        return templateRepository.findByIdAndSiteIdAndSiteCompanyId(templateId, siteId, companyId)
                 .orElseThrow(() -> new EntityNotFoundException("Template not found"));
     }
 
     public List<SiteShiftTemplate> getTemplates(Long companyId, Long siteId, Boolean active) {
-        if (!siteRepository.findById(siteId)
-                .filter(s -> s.getCompany().getId().equals(companyId))
-                .isPresent()) {
-            throw new EntityNotFoundException("Site not found");
-        }
+        tenantGuard.requireSite(companyId, siteId);
 
         if (active != null) {
             return templateRepository.findBySiteIdAndIsActive(siteId, active);
@@ -103,6 +98,7 @@ public class SiteShiftTemplateService {
                 .collect(Collectors.toList());
 
         template.getAgents().addAll(agents);
+        demandCompiler.invalidate(siteId);
         return templateRepository.save(template);
     }
 
@@ -110,6 +106,7 @@ public class SiteShiftTemplateService {
     public SiteShiftTemplate toggleTemplateStatus(Long companyId, Long siteId, Long templateId) {
         SiteShiftTemplate template = getTemplate(companyId, siteId, templateId);
         template.setActive(!template.isActive());
+        demandCompiler.invalidate(siteId);
         return templateRepository.save(template);
     }
 
@@ -117,5 +114,6 @@ public class SiteShiftTemplateService {
     public void deleteTemplate(Long companyId, Long siteId, Long templateId) {
         SiteShiftTemplate template = getTemplate(companyId, siteId, templateId);
         templateRepository.delete(template);
+        demandCompiler.invalidate(siteId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.makarimal.projet_gestionautoplanningsecure.model.Employee;
+import org.makarimal.projet_gestionautoplanningsecure.model.Site;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EmployeeRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Contrôles d’appartenance à la société sans charger les entités.
+ * <p>
+ * Chaque vérification est une requête {@code exists} sur (id, company_id) : lecture
+ * d’index, aucune hydratation, pas de chargement paresseux de {@code Company}.
+ * Quand l’entité doit être renvoyée au client, {@link #site} la lit en une requête
+ * filtrée par société (résultat en cache de second niveau) ; sinon un proxy
+ * ({@link #employeeReference}) suffit pour poser une clé étrangère.
+ */
+@Component
+@RequiredArgsConstructor
+public class TenantGuard {
+
+    private final SiteRepository siteRepository;
+    private final EmployeeRepository employeeRepository;
+
+    public void requireSite(Long companyId, Long siteId) {
+        if (siteId == null || !siteRepository.existsByIdAndCompanyId(siteId, companyId)) {
+            throw new EntityNotFoundException("Site not found");
+        }
+    }
+
+    public Site site(Long companyId, Long siteId) {
+        return siteRepository.findByIdAndCompanyId(siteId, companyId)
+                .orElseThrow(() -> new EntityNotFoundException("Site not found"));
+    }
+
+    public void requireEmployee(Long companyId, Long employeeId) {
+        if (employeeId == null || !employeeRepository.existsByIdAndCompanyId(employeeId, companyId)) {
+            throw new EntityNotFoundException("Employee not found");
+        }
+    }
+
+    public Employee employeeReference(Long companyId, Long employeeId) {
+        requireEmployee(companyId, employeeId);
+        return employeeRepository.getReferenceById(employeeId);
+    }
+}
@@ -0,0 +1,136 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routage sur deux bases H2 embarquées, montées comme dans {@link DataSourceRoutingConfig} :
+ * chaque base contient une ligne qui la nomme.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private static final Duration MAX_LAG = Duration.ofMillis(300);
+
+    private ReplicaStickiness stickiness;
+    private JdbcTemplate jdbc;
+    private JdbcTemplate primaryOnly;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        stickiness = new ReplicaStickiness(MAX_LAG);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, stickiness);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        jdbc = new JdbcTemplate(dataSource);
+        primaryOnly = new JdbcTemplate(primary);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactionGoesToTheReplica() {
+        assertEquals("replica", readOnly.execute(s -> whichDatabase()));
+    }
+
+    @Test
+    void writeGoesToThePrimary() {
+        readWrite.executeWithoutResult(s -> jdbc.update("insert into writes (id) values (1)"));
+
+        assertEquals(1, primaryOnly.queryForObject("select count(*) from writes", Integer.class));
+        assertEquals("primary", readWrite.execute(s -> whichDatabase()));
+    }
+
+    @Test
+    void pinnedClientReadsFromThePrimary() {
+        MockHttpServletRequest byHeader = new MockHttpServletRequest();
+        byHeader.addHeader(ReplicaStickiness.HEADER, String.valueOf(System.currentTimeMillis() + 10_000));
+        assertEquals("primary", readInRequest(byHeader));
+
+        MockHttpServletRequest byCookie = new MockHttpServletRequest();
+        byCookie.setCookies(new Cookie(ReplicaStickiness.COOKIE, String.valueOf(System.currentTimeMillis() + 10_000)));
+        assertEquals("primary", readInRequest(byCookie));
+
+        MockHttpServletRequest expired = new MockHttpServletRequest();
+        expired.addHeader(ReplicaStickiness.HEADER, String.valueOf(System.currentTimeMillis() - 1));
+        assertEquals("replica", readInRequest(expired));
+    }
+
+    @Test
+    void writeResponsePinsTheClientForMaxLag() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/schedules");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long before = System.currentTimeMillis();
+
+        stickiness.pinClient(request, response);
+
+        long until = Long.parseLong(response.getHeader(ReplicaStickiness.HEADER));
+        assertTrue(until >= before + MAX_LAG.toMillis() && until <= System.currentTimeMillis() + MAX_LAG.toMillis());
+        assertNotNull(response.getCookie(ReplicaStickiness.COOKIE));
+    }
+
+    @Test
+    void clientDeadlineIsCappedAtMaxLag() throws InterruptedException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ReplicaStickiness.HEADER, String.valueOf(System.currentTimeMillis() + 3_600_000));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertTrue(stickiness.isSticky());
+        Thread.sleep(MAX_LAG.toMillis() + 100);
+        assertFalse(stickiness.isSticky(), "une heure demandée, max-lag accordé");
+        assertEquals("replica", readOnly.execute(s -> whichDatabase()));
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private String readInRequest(MockHttpServletRequest request) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            return readOnly.execute(s -> whichDatabase());
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private String whichDatabase() {
+        return jdbc.queryForObject("select name from which_database", String.class);
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table which_database (name varchar(16))");
+        jdbc.update("insert into which_database (name) values (?)", name);
+        jdbc.execute("create table writes (id int)");
+        return dataSource;
+    }
+}
@@ -0,0 +1,180 @@
+package org.makarimal.projet_gestionautoplanningsecure.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.repository.SiteRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.WeeklyScheduleRuleRepository;
+import org.makarimal.projet_gestionautoplanningsecure.support.IntegrationTest;
+import org.makarimal.projet_gestionautoplanningsecure.support.TestData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Les écritures passant par Hibernate invalident les régions du cache de second niveau :
+ * entités, collections et résultats de requêtes relus après commit sont à jour.
+ */
+@IntegrationTest
+class SecondLevelCacheInvalidationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private SiteRepository siteRepository;
+    @Autowired
+    private WeeklyScheduleRuleRepository ruleRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationContext context;
+
+    private TransactionTemplate tx;
+    private Statistics statistics;
+    private TestData data;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        data = new TestData(context);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @Test
+    void siteReadTwiceIsServedFromTheCache() {
+        Site site = data.site(data.company());
+
+        readSite(site.getId());
+        assertTrue(entityManagerFactory.getCache().contains(Site.class, site.getId()));
+        long hits = statistics.getSecondLevelCacheHitCount();
+
+        assertEquals(site.getName(), readSite(site.getId()).getName());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > hits, "deuxième lecture servie par le cache");
+    }
+
+    @Test
+    void siteUpdateIsVisibleAfterCommit() {
+        Site site = data.site(data.company());
+        readSite(site.getId());
+
+        tx.executeWithoutResult(s -> siteRepository.findById(site.getId()).orElseThrow().setName("Renommé"));
+
+        assertEquals("Renommé", readSite(site.getId()).getName());
+    }
+
+    @Test
+    void rolledBackUpdateDoesNotReachTheCache() {
+        Site site = data.site(data.company());
+        readSite(site.getId());
+
+        tx.executeWithoutResult(s -> {
+            siteRepository.findById(site.getId()).orElseThrow().setName("Jamais validé");
+            siteRepository.flush();
+            s.setRollbackOnly();
+        });
+
+        assertEquals(site.getName(), readSite(site.getId()).getName());
+    }
+
+    @Test
+    void deletedSiteLeavesTheCache() {
+        Site site = data.site(data.company());
+        readSite(site.getId());
+
+        tx.executeWithoutResult(s -> siteRepository.deleteById(site.getId()));
+
+        assertFalse(entityManagerFactory.getCache().contains(Site.class, site.getId()));
+        assertTrue(tx.execute(s -> siteRepository.findById(site.getId())).isEmpty());
+    }
+
+    @Test
+    void cachedTenantLookupFollowsOwnershipChanges() {
+        Company owner = data.company();
+        Company other = data.company();
+        Site site = data.site(owner);
+        assertTrue(tx.execute(s -> siteRepository.findByIdAndCompanyId(site.getId(), owner.getId())).isPresent());
+
+        tx.executeWithoutResult(s -> siteRepository.findById(site.getId()).orElseThrow()
+                .setCompany(entityManager.getReference(Company.class, other.getId())));
+
+        assertTrue(tx.execute(s -> siteRepository.findByIdAndCompanyId(site.getId(), owner.getId())).isEmpty(),
+                "résultat de requête en cache invalidé par l’écriture sur sites");
+        assertTrue(tx.execute(s -> siteRepository.findByIdAndCompanyId(site.getId(), other.getId())).isPresent());
+    }
+
+    @Test
+    void cachedRuleQueryAndAgentCollectionFollowWrites() {
+        Site site = data.site(data.company());
+        Long ruleId = tx.execute(s -> ruleRepository.save(rule(site, DayOfWeek.MONDAY)).getId());
+        assertEquals(1, tx.execute(s -> ruleRepository.findBySiteId(site.getId())).size());
+        assertEquals(1, agentCount(ruleId));
+
+        // Nouvelle règle : le résultat de requête en cache est périmé
+        tx.executeWithoutResult(s -> ruleRepository.save(rule(site, DayOfWeek.TUESDAY)));
+        assertEquals(2, tx.execute(s -> ruleRepository.findBySiteId(site.getId())).size());
+
+        // Agent ajouté à la collection : la région des collections est invalidée
+        tx.executeWithoutResult(s -> {
+            WeeklyScheduleRule rule = ruleRepository.findById(ruleId).orElseThrow();
+            rule.getAgents().add(agent(rule, LocalTime.of(20, 0), LocalTime.of(23, 0)));
+        });
+        assertEquals(2, agentCount(ruleId));
+
+        // Agent modifié : l’entité en cache est remplacée
+        tx.executeWithoutResult(s -> ruleRepository.findById(ruleId).orElseThrow()
+                .getAgents().forEach(a -> a.setRequiredCount(5)));
+        assertTrue(tx.execute(s -> ruleRepository.findById(ruleId).orElseThrow().getAgents().stream()
+                .allMatch(a -> a.getRequiredCount() == 5)));
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private Site readSite(Long id) {
+        return tx.execute(s -> siteRepository.findById(id).orElseThrow());
+    }
+
+    private int agentCount(Long ruleId) {
+        return tx.execute(s -> ruleRepository.findById(ruleId).orElseThrow().getAgents().size());
+    }
+
+    private static WeeklyScheduleRule rule(Site site, DayOfWeek day) {
+        WeeklyScheduleRule rule = WeeklyScheduleRule.builder()
+                .site(site)
+                .dayOfWeek(day)
+                .minEmployees(1)
+                .maxEmployees(2)
+                .requiredSkills(new ArrayList<>())
+                .requiredAgentTypes(new ArrayList<>(List.of(AgentType.ADS)))
+                .agents(new ArrayList<>())
+                .build();
+        rule.getAgents().add(agent(rule, LocalTime.of(8, 0), LocalTime.of(16, 0)));
+        return rule;
+    }
+
+    private static AgentSchedule agent(WeeklyScheduleRule rule, LocalTime start, LocalTime end) {
+        return AgentSchedule.builder()
+                .weeklyScheduleRule(rule)
+                .agentType(AgentType.ADS)
+                .startTime(start)
+                .endTime(end)
+                .requiredCount(1)
+                .build();
+    }
+}
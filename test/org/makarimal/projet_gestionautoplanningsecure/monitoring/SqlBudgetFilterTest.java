@@ -0,0 +1,85 @@
+package org.makarimal.projet_gestionautoplanningsecure.monitoring;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.makarimal.projet_gestionautoplanningsecure.repository.CompanyRepository;
+import org.makarimal.projet_gestionautoplanningsecure.security.JwtService;
+import org.makarimal.projet_gestionautoplanningsecure.support.IntegrationTest;
+import org.makarimal.projet_gestionautoplanningsecure.support.TestData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Budget SQL en mode strict ({@link IntegrationTest}) : un endpoint au-delà de son
+ * {@link SqlBudget} fait échouer la requête.
+ */
+@IntegrationTest
+@AutoConfigureMockMvc
+@Import(SqlBudgetFilterTest.ProbeController.class)
+class SqlBudgetFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JwtService jwtService;
+    @Autowired
+    private ApplicationContext context;
+
+    private String token;
+
+    /** Trois requêtes SQL par appel, sous deux budgets. */
+    @RestController
+    static class ProbeController {
+
+        private final CompanyRepository companyRepository;
+
+        ProbeController(CompanyRepository companyRepository) {
+            this.companyRepository = companyRepository;
+        }
+
+        @GetMapping("/test/sql-budget/tight")
+        @SqlBudget(statements = 1)
+        public long tight() {
+            return threeQueries();
+        }
+
+        @GetMapping("/test/sql-budget/loose")
+        @SqlBudget(statements = 20)
+        public long loose() {
+            return threeQueries();
+        }
+
+        private long threeQueries() {
+            return companyRepository.count() + companyRepository.count() + companyRepository.count();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        token = jwtService.generateToken(new TestData(context).company().getOwner());
+    }
+
+    @Test
+    void endpointOverItsBudgetFails() {
+        SqlBudgetExceededException e = assertThrows(SqlBudgetExceededException.class,
+                () -> mockMvc.perform(get("/test/sql-budget/tight").header("Authorization", "Bearer " + token)));
+        assertTrue(e.getMessage().contains("GET /test/sql-budget/tight"), e.getMessage());
+    }
+
+    @Test
+    void endpointWithinItsBudgetPasses() throws Exception {
+        mockMvc.perform(get("/test/sql-budget/loose").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(SqlBudgetFilter.STATEMENTS_HEADER));
+    }
+}
@@ -0,0 +1,102 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ComplianceReportDTO;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ComplianceReportDTO.Rule;
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.support.IntegrationTest;
+import org.makarimal.projet_gestionautoplanningsecure.support.TestData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Limites légales par employé : heures cumulées sur tous les sites, semaines à cheval
+ * sur deux mois comptées en entier, violations rapportées pour le mois contrôlé seulement.
+ */
+@IntegrationTest
+class ComplianceValidatorTest {
+
+    private static final LocalTime DAY_START = LocalTime.of(6, 0);
+    private static final LocalTime DAY_END = LocalTime.of(18, 0);
+
+    @Autowired
+    private ComplianceValidator validator;
+    @Autowired
+    private ApplicationContext context;
+
+    private TestData data;
+    private Company company;
+    private Site siteA;
+    private Site siteB;
+    private Employee employee;
+
+    @BeforeEach
+    void setUp() {
+        data = new TestData(context);
+        company = data.company();
+        siteA = data.site(company);
+        siteB = data.site(company);
+        employee = data.employee(company, siteA);
+    }
+
+    @Test
+    void weeklyHoursAreSummedAcrossSites() {
+        // semaine du lundi 13 mai 2030 : 36 h sur A, 24 h sur B
+        Schedule onA = data.schedule(company, siteA, 5, 2030);
+        Schedule onB = data.schedule(company, siteB, 5, 2030);
+        work(onA, LocalDate.of(2030, 5, 13), 3);
+        work(onB, LocalDate.of(2030, 5, 16), 2);
+
+        ComplianceReportDTO report = validator.validate(onA);
+
+        assertTrue(hasViolation(report, Rule.WEEKLY_HOURS, LocalDate.of(2030, 5, 13)), report.getViolations().toString());
+    }
+
+    @Test
+    void weekAcrossTheMonthBoundaryIsCountedInFull() {
+        // semaine du lundi 29 avril 2030 : 24 h en avril, 36 h en mai
+        Schedule april = data.schedule(company, siteA, 4, 2030);
+        Schedule may = data.schedule(company, siteA, 5, 2030);
+        work(april, LocalDate.of(2030, 4, 29), 2);
+        work(may, LocalDate.of(2030, 5, 1), 3);
+
+        ComplianceReportDTO report = validator.validate(may);
+
+        assertTrue(hasViolation(report, Rule.WEEKLY_HOURS, LocalDate.of(2030, 4, 29)), report.getViolations().toString());
+    }
+
+    @Test
+    void violationsOutsideTheMonthAreNotReported() {
+        // semaine du lundi 22 avril 2030, entièrement en avril : 60 h jusqu’au dimanche 28,
+        // veille de la fenêtre lue pour mai
+        Schedule april = data.schedule(company, siteA, 4, 2030);
+        Schedule may = data.schedule(company, siteA, 5, 2030);
+        work(april, LocalDate.of(2030, 4, 24), 5);
+        work(may, LocalDate.of(2030, 5, 6), 1);
+
+        ComplianceReportDTO report = validator.validate(may);
+
+        assertTrue(report.isCompliant(), report.getViolations().toString());
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    /** {@code days} journées consécutives de 12 h (repos quotidien de 12 h respecté). */
+    private void work(Schedule schedule, LocalDate first, int days) {
+        for (int i = 0; i < days; i++) {
+            data.assignment(schedule, employee, first.plusDays(i), DAY_START, DAY_END);
+        }
+    }
+
+    private boolean hasViolation(ComplianceReportDTO report, Rule rule, LocalDate date) {
+        return report.getViolations().stream().anyMatch(v -> v.getRule() == rule
+                && v.getEmployeeId().equals(employee.getId())
+                && v.getDate().equals(date));
+    }
+}
@@ -0,0 +1,184 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.makarimal.projet_gestionautoplanningsecure.ProjetGestionautoplanningSecureApplication;
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.repository.GenerationLeaseStore;
+import org.makarimal.projet_gestionautoplanningsecure.repository.WeeklyScheduleRuleRepository;
+import org.makarimal.projet_gestionautoplanningsecure.support.IntegrationTest;
+import org.makarimal.projet_gestionautoplanningsecure.support.TestData;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.cache.CacheManager;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deux instances de l’application sur une même base H2 : le bail de génération sérialise
+ * les générations d’un (site, mois) entre instances, l’instance en attente se rattache au
+ * résultat de l’autre ou reprend un bail expiré.
+ */
+class GenerationCoordinatorTest {
+
+    private static final String DATABASE_URL =
+            "jdbc:h2:mem:coordination;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE";
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+
+    private GenerationLeaseStore leaseStore;
+    private Company company;
+    private Site site;
+
+    @BeforeAll
+    static void startNodes() {
+        // le premier crée le schéma, le second s’y branche
+        nodeA = start("node-a", "create-drop");
+        nodeB = start("node-b", "none");
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) nodeB.close();
+        if (nodeA != null) nodeA.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        leaseStore = nodeA.getBean(GenerationLeaseStore.class);
+        TestData data = new TestData(nodeA);
+        company = data.company();
+        site = data.site(company);
+        data.employee(company, site);
+        WeeklyScheduleRuleRepository rules = nodeA.getBean(WeeklyScheduleRuleRepository.class);
+        new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class)).executeWithoutResult(s -> {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                rules.save(rule(site, day));
+            }
+        });
+    }
+
+    @Test
+    void nodesDoNotShareTheSecondLevelCache() {
+        assertNotSame(nodeA.getBean(CacheManager.class), nodeB.getBean(CacheManager.class));
+    }
+
+    @Test
+    void waiterAttachesToTheGenerationOfAnotherInstance() throws Exception {
+        String key = GenerationCoordinator.leaseKey(site.getId(), YearMonth.of(2031, 3));
+        long token = leaseStore.tryAcquire(key, "node-a/test", Duration.ofMinutes(1));
+        ExecutorService requests = Executors.newSingleThreadExecutor();
+        try {
+            Future<Schedule> waiting = requests.submit(() -> nodeB.getBean(GenerationCoordinator.class)
+                    .generateSchedule(company.getId(), site.getId(), 3, 2031));
+            Thread.sleep(300);
+            assertFalse(waiting.isDone(), "l’instance B attend le bail de A");
+
+            Schedule generated = new TransactionTemplate(nodeA.getBean(PlatformTransactionManager.class))
+                    .execute(s -> nodeA.getBean(ScheduleGeneratorService.class)
+                            .generateSchedule(company.getId(), site.getId(), 3, 2031));
+            leaseStore.release(key, token, GenerationLease.Status.DONE);
+
+            assertEquals(generated.getId(), waiting.get(30, TimeUnit.SECONDS).getId());
+            assertEquals(token, leaseStore.find(key).getToken(), "aucune seconde génération");
+        } finally {
+            requests.shutdownNow();
+        }
+    }
+
+    @Test
+    void expiredLeaseOfAVanishedInstanceIsTakenOver() {
+        String key = GenerationCoordinator.leaseKey(site.getId(), YearMonth.of(2031, 4));
+        assertEquals(1L, leaseStore.tryAcquire(key, "node-gone/test", Duration.ofMillis(200)));
+
+        Schedule schedule = nodeB.getBean(GenerationCoordinator.class)
+                .generateSchedule(company.getId(), site.getId(), 4, 2031);
+
+        GenerationLease lease = leaseStore.find(key);
+        assertNotNull(schedule.getId());
+        assertEquals(2L, lease.getToken());
+        assertEquals(GenerationLease.Status.DONE, lease.getStatus());
+        assertTrue(lease.getOwner().startsWith("node-b/"));
+    }
+
+    @Test
+    void assignmentsAreGeneratedUnderTheLease() {
+        TestData data = new TestData(nodeA);
+        Schedule schedule = data.schedule(company, site, 5, 2031);
+        GenerationCoordinator coordinator = nodeB.getBean(GenerationCoordinator.class);
+
+        Schedule generated = coordinator.generateAssignments(company.getId(), schedule.getId(), 42L);
+
+        assertEquals(schedule.getId(), generated.getId());
+        assertEquals(42L, generated.getGenerationSeed());
+        GenerationLease lease = leaseStore.find(GenerationCoordinator.leaseKey(site.getId(), YearMonth.of(2031, 5)));
+        assertEquals(GenerationLease.Status.DONE, lease.getStatus());
+    }
+
+    @Test
+    void assignmentsOfAnotherCompanyAreNotFound() {
+        TestData data = new TestData(nodeA);
+        Schedule schedule = data.schedule(company, site, 6, 2031);
+        Long otherCompanyId = data.company().getId();
+
+        assertThrows(EntityNotFoundException.class, () -> nodeB.getBean(GenerationCoordinator.class)
+                .generateAssignments(otherCompanyId, schedule.getId(), null));
+        assertNull(leaseStore.find(GenerationCoordinator.leaseKey(site.getId(), YearMonth.of(2031, 6))),
+                "aucun bail pris");
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private static ConfigurableApplicationContext start(String instanceId, String ddlAuto) {
+        return new SpringApplicationBuilder(ProjetGestionautoplanningSecureApplication.class)
+                .properties(
+                        "spring.datasource.url=" + DATABASE_URL,
+                        "spring.datasource.driver-class-name=org.h2.Driver",
+                        "spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "spring.security.jwt.secret=" + IntegrationTest.JWT_SECRET,
+                        "spring.security.jwt.expiration=3600000",
+                        "planning.calendar.secret=integration-test-calendar-secret",
+                        "spring.mail.host=localhost",
+                        "planning.sql-budget.strict=true",
+                        "spring.jmx.enabled=false",
+                        "server.port=0",
+                        "planning.instance-id=" + instanceId,
+                        "planning.generation.poll-millis=50")
+                .run();
+    }
+
+    private static WeeklyScheduleRule rule(Site site, DayOfWeek day) {
+        WeeklyScheduleRule rule = WeeklyScheduleRule.builder()
+                .site(site)
+                .dayOfWeek(day)
+                .minEmployees(1)
+                .maxEmployees(2)
+                .requiredSkills(new ArrayList<>())
+                .requiredAgentTypes(new ArrayList<>(List.of(AgentType.ADS)))
+                .agents(new ArrayList<>())
+                .build();
+        rule.getAgents().add(AgentSchedule.builder()
+                .weeklyScheduleRule(rule)
+                .agentType(AgentType.ADS)
+                .startTime(LocalTime.of(8, 0))
+                .endTime(LocalTime.of(16, 0))
+                .requiredCount(1)
+                .build());
+        return rule;
+    }
+}
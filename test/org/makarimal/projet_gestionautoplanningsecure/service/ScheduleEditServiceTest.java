@@ -0,0 +1,214 @@
+package org.makarimal.projet_gestionautoplanningsecure.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.makarimal.projet_gestionautoplanningsecure.dto.ScheduleAssignmentRequest;
+import org.makarimal.projet_gestionautoplanningsecure.exception.EditConflictException;
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.repository.EditStateStore;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleAssignmentRepository;
+import org.makarimal.projet_gestionautoplanningsecure.repository.ScheduleRepository;
+import org.makarimal.projet_gestionautoplanningsecure.support.IntegrationTest;
+import org.makarimal.projet_gestionautoplanningsecure.support.TestData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Éditions concurrentes réelles : {@code @Version} JPA, version lue (If-Match) et fusion,
+ * sur la base H2 du contexte de test.
+ */
+@IntegrationTest
+class ScheduleEditServiceTest {
+
+    @Autowired
+    private ScheduleEditService editService;
+    @Autowired
+    private ScheduleAssignmentRepository assignmentRepository;
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+    @Autowired
+    private ScheduleService scheduleService;
+    @Autowired
+    private EditStateStore editStateStore;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ApplicationContext context;
+
+    private TransactionTemplate tx;
+    private Company company;
+    private ScheduleAssignment assignment;
+
+    /** État lu par un client : le formulaire et la version (ETag). */
+    private static final class Read {
+        final ScheduleAssignmentRequest form;
+        final long version;
+
+        Read(ScheduleAssignmentRequest form, long version) {
+            this.form = form;
+            this.version = version;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        TestData data = new TestData(context);
+        company = data.company();
+        Site site = data.site(company);
+        Employee employee = data.employee(company, site);
+        Schedule schedule = data.schedule(company, site, 5, 2030);
+        assignment = data.assignment(schedule, employee, LocalDate.of(2030, 5, 6));
+    }
+
+    @Test
+    void writeWithoutVersionIsRejected() {
+        Read read = read();
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> editService.updateAssignment(company.getId(), assignment.getId(), edit(read, f -> f.setNotes("x")), null));
+        assertEquals(428, e.getStatusCode().value());
+        assertEquals(read.version, read().version, "rien n’est écrit");
+    }
+
+    @Test
+    void staleEditsOfDifferentFieldsAreMerged() {
+        Read base = read();
+
+        editService.updateAssignment(company.getId(), assignment.getId(), edit(base, f -> f.setNotes("relève à 7h45")), base.version);
+        ScheduleAssignment merged = editService.updateAssignment(company.getId(), assignment.getId(),
+                edit(base, f -> f.setShift("MATIN")), base.version);
+
+        Read after = read();
+        assertEquals("relève à 7h45", after.form.getNotes(), "modification du premier éditeur conservée");
+        assertEquals("MATIN", after.form.getShift());
+        assertEquals(base.version + 2, merged.getVersion());
+    }
+
+    @Test
+    void staleEditIsMergedByAnotherInstance() {
+        // seconde instance : aucun état en mémoire partagé avec la première, seule la base l’est
+        ScheduleEditService otherInstance = new ScheduleEditService(scheduleService, scheduleRepository,
+                assignmentRepository, new ConcurrentEditMerger(editStateStore, objectMapper, 20),
+                transactionManager, true);
+        Read base = read();
+
+        editService.updateAssignment(company.getId(), assignment.getId(), edit(base, f -> f.setNotes("relève à 7h45")), base.version);
+        otherInstance.updateAssignment(company.getId(), assignment.getId(), edit(base, f -> f.setShift("MATIN")), base.version);
+
+        Read after = read();
+        assertEquals("relève à 7h45", after.form.getNotes());
+        assertEquals("MATIN", after.form.getShift());
+        assertNotNull(editStateStore.find("assignment:" + assignment.getId(), after.version),
+                "état écrit gardé pour les fusions suivantes");
+    }
+
+    @Test
+    void staleEditOfTheSameFieldIsAConflict() {
+        Read base = read();
+
+        editService.updateAssignment(company.getId(), assignment.getId(), edit(base, f -> f.setNotes("A")), base.version);
+        EditConflictException e = assertThrows(EditConflictException.class,
+                () -> editService.updateAssignment(company.getId(), assignment.getId(), edit(base, f -> f.setNotes("B")), base.version));
+
+        assertEquals(List.of("notes"), e.getFields());
+        assertEquals("A", read().form.getNotes());
+    }
+
+    @Test
+    void concurrentEditorsLoseNoUpdate() throws Exception {
+        int edits = 20;
+        long initial = read().version;
+        CyclicBarrier start = new CyclicBarrier(2);
+        ExecutorService editors = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> done = new ArrayList<>();
+            done.add(editors.submit(() -> editLoop(start, edits, i -> f -> f.setNotes("A-" + i))));
+            done.add(editors.submit(() -> editLoop(start, edits, i -> f -> f.setShift("B-" + i))));
+            for (Future<Integer> f : done) {
+                assertEquals(edits, f.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            editors.shutdownNow();
+        }
+
+        Read after = read();
+        assertEquals("A-" + (edits - 1), after.form.getNotes());
+        assertEquals("B-" + (edits - 1), after.form.getShift());
+        assertEquals(initial + 2L * edits, after.version, "une version par écriture réussie");
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    /** Chaque édition : lecture, modification d’un seul champ, écriture avec la version lue. */
+    private int editLoop(CyclicBarrier start, int edits,
+                         IntFunction<Consumer<ScheduleAssignmentRequest>> change)
+            throws Exception {
+        start.await(10, TimeUnit.SECONDS);
+        int written = 0;
+        for (int i = 0; i < edits; i++) {
+            Consumer<ScheduleAssignmentRequest> apply = change.apply(i);
+            while (true) {
+                Read read = read();
+                try {
+                    editService.updateAssignment(company.getId(), assignment.getId(),
+                            edit(read, apply), read.version);
+                    written++;
+                    break;
+                } catch (ObjectOptimisticLockingFailureException e) {
+                    // tentatives épuisées côté serveur : le client recharge et recommence
+                }
+            }
+        }
+        return written;
+    }
+
+    private Read read() {
+        return tx.execute(status -> {
+            ScheduleAssignment a = assignmentRepository.findById(assignment.getId()).orElseThrow();
+            return new Read(ScheduleAssignmentRequest.builder()
+                    .employeeId(a.getEmployee().getId())
+                    .date(a.getDate())
+                    .startTime(a.getStartTime())
+                    .endTime(a.getEndTime())
+                    .siteId(a.getSite().getId())
+                    .agentType(a.getAgentType())
+                    .notes(a.getNotes())
+                    .shift(a.getShift())
+                    .build(), a.getVersion());
+        });
+    }
+
+    /** Formulaire lu, un champ modifié. */
+    private static ScheduleAssignmentRequest edit(Read read, Consumer<ScheduleAssignmentRequest> change) {
+        ScheduleAssignmentRequest form = read.form;
+        ScheduleAssignmentRequest edited = ScheduleAssignmentRequest.builder()
+                .employeeId(form.getEmployeeId())
+                .date(form.getDate())
+                .startTime(form.getStartTime())
+                .endTime(form.getEndTime())
+                .siteId(form.getSiteId())
+                .agentType(form.getAgentType())
+                .notes(form.getNotes())
+                .shift(form.getShift())
+                .build();
+        change.accept(edited);
+        return edited;
+    }
+}
@@ -0,0 +1,31 @@
+package org.makarimal.projet_gestionautoplanningsecure.support;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Contexte complet de l’application sur une base H2 en mémoire (schéma créé par Hibernate).
+ * Les propriétés sans valeur par défaut dans le code sont fixées ici ; le budget SQL est
+ * strict : un endpoint qui le dépasse fait échouer le test.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:planning;DB_CLOSE_DELAY=-1;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.security.jwt.secret=" + IntegrationTest.JWT_SECRET,
+        "spring.security.jwt.expiration=3600000",
+        "planning.calendar.secret=integration-test-calendar-secret",
+        "spring.mail.host=localhost",
+        "planning.sql-budget.strict=true"
+})
+public @interface IntegrationTest {
+
+    /** Clé HMAC de test (base64url, 256 bits). */
+    String JWT_SECRET = "aW50ZWdyYXRpb24tdGVzdC1qd3Qtc2lnbmluZy1rZXktMzJi";
+}
@@ -0,0 +1,131 @@
+package org.makarimal.projet_gestionautoplanningsecure.support;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.*;
+import org.makarimal.projet_gestionautoplanningsecure.repository.*;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Jeu de données minimal (société, site, employé, planning, affectation), chaque
+ * création validée dans sa propre transaction. Les noms sont uniques : les tests
+ * partagent la même base.
+ */
+public class TestData {
+
+    private final UserRepository userRepository;
+    private final CompanyRepository companyRepository;
+    private final SiteRepository siteRepository;
+    private final EmployeeRepository employeeRepository;
+    private final ScheduleRepository scheduleRepository;
+    private final ScheduleAssignmentRepository assignmentRepository;
+    private final TransactionTemplate tx;
+
+    public TestData(ApplicationContext context) {
+        this.userRepository = context.getBean(UserRepository.class);
+        this.companyRepository = context.getBean(CompanyRepository.class);
+        this.siteRepository = context.getBean(SiteRepository.class);
+        this.employeeRepository = context.getBean(EmployeeRepository.class);
+        this.scheduleRepository = context.getBean(ScheduleRepository.class);
+        this.assignmentRepository = context.getBean(ScheduleAssignmentRepository.class);
+        this.tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    public Company company() {
+        return tx.execute(status -> {
+            String unique = unique();
+            User owner = userRepository.save(User.builder()
+                    .firstName("Admin")
+                    .lastName(unique)
+                    .email(unique + "@test.local")
+                    .username(unique)
+                    .password("{noop}secret")
+                    .roles(new ArrayList<>(List.of(Role.ADMIN)))
+                    .isActive(true)
+                    .build());
+            Company company = companyRepository.save(Company.builder()
+                    .name("Société " + unique)
+                    .owner(owner)
+                    .subscriptionStatus(Company.SubscriptionStatus.ACTIVE)
+                    .maxEmployees(100)
+                    .maxSites(10)
+                    .build());
+            owner.setCompany(company);
+            return company;
+        });
+    }
+
+    public Site site(Company company) {
+        return tx.execute(status -> siteRepository.save(Site.builder()
+                .company(companyRepository.getReferenceById(company.getId()))
+                .name("Site " + unique())
+                .address("1 rue du Test")
+                .city("Paris")
+                .zipCode("75001")
+                .country("France")
+                .active(true)
+                .build()));
+    }
+
+    public Employee employee(Company company, Site site) {
+        return tx.execute(status -> {
+            String unique = unique();
+            return employeeRepository.save(Employee.builder()
+                    .company(companyRepository.getReferenceById(company.getId()))
+                    .site(siteRepository.getReferenceById(site.getId()))
+                    .firstName("Agent")
+                    .lastName(unique)
+                    .email(unique + "@test.local")
+                    .position("Agent de sécurité")
+                    .employeeCode(unique)
+                    .contractType(Employee.ContractType.FULL_TIME)
+                    .maxHoursPerWeek(48)
+                    .agentTypes(new HashSet<>(Set.of(AgentType.ADS)))
+                    .isActive(true)
+                    .build());
+        });
+    }
+
+    public Schedule schedule(Company company, Site site, int month, int year) {
+        return tx.execute(status -> scheduleRepository.save(Schedule.builder()
+                .company(companyRepository.getReferenceById(company.getId()))
+                .site(siteRepository.getReferenceById(site.getId()))
+                .name("Planning " + month + "/" + year)
+                .month(month)
+                .year(year)
+                .build()));
+    }
+
+    public ScheduleAssignment assignment(Schedule schedule, Employee employee, LocalDate date) {
+        return assignment(schedule, employee, date, LocalTime.of(8, 0), LocalTime.of(16, 0));
+    }
+
+    /** Vacation du même jour ({@code end} après {@code start}). */
+    public ScheduleAssignment assignment(Schedule schedule, Employee employee, LocalDate date,
+                                         LocalTime start, LocalTime end) {
+        return tx.execute(status -> assignmentRepository.save(ScheduleAssignment.builder()
+                .schedule(scheduleRepository.getReferenceById(schedule.getId()))
+                .employee(employeeRepository.getReferenceById(employee.getId()))
+                .site(siteRepository.getReferenceById(schedule.getSite().getId()))
+                .date(date)
+                .startTime(start)
+                .endTime(end)
+                .duration((int) Duration.between(start, end).toMinutes())
+                .agentType(AgentType.ADS)
+                .status(ScheduleAssignment.AssignmentStatus.ASSIGNED)
+                .build()));
+    }
+
+    private static String unique() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -2,7 +2,9 @@ package org.makarimal.projet_gestionautoplanningsecure.util;
 
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.makarimal.projet_gestionautoplanningsecure.model.Company;
 import org.makarimal.projet_gestionautoplanningsecure.model.User;
+import org.makarimal.projet_gestionautoplanningsecure.repository.CompanyRepository;
 import org.makarimal.projet_gestionautoplanningsecure.repository.UserRepository;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -14,16 +16,40 @@ import org.springframework.stereotype.Component;
 public class AuthServiceHelper {
 
     private final UserRepository userRepository;
+    private final CompanyRepository companyRepository;
 
     public User getCurrentUser() {
+        UserDetails userDetails = currentPrincipal();
+
+        return userRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé"));
+    }
+
+    /** Id de la société de l’utilisateur courant, lu dans le principal (pas de requête). */
+    public Long getCurrentCompanyId() {
+        UserDetails userDetails = currentPrincipal();
+        if (userDetails instanceof User user && user.getCompany() != null) {
+            return user.getCompany().getId();
+        }
+        Company company = getCurrentUser().getCompany();
+        if (company == null) {
+            throw new IllegalStateException("User is not associated with a company");
+        }
+        return company.getId();
+    }
+
+    /** Référence (proxy non initialisé) vers la société courante : suffit pour les clés étrangères. */
+    public Company getCurrentCompany() {
+        return companyRepository.getReferenceById(getCurrentCompanyId());
+    }
+
+    private UserDetails currentPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
         if (authentication == null || !(authentication.getPrincipal() instanceof UserDetails userDetails)) {
             throw new IllegalStateException("Aucun utilisateur authentifié");
         }
-
-        return userRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new EntityNotFoundException("Utilisateur non trouvé"));
+        return userDetails;
     }
 }
 
@@ -0,0 +1,144 @@
+package org.makarimal.projet_gestionautoplanningsecure.util;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Réponse qui exécute une action (pose d’en-têtes) une seule fois, juste avant que la
+ * réponse soit validée : premier octet écrit, flush, erreur ou redirection. Rien n’est
+ * mis en tampon. Après la chaîne de filtres, appeler {@link #beforeCommit()} pour les
+ * réponses sans corps.
+ */
+public class BeforeCommitResponse extends HttpServletResponseWrapper {
+
+    private final Runnable action;
+    private boolean done;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public BeforeCommitResponse(HttpServletResponse response, Runnable action) {
+        super(response);
+        this.action = action;
+    }
+
+    /** Exécute l’action si ce n’est déjà fait et si la réponse n’est pas encore envoyée. */
+    public void beforeCommit() {
+        if (done) {
+            return;
+        }
+        done = true;
+        if (!isCommitted()) {
+            action.run();
+        }
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            ServletOutputStream delegate = super.getOutputStream();
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    beforeCommit();
+                    delegate.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    beforeCommit();
+                    delegate.write(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    beforeCommit();
+                    delegate.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    beforeCommit();
+                    delegate.close();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return delegate.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    delegate.setWriteListener(listener);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(super.getWriter()) {
+                @Override
+                public void write(int c) {
+                    beforeCommit();
+                    super.write(c);
+                }
+
+                @Override
+                public void write(char[] buf, int off, int len) {
+                    beforeCommit();
+                    super.write(buf, off, len);
+                }
+
+                @Override
+                public void write(String s, int off, int len) {
+                    beforeCommit();
+                    super.write(s, off, len);
+                }
+
+                @Override
+                public void flush() {
+                    beforeCommit();
+                    super.flush();
+                }
+
+                @Override
+                public void close() {
+                    beforeCommit();
+                    super.close();
+                }
+            };
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        beforeCommit();
+        super.flushBuffer();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        beforeCommit();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        beforeCommit();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        beforeCommit();
+        super.sendRedirect(location);
+    }
+}
@@ -0,0 +1,40 @@
+package org.makarimal.projet_gestionautoplanningsecure.util;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * ETag / If-Match des entités versionnées ({@code @Version}) : l’ETag est la version
+ * entre guillemets, {@code "3"}.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @return version attendue, null si l’en-tête est absent ou vaut {@code *}
+     * @throws ResponseStatusException 400 si l’en-tête n’est pas un ETag émis ici
+     */
+    public static Long parseIfMatch(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        String tag = header.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match invalide : " + header);
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "If-Match invalide : " + header);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.makarimal.projet_gestionautoplanningsecure.util;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Écriture d’un tableau ligne par ligne dans un flux (export CSV ou XLSX).
+ * Rien n’est gardé en mémoire au-delà de la ligne courante : le volume exporté
+ * ne change pas l’empreinte mémoire.
+ */
+public abstract class TableWriter implements Closeable {
+
+    /** Une ligne ; cellules {@link Number} écrites comme nombres, le reste comme texte. */
+    public abstract void row(Object... cells) throws IOException;
+
+    /** CSV RFC 4180 (séparateur virgule, UTF-8 avec BOM pour Excel). */
+    public static TableWriter csv(OutputStream out) throws IOException {
+        return new Csv(out);
+    }
+
+    /** Classeur XLSX à une feuille, écrit en SpreadsheetML brut (sans bibliothèque). */
+    public static TableWriter xlsx(OutputStream out, String sheetName) throws IOException {
+        return new Xlsx(out, sheetName);
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private static final class Csv extends TableWriter {
+        private final Writer writer;
+
+        Csv(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write('\uFEFF');
+        }
+
+        @Override
+        public void row(Object... cells) throws IOException {
+            for (int i = 0; i < cells.length; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(quote(format(cells[i])));
+            }
+            writer.write("\r\n");
+        }
+
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private static final class Xlsx extends TableWriter {
+        private final ZipOutputStream zip;
+        private final Writer sheet;
+        private int rowIndex;
+
+        Xlsx(OutputStream out, String sheetName) throws IOException {
+            this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+            entry("[Content_Types].xml", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">\
+                    <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>\
+                    <Default Extension="xml" ContentType="application/xml"/>\
+                    <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>\
+                    <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>\
+                    </Types>""");
+            entry("_rels/.rels", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+                    <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>\
+                    </Relationships>""");
+            entry("xl/workbook.xml", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" \
+                    xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">\
+                    <sheets><sheet name="%s" sheetId="1" r:id="rId1"/></sheets>\
+                    </workbook>""".formatted(escape(sheetName)));
+            entry("xl/_rels/workbook.xml.rels", """
+                    <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                    <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+                    <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>\
+                    </Relationships>""");
+
+            // Dernière entrée : la feuille est écrite au fil des lignes
+            zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            this.sheet = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+            sheet.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                    + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        }
+
+        private void entry(String name, String content) throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        @Override
+        public void row(Object... cells) throws IOException {
+            rowIndex++;
+            sheet.write("<row r=\"" + rowIndex + "\">");
+            for (Object cell : cells) {
+                if (cell == null) {
+                    sheet.write("<c/>");
+                } else if (cell instanceof Number) {
+                    sheet.write("<c><v>" + format(cell) + "</v></c>");
+                } else {
+                    sheet.write("<c t=\"inlineStr\"><is><t>" + escape(cell.toString()) + "</t></is></c>");
+                }
+            }
+            sheet.write("</row>");
+        }
+
+        @Override
+        public void close() throws IOException {
+            sheet.write("</sheetData></worksheet>");
+            sheet.flush();
+            zip.closeEntry();
+            zip.finish();
+        }
+
+        private static String escape(String value) {
+            StringBuilder sb = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '&' -> sb.append("&amp;");
+                    case '<' -> sb.append("&lt;");
+                    case '>' -> sb.append("&gt;");
+                    case '"' -> sb.append("&quot;");
+                    default -> {
+                        // Caractères de contrôle interdits en XML 1.0
+                        if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') sb.append(c);
+                    }
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /* ------------------------------------------------------------------ */
+
+    private static String format(Object cell) {
+        if (cell == null) return "";
+        if (cell instanceof BigDecimal decimal) return decimal.toPlainString();
+        return cell.toString();
+    }
+}
@@ -0,0 +1,33 @@
+package org.makarimal.projet_gestionautoplanningsecure.util;
+
+import org.makarimal.projet_gestionautoplanningsecure.model.ScheduleAssignment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+
+/**
+ * Petites aides sur les créneaux horaires, partagées par les générateurs
+ * (et mesurées par les benchmarks JMH).
+ */
+public final class TimeSlots {
+
+    private TimeSlots() {
+    }
+
+    /** true si [start1, end1] et [start2, end2] se touchent ou se chevauchent (bornes incluses). */
+    public static boolean overlaps(LocalTime start1, LocalTime end1, LocalTime start2, LocalTime end2) {
+        return !(end1.isBefore(start2) || start1.isAfter(end2));
+    }
+
+    /** true si une des affectations du jour chevauche le créneau demandé. */
+    public static boolean hasConflict(Collection<ScheduleAssignment> assignments,
+                                      LocalDate date, LocalTime start, LocalTime end) {
+        for (ScheduleAssignment a : assignments) {
+            if (a.getDate().equals(date) && overlaps(a.getStartTime(), a.getEndTime(), start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}